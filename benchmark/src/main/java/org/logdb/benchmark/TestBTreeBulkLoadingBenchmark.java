@@ -0,0 +1,142 @@
+package org.logdb.benchmark;
+
+import org.logdb.bbtree.BTree;
+import org.logdb.bbtree.BTreeBulkLoader;
+import org.logdb.bbtree.BTreeImpl;
+import org.logdb.bbtree.NodeOptions;
+import org.logdb.bbtree.NodesManager;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.bit.ByteArrayComparator;
+import org.logdb.checksum.ChecksumType;
+import org.logdb.root.index.RootIndex;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.file.FileStorage;
+import org.logdb.storage.file.FileStorageFactory;
+import org.logdb.storage.file.FileType;
+import org.logdb.time.SystemTimeSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.logdb.benchmark.BenchmarkUtils.createInitialRootReference;
+import static org.logdb.benchmark.BenchmarkUtils.createRootIndex;
+import static org.logdb.benchmark.DefaultBenchmarkConfig.BYTE_ORDER;
+import static org.logdb.benchmark.DefaultBenchmarkConfig.INITIAL_VERSION;
+import static org.logdb.benchmark.DefaultBenchmarkConfig.NODE_LOG_SIZE;
+import static org.logdb.benchmark.DefaultBenchmarkConfig.PAGE_SIZE_BYTES;
+import static org.logdb.benchmark.DefaultBenchmarkConfig.SEGMENT_FILE_SIZE;
+
+public class TestBTreeBulkLoadingBenchmark
+{
+    private static final double FILL_FACTOR = 0.9;
+
+    @State(Scope.Thread)
+    public static class BenchmarkState
+    {
+        static final int NUMBER_OF_PAIRS = 1_000_000;
+
+        private final List<Map.Entry<byte[], byte[]>> sortedPairs = new ArrayList<>(NUMBER_OF_PAIRS);
+        private Path rootDirectory;
+        private NodesManager nodesManager;
+
+        @Setup(Level.Trial)
+        public void doTrialSetup()
+        {
+            for (long i = 0; i < NUMBER_OF_PAIRS; i++)
+            {
+                final byte[] bytes = BinaryHelper.longToBytes(i);
+                sortedPairs.add(new AbstractMap.SimpleImmutableEntry<>(bytes, bytes));
+            }
+            sortedPairs.sort((first, second) -> ByteArrayComparator.INSTANCE.compare(first.getKey(), second.getKey()));
+        }
+
+        @Setup(Level.Invocation)
+        public void doSetup() throws IOException
+        {
+            rootDirectory = Paths.get("./benchmark_root");
+            Files.createDirectories(rootDirectory);
+
+            final FileStorage storage = FileStorageFactory.createNew(
+                    rootDirectory,
+                    FileType.INDEX,
+                    SEGMENT_FILE_SIZE,
+                    BYTE_ORDER,
+                    PAGE_SIZE_BYTES,
+                    NODE_LOG_SIZE,
+                    ChecksumType.CRC32);
+
+            final RootIndex rootIndex = createRootIndex(
+                    rootDirectory,
+                    SEGMENT_FILE_SIZE,
+                    PAGE_SIZE_BYTES,
+                    NODE_LOG_SIZE,
+                    BYTE_ORDER);
+
+            nodesManager = new NodesManager(storage, rootIndex, false, NODE_LOG_SIZE, NodeOptions.DEFAULT);
+        }
+
+        @TearDown(Level.Invocation)
+        public void doTearDown() throws Exception
+        {
+            nodesManager.close();
+            BenchmarkUtils.removeAllFilesFromDirectory(rootDirectory);
+        }
+
+        void bulkLoad() throws IOException
+        {
+            final BTreeBulkLoader bulkLoader = new BTreeBulkLoader(nodesManager, new SystemTimeSource(), FILL_FACTOR);
+            bulkLoader.load(sortedPairs.iterator(), INITIAL_VERSION);
+        }
+
+        void putAllAndCommit() throws IOException
+        {
+            final BTree btree = new BTreeImpl(
+                    nodesManager,
+                    new SystemTimeSource(),
+                    INITIAL_VERSION,
+                    StorageUnits.INVALID_PAGE_NUMBER,
+                    createInitialRootReference(nodesManager));
+
+            for (final Map.Entry<byte[], byte[]> pair : sortedPairs)
+            {
+                btree.put(pair.getKey(), pair.getValue());
+            }
+            btree.commit();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Threads(1)
+    public void testBulkLoad(final BenchmarkState benchmarkState) throws IOException
+    {
+        benchmarkState.bulkLoad();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Threads(1)
+    public void testPutAll(final BenchmarkState benchmarkState) throws IOException
+    {
+        benchmarkState.putAllAndCommit();
+    }
+}
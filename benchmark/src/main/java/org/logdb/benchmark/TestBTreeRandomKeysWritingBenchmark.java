@@ -2,6 +2,7 @@ package org.logdb.benchmark;
 
 import org.logdb.bbtree.BTree;
 import org.logdb.bbtree.BTreeImpl;
+import org.logdb.bbtree.NodeOptions;
 import org.logdb.bbtree.NodesManager;
 import org.logdb.bit.BinaryHelper;
 import org.logdb.checksum.ChecksumType;
@@ -67,7 +68,7 @@ public class TestBTreeRandomKeysWritingBenchmark
                     NODE_LOG_SIZE,
                     ByteOrder.LITTLE_ENDIAN);
 
-            nodesManager = new NodesManager(storage, rootIndex, false, NODE_LOG_SIZE);
+            nodesManager = new NodesManager(storage, rootIndex, false, NODE_LOG_SIZE, NodeOptions.DEFAULT);
 
             btree = new BTreeImpl(
                     nodesManager,
@@ -1,6 +1,7 @@
 package org.logdb.benchmark;
 
 import org.logdb.bbtree.BTreeWithLog;
+import org.logdb.bbtree.NodeOptions;
 import org.logdb.bbtree.NodesManager;
 import org.logdb.bit.BinaryHelper;
 import org.logdb.checksum.ChecksumType;
@@ -66,7 +67,7 @@ public class TestBTreeWithLogRandomKeysWritingBenchmark
                     NODE_LOG_SIZE,
                     ByteOrder.LITTLE_ENDIAN);
 
-            nodesManager = new NodesManager(storage, rootIndex, false, NODE_LOG_SIZE);
+            nodesManager = new NodesManager(storage, rootIndex, false, NODE_LOG_SIZE, NodeOptions.DEFAULT);
 
             btree = new BTreeWithLog(
                     nodesManager,
@@ -0,0 +1,185 @@
+package org.logdb.benchmark;
+
+import org.logdb.async.AsyncWriteDelegatingBTree;
+import org.logdb.async.ConcurrentWriteBTree;
+import org.logdb.async.NonDaemonThreadFactory;
+import org.logdb.bbtree.BTree;
+import org.logdb.bbtree.BTreeImpl;
+import org.logdb.bbtree.NodeOptions;
+import org.logdb.bbtree.NodesManager;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.checksum.ChecksumType;
+import org.logdb.root.index.RootIndex;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.file.FileStorage;
+import org.logdb.storage.file.FileStorageFactory;
+import org.logdb.storage.file.FileType;
+import org.logdb.time.SystemTimeSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.logdb.benchmark.BenchmarkUtils.createInitialRootReference;
+import static org.logdb.benchmark.BenchmarkUtils.createRootIndex;
+import static org.logdb.benchmark.DefaultBenchmarkConfig.BYTE_ORDER;
+import static org.logdb.benchmark.DefaultBenchmarkConfig.INITIAL_VERSION;
+import static org.logdb.benchmark.DefaultBenchmarkConfig.PAGE_SIZE_BYTES;
+import static org.logdb.benchmark.DefaultBenchmarkConfig.SEGMENT_FILE_SIZE;
+
+/**
+ * Measures how random puts to a single tree scale with the number of writer threads,
+ * combining the writes of concurrent writers against queueing them to the single writer thread of the async tree.
+ */
+public class TestConcurrentBTreeWritingBenchmark
+{
+    @State(Scope.Benchmark)
+    public static class BenchmarkState
+    {
+        static final int NUMBER_OF_PAIRS = 1_000_000;
+        static final int PUTS_PER_COMMIT = 1000;
+        static final int MAX_BATCH_SIZE = 256;
+        static final int ASYNC_QUEUE_CAPACITY = 16384;
+
+        @Param({"concurrent", "async"})
+        private String writeMode;
+
+        private Path rootDirectory;
+        private BTree btree;
+        private final AtomicLong numberOfPuts = new AtomicLong();
+        private final ThreadLocal<byte[]> longBuffers = ThreadLocal.withInitial(() -> new byte[Long.BYTES]);
+
+        @Setup(Level.Trial)
+        public void doSetup() throws IOException
+        {
+            rootDirectory = Paths.get("./benchmark_root");
+            Files.createDirectories(rootDirectory);
+
+            final FileStorage storage = FileStorageFactory.createNew(
+                    rootDirectory,
+                    FileType.INDEX,
+                    SEGMENT_FILE_SIZE,
+                    BYTE_ORDER,
+                    PAGE_SIZE_BYTES,
+                    StorageUnits.ZERO_SIZE,
+                    ChecksumType.CRC32);
+
+            final RootIndex rootIndex = createRootIndex(
+                    rootDirectory,
+                    SEGMENT_FILE_SIZE,
+                    PAGE_SIZE_BYTES,
+                    StorageUnits.ZERO_SIZE,
+                    BYTE_ORDER);
+
+            final NodesManager nodesManager = new NodesManager(storage, rootIndex, false, StorageUnits.ZERO_SIZE, NodeOptions.DEFAULT);
+            final BTreeImpl delegate = new BTreeImpl(
+                    nodesManager,
+                    new SystemTimeSource(),
+                    INITIAL_VERSION,
+                    StorageUnits.INVALID_PAGE_NUMBER,
+                    createInitialRootReference(nodesManager));
+
+            if ("async".equals(writeMode))
+            {
+                final AsyncWriteDelegatingBTree asyncBTree = new AsyncWriteDelegatingBTree(
+                        new NonDaemonThreadFactory(),
+                        delegate,
+                        ASYNC_QUEUE_CAPACITY);
+                asyncBTree.start();
+                btree = asyncBTree;
+            }
+            else
+            {
+                btree = new ConcurrentWriteBTree(delegate, MAX_BATCH_SIZE);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void doTearDown() throws Exception
+        {
+            btree.close();
+            BenchmarkUtils.removeAllFilesFromDirectory(rootDirectory);
+        }
+
+        void putRandomKey()
+        {
+            final byte[] longBuffer = longBuffers.get();
+            BinaryHelper.longToBytes(ThreadLocalRandom.current().nextInt(NUMBER_OF_PAIRS), longBuffer);
+            btree.put(longBuffer, longBuffer);
+
+            //the async tree commits from its own thread, the commit of the tree is a no op
+            if (numberOfPuts.incrementAndGet() % PUTS_PER_COMMIT == 0)
+            {
+                try
+                {
+                    btree.commit();
+                }
+                catch (final IOException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public void testBench1Threads(final BenchmarkState benchmarkState)
+    {
+        benchmarkState.putRandomKey();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(2)
+    public void testBench2Threads(final BenchmarkState benchmarkState)
+    {
+        benchmarkState.putRandomKey();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public void testBench4Threads(final BenchmarkState benchmarkState)
+    {
+        benchmarkState.putRandomKey();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(8)
+    public void testBench8Threads(final BenchmarkState benchmarkState)
+    {
+        benchmarkState.putRandomKey();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(16)
+    public void testBench16Threads(final BenchmarkState benchmarkState)
+    {
+        benchmarkState.putRandomKey();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(32)
+    public void testBench32Threads(final BenchmarkState benchmarkState)
+    {
+        benchmarkState.putRandomKey();
+    }
+}
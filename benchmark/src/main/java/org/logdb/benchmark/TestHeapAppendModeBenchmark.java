@@ -0,0 +1,124 @@
+package org.logdb.benchmark;
+
+import org.logdb.bit.BinaryHelper;
+import org.logdb.checksum.ChecksumFactory;
+import org.logdb.checksum.ChecksumHelper;
+import org.logdb.checksum.ChecksumType;
+import org.logdb.logfile.LogFile;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.file.FileStorage;
+import org.logdb.storage.file.FileStorageFactory;
+import org.logdb.storage.file.FileType;
+import org.logdb.time.SystemTimeSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.logdb.benchmark.DefaultBenchmarkConfig.BYTE_ORDER;
+import static org.logdb.benchmark.DefaultBenchmarkConfig.INITIAL_VERSION;
+import static org.logdb.benchmark.DefaultBenchmarkConfig.PAGE_SIZE_BYTES;
+import static org.logdb.benchmark.DefaultBenchmarkConfig.SEGMENT_FILE_SIZE;
+
+/**
+ * Measures the puts of small records to the heap file, writing them through the file channel
+ * against copying them into the READ_WRITE mapping of the segment.
+ */
+public class TestHeapAppendModeBenchmark
+{
+    @State(Scope.Benchmark)
+    public static class BenchmarkState
+    {
+        static final int NUMBER_OF_PAIRS = 1_000_000;
+
+        @Param({"channel", "mapped"})
+        private String appendMode;
+
+        private Path rootDirectory;
+        private LogFile logFile;
+        private final ThreadLocal<byte[]> longBuffers = ThreadLocal.withInitial(() -> new byte[Long.BYTES]);
+
+        @Setup(Level.Trial)
+        public void doSetup() throws IOException
+        {
+            rootDirectory = Paths.get("./benchmark_root");
+            Files.createDirectories(rootDirectory);
+
+            final FileStorage storage = FileStorageFactory.createNew(
+                    rootDirectory,
+                    FileType.HEAP,
+                    SEGMENT_FILE_SIZE,
+                    BYTE_ORDER,
+                    PAGE_SIZE_BYTES,
+                    StorageUnits.ZERO_SIZE,
+                    ChecksumType.CRC32);
+
+            if ("mapped".equals(appendMode))
+            {
+                storage.appendThroughMapping();
+            }
+
+            final ChecksumHelper checksumHelper = new ChecksumHelper(
+                    ChecksumFactory.checksumFromType(ChecksumType.CRC32),
+                    ChecksumType.CRC32);
+            logFile = new LogFile(storage, new SystemTimeSource(), INITIAL_VERSION, false, checksumHelper);
+        }
+
+        @TearDown(Level.Trial)
+        public void doTearDown() throws Exception
+        {
+            logFile.close();
+            BenchmarkUtils.removeAllFilesFromDirectory(rootDirectory);
+        }
+
+        void putRandomKey()
+        {
+            final byte[] longBuffer = longBuffers.get();
+            BinaryHelper.longToBytes(ThreadLocalRandom.current().nextInt(NUMBER_OF_PAIRS), longBuffer);
+            try
+            {
+                logFile.put(longBuffer, longBuffer);
+            }
+            catch (final IOException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public void testBench1Threads(final BenchmarkState benchmarkState)
+    {
+        benchmarkState.putRandomKey();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public void testBench4Threads(final BenchmarkState benchmarkState)
+    {
+        benchmarkState.putRandomKey();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(8)
+    public void testBench8Threads(final BenchmarkState benchmarkState)
+    {
+        benchmarkState.putRandomKey();
+    }
+}
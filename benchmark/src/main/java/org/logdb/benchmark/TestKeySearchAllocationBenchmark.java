@@ -0,0 +1,160 @@
+package org.logdb.benchmark;
+
+import org.logdb.bit.BinaryHelper;
+import org.logdb.bit.ByteArrayComparator;
+import org.logdb.bit.DirectMemory;
+import org.logdb.bit.MemoryFactory;
+import org.logdb.storage.ByteOffset;
+import org.logdb.storage.ByteSize;
+import org.logdb.storage.StorageUnits;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.logdb.benchmark.DefaultBenchmarkConfig.BYTE_ORDER;
+
+/**
+ * Compares the binary search of a key among the keys stored in a page, copying every probed key out of the page
+ * as the search used to do, against comparing the key in place.
+ * Run the main method to get the allocation rate of both searches from the GC profiler (gc.alloc.rate.norm).
+ */
+public class TestKeySearchAllocationBenchmark
+{
+    @State(Scope.Thread)
+    public static class BenchmarkState
+    {
+        static final int NUMBER_OF_KEYS = 256;
+        static final @ByteSize int KEY_SIZE = StorageUnits.size(16);
+
+        private DirectMemory keysMemory;
+        private byte[][] searchKeys;
+        private Random random;
+
+        @Setup(Level.Trial)
+        public void doSetup()
+        {
+            keysMemory = MemoryFactory.allocateDirect(StorageUnits.size(NUMBER_OF_KEYS * KEY_SIZE), BYTE_ORDER);
+            searchKeys = new byte[NUMBER_OF_KEYS][];
+            for (int i = 0; i < NUMBER_OF_KEYS; i++)
+            {
+                final byte[] key = buildKey(i);
+                keysMemory.putBytes(getKeyOffset(i), key);
+                searchKeys[i] = key;
+            }
+
+            random = new Random();
+        }
+
+        byte[] getRandomKey()
+        {
+            return searchKeys[random.nextInt(NUMBER_OF_KEYS)];
+        }
+
+        int searchCopyingKeys(final byte[] key)
+        {
+            int low = 0;
+            int high = NUMBER_OF_KEYS - 1;
+            while (low <= high)
+            {
+                final int index = (low + high) >>> 1;
+                final byte[] storedKey = new byte[KEY_SIZE];
+                keysMemory.getBytes(getKeyOffset(index), KEY_SIZE, storedKey);
+
+                final int compare = ByteArrayComparator.INSTANCE.compare(key, storedKey);
+                if (compare > 0)
+                {
+                    low = index + 1;
+                }
+                else if (compare < 0)
+                {
+                    high = index - 1;
+                }
+                else
+                {
+                    return index;
+                }
+            }
+            return -(low + 1);
+        }
+
+        int searchInPlace(final byte[] key)
+        {
+            int low = 0;
+            int high = NUMBER_OF_KEYS - 1;
+            while (low <= high)
+            {
+                final int index = (low + high) >>> 1;
+                final int compare = ByteArrayComparator.compare(key, keysMemory, getKeyOffset(index), KEY_SIZE);
+                if (compare > 0)
+                {
+                    low = index + 1;
+                }
+                else if (compare < 0)
+                {
+                    high = index - 1;
+                }
+                else
+                {
+                    return index;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private static @ByteOffset long getKeyOffset(final int index)
+        {
+            return StorageUnits.offset((long) index * KEY_SIZE);
+        }
+
+        private static byte[] buildKey(final int index)
+        {
+            //same prefix for every key, so the comparison has to go past the first 8 bytes
+            final byte[] key = new byte[KEY_SIZE];
+            BinaryHelper.longToBytes(Long.MAX_VALUE, key);
+            System.arraycopy(BinaryHelper.longToBytes(index), 0, key, Long.BYTES, Long.BYTES);
+            return key;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Threads(1)
+    public int testSearchCopyingKeys(final BenchmarkState benchmarkState)
+    {
+        return benchmarkState.searchCopyingKeys(benchmarkState.getRandomKey());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Threads(1)
+    public int testSearchInPlace(final BenchmarkState benchmarkState)
+    {
+        return benchmarkState.searchInPlace(benchmarkState.getRandomKey());
+    }
+
+    public static void main(final String[] args) throws RunnerException
+    {
+        final Options options = new OptionsBuilder()
+                .include(TestKeySearchAllocationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,132 @@
+package org.logdb.benchmark;
+
+import org.logdb.LogDb;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.builder.LogDbBuilder;
+import org.logdb.storage.StorageUnits;
+import org.logdb.time.SystemTimeSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static org.logdb.benchmark.DefaultBenchmarkConfig.BYTE_ORDER;
+
+/**
+ * Compares the index page sizes, pages above 32KB store their cells as ints.
+ * Bigger pages make shallower trees, and every commit writes fewer but bigger pages.
+ */
+public class TestPageSizeBenchmark
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(TestPageSizeBenchmark.class);
+
+    @State(Scope.Benchmark)
+    public static class BenchmarkState
+    {
+        static final int NUMBER_OF_PAIRS = 1_000_000;
+        static final int PAIRS_PER_COMMIT = 1_000;
+
+        @Param({"4096", "16384", "65536"})
+        int pageSizeBytes;
+
+        private Path rootDirectory;
+        private LogDb logDb;
+        private Random random;
+        private byte[] keyBuffer;
+        private byte[] valueBuffer;
+
+        @Setup(Level.Trial)
+        public void doSetup() throws IOException
+        {
+            rootDirectory = Paths.get("./benchmark_root");
+            Files.createDirectories(rootDirectory);
+
+            logDb = new LogDbBuilder()
+                    .setRootDirectory(rootDirectory)
+                    .setByteOrder(BYTE_ORDER)
+                    .setPageSizeBytes(StorageUnits.size(pageSizeBytes))
+                    .setSegmentFileSize(StorageUnits.size((Integer.MAX_VALUE / pageSizeBytes) * (long) pageSizeBytes))
+                    .useIndexWithLog(false)
+                    .setTimeSource(new SystemTimeSource())
+                    .asyncIndexWrite(false)
+                    .shouldSyncWrite(false)
+                    .build();
+
+            random = new Random();
+            keyBuffer = new byte[Long.BYTES];
+            valueBuffer = new byte[Long.BYTES];
+
+            LOGGER.info("===================Creating Database with pages of " + pageSizeBytes + " bytes...");
+            for (int i = 0; i < NUMBER_OF_PAIRS; i++)
+            {
+                put(i);
+                if (i % PAIRS_PER_COMMIT == 0)
+                {
+                    logDb.commitIndex();
+                }
+            }
+            logDb.commitIndex();
+            LOGGER.info("===================Database Created");
+        }
+
+        @TearDown(Level.Trial)
+        public void doTearDown() throws Exception
+        {
+            logDb.close();
+            BenchmarkUtils.removeAllFilesFromDirectory(rootDirectory);
+        }
+
+        void putRandomBatch() throws IOException
+        {
+            for (int i = 0; i < PAIRS_PER_COMMIT; i++)
+            {
+                put(random.nextInt(NUMBER_OF_PAIRS));
+            }
+            logDb.commitIndex();
+        }
+
+        byte[] getRandom()
+        {
+            BinaryHelper.longToBytes(random.nextInt(NUMBER_OF_PAIRS), keyBuffer);
+            return logDb.get(keyBuffer);
+        }
+
+        private void put(final long key) throws IOException
+        {
+            BinaryHelper.longToBytes(key, keyBuffer);
+            BinaryHelper.longToBytes(key, valueBuffer);
+            logDb.put(keyBuffer, valueBuffer);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public void testCommitBatch(final BenchmarkState benchmarkState) throws IOException
+    {
+        benchmarkState.putRandomBatch();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public void testRandomRead(final BenchmarkState benchmarkState, final Blackhole blackhole)
+    {
+        blackhole.consume(benchmarkState.getRandom());
+    }
+}
@@ -0,0 +1,117 @@
+package org.logdb.benchmark;
+
+import org.logdb.LogDb;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.builder.LogDbBuilder;
+import org.logdb.time.SystemTimeSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static org.logdb.benchmark.DefaultBenchmarkConfig.BYTE_ORDER;
+import static org.logdb.benchmark.DefaultBenchmarkConfig.PAGE_LOG_SIZE_BYTES;
+import static org.logdb.benchmark.DefaultBenchmarkConfig.PAGE_SIZE_BYTES;
+import static org.logdb.benchmark.DefaultBenchmarkConfig.SEGMENT_FILE_SIZE;
+
+public class TestRandomGroupCommitWritingBenchmark
+{
+    @State(Scope.Benchmark)
+    public static class BenchmarkState
+    {
+        static final int NUMBER_OF_PAIRS = 1_000_000;
+        private Path rootDirectory;
+        private LogDb logDb;
+
+        @Setup(Level.Trial)
+        public void doSetup() throws IOException
+        {
+            rootDirectory = Paths.get("./benchmark_root");
+            Files.createDirectories(rootDirectory);
+
+            logDb = new LogDbBuilder()
+                    .setRootDirectory(rootDirectory)
+                    .setByteOrder(BYTE_ORDER)
+                    .setPageSizeBytes(PAGE_SIZE_BYTES)
+                    .setSegmentFileSize(SEGMENT_FILE_SIZE)
+                    .useIndexWithLog(true)
+                    .pageLogSize(PAGE_LOG_SIZE_BYTES)
+                    .setTimeSource(new SystemTimeSource())
+                    .asyncIndexWrite(true)
+                    .asyncQueueCapacity(16384)
+                    .shouldSyncWrite(true)
+                    .concurrentWriters(true)
+                    .groupCommit(true)
+                    .groupCommitMaxSize(256)
+                    .build();
+        }
+
+        @TearDown(Level.Trial)
+        public void doTearDown() throws Exception
+        {
+            logDb.close();
+            BenchmarkUtils.removeAllFilesFromDirectory(rootDirectory);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class WriterState
+    {
+        private Random random;
+
+        @Setup(Level.Trial)
+        public void doSetup()
+        {
+            random = new Random();
+        }
+
+        void insertRandom(final LogDb logDb)
+        {
+            //the async index keeps a reference to the key until it is applied, so it can't be reused
+            final byte[] key = BinaryHelper.longToBytes(random.nextInt(BenchmarkState.NUMBER_OF_PAIRS));
+            try
+            {
+                logDb.put(key, key);
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public void testBenchOneWriter(final BenchmarkState benchmarkState, final WriterState writerState)
+    {
+        writerState.insertRandom(benchmarkState.logDb);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(8)
+    public void testBenchEightWriters(final BenchmarkState benchmarkState, final WriterState writerState)
+    {
+        writerState.insertRandom(benchmarkState.logDb);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(32)
+    public void testBenchThirtyTwoWriters(final BenchmarkState benchmarkState, final WriterState writerState)
+    {
+        writerState.insertRandom(benchmarkState.logDb);
+    }
+}
@@ -0,0 +1,80 @@
+package org.logdb;
+
+import org.logdb.storage.ByteSize;
+import org.logdb.storage.StorageUnits;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the work done by the log compaction, can be read from any thread.
+ */
+public final class CompactionMetrics
+{
+    private final AtomicLong compactedSegments;
+    private final AtomicLong reclaimedBytes;
+    private final AtomicLong relocatedBytes;
+
+    CompactionMetrics()
+    {
+        this.compactedSegments = new AtomicLong(0);
+        this.reclaimedBytes = new AtomicLong(0);
+        this.relocatedBytes = new AtomicLong(0);
+    }
+
+    void recordCompactedSegment(final @ByteSize long segmentReclaimedBytes, final @ByteSize long segmentRelocatedBytes)
+    {
+        compactedSegments.incrementAndGet();
+        reclaimedBytes.addAndGet(segmentReclaimedBytes);
+        relocatedBytes.addAndGet(segmentRelocatedBytes);
+    }
+
+    public long getCompactedSegments()
+    {
+        return compactedSegments.get();
+    }
+
+    /**
+     * Gets the total size of the segments deleted by the compaction.
+     * @return the bytes of dead records released by deleting segments
+     */
+    public @ByteSize long getReclaimedBytes()
+    {
+        return StorageUnits.size(reclaimedBytes.get());
+    }
+
+    /**
+     * Gets the total size of the records the compaction appended again.
+     * @return the bytes of live records copied out of the compacted segments
+     */
+    public @ByteSize long getRelocatedBytes()
+    {
+        return StorageUnits.size(relocatedBytes.get());
+    }
+
+    /**
+     * The bytes written to the log for every byte of dead records reclaimed, counting the original write.
+     * Compacting segments that are 80% dead has a write amplification of 1.25, compacting half dead ones of 2.
+     * @return the write amplification, 1 if nothing was reclaimed yet
+     */
+    public double getWriteAmplification()
+    {
+        final long reclaimed = reclaimedBytes.get();
+        if (reclaimed == 0)
+        {
+            return 1.0;
+        }
+
+        return 1.0 + ((double) relocatedBytes.get() / reclaimed);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CompactionMetrics{" +
+                "compactedSegments=" + compactedSegments +
+                ", reclaimedBytes=" + reclaimedBytes +
+                ", relocatedBytes=" + relocatedBytes +
+                ", writeAmplification=" + getWriteAmplification() +
+                '}';
+    }
+}
@@ -0,0 +1,59 @@
+package org.logdb;
+
+/**
+ * Iterates the pairs of an index in key order, forwards and backwards.
+ * <br>
+ * A new cursor is not positioned, one of the seek methods has to be called first.
+ * Once the cursor moves past the first or the last pair it's not positioned anymore and has to be seeked again.
+ * A cursor reads the tree as it was when the cursor was opened, and must be closed once done with it.
+ */
+public interface Cursor extends AutoCloseable
+{
+    /**
+     * Positions the cursor at the first pair with a key equal or greater than the provided one.
+     * @param fromKey the key to start from
+     * @return true if the cursor is positioned at a pair, false if there are no keys equal or greater
+     */
+    boolean seek(byte[] fromKey);
+
+    /**
+     * Positions the cursor at the pair with the smallest key.
+     * @return true if the cursor is positioned at a pair, false if the index is empty
+     */
+    boolean seekToFirst();
+
+    /**
+     * Positions the cursor at the pair with the greatest key.
+     * @return true if the cursor is positioned at a pair, false if the index is empty
+     */
+    boolean seekToLast();
+
+    /**
+     * Moves the cursor to the pair with the next greater key.
+     * @return true if the cursor is positioned at a pair, false if there are no more pairs
+     */
+    boolean next();
+
+    /**
+     * Moves the cursor to the pair with the next smaller key.
+     * @return true if the cursor is positioned at a pair, false if there are no more pairs
+     */
+    boolean prev();
+
+    boolean isValid();
+
+    /**
+     * @return the key of the pair the cursor is positioned at
+     * @throws IllegalStateException if the cursor is not positioned
+     */
+    byte[] getKey();
+
+    /**
+     * @return the value of the pair the cursor is positioned at
+     * @throws IllegalStateException if the cursor is not positioned
+     */
+    byte[] getValue();
+
+    @Override
+    void close();
+}
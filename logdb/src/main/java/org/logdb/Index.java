@@ -1,6 +1,7 @@
 package org.logdb;
 
 import org.logdb.storage.Version;
+import org.logdb.time.Milliseconds;
 
 import java.io.IOException;
 
@@ -14,5 +15,37 @@ public interface Index extends AutoCloseable
 
     void remove(byte[] key);
 
+    /**
+     * Applies all the puts and deletes of the batch with a single version.
+     * @param batch the operations to apply
+     */
+    void apply(WriteBatch batch);
+
+    /**
+     * Opens a cursor over the latest version of the index, including the changes not committed yet.
+     * @return a cursor that is not positioned yet, it must be closed once done with it
+     */
+    Cursor openCursor();
+
+    /**
+     * Pins the latest version of the index, including the changes not committed yet.
+     * @return a snapshot that must be closed once done with it
+     */
+    Snapshot snapshot();
+
+    /**
+     * Pins the given version of the index, that can be either committed or not.
+     * @param version the version to pin
+     * @return a snapshot that must be closed once done with it
+     */
+    Snapshot snapshot(@Version long version);
+
+    /**
+     * Pins the latest version of the index written at or before the given timestamp.
+     * @param timestamp the timestamp to search for
+     * @return a snapshot that must be closed once done with it
+     */
+    Snapshot snapshotAt(@Milliseconds long timestamp);
+
     void commit() throws IOException;
 }
@@ -1,31 +1,134 @@
 package org.logdb;
 
+import org.logdb.bbtree.VersionNotFoundException;
 import org.logdb.bit.BinaryHelper;
+import org.logdb.bit.ReadMemory;
 import org.logdb.logfile.LogFile;
+import org.logdb.logfile.ValueView;
 import org.logdb.storage.ByteOffset;
 import org.logdb.storage.StorageUnits;
 import org.logdb.storage.Version;
+import org.logdb.time.Milliseconds;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
 
 public class LogDb implements AutoCloseable
 {
+    //a power of two no bigger than the bits of a long, so the locks of a batch fit in a bit mask
+    private static final int KEY_LOCKS = 64;
+
     private final LogFile logFile;
     private final Index index;
+    private final boolean isWrittenConcurrently;
+    /**
+     * Concurrent writers share the read side, the compactor takes the write side to update the index without racing them.
+     * A stamped lock keeps the shared side down to a single compare and swap, with no reentrancy bookkeeping.
+     */
+    private final StampedLock writeLock;
+    /**
+     * Writers of the same key hold the same lock from the append to the index update,
+     * so the index is updated in the order the records were appended and always points to the newest one.
+     */
+    private final ReentrantLock[] keyLocks;
 
-    private byte[] offsetBuffer = new byte[Long.BYTES];
-
-    public LogDb(final LogFile logFile, final Index index)
+    /**
+     * Creates a database over a log file and the index of its records.
+     * @param logFile the log file the records are appended to
+     * @param index the index pointing to the records, it must support concurrent writes if the database does
+     * @param isWrittenConcurrently true if several threads write at once, their writes then lock the keys they write.
+     *                              Otherwise every write, and the compaction, must come from a single thread
+     */
+    public LogDb(final LogFile logFile, final Index index, final boolean isWrittenConcurrently)
     {
         this.logFile = logFile;
         this.index = index;
+        this.isWrittenConcurrently = isWrittenConcurrently;
+        this.writeLock = new StampedLock();
+        this.keyLocks = new ReentrantLock[KEY_LOCKS];
+        for (int i = 0; i < keyLocks.length; i++)
+        {
+            keyLocks[i] = new ReentrantLock();
+        }
     }
 
     public void put(final byte[] key, final byte[] value) throws IOException
     {
-        final @ByteOffset long offset = logFile.put(key, value);
-        BinaryHelper.longToBytes(offset, offsetBuffer);
-        index.put(key, offsetBuffer);
+        if (!isWrittenConcurrently)
+        {
+            appendPut(key, value);
+            return;
+        }
+
+        final ReentrantLock keyLock = keyLocks[getKeyLockIndex(key)];
+        final long stamp = writeLock.readLock();
+        keyLock.lock();
+        try
+        {
+            appendPut(key, value);
+        }
+        finally
+        {
+            keyLock.unlock();
+            writeLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Writes all the puts and deletes of the batch with a single version.
+     * The log records are appended with a single write and the index is updated in a single pass.
+     * @param batch the operations to write
+     */
+    public void write(final WriteBatch batch) throws IOException
+    {
+        if (!isWrittenConcurrently)
+        {
+            writeAndApply(batch);
+            return;
+        }
+
+        final long keyLockMask = getKeyLockMask(batch.getOperations());
+        final long stamp = writeLock.readLock();
+        lockKeys(keyLockMask);
+        try
+        {
+            writeAndApply(batch);
+        }
+        finally
+        {
+            unlockKeys(keyLockMask);
+            writeLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Writes the batch without taking any lock, for single writers and for the compactor that already holds the write side.
+     */
+    void writeAndApply(final WriteBatch batch) throws IOException
+    {
+        final @ByteOffset long[] recordOffsets = logFile.write(batch);
+
+        final WriteBatch indexBatch = new WriteBatch();
+        final List<WriteBatch.Operation> operations = batch.getOperations();
+        for (int i = 0; i < operations.size(); i++)
+        {
+            final WriteBatch.Operation operation = operations.get(i);
+            if (operation.isDelete())
+            {
+                indexBatch.delete(operation.getKey());
+            }
+            else
+            {
+                indexBatch.put(operation.getKey(), BinaryHelper.longToBytes(recordOffsets[i]));
+            }
+        }
+
+        index.apply(indexBatch);
     }
 
     /**
@@ -35,34 +138,250 @@ public class LogDb implements AutoCloseable
      */
     public byte[] get(final byte[] key)
     {
-        final @ByteOffset byte[] offset = StorageUnits.offset(index.get(key));
-        if (offset == null)
+        final long segmentsPin = logFile.pinSegments();
+        try
         {
-            return null;
+            final @ByteOffset byte[] offset = StorageUnits.offset(index.get(key));
+            if (offset == null)
+            {
+                return null;
+            }
+
+            return logFile.read(StorageUnits.offset(BinaryHelper.bytesToLong(offset)));
         }
+        finally
+        {
+            logFile.releaseSegments(segmentsPin);
+        }
+    }
+
+    /**
+     * Tries to hand the value for a given key to the consumer, the value is not copied out of the log file.
+     * The memory is only valid during the call.
+     * @param key the key
+     * @param valueConsumer receives the memory pointing to the value and the value length
+     * @return true if the key was found, false otherwise
+     */
+    public boolean get(final byte[] key, final ObjIntConsumer<ReadMemory> valueConsumer)
+    {
+        final long segmentsPin = logFile.pinSegments();
+        try
+        {
+            final @ByteOffset byte[] offset = StorageUnits.offset(index.get(key));
+            if (offset == null)
+            {
+                return false;
+            }
 
-        return logFile.read(StorageUnits.offset(BinaryHelper.bytesToLong(offset)));
+            logFile.read(StorageUnits.offset(BinaryHelper.bytesToLong(offset)), valueConsumer);
+            return true;
+        }
+        finally
+        {
+            logFile.releaseSegments(segmentsPin);
+        }
     }
 
     /**
      * Tries to retrieve the value for a given key at a specific version.
+     * The compaction relocates the live records under a new version, the older versions of the relocated keys
+     * can't be read once their segment is deleted.
      * @param key the key
      * @param version the version to search in
      * @return the value for the given key or null if not found
+     * @throws VersionNotFoundException if the value of the key at that version was compacted away
      */
     public byte[] get(final byte[] key, final @Version long version)
     {
-        final byte[] value = index.get(key, version);
-        final @ByteOffset long offset = StorageUnits.offset(BinaryHelper.bytesToLong(value));
-        return logFile.read(offset);
+        final long segmentsPin = logFile.pinSegments();
+        try
+        {
+            final byte[] value = index.get(key, version);
+            final @ByteOffset long offset = StorageUnits.offset(BinaryHelper.bytesToLong(value));
+            if (logFile.isInDeletedSegment(offset, segmentsPin))
+            {
+                throw new VersionNotFoundException(version);
+            }
+
+            return logFile.read(offset);
+        }
+        finally
+        {
+            logFile.releaseSegments(segmentsPin);
+        }
+    }
+
+    /**
+     * Tries to retrieve a view over the value for a given key, the value is not copied out of the log file.
+     * @param key the key
+     * @return the view over the value for the given key or null if not found. It must be closed once done with it
+     */
+    public ValueView getView(final byte[] key)
+    {
+        //the view pins the segments on its own until it's closed
+        final long segmentsPin = logFile.pinSegments();
+        try
+        {
+            final @ByteOffset byte[] offset = StorageUnits.offset(index.get(key));
+            if (offset == null)
+            {
+                return null;
+            }
+
+            return logFile.readView(StorageUnits.offset(BinaryHelper.bytesToLong(offset)));
+        }
+        finally
+        {
+            logFile.releaseSegments(segmentsPin);
+        }
+    }
+
+    /**
+     * Opens a cursor over the latest version of the pairs, in key order.
+     * The values are read from the log file when requested.
+     * @return a cursor that is not positioned yet, it must be closed once done with it
+     */
+    public Cursor openCursor()
+    {
+        return LogDbCursor.open(index::openCursor, logFile);
+    }
+
+    /**
+     * Pins the latest version of the pairs, so they can be read while writers carry on.
+     * @return a snapshot that must be closed once done with it
+     */
+    public Snapshot snapshot()
+    {
+        return createSnapshot(index::snapshot);
+    }
+
+    /**
+     * Pins the pairs as they were at a specific version.
+     * @param version the version to pin
+     * @return a snapshot that must be closed once done with it
+     */
+    public Snapshot snapshot(final @Version long version)
+    {
+        return createSnapshot(() -> index.snapshot(version));
+    }
+
+    /**
+     * Pins the pairs as they were at a specific time.
+     * @param timestamp the time to pin
+     * @return a snapshot that must be closed once done with it
+     */
+    public Snapshot snapshotAt(final @Milliseconds long timestamp)
+    {
+        return createSnapshot(() -> index.snapshotAt(timestamp));
+    }
+
+    /**
+     * The log file segments are pinned before the index, so compaction can't delete the records the index points to.
+     * Single reads pin them the same way around the index lookup.
+     */
+    private Snapshot createSnapshot(final Supplier<Snapshot> indexSnapshotSupplier)
+    {
+        final long segmentsPin = logFile.pinSegments();
+        try
+        {
+            return new LogDbSnapshot(indexSnapshotSupplier.get(), logFile, segmentsPin);
+        }
+        catch (final RuntimeException e)
+        {
+            logFile.releaseSegments(segmentsPin);
+            throw e;
+        }
     }
 
     public void delete(final byte[] key) throws IOException
+    {
+        if (!isWrittenConcurrently)
+        {
+            appendDelete(key);
+            return;
+        }
+
+        final ReentrantLock keyLock = keyLocks[getKeyLockIndex(key)];
+        final long stamp = writeLock.readLock();
+        keyLock.lock();
+        try
+        {
+            appendDelete(key);
+        }
+        finally
+        {
+            keyLock.unlock();
+            writeLock.unlockRead(stamp);
+        }
+    }
+
+    private void appendPut(final byte[] key, final byte[] value) throws IOException
+    {
+        final @ByteOffset long offset = logFile.put(key, value);
+        index.put(key, BinaryHelper.longToBytes(offset));
+    }
+
+    private void appendDelete(final byte[] key) throws IOException
     {
         logFile.delete(key);
         index.remove(key);
     }
 
+    private static int getKeyLockIndex(final byte[] key)
+    {
+        final int hash = Arrays.hashCode(key);
+        return (hash ^ (hash >>> 16)) & (KEY_LOCKS - 1);
+    }
+
+    private static long getKeyLockMask(final List<WriteBatch.Operation> operations)
+    {
+        long keyLockMask = 0;
+        for (int i = 0; i < operations.size(); i++)
+        {
+            keyLockMask |= 1L << getKeyLockIndex(operations.get(i).getKey());
+        }
+        return keyLockMask;
+    }
+
+    /**
+     * Takes the locks in the order of their indexes, so batches sharing keys can't deadlock.
+     */
+    private void lockKeys(final long keyLockMask)
+    {
+        for (long mask = keyLockMask; mask != 0; mask &= mask - 1)
+        {
+            keyLocks[Long.numberOfTrailingZeros(mask)].lock();
+        }
+    }
+
+    private void unlockKeys(final long keyLockMask)
+    {
+        for (long mask = keyLockMask; mask != 0; mask &= mask - 1)
+        {
+            keyLocks[Long.numberOfTrailingZeros(mask)].unlock();
+        }
+    }
+
+    LogFile getLogFile()
+    {
+        return logFile;
+    }
+
+    Index getIndex()
+    {
+        return index;
+    }
+
+    boolean isWrittenConcurrently()
+    {
+        return isWrittenConcurrently;
+    }
+
+    StampedLock getWriteLock()
+    {
+        return writeLock;
+    }
+
     public void commitIndex() throws IOException
     {
         index.commit();
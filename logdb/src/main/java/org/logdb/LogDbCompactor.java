@@ -0,0 +1,313 @@
+package org.logdb;
+
+import org.logdb.async.AsyncWriteDelegatingBTree;
+import org.logdb.bbtree.ShardedIndex;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.logfile.LogFile;
+import org.logdb.logfile.LogRecordType;
+import org.logdb.storage.ByteOffset;
+import org.logdb.storage.ByteSize;
+import org.logdb.storage.StorageUnits;
+import org.logdb.time.Milliseconds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reclaims the space taken by overwritten values and delete records in the sealed segments of the log file.
+ * <br>
+ * A record is live while the index still points to its offset. Segments with a high enough ratio of dead bytes
+ * get their live records copied to the end of the log, the index is pointed to the copies in batches
+ * and then the segment file is deleted. The copies get a new version, so the history of the relocated keys before
+ * the compaction is lost once the segment is deleted: reading them at an older version throws a
+ * {@link org.logdb.bbtree.VersionNotFoundException}. Open snapshots keep the segments they can read.
+ * <br>
+ * Every index batch is applied holding the write lock of the database, after checking again that the records are live,
+ * so the compaction never overwrites a newer value. Writers only take that lock when the database is written concurrently,
+ * a database with a single writer has to be compacted by that writer. The index has to be updated synchronously for this to hold.
+ */
+public final class LogDbCompactor implements AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogDbCompactor.class);
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final LogDb logDb;
+    private final LogFile logFile;
+    private final Index index;
+    private final Lock writeLock;
+    private final double minDeadRatio;
+    private final @ByteSize long maxBytesPerSecond;
+    private final int indexBatchSize;
+    private final CompactionMetrics metrics;
+
+    private long rateWindowStartNanos;
+    private @ByteSize long rateWindowBytes;
+    private volatile boolean isRunning;
+    private Thread compactionThread;
+
+    /**
+     * Creates a compactor, that doesn't run until it's started.
+     * @param logDb the database to compact
+     * @param minDeadRatio the minimum ratio of dead bytes for a segment to be compacted, between 0 and 1
+     * @param maxBytesPerSecond the maximum bytes scanned and relocated per second
+     * @param indexBatchSize the maximum number of relocated records updated in the index under a single lock
+     */
+    public LogDbCompactor(
+            final LogDb logDb,
+            final double minDeadRatio,
+            final @ByteSize long maxBytesPerSecond,
+            final int indexBatchSize)
+    {
+        this.logDb = Objects.requireNonNull(logDb, "logDb cannot be null");
+        if (minDeadRatio < 0 || minDeadRatio > 1)
+        {
+            throw new IllegalArgumentException("Min dead ratio must be between 0 and 1, provided " + minDeadRatio);
+        }
+        if (maxBytesPerSecond <= 0)
+        {
+            throw new IllegalArgumentException("Max bytes per second must be positive, provided " + maxBytesPerSecond);
+        }
+        if (indexBatchSize <= 0)
+        {
+            throw new IllegalArgumentException("Index batch size must be positive, provided " + indexBatchSize);
+        }
+        if (isWrittenAsynchronously(logDb.getIndex()))
+        {
+            throw new IllegalArgumentException("Compaction requires the index to be written synchronously");
+        }
+
+        this.logFile = logDb.getLogFile();
+        this.index = logDb.getIndex();
+        this.writeLock = logDb.getWriteLock().asWriteLock();
+        this.minDeadRatio = minDeadRatio;
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        this.indexBatchSize = indexBatchSize;
+        this.metrics = new CompactionMetrics();
+        this.rateWindowStartNanos = System.nanoTime();
+        this.rateWindowBytes = StorageUnits.ZERO_SIZE;
+    }
+
+    /**
+     * Starts a thread that compacts the log file periodically, until the compactor is closed.
+     * The database must be written concurrently, a database with a single writer is compacted by its writer.
+     * @param threadFactory factory used to create the compaction thread
+     * @param interval the time to wait between compactions
+     */
+    public void start(final ThreadFactory threadFactory, final @Milliseconds long interval)
+    {
+        if (!logDb.isWrittenConcurrently())
+        {
+            throw new IllegalStateException("Compaction can't run in the background of a database with a single writer");
+        }
+
+        if (compactionThread != null)
+        {
+            return;
+        }
+
+        isRunning = true;
+        compactionThread = threadFactory.newThread(() -> compactPeriodically(interval));
+        compactionThread.start();
+    }
+
+    /**
+     * Compacts every sealed segment with enough dead bytes, in the calling thread.
+     * With a single writer, it must be the writer thread.
+     * @return the number of segments compacted
+     */
+    public int compact() throws IOException
+    {
+        int compactedSegments = 0;
+        for (final int segmentIndex : logFile.getSealedSegments())
+        {
+            if (compactSegment(segmentIndex))
+            {
+                compactedSegments++;
+            }
+        }
+
+        return compactedSegments;
+    }
+
+    public CompactionMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    @Override
+    public void close() throws InterruptedException
+    {
+        isRunning = false;
+        if (compactionThread != null)
+        {
+            LockSupport.unpark(compactionThread);
+            compactionThread.join();
+        }
+    }
+
+    private void compactPeriodically(final @Milliseconds long interval)
+    {
+        while (isRunning)
+        {
+            try
+            {
+                final int compactedSegments = compact();
+                if (compactedSegments > 0)
+                {
+                    LOGGER.info("Compacted " + compactedSegments + " log file segments. " + metrics);
+                }
+            }
+            catch (final IOException | RuntimeException e)
+            {
+                LOGGER.error("Unable to compact the log file", e);
+            }
+
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(interval));
+        }
+    }
+
+    private boolean compactSegment(final int segmentIndex) throws IOException
+    {
+        //writers hold the read lock while appending and updating the index, so once the write lock is acquired
+        //every record of the sealed segment is visible in the index, from then on records can only become dead
+        writeLock.lock();
+        writeLock.unlock();
+
+        final List<LiveRecord> liveRecords = new ArrayList<>();
+        final @ByteSize long usedBytes = logFile.visitSegmentRecords(segmentIndex, (offset, recordType, key, recordSize) ->
+        {
+            if (LogRecordType.UPDATE == recordType && isLive(key, offset))
+            {
+                liveRecords.add(new LiveRecord(key, offset, recordSize));
+            }
+        });
+        throttle(usedBytes);
+
+        @ByteSize long liveBytes = StorageUnits.ZERO_SIZE;
+        for (final LiveRecord liveRecord : liveRecords)
+        {
+            liveBytes += liveRecord.recordSize;
+        }
+
+        if (usedBytes - liveBytes < usedBytes * minDeadRatio)
+        {
+            return false;
+        }
+
+        @ByteSize long relocatedBytes = StorageUnits.ZERO_SIZE;
+        for (int batchStart = 0; batchStart < liveRecords.size(); batchStart += indexBatchSize)
+        {
+            final int batchEnd = Math.min(batchStart + indexBatchSize, liveRecords.size());
+            final @ByteSize long batchRelocatedBytes = relocate(liveRecords.subList(batchStart, batchEnd));
+            throttle(batchRelocatedBytes);
+            relocatedBytes += batchRelocatedBytes;
+        }
+
+        //the index has to point to the copies on disk before the segment is gone
+        writeLock.lock();
+        try
+        {
+            logDb.commitIndex();
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+
+        logFile.deleteSegment(segmentIndex);
+        metrics.recordCompactedSegment(StorageUnits.size(usedBytes - relocatedBytes), relocatedBytes);
+
+        LOGGER.info("Compacted log file segment " + segmentIndex + ", relocated " + relocatedBytes +
+                " bytes out of " + usedBytes);
+        return true;
+    }
+
+    /**
+     * Copies the records that are still live to the end of the log and points the index to the copies.
+     * @return the bytes of the relocated records
+     */
+    private @ByteSize long relocate(final List<LiveRecord> liveRecords) throws IOException
+    {
+        writeLock.lock();
+        try
+        {
+            final WriteBatch batch = new WriteBatch();
+            @ByteSize long batchBytes = StorageUnits.ZERO_SIZE;
+            for (final LiveRecord liveRecord : liveRecords)
+            {
+                if (isLive(liveRecord.key, liveRecord.offset))
+                {
+                    batch.put(liveRecord.key, logFile.read(liveRecord.offset));
+                    batchBytes += liveRecord.recordSize;
+                }
+            }
+
+            if (!batch.isEmpty())
+            {
+                logDb.writeAndApply(batch);
+            }
+
+            return batchBytes;
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean isLive(final byte[] key, final @ByteOffset long recordOffset)
+    {
+        final byte[] indexedOffset = index.get(key);
+        return indexedOffset != null && BinaryHelper.bytesToLong(indexedOffset) == recordOffset;
+    }
+
+    private void throttle(final @ByteSize long bytes)
+    {
+        rateWindowBytes += bytes;
+
+        final long elapsedNanos = System.nanoTime() - rateWindowStartNanos;
+        final long allowedNanos = (long) (((double) rateWindowBytes / maxBytesPerSecond) * NANOS_PER_SECOND);
+        if (allowedNanos > elapsedNanos)
+        {
+            LockSupport.parkNanos(allowedNanos - elapsedNanos);
+        }
+
+        if (elapsedNanos >= NANOS_PER_SECOND)
+        {
+            rateWindowStartNanos = System.nanoTime();
+            rateWindowBytes = StorageUnits.ZERO_SIZE;
+        }
+    }
+
+    private static boolean isWrittenAsynchronously(final Index index)
+    {
+        if (index instanceof ShardedIndex)
+        {
+            return ((ShardedIndex) index).getShards().stream().anyMatch(LogDbCompactor::isWrittenAsynchronously);
+        }
+
+        return index instanceof AsyncWriteDelegatingBTree;
+    }
+
+    private static final class LiveRecord
+    {
+        private final byte[] key;
+        private final @ByteOffset long offset;
+        private final @ByteSize int recordSize;
+
+        LiveRecord(final byte[] key, final @ByteOffset long offset, final @ByteSize int recordSize)
+        {
+            this.key = key;
+            this.offset = offset;
+            this.recordSize = recordSize;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.logdb;
+
+import org.logdb.bit.BinaryHelper;
+import org.logdb.logfile.LogFile;
+import org.logdb.storage.StorageUnits;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Cursor over the index that resolves the offsets stored in the index into the values stored in the log file.
+ */
+final class LogDbCursor implements Cursor
+{
+    private final Cursor indexCursor;
+    private final LogFile logFile;
+    private final long segmentsPin;
+
+    private boolean isClosed;
+
+    private LogDbCursor(final Cursor indexCursor, final LogFile logFile, final long segmentsPin)
+    {
+        this.indexCursor = Objects.requireNonNull(indexCursor, "index cursor cannot be null");
+        this.logFile = Objects.requireNonNull(logFile, "log file cannot be null");
+        this.segmentsPin = segmentsPin;
+        this.isClosed = false;
+    }
+
+    /**
+     * The log file segments are pinned before the index cursor is opened and until the cursor is closed,
+     * so compaction can't delete the records the index cursor points to.
+     * @param indexCursorSupplier opens the cursor over the index
+     * @param logFile the log file holding the values
+     * @return a cursor that is not positioned yet
+     */
+    static LogDbCursor open(final Supplier<Cursor> indexCursorSupplier, final LogFile logFile)
+    {
+        final long segmentsPin = logFile.pinSegments();
+        try
+        {
+            return new LogDbCursor(indexCursorSupplier.get(), logFile, segmentsPin);
+        }
+        catch (final RuntimeException e)
+        {
+            logFile.releaseSegments(segmentsPin);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean seek(final byte[] fromKey)
+    {
+        return indexCursor.seek(fromKey);
+    }
+
+    @Override
+    public boolean seekToFirst()
+    {
+        return indexCursor.seekToFirst();
+    }
+
+    @Override
+    public boolean seekToLast()
+    {
+        return indexCursor.seekToLast();
+    }
+
+    @Override
+    public boolean next()
+    {
+        return indexCursor.next();
+    }
+
+    @Override
+    public boolean prev()
+    {
+        return indexCursor.prev();
+    }
+
+    @Override
+    public boolean isValid()
+    {
+        return indexCursor.isValid();
+    }
+
+    @Override
+    public byte[] getKey()
+    {
+        return indexCursor.getKey();
+    }
+
+    @Override
+    public byte[] getValue()
+    {
+        final byte[] offset = indexCursor.getValue();
+        return logFile.read(StorageUnits.offset(BinaryHelper.bytesToLong(offset)));
+    }
+
+    @Override
+    public void close()
+    {
+        if (isClosed)
+        {
+            return;
+        }
+
+        isClosed = true;
+        indexCursor.close();
+        logFile.releaseSegments(segmentsPin);
+    }
+}
@@ -0,0 +1,79 @@
+package org.logdb;
+
+import org.logdb.bbtree.VersionNotFoundException;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.logfile.LogFile;
+import org.logdb.storage.ByteOffset;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.Version;
+
+import java.util.Objects;
+
+/**
+ * Snapshot of the index that resolves the offsets stored in the index into the values stored in the log file.
+ */
+final class LogDbSnapshot implements Snapshot
+{
+    private final Snapshot indexSnapshot;
+    private final LogFile logFile;
+    private final long segmentsPin;
+
+    private boolean isClosed;
+
+    /**
+     * Creates a snapshot reading the values the index snapshot points to.
+     * @param indexSnapshot the snapshot of the index
+     * @param logFile the log file holding the values
+     * @param segmentsPin the pin that keeps the segments of the log file from being deleted, released on close
+     */
+    LogDbSnapshot(final Snapshot indexSnapshot, final LogFile logFile, final long segmentsPin)
+    {
+        this.indexSnapshot = Objects.requireNonNull(indexSnapshot, "index snapshot cannot be null");
+        this.logFile = Objects.requireNonNull(logFile, "log file cannot be null");
+        this.segmentsPin = segmentsPin;
+        this.isClosed = false;
+    }
+
+    @Override
+    public @Version long getVersion()
+    {
+        return indexSnapshot.getVersion();
+    }
+
+    @Override
+    public byte[] get(final byte[] key)
+    {
+        final @ByteOffset byte[] offset = StorageUnits.offset(indexSnapshot.get(key));
+        if (offset == null)
+        {
+            return null;
+        }
+
+        final @ByteOffset long recordOffset = StorageUnits.offset(BinaryHelper.bytesToLong(offset));
+        if (logFile.isInDeletedSegment(recordOffset, segmentsPin))
+        {
+            throw new VersionNotFoundException(getVersion());
+        }
+
+        return logFile.read(recordOffset);
+    }
+
+    @Override
+    public Cursor openCursor()
+    {
+        return LogDbCursor.open(indexSnapshot::openCursor, logFile);
+    }
+
+    @Override
+    public void close()
+    {
+        if (isClosed)
+        {
+            return;
+        }
+
+        isClosed = true;
+        indexSnapshot.close();
+        logFile.releaseSegments(segmentsPin);
+    }
+}
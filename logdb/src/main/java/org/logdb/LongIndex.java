@@ -0,0 +1,37 @@
+package org.logdb;
+
+import org.logdb.storage.Version;
+
+import java.io.IOException;
+
+/**
+ * Index of long keys to long values, that doesn't allocate arrays to look up a key.
+ */
+public interface LongIndex extends AutoCloseable
+{
+    /**
+     * Returned by the lookups when the key is not found, it can't be stored as a value.
+     */
+    long NO_VALUE = Long.MIN_VALUE;
+
+    void put(long key, long value);
+
+    /**
+     * Tries to retrieve the value for a given key.
+     * @param key the key
+     * @return the value for the given key or {@link #NO_VALUE} if not found
+     */
+    long get(long key);
+
+    /**
+     * Tries to retrieve the value for a given key at a specific version.
+     * @param key the key
+     * @param version the version to search in
+     * @return the value for the given key at the version or {@link #NO_VALUE} if not found
+     */
+    long get(long key, @Version long version);
+
+    void remove(long key);
+
+    void commit() throws IOException;
+}
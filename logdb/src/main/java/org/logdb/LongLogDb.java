@@ -0,0 +1,93 @@
+package org.logdb;
+
+import org.logdb.bit.BinaryHelper;
+import org.logdb.logfile.LogFile;
+import org.logdb.storage.ByteOffset;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.Version;
+
+import java.io.IOException;
+
+/**
+ * Variant of {@link LogDb} for long keys and long values.
+ * <br>
+ * The keys are written to the log file as {@link BinaryHelper#longToSortableBytes(long)}
+ * and the values as {@link BinaryHelper#longToBytes(long)}.
+ * Lookups go through a {@link LongIndex} and read the value in place, so they don't allocate.
+ */
+public class LongLogDb implements AutoCloseable
+{
+    private final LogFile logFile;
+    private final LongIndex index;
+
+    public LongLogDb(final LogFile logFile, final LongIndex index)
+    {
+        this.logFile = logFile;
+        this.index = index;
+    }
+
+    /**
+     * Appends the pair to the log file and points the index to it.
+     * @param key the key
+     * @param value the value, it can't be {@link LongIndex#NO_VALUE}
+     */
+    public void put(final long key, final long value) throws IOException
+    {
+        if (value == LongIndex.NO_VALUE)
+        {
+            throw new IllegalArgumentException("Value " + value + " is reserved for keys not found");
+        }
+
+        final @ByteOffset long offset = logFile.put(BinaryHelper.longToSortableBytes(key), BinaryHelper.longToBytes(value));
+        index.put(key, offset);
+    }
+
+    /**
+     * Tries to retrieve the value for a given key.
+     * @param key the key
+     * @return the value for the given key or {@link LongIndex#NO_VALUE} if not found.
+     */
+    public long get(final long key)
+    {
+        return readValue(index.get(key));
+    }
+
+    /**
+     * Tries to retrieve the value for a given key at a specific version.
+     * @param key the key
+     * @param version the version to search in
+     * @return the value for the given key or {@link LongIndex#NO_VALUE} if not found.
+     */
+    public long get(final long key, final @Version long version)
+    {
+        return readValue(index.get(key, version));
+    }
+
+    private long readValue(final long offset)
+    {
+        if (offset == LongIndex.NO_VALUE)
+        {
+            return LongIndex.NO_VALUE;
+        }
+
+        return logFile.readLong(StorageUnits.offset(offset));
+    }
+
+    public void delete(final long key) throws IOException
+    {
+        logFile.delete(BinaryHelper.longToSortableBytes(key));
+        index.remove(key);
+    }
+
+    public void commitIndex() throws IOException
+    {
+        index.commit();
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        logFile.close();
+        index.close();
+    }
+}
@@ -0,0 +1,35 @@
+package org.logdb;
+
+import org.logdb.storage.Version;
+
+/**
+ * Read only view of an index pinned to a single version.
+ * <br>
+ * The pairs seen through a snapshot don't change while writers keep updating and committing the index.
+ * The pinned root is not released until the snapshot is closed, so snapshots should be short lived
+ * and the cursors opened from them must be closed before the snapshot.
+ */
+public interface Snapshot extends AutoCloseable
+{
+    /**
+     * Gets the version of this snapshot.
+     * @return the version the snapshot is pinned to
+     */
+    @Version long getVersion();
+
+    /**
+     * Tries to retrieve the value for a given key as it was at the version of the snapshot.
+     * @param key the key
+     * @return the value for the given key or null if not found
+     */
+    byte[] get(byte[] key);
+
+    /**
+     * Opens a cursor over the pairs as they were at the version of the snapshot.
+     * @return a cursor that is not positioned yet, it must be closed once done with it
+     */
+    Cursor openCursor();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,104 @@
+package org.logdb;
+
+import org.logdb.bit.ByteArrayComparator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Group of puts and deletes that are applied together, with a single version.
+ * When the same key appears more than once, the operation added last wins.
+ */
+public final class WriteBatch
+{
+    private static final Comparator<Operation> KEY_ORDER =
+            (first, second) -> ByteArrayComparator.INSTANCE.compare(first.key, second.key);
+
+    private final List<Operation> operations;
+
+    public WriteBatch()
+    {
+        this.operations = new ArrayList<>();
+    }
+
+    public WriteBatch put(final byte[] key, final byte[] value)
+    {
+        Objects.requireNonNull(key, "key cannot be null");
+        Objects.requireNonNull(value, "value cannot be null");
+
+        operations.add(new Operation(key, value));
+        return this;
+    }
+
+    public WriteBatch delete(final byte[] key)
+    {
+        Objects.requireNonNull(key, "key cannot be null");
+
+        operations.add(new Operation(key, null));
+        return this;
+    }
+
+    public int size()
+    {
+        return operations.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return operations.isEmpty();
+    }
+
+    /**
+     * Gets the operations of this batch.
+     * @return the operations in the order they were added
+     */
+    public List<Operation> getOperations()
+    {
+        return Collections.unmodifiableList(operations);
+    }
+
+    /**
+     * Gets the operations of this batch in key order.
+     * @return the operations sorted by key, operations on the same key keep the order they were added
+     */
+    public List<Operation> getOperationsSortedByKey()
+    {
+        final List<Operation> sortedOperations = new ArrayList<>(operations);
+        sortedOperations.sort(KEY_ORDER);
+        return sortedOperations;
+    }
+
+    public static final class Operation
+    {
+        private final byte[] key;
+        private final byte[] value;
+
+        private Operation(final byte[] key, final byte[] value)
+        {
+            this.key = key;
+            this.value = value;
+        }
+
+        public byte[] getKey()
+        {
+            return key;
+        }
+
+        /**
+         * Gets the value written by this operation.
+         * @return the value to put or null if this operation is a delete
+         */
+        public byte[] getValue()
+        {
+            return value;
+        }
+
+        public boolean isDelete()
+        {
+            return value == null;
+        }
+    }
+}
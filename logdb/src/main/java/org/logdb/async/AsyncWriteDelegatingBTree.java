@@ -1,5 +1,8 @@
 package org.logdb.async;
 
+import org.logdb.Cursor;
+import org.logdb.Snapshot;
+import org.logdb.WriteBatch;
 import org.logdb.bbtree.BTree;
 import org.logdb.bbtree.BTreeNode;
 import org.logdb.storage.PageNumber;
@@ -40,6 +43,7 @@ public class AsyncWriteDelegatingBTree implements BTree
             return;
         }
 
+        commandProcessingThread.markRunning();
         thread = threadFactory.newThread(commandProcessingThread);
         thread.start();
     }
@@ -69,6 +73,12 @@ public class AsyncWriteDelegatingBTree implements BTree
         sendCommandToQueue(new Command(CommandType.ADD, key, value));
     }
 
+    @Override
+    public void apply(final WriteBatch batch)
+    {
+        sendCommandToQueue(new Command(batch));
+    }
+
     private void sendCommandToQueue(final Command command)
     {
         boolean isAdded = false;
@@ -90,6 +100,30 @@ public class AsyncWriteDelegatingBTree implements BTree
         return delegate.get(key);
     }
 
+    @Override
+    public Cursor openCursor()
+    {
+        return delegate.openCursor();
+    }
+
+    @Override
+    public Snapshot snapshot()
+    {
+        return delegate.snapshot();
+    }
+
+    @Override
+    public Snapshot snapshot(final @Version long version)
+    {
+        return delegate.snapshot(version);
+    }
+
+    @Override
+    public Snapshot snapshotAt(final @Milliseconds long timestamp)
+    {
+        return delegate.snapshotAt(timestamp);
+    }
+
     @Override
     public byte[] getByTimestamp(final byte[] key, @Milliseconds long timestamp)
     {
@@ -1,16 +1,30 @@
 package org.logdb.async;
 
+import org.logdb.WriteBatch;
+
 final class Command
 {
+    private static final byte[] NO_BYTES = new byte[0];
+
     final CommandType commandType;
     final byte[] key;
     final byte[] value;
+    final WriteBatch batch;
 
     Command(final CommandType commandType, final byte[] key, final byte[] value)
     {
         this.commandType = commandType;
         this.key = key;
         this.value = value;
+        this.batch = null;
+    }
+
+    Command(final WriteBatch batch)
+    {
+        this.commandType = CommandType.BATCH;
+        this.key = NO_BYTES;
+        this.value = NO_BYTES;
+        this.batch = batch;
     }
 
     @Override
@@ -13,7 +13,7 @@ final class CommandProcessingThread implements Runnable
     private final ManyToOneConcurrentArrayQueue<Command> queue;
     private final BTree delegate;
     private int numberOfModification;
-    private boolean isRunning;
+    private volatile boolean isRunning;
 
     CommandProcessingThread(final ManyToOneConcurrentArrayQueue<Command> queue, final BTree delegate)
     {
@@ -27,44 +27,60 @@ final class CommandProcessingThread implements Runnable
     {
         while (isRunning)
         {
-            queue.drain(command ->
+            drainAndCommit();
+        }
+
+        //apply whatever was queued before stopping
+        drainAndCommit();
+    }
+
+    private void drainAndCommit()
+    {
+        queue.drain(command ->
+        {
+            ++numberOfModification;
+            switch (command.commandType)
             {
-                ++numberOfModification;
-                switch (command.commandType)
-                {
-                    case ADD:
-                        try
-                        {
-                            delegate.put(command.key, command.value);
-                        }
-                        catch (ArrayIndexOutOfBoundsException e)
-                        {
-                            LOGGER.error("index out of bounds for " + command.toString(), e);
-                        }
-                        break;
-                    case DELETE:
-                        delegate.remove(command.key);
-                        break;
-                    default:
-                        throw new RuntimeException("Unrecognized command " + command.toString());
-                }
-            });
+                case ADD:
+                    try
+                    {
+                        delegate.put(command.key, command.value);
+                    }
+                    catch (ArrayIndexOutOfBoundsException e)
+                    {
+                        LOGGER.error("index out of bounds for " + command.toString(), e);
+                    }
+                    break;
+                case DELETE:
+                    delegate.remove(command.key);
+                    break;
+                case BATCH:
+                    delegate.apply(command.batch);
+                    break;
+                default:
+                    throw new RuntimeException("Unrecognized command " + command.toString());
+            }
+        });
 
-            if (numberOfModification > 0)
+        if (numberOfModification > 0)
+        {
+            numberOfModification = 0;
+            try
+            {
+                delegate.commit();
+            }
+            catch (IOException e)
             {
-                numberOfModification = 0;
-                try
-                {
-                    delegate.commit();
-                }
-                catch (IOException e)
-                {
-                    throw new RuntimeException("Unable to commit delegate ", e);
-                }
+                throw new RuntimeException("Unable to commit delegate ", e);
             }
         }
     }
 
+    void markRunning()
+    {
+        isRunning = true;
+    }
+
     void stop()
     {
         isRunning = false;
@@ -3,5 +3,6 @@ package org.logdb.async;
 enum CommandType
 {
     ADD,
-    DELETE
+    DELETE,
+    BATCH
 }
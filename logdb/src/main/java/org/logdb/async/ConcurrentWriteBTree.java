@@ -0,0 +1,299 @@
+package org.logdb.async;
+
+import org.logdb.Cursor;
+import org.logdb.Snapshot;
+import org.logdb.WriteBatch;
+import org.logdb.bbtree.BTree;
+import org.logdb.bbtree.BTreeNode;
+import org.logdb.storage.PageNumber;
+import org.logdb.storage.Version;
+import org.logdb.time.Milliseconds;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lets several threads write to one tree at once, combining the writes that arrive together into a single batch.
+ * <br>
+ * Every write of a copy on write tree replaces the path up to the root, and the versions of the tree are linked
+ * from the root, so writes can't proceed in parallel below it. Instead, a writer queues its write and takes the
+ * write lock, the thread holding it applies all the queued writes as one batch, so the other writers usually find
+ * their write already applied once they get the lock. The batch copies every node once, however many writes it has.
+ * <br>
+ * Unlike {@link AsyncWriteDelegatingBTree}, the write is visible once the call returns. The writes combined together
+ * share a version, writes of the same key keep the order they were queued in.
+ * <br>
+ * A commit puts the committed nodes back into the pool, so the point reads pin a snapshot of the tree, that way
+ * the nodes they read are not reused by the commit of another writer while they are read.
+ */
+public class ConcurrentWriteBTree implements BTree
+{
+    private final BTree delegate;
+    private final int maxBatchSize;
+    private final Queue<PendingWrite> pendingWrites;
+    private final ReentrantLock writeLock;
+    private final List<PendingWrite> batchWrites;
+
+    /**
+     * Creates a tree that batches the writes of concurrent writers into the delegate.
+     * @param delegate the tree to write, it must not be written through any other reference
+     * @param maxBatchSize the maximum number of writes applied as one batch
+     */
+    public ConcurrentWriteBTree(final BTree delegate, final int maxBatchSize)
+    {
+        if (maxBatchSize <= 0)
+        {
+            throw new IllegalArgumentException("Max batch size must be positive, provided " + maxBatchSize);
+        }
+
+        this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+        this.maxBatchSize = maxBatchSize;
+        this.pendingWrites = new ConcurrentLinkedQueue<>();
+        this.writeLock = new ReentrantLock();
+        this.batchWrites = new ArrayList<>(maxBatchSize);
+    }
+
+    @Override
+    public void put(final byte[] key, final byte[] value)
+    {
+        write(new PendingWrite(key, Objects.requireNonNull(value, "value cannot be null")));
+    }
+
+    @Override
+    public void remove(final byte[] key)
+    {
+        write(new PendingWrite(key, null));
+    }
+
+    /**
+     * Applies the batch as its own version, the writes queued by other threads are applied before or after it.
+     * @param batch the operations to apply
+     */
+    @Override
+    public void apply(final WriteBatch batch)
+    {
+        writeLock.lock();
+        try
+        {
+            applyPendingWrites();
+            delegate.apply(batch);
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    private void write(final PendingWrite write)
+    {
+        pendingWrites.add(write);
+
+        writeLock.lock();
+        try
+        {
+            //the write was queued before taking the lock, so it's applied by the time the queue is drained
+            while (!write.isApplied)
+            {
+                applyPendingWrites();
+            }
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+
+        if (write.failure != null)
+        {
+            throw write.failure;
+        }
+    }
+
+    /**
+     * Must be called holding the write lock.
+     */
+    private void applyPendingWrites()
+    {
+        PendingWrite write;
+        while (batchWrites.size() < maxBatchSize && (write = pendingWrites.poll()) != null)
+        {
+            batchWrites.add(write);
+        }
+
+        if (batchWrites.isEmpty())
+        {
+            return;
+        }
+
+        try
+        {
+            if (batchWrites.size() == 1)
+            {
+                applySingleWrite(batchWrites.get(0));
+            }
+            else
+            {
+                final WriteBatch batch = new WriteBatch();
+                for (int i = 0; i < batchWrites.size(); i++)
+                {
+                    final PendingWrite batchWrite = batchWrites.get(i);
+                    if (batchWrite.isDelete())
+                    {
+                        batch.delete(batchWrite.key);
+                    }
+                    else
+                    {
+                        batch.put(batchWrite.key, batchWrite.value);
+                    }
+                }
+                delegate.apply(batch);
+            }
+        }
+        catch (final RuntimeException e)
+        {
+            for (int i = 0; i < batchWrites.size(); i++)
+            {
+                batchWrites.get(i).failure = e;
+            }
+        }
+        finally
+        {
+            for (int i = 0; i < batchWrites.size(); i++)
+            {
+                batchWrites.get(i).isApplied = true;
+            }
+            batchWrites.clear();
+        }
+    }
+
+    private void applySingleWrite(final PendingWrite write)
+    {
+        if (write.isDelete())
+        {
+            delegate.remove(write.key);
+        }
+        else
+        {
+            delegate.put(write.key, write.value);
+        }
+    }
+
+    @Override
+    public byte[] get(final byte[] key, final @Version long version)
+    {
+        try (Snapshot snapshot = delegate.snapshot(version))
+        {
+            return snapshot.get(key);
+        }
+    }
+
+    @Override
+    public byte[] get(final byte[] key)
+    {
+        try (Snapshot snapshot = delegate.snapshot())
+        {
+            return snapshot.get(key);
+        }
+    }
+
+    @Override
+    public Cursor openCursor()
+    {
+        return delegate.openCursor();
+    }
+
+    @Override
+    public Snapshot snapshot()
+    {
+        return delegate.snapshot();
+    }
+
+    @Override
+    public Snapshot snapshot(final @Version long version)
+    {
+        return delegate.snapshot(version);
+    }
+
+    @Override
+    public Snapshot snapshotAt(final @Milliseconds long timestamp)
+    {
+        return delegate.snapshotAt(timestamp);
+    }
+
+    @Override
+    public byte[] getByTimestamp(final byte[] key, final @Milliseconds long timestamp)
+    {
+        try (Snapshot snapshot = delegate.snapshotAt(timestamp))
+        {
+            return snapshot.get(key);
+        }
+    }
+
+    @Override
+    public void commit() throws IOException
+    {
+        writeLock.lock();
+        try
+        {
+            delegate.commit();
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public String print()
+    {
+        return delegate.print();
+    }
+
+    @Override
+    public long getNodesCount()
+    {
+        return delegate.getNodesCount();
+    }
+
+    @Override
+    public @PageNumber long getCommittedRoot()
+    {
+        return delegate.getCommittedRoot();
+    }
+
+    @Override
+    public BTreeNode getUncommittedRoot()
+    {
+        return delegate.getUncommittedRoot();
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        delegate.close();
+    }
+
+    private static final class PendingWrite
+    {
+        private final byte[] key;
+        private final byte[] value;
+        //only read and written holding the write lock
+        private boolean isApplied;
+        private RuntimeException failure;
+
+        private PendingWrite(final byte[] key, final byte[] value)
+        {
+            this.key = Objects.requireNonNull(key, "key cannot be null");
+            this.value = value;
+        }
+
+        private boolean isDelete()
+        {
+            return value == null;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.logdb.bbtree;
 
+import org.logdb.Cursor;
+import org.logdb.Snapshot;
 import org.logdb.storage.PageNumber;
 import org.logdb.storage.StorageUnits;
 import org.logdb.storage.Version;
@@ -23,6 +25,14 @@ abstract class BTreeAbstract implements BTree
 
     protected final NodesManager nodesManager;
     private final TimeSource timeSource;
+    /**
+     * Held while committing and while pinning cursors and snapshots, so they never pin a root that is half committed.
+     */
+    final Object commitLock;
+    /**
+     * Merges or rebalances the nodes that underflow after removes, if enabled in the nodes manager.
+     */
+    final NodeRebalancer rebalancer;
 
     long nodesCount;
 
@@ -41,6 +51,8 @@ abstract class BTreeAbstract implements BTree
 
         this.committedRoot = new AtomicReference<>(lastRootPageNumber);
         this.uncommittedRoot = new AtomicReference<>(rootReference);
+        this.commitLock = new Object();
+        this.rebalancer = new NodeRebalancer(nodesManager);
 
         this.nodesCount = 1;
     }
@@ -48,26 +60,171 @@ abstract class BTreeAbstract implements BTree
     @Override
     public void commit() throws IOException
     {
-        nodesManager.commitDirtyNodes();
-
-        final RootReference uncommittedRootReference = uncommittedRoot.get();
-        if (uncommittedRootReference != null)
+        synchronized (commitLock)
         {
-            final @PageNumber long pageNumber = uncommittedRootReference.getPageNumber();
-            final @Version long version = uncommittedRootReference.version;
-            nodesManager.commitLastRootPage(pageNumber, version);
+            nodesManager.commitDirtyNodes();
+
+            final RootReference uncommittedRootReference = uncommittedRoot.get();
+            if (uncommittedRootReference != null)
+            {
+                final @PageNumber long pageNumber = uncommittedRootReference.getPageNumber();
+                final @Version long version = uncommittedRootReference.version;
+                nodesManager.commitLastRootPage(pageNumber, version);
+
+                //readers that find no uncommitted root have to find the new committed one
+                committedRoot.set(pageNumber);
+                uncommittedRoot.set(null);
+            }
 
-            uncommittedRoot.set(null);
-            committedRoot.set(pageNumber);
+            //readers can reach the written nodes until the uncommitted root is gone
+            nodesManager.releaseCommittedNodes();
         }
     }
 
+    /**
+     * Commits a root with the same content as the committed one, as a new version.
+     * Must be called holding the commit lock, with no uncommitted changes.
+     * @param root the copy of the committed root, with the relocated nodes below it
+     * @return the page number of the new root
+     */
+    @PageNumber long commitRelocatedRoot(final BTreeNodeHeap root) throws IOException
+    {
+        assert uncommittedRoot.get() == null : "relocated root can only be committed without uncommitted changes";
+
+        final @Version long version = nextWriteVersion++;
+        final @PageNumber long pageNumber = nodesManager.commitRoot(root, timeSource.getCurrentMillis(), version);
+        nodesManager.commitLastRootPage(pageNumber, version);
+        committedRoot.set(pageNumber);
+
+        return pageNumber;
+    }
+
     @Override
     public void close()
     {
         nodesManager.close();
     }
 
+    @Override
+    public Cursor openCursor()
+    {
+        //the cursor reads the nodes of the root for as long as it's open, so they can't be reused by a commit
+        synchronized (commitLock)
+        {
+            final long pin = nodesManager.pinSnapshot();
+            try
+            {
+                final RootReference rootReference = uncommittedRoot.get();
+                final BTreeNode root = rootReference == null ? null : rootReference.root;
+                return new BTreeCursor(nodesManager, root, StorageUnits.pageNumber(committedRoot.get()), pin);
+            }
+            catch (final RuntimeException e)
+            {
+                nodesManager.releaseSnapshot(pin);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Snapshot snapshot()
+    {
+        synchronized (commitLock)
+        {
+            final long pin = nodesManager.pinSnapshot();
+            try
+            {
+                final RootReference rootReference = uncommittedRoot.get();
+                if (rootReference != null)
+                {
+                    return new BTreeSnapshot(this, pin, rootReference.root, StorageUnits.INVALID_PAGE_NUMBER, rootReference.version);
+                }
+
+                return createCommittedSnapshot(pin, StorageUnits.pageNumber(committedRoot.get()));
+            }
+            catch (final RuntimeException e)
+            {
+                nodesManager.releaseSnapshot(pin);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Snapshot snapshot(final @Version long version)
+    {
+        assert version >= 0 : "version must be positive. Provided " + version;
+
+        synchronized (commitLock)
+        {
+            final long pin = nodesManager.pinSnapshot();
+            try
+            {
+                final RootReference rootReference = uncommittedRoot.get();
+                final RootReference rootForVersion = rootReference == null
+                        ? null
+                        : rootReference.getRootReferenceForVersion(version);
+                if (rootForVersion != null)
+                {
+                    return new BTreeSnapshot(this, pin, rootForVersion.root, StorageUnits.INVALID_PAGE_NUMBER, rootForVersion.version);
+                }
+
+                return createCommittedSnapshot(pin, nodesManager.getPageNumberForVersion(version));
+            }
+            catch (final RuntimeException e)
+            {
+                nodesManager.releaseSnapshot(pin);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Snapshot snapshotAt(final @Milliseconds long timestamp)
+    {
+        assert timestamp >= 0 : "timestamp must be positive. Provided " + timestamp;
+
+        synchronized (commitLock)
+        {
+            final long pin = nodesManager.pinSnapshot();
+            try
+            {
+                final RootReference rootReference = uncommittedRoot.get();
+                final RootReference rootForTimestamp = rootReference == null
+                        ? null
+                        : rootReference.getRootReferenceForTimestamp(timestamp);
+                if (rootForTimestamp != null)
+                {
+                    return new BTreeSnapshot(this, pin, rootForTimestamp.root, StorageUnits.INVALID_PAGE_NUMBER, rootForTimestamp.version);
+                }
+
+                return createCommittedSnapshot(pin, nodesManager.getPageNumberForTimestamp(timestamp));
+            }
+            catch (final RuntimeException e)
+            {
+                nodesManager.releaseSnapshot(pin);
+                throw e;
+            }
+        }
+    }
+
+    private BTreeSnapshot createCommittedSnapshot(final long pin, final @PageNumber long rootPageNumber)
+    {
+        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        {
+            mappedNode.initNode(rootPageNumber);
+            return new BTreeSnapshot(this, pin, null, rootPageNumber, mappedNode.getVersion());
+        }
+    }
+
+    /**
+     * Searches the key in the tree under the given root, used by snapshots to read their pinned root.
+     * @param root the root to start the search from
+     * @param key the key to search for
+     * @return the value for the key or null if not found
+     */
+    abstract byte[] getFromRoot(BTreeNode root, byte[] key);
+
     @Override
     public String print()
     {
@@ -89,6 +246,104 @@ abstract class BTreeAbstract implements BTree
         return committedRootPageNumber;
     }
 
+    /**
+     * Gets the latest root, the uncommitted one if there are uncommitted changes or the committed one mapped into the node.
+     * @param mappedNode the node to map the committed root into
+     * @return the latest root
+     */
+    BTreeNode getLatestRootNode(final BTreeMappedNode mappedNode)
+    {
+        final RootReference rootReference = uncommittedRoot.get();
+        if (rootReference != null)
+        {
+            return rootReference.root;
+        }
+
+        mappedNode.initNode(StorageUnits.pageNumber(committedRoot.get()));
+        return mappedNode;
+    }
+
+    /**
+     * Descends from the root to the leaf where the key belongs, for point lookups.
+     * Unlike {@link #traverseDown(BTreeNode, byte[])} the path is not kept,
+     * every committed level is mapped into the same node, so nothing is allocated.
+     * @param root the root to descend from
+     * @param key the key to search for
+     * @param mappedNode the node to map the committed levels into, normally the lookup node of the calling thread
+     * @return the leaf, that can be the mapped node itself
+     */
+    BTreeNode findLeaf(final BTreeNode root, final byte[] key, final BTreeMappedNode mappedNode)
+    {
+        BTreeNode node = root;
+        while (node.getNodeType() == BtreeNodeType.NonLeaf)
+        {
+            node = nodesManager.loadNode(node.getKeyIndex(key), node, mappedNode);
+        }
+
+        return node;
+    }
+
+    /**
+     * Same as {@link #findLeaf(BTreeNode, byte[], BTreeMappedNode)} for trees whose keys are all long keys.
+     * @param root the root to descend from
+     * @param key the key to search for
+     * @param mappedNode the node to map the committed levels into, normally the lookup node of the calling thread
+     * @return the leaf, that can be the mapped node itself
+     */
+    BTreeNode findLeaf(final BTreeNode root, final long key, final BTreeMappedNode mappedNode)
+    {
+        BTreeNode node = root;
+        while (node.getNodeType() == BtreeNodeType.NonLeaf)
+        {
+            node = nodesManager.loadNode(node.getKeyIndex(key), node, mappedNode);
+        }
+
+        return node;
+    }
+
+    /**
+     * Descends from the root to the rightmost leaf, following the last child of every level.
+     * @param root the root to descend from
+     * @param mappedNode the node to map the committed levels into
+     * @return the leaf, that can be the mapped node itself
+     */
+    BTreeNode findRightmostLeaf(final BTreeNode root, final BTreeMappedNode mappedNode)
+    {
+        BTreeNode node = root;
+        while (node.getNodeType() == BtreeNodeType.NonLeaf)
+        {
+            node = nodesManager.loadNode(node.getPairCount() - 1, node, mappedNode);
+        }
+
+        return node;
+    }
+
+    /**
+     * Same as {@link #getLastCursorPosition(byte[])} for a key greater than every key of the tree,
+     * the path is the rightmost one so no key is compared to build it.
+     * @return the position after the last pair of the rightmost leaf
+     */
+    CursorPosition getRightmostCursorPosition()
+    {
+        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        {
+            BTreeNode node = getLatestRootNode(mappedNode);
+            CursorPosition cursor = null;
+            int index;
+
+            while (node.getNodeType() == BtreeNodeType.NonLeaf)
+            {
+                index = node.getPairCount() - 1;
+                cursor = createCursorPosition(node, index, cursor);
+                node = nodesManager.loadNode(index, node, mappedNode);
+            }
+
+            //same index a binary search returns for a missing key greater than all the keys
+            index = -(node.getPairCount() + 1);
+            return createCursorPosition(node, index, cursor);
+        }
+    }
+
     CursorPosition getLastCursorPosition(final byte[] key)
     {
         CursorPosition cursorPosition;
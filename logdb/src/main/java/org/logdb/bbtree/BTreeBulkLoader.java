@@ -0,0 +1,227 @@
+package org.logdb.bbtree;
+
+import org.logdb.bit.BinaryHelper;
+import org.logdb.bit.ByteArrayComparator;
+import org.logdb.storage.ByteSize;
+import org.logdb.storage.PageNumber;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.Version;
+import org.logdb.time.Milliseconds;
+import org.logdb.time.TimeSource;
+import org.logdb.time.TimeUnits;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Builds a whole tree bottom up from pairs that are already sorted by key.
+ * <br>
+ * Leaves are filled one after the other up to the fill factor and are persisted as soon as they are full,
+ * the non leaf levels above them are filled the same way with the page numbers of the persisted children.
+ * Every page is written once, in strictly sequential order, and a single root is committed at the end,
+ * instead of splitting and copying the path to the root for every single pair.
+ * <br>
+ * Nothing is visible until the root is committed, so if the load fails the last committed root is still the valid one.
+ */
+public final class BTreeBulkLoader
+{
+    //only roots carry a timestamp
+    private static final @Milliseconds long NO_TIMESTAMP = TimeUnits.millis(0L);
+
+    private final NodesManager nodesManager;
+    private final TimeSource timeSource;
+    private final double fillFactor;
+
+    /**
+     * Creates a loader that fills every page up to the given fill factor.
+     * @param nodesManager the nodes manager of the storage to load the tree into
+     * @param timeSource the source of the timestamp of the committed root
+     * @param fillFactor the fraction of every page to fill, in the range (0, 1].
+     *                   Leaving space free in the pages avoids splitting them on the first updates after the load.
+     */
+    public BTreeBulkLoader(final NodesManager nodesManager, final TimeSource timeSource, final double fillFactor)
+    {
+        this.nodesManager = Objects.requireNonNull(nodesManager, "nodesManager cannot be null");
+        this.timeSource = Objects.requireNonNull(timeSource, "timeSource cannot be null");
+
+        if (fillFactor <= 0 || fillFactor > 1)
+        {
+            throw new IllegalArgumentException("Fill factor must be in the range (0, 1], provided " + fillFactor);
+        }
+        this.fillFactor = fillFactor;
+    }
+
+    /**
+     * Persists all the pairs into a new tree and commits its root.
+     *
+     * @param sortedPairs the pairs to load, the keys must be strictly increasing
+     * @param version the version of the new tree, it must be the next write version of the index
+     *                as versions are consecutive in the root index
+     * @return the page number of the committed root
+     * @throws IOException if the pages cannot be written
+     * @throws IllegalArgumentException if the keys are not strictly increasing
+     */
+    public @PageNumber long load(
+            final Iterator<Map.Entry<byte[], byte[]>> sortedPairs,
+            final @Version long version) throws IOException
+    {
+        Objects.requireNonNull(sortedPairs, "sortedPairs cannot be null");
+
+        final List<NonLeafLevel> nonLeafLevels = new ArrayList<>();
+        BTreeNodeLeaf leaf = createLeaf(version);
+        byte[] previousKey = null;
+
+        while (sortedPairs.hasNext())
+        {
+            final Map.Entry<byte[], byte[]> pair = sortedPairs.next();
+            final byte[] key = Objects.requireNonNull(pair.getKey(), "key cannot be null");
+            final byte[] value = nodesManager.writeValue(Objects.requireNonNull(pair.getValue(), "value cannot be null"));
+
+            if (previousKey != null && ByteArrayComparator.INSTANCE.compare(previousKey, key) >= 0)
+            {
+                throw new IllegalArgumentException("Keys must be strictly increasing for bulk loading");
+            }
+            //the caller is free to reuse the key buffer
+            previousKey = key.clone();
+
+            final @ByteSize int requiredSpace = StorageUnits.size(key.length + value.length);
+            if (leaf.getPairCount() > 0 && isFull(leaf, requiredSpace))
+            {
+                final byte[] minKey = leaf.getMinKey();
+                addChild(nonLeafLevels, 0, minKey, commitChild(leaf, version), version);
+                leaf = createLeaf(version);
+            }
+
+            leaf.insert(key, value);
+        }
+
+        return commitLevels(nonLeafLevels, leaf, version);
+    }
+
+    private @PageNumber long commitLevels(
+            final List<NonLeafLevel> nonLeafLevels,
+            final BTreeNodeLeaf lastLeaf,
+            final @Version long version) throws IOException
+    {
+        final @Milliseconds long timestamp = timeSource.getCurrentMillis();
+        if (nonLeafLevels.isEmpty())
+        {
+            //a tree that fits in a single leaf, which might even be empty
+            lastLeaf.setDirty();
+            return commitRoot(lastLeaf, timestamp, version);
+        }
+
+        final byte[] lastLeafMinKey = lastLeaf.getMinKey();
+        addChild(nonLeafLevels, 0, lastLeafMinKey, commitChild(lastLeaf, version), version);
+
+        //every level that has a level above it has had at least two nodes, so the top level has at least two children.
+        //Committing the last node of a level can fill the node above it and push a new top level, so the top is re-read
+        for (int level = 0; level < nonLeafLevels.size() - 1; level++)
+        {
+            final NonLeafLevel nonLeafLevel = nonLeafLevels.get(level);
+            addChild(nonLeafLevels, level + 1, nonLeafLevel.minKey, commitChild(nonLeafLevel.node, version), version);
+        }
+
+        return commitRoot(nonLeafLevels.get(nonLeafLevels.size() - 1).node, timestamp, version);
+    }
+
+    private @PageNumber long commitRoot(
+            final BTreeNodeHeap root,
+            final @Milliseconds long timestamp,
+            final @Version long version) throws IOException
+    {
+        final @PageNumber long rootPageNumber = nodesManager.commitRoot(root, timestamp, version);
+        nodesManager.commitLastRootPage(rootPageNumber, version);
+        return rootPageNumber;
+    }
+
+    private void addChild(
+            final List<NonLeafLevel> nonLeafLevels,
+            final int level,
+            final byte[] childMinKey,
+            final @PageNumber long childPageNumber,
+            final @Version long version) throws IOException
+    {
+        if (level == nonLeafLevels.size())
+        {
+            nonLeafLevels.add(new NonLeafLevel(createNonLeaf(version), childMinKey));
+            nonLeafLevels.get(level).node.setCommittedChild(0, childPageNumber);
+            return;
+        }
+
+        final NonLeafLevel nonLeafLevel = nonLeafLevels.get(level);
+        final @ByteSize int requiredSpace = StorageUnits.size(childMinKey.length + Long.BYTES); //page number size
+        //a non leaf node needs at least two children, and the full node gives its rightmost child to the new node.
+        //So the new node never has a single child, even when the child being added is the last one of the level
+        if (nonLeafLevel.node.getPairCount() > 2 && isFull(nonLeafLevel.node, requiredSpace))
+        {
+            final BTreeNodeNonLeaf fullNode = nonLeafLevel.node;
+            final int rightmostIndex = fullNode.getPairCount() - 1;
+            final byte[] movedChildMinKey = fullNode.getKey(rightmostIndex - 1);
+            final @PageNumber long movedChildPageNumber = getChildPageNumber(fullNode, rightmostIndex);
+            final @PageNumber long previousChildPageNumber = getChildPageNumber(fullNode, rightmostIndex - 1);
+            fullNode.removeAtIndex(rightmostIndex - 1);
+            fullNode.setCommittedChild(rightmostIndex - 1, previousChildPageNumber);
+
+            addChild(nonLeafLevels, level + 1, nonLeafLevel.minKey, commitChild(fullNode, version), version);
+
+            nonLeafLevel.node = createNonLeaf(version);
+            nonLeafLevel.minKey = movedChildMinKey;
+            nonLeafLevel.node.setCommittedChild(0, movedChildPageNumber);
+            nonLeafLevel.node.appendCommittedChild(childMinKey, childPageNumber);
+        }
+        else
+        {
+            nonLeafLevel.node.appendCommittedChild(childMinKey, childPageNumber);
+        }
+    }
+
+    private static @PageNumber long getChildPageNumber(final BTreeNodeNonLeaf node, final int index)
+    {
+        return StorageUnits.pageNumber(BinaryHelper.bytesToLong(node.getValue(index)));
+    }
+
+    private boolean isFull(final BTreeNodeHeap node, final @ByteSize int requiredSpace)
+    {
+        final @ByteSize int reservedSpace = StorageUnits.size((int) (node.getBuffer().getCapacity() * (1 - fillFactor)));
+        return node.shouldSplit(StorageUnits.size(requiredSpace + reservedSpace));
+    }
+
+    private @PageNumber long commitChild(final BTreeNodeHeap node, final @Version long version) throws IOException
+    {
+        return node.commit(nodesManager, false, StorageUnits.INVALID_PAGE_NUMBER, NO_TIMESTAMP, version);
+    }
+
+    private BTreeNodeLeaf createLeaf(final @Version long version)
+    {
+        final BTreeNodeLeaf leaf = nodesManager.createEmptyLeafNode();
+        leaf.setVersion(version);
+        return leaf;
+    }
+
+    private BTreeNodeNonLeaf createNonLeaf(final @Version long version)
+    {
+        final BTreeNodeNonLeaf nonLeaf = nodesManager.createEmptyNonLeafNode();
+        nonLeaf.setVersion(version);
+        return nonLeaf;
+    }
+
+    /**
+     * The node being filled at one of the non leaf levels.
+     */
+    private static final class NonLeafLevel
+    {
+        private BTreeNodeNonLeaf node;
+        private byte[] minKey;
+
+        NonLeafLevel(final BTreeNodeNonLeaf node, final byte[] minKey)
+        {
+            this.node = node;
+            this.minKey = minKey;
+        }
+    }
+}
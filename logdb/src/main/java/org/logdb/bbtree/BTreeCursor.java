@@ -0,0 +1,514 @@
+package org.logdb.bbtree;
+
+import org.logdb.Cursor;
+import org.logdb.bit.ByteArrayComparator;
+import org.logdb.storage.PageNumber;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Cursor over the tree that keeps the path from the root to the current leaf,
+ * so moving to a sibling leaf only reloads the levels below the common ancestor instead of traversing from the root.
+ * Every level of the path maps its own node, so the nodes stay readable while the levels below are moved.
+ * <br>
+ * The pairs of the current leaf are read in place from its node, nothing is copied until a key or value is requested.
+ * When the logs of its ancestors have pending entries in the range of the leaf, those entries are located in the leaf
+ * and the cursor moves over an index of leaf positions with the log entries spliced in.
+ * The logs closer to the root hold the most recent changes, so they take precedence.
+ * <br>
+ * Cursors opened on the tree pin a snapshot until closed, so the nodes they are reading are not reused by commits.
+ */
+final class BTreeCursor implements Cursor
+{
+    static final long NO_PIN = -1;
+
+    private static final int NOT_POSITIONED = -1;
+    private static final int INITIAL_PATH_CAPACITY = 8;
+
+    private final NodesManager nodesManager;
+    private final long pin;
+    private final BTreeNode root;
+    private final List<BTreeMappedNode> mappedNodes;
+    private final List<LogEntry> logEntries;
+
+    private BTreeNode leaf;
+    private int leafPairCount;
+    //positions of the merged leaf, a position >= 0 is a leaf index, otherwise -(log entry index + 1)
+    private int[] mergedPositions;
+    private int mergedCount;
+    private boolean isMerged;
+    private BTreeNode[] pathNodes;
+    private int[] pathIndexes;
+    private int pathDepth;
+    private int leafIndex;
+    private boolean isClosed;
+
+    /**
+     * Creates a cursor that is not positioned, it has to be positioned with a seek before reading.
+     * @param nodesManager the nodes manager used to load the children
+     * @param uncommittedRoot the root to read, or null if the committed root should be read
+     * @param committedRootPageNumber the page number of the committed root, used when there is no uncommitted root
+     * @param pin the snapshot pin released when the cursor is closed, or {@link #NO_PIN} if it's pinned by its owner
+     */
+    BTreeCursor(
+            final NodesManager nodesManager,
+            final BTreeNode uncommittedRoot,
+            final @PageNumber long committedRootPageNumber,
+            final long pin)
+    {
+        this.nodesManager = Objects.requireNonNull(nodesManager, "nodesManager cannot be null");
+        this.pin = pin;
+        this.mappedNodes = new ArrayList<>();
+        this.logEntries = new ArrayList<>();
+        this.mergedPositions = new int[0];
+        this.pathNodes = new BTreeNode[INITIAL_PATH_CAPACITY];
+        this.pathIndexes = new int[INITIAL_PATH_CAPACITY];
+        this.pathDepth = 0;
+        this.leafIndex = NOT_POSITIONED;
+        this.isClosed = false;
+
+        if (uncommittedRoot != null)
+        {
+            this.root = uncommittedRoot;
+        }
+        else
+        {
+            final BTreeMappedNode mappedRoot = getMappedNode(0);
+            mappedRoot.initNode(committedRootPageNumber);
+            this.root = mappedRoot;
+        }
+    }
+
+    @Override
+    public boolean seek(final byte[] fromKey)
+    {
+        Objects.requireNonNull(fromKey, "key cannot be null");
+        checkNotClosed();
+
+        BTreeNode node = root;
+        int level = 0;
+        pathDepth = 0;
+        while (node.getNodeType() == BtreeNodeType.NonLeaf)
+        {
+            final int index = node.getKeyIndex(fromKey);
+            node = pushAndLoadChild(level, node, index);
+            level++;
+        }
+        loadLeaf(node);
+
+        leafIndex = findFirstEqualOrGreater(fromKey);
+        return skipEmptyLeavesForward();
+    }
+
+    @Override
+    public boolean seekToFirst()
+    {
+        checkNotClosed();
+
+        descendToEdge(root, 0, false);
+        leafIndex = 0;
+        return skipEmptyLeavesForward();
+    }
+
+    @Override
+    public boolean seekToLast()
+    {
+        checkNotClosed();
+
+        descendToEdge(root, 0, true);
+        leafIndex = getLeafSize() - 1;
+        return skipEmptyLeavesBackward();
+    }
+
+    @Override
+    public boolean next()
+    {
+        if (!isValid())
+        {
+            return false;
+        }
+
+        leafIndex++;
+        return skipEmptyLeavesForward();
+    }
+
+    @Override
+    public boolean prev()
+    {
+        if (!isValid())
+        {
+            return false;
+        }
+
+        leafIndex--;
+        return skipEmptyLeavesBackward();
+    }
+
+    @Override
+    public boolean isValid()
+    {
+        return !isClosed && leafIndex != NOT_POSITIONED;
+    }
+
+    @Override
+    public byte[] getKey()
+    {
+        checkPositioned();
+        return getKeyAt(leafIndex);
+    }
+
+    @Override
+    public byte[] getValue()
+    {
+        checkPositioned();
+        if (!isMerged)
+        {
+            return nodesManager.readValue(leaf.getValue(leafIndex));
+        }
+
+        final int position = mergedPositions[leafIndex];
+        return nodesManager.readValue(position >= 0 ? leaf.getValue(position) : logEntries.get(-position - 1).value);
+    }
+
+    @Override
+    public void close()
+    {
+        if (isClosed)
+        {
+            return;
+        }
+
+        isClosed = true;
+        leafIndex = NOT_POSITIONED;
+        Arrays.fill(pathNodes, null);
+        leaf = null;
+        logEntries.clear();
+
+        for (final BTreeMappedNode mappedNode : mappedNodes)
+        {
+            mappedNode.close();
+        }
+        mappedNodes.clear();
+
+        if (pin != NO_PIN)
+        {
+            nodesManager.releaseSnapshot(pin);
+        }
+    }
+
+    private boolean skipEmptyLeavesForward()
+    {
+        while (leafIndex >= getLeafSize())
+        {
+            if (!moveToSiblingLeaf(false))
+            {
+                leafIndex = NOT_POSITIONED;
+                return false;
+            }
+            leafIndex = 0;
+        }
+
+        return true;
+    }
+
+    private boolean skipEmptyLeavesBackward()
+    {
+        while (leafIndex < 0)
+        {
+            if (!moveToSiblingLeaf(true))
+            {
+                leafIndex = NOT_POSITIONED;
+                return false;
+            }
+            leafIndex = getLeafSize() - 1;
+        }
+
+        return true;
+    }
+
+    /**
+     * Moves up the path until a level that has a sibling in the requested direction, and descends the sibling.
+     * @return false if the current leaf is the first or last one
+     */
+    private boolean moveToSiblingLeaf(final boolean isBackward)
+    {
+        for (int level = pathDepth - 1; level >= 0; level--)
+        {
+            final BTreeNode node = pathNodes[level];
+            final int siblingIndex = isBackward ? pathIndexes[level] - 1 : pathIndexes[level] + 1;
+            if (siblingIndex >= 0 && siblingIndex < node.getPairCount())
+            {
+                final BTreeNode sibling = pushAndLoadChild(level, node, siblingIndex);
+                descendToEdge(sibling, level + 1, isBackward);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void descendToEdge(final BTreeNode startNode, final int startLevel, final boolean isRightEdge)
+    {
+        BTreeNode node = startNode;
+        int level = startLevel;
+        pathDepth = startLevel;
+        while (node.getNodeType() == BtreeNodeType.NonLeaf)
+        {
+            final int index = isRightEdge ? node.getPairCount() - 1 : 0;
+            node = pushAndLoadChild(level, node, index);
+            level++;
+        }
+
+        loadLeaf(node);
+    }
+
+    private BTreeNode pushAndLoadChild(final int level, final BTreeNode node, final int index)
+    {
+        if (level == pathNodes.length)
+        {
+            pathNodes = Arrays.copyOf(pathNodes, level * 2);
+            pathIndexes = Arrays.copyOf(pathIndexes, level * 2);
+        }
+
+        pathNodes[level] = node;
+        pathIndexes[level] = index;
+        pathDepth = level + 1;
+
+        return nodesManager.loadNode(index, node, getMappedNode(level + 1));
+    }
+
+    private BTreeMappedNode getMappedNode(final int level)
+    {
+        while (mappedNodes.size() <= level)
+        {
+            mappedNodes.add(nodesManager.getOrCreateMappedNode());
+        }
+
+        return mappedNodes.get(level);
+    }
+
+    private void loadLeaf(final BTreeNode leafNode)
+    {
+        leaf = leafNode;
+        leafPairCount = leafNode.getPairCount();
+        isMerged = false;
+        logEntries.clear();
+
+        if (!pathHasLogEntries())
+        {
+            return;
+        }
+
+        collectLogEntries();
+        if (logEntries.isEmpty())
+        {
+            return;
+        }
+
+        //the log entries are few and sorted, every one is located in the leaf and spliced in its position
+        if (mergedPositions.length < leafPairCount + logEntries.size())
+        {
+            mergedPositions = new int[leafPairCount + logEntries.size()];
+        }
+
+        int leafPosition = 0;
+        mergedCount = 0;
+        for (int i = 0; i < logEntries.size(); i++)
+        {
+            final LogEntry logEntry = logEntries.get(i);
+            final int searchIndex = searchLeaf(logEntry.key);
+            final int insertionIndex = searchIndex >= 0 ? searchIndex : -searchIndex - 1;
+            while (leafPosition < insertionIndex)
+            {
+                mergedPositions[mergedCount++] = leafPosition++;
+            }
+
+            if (searchIndex >= 0)
+            {
+                //the log entry replaces or removes the pair of the leaf
+                leafPosition++;
+            }
+
+            if (!BTreeWithLog.isLogValueMarkedToRemove(logEntry.value))
+            {
+                mergedPositions[mergedCount++] = -(i + 1);
+            }
+        }
+
+        while (leafPosition < leafPairCount)
+        {
+            mergedPositions[mergedCount++] = leafPosition++;
+        }
+        isMerged = true;
+    }
+
+    /**
+     * Collects the entries of the logs of the path that belong to the range of the current leaf, sorted by key.
+     * Only the entry closest to the root is kept for every key, as it's the most recent one.
+     */
+    private void collectLogEntries()
+    {
+        final byte[] lowerBound = getLeafLowerBound();
+        final byte[] upperBound = getLeafUpperBound();
+        for (int level = 0; level < pathDepth; level++)
+        {
+            final BTreeLogNodeAbstract logNode = (BTreeLogNodeAbstract) pathNodes[level];
+            for (int i = 0; i < logNode.getLogKeyValuesCount(); i++)
+            {
+                final byte[] logKey = logNode.getLogKey(i);
+                if (isInRange(logKey, lowerBound, upperBound))
+                {
+                    logEntries.add(new LogEntry(logKey, logNode.getLogValueAtIndex(i)));
+                }
+            }
+        }
+
+        //the sort is stable, so the entry closest to the root comes first among the ones with the same key
+        logEntries.sort((first, second) -> ByteArrayComparator.INSTANCE.compare(first.key, second.key));
+        int uniqueCount = 0;
+        for (int i = 0; i < logEntries.size(); i++)
+        {
+            final LogEntry logEntry = logEntries.get(i);
+            if (uniqueCount == 0 || ByteArrayComparator.INSTANCE.compare(logEntries.get(uniqueCount - 1).key, logEntry.key) != 0)
+            {
+                logEntries.set(uniqueCount++, logEntry);
+            }
+        }
+        logEntries.subList(uniqueCount, logEntries.size()).clear();
+    }
+
+    /**
+     * Searches the key in place in the node of the leaf.
+     * @return the index of the key, or -(insertion index + 1) if it's not in the leaf
+     */
+    private int searchLeaf(final byte[] key)
+    {
+        return leafPairCount == 0 ? -1 : ((BTreeNodeAbstract) leaf).binarySearch(key);
+    }
+
+    private int getLeafSize()
+    {
+        return isMerged ? mergedCount : leafPairCount;
+    }
+
+    private byte[] getKeyAt(final int index)
+    {
+        if (!isMerged)
+        {
+            return leaf.getKey(index);
+        }
+
+        final int position = mergedPositions[index];
+        return position >= 0 ? leaf.getKey(position) : logEntries.get(-position - 1).key;
+    }
+
+    private boolean pathHasLogEntries()
+    {
+        for (int level = 0; level < pathDepth; level++)
+        {
+            if (((BTreeLogNode) pathNodes[level]).getLogKeyValuesCount() > 0)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Finds the lower bound of the current leaf in the path of its ancestors.
+     * @return the smallest key that can be stored in the current leaf, or null if it's the leftmost leaf
+     */
+    private byte[] getLeafLowerBound()
+    {
+        for (int level = pathDepth - 1; level >= 0; level--)
+        {
+            if (pathIndexes[level] > 0)
+            {
+                return pathNodes[level].getKey(pathIndexes[level] - 1);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds the upper bound of the current leaf in the path of its ancestors.
+     * @return the key above all the keys that can be stored in the current leaf, or null if it's the rightmost leaf
+     */
+    private byte[] getLeafUpperBound()
+    {
+        for (int level = pathDepth - 1; level >= 0; level--)
+        {
+            if (pathIndexes[level] < pathNodes[level].getPairCount() - 1)
+            {
+                return pathNodes[level].getKey(pathIndexes[level]);
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isInRange(final byte[] key, final byte[] lowerBound, final byte[] upperBound)
+    {
+        return (lowerBound == null || ByteArrayComparator.INSTANCE.compare(key, lowerBound) >= 0) &&
+                (upperBound == null || ByteArrayComparator.INSTANCE.compare(key, upperBound) < 0);
+    }
+
+    private int findFirstEqualOrGreater(final byte[] key)
+    {
+        if (!isMerged)
+        {
+            final int searchIndex = searchLeaf(key);
+            return searchIndex >= 0 ? searchIndex : -searchIndex - 1;
+        }
+
+        int low = 0;
+        int high = mergedCount;
+        while (low < high)
+        {
+            final int middle = (low + high) >>> 1;
+            if (ByteArrayComparator.INSTANCE.compare(getKeyAt(middle), key) < 0)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private void checkPositioned()
+    {
+        if (!isValid())
+        {
+            throw new IllegalStateException("Cursor is not positioned at any pair");
+        }
+    }
+
+    private void checkNotClosed()
+    {
+        if (isClosed)
+        {
+            throw new IllegalStateException("Cursor is closed");
+        }
+    }
+
+    private static final class LogEntry
+    {
+        private final byte[] key;
+        private final byte[] value;
+
+        LogEntry(final byte[] key, final byte[] value)
+        {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
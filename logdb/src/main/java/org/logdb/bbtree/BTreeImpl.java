@@ -1,5 +1,6 @@
 package org.logdb.bbtree;
 
+import org.logdb.WriteBatch;
 import org.logdb.bit.ByteArrayComparator;
 import org.logdb.storage.ByteSize;
 import org.logdb.storage.PageNumber;
@@ -12,6 +13,14 @@ import java.util.function.BiConsumer;
 
 public class BTreeImpl extends BTreeAbstract
 {
+    private static final byte[] EMPTY_KEY = new byte[0];
+
+    /**
+     * The greatest key of the tree, or null if it has to be loaded again.
+     * Puts of greater keys follow the rightmost path without searching it.
+     */
+    private byte[] lastKey;
+
     public BTreeImpl(
             final NodesManager nodesManager,
             final TimeSource timeSource,
@@ -32,7 +41,68 @@ public class BTreeImpl extends BTreeAbstract
     {
         final CursorPosition cursorPosition = getLastCursorPosition(key);
         final @Version long newVersion = nextWriteVersion++;
+        if (lastKey != null && ByteArrayComparator.INSTANCE.compare(key, lastKey) >= 0)
+        {
+            lastKey = null;
+        }
+
+        setNewRoot(removeWithVersion(cursorPosition, newVersion, false));
+    }
 
+    /**
+     * Applies all the operations of the batch with a single version and publishes a single new root.
+     * The operations are applied in key order, so consecutive keys share most of their path,
+     * and the nodes already copied by the batch are modified in place instead of being copied again.
+     *
+     * @param batch the puts and deletes to apply
+     */
+    @Override
+    public void apply(final WriteBatch batch)
+    {
+        if (batch.isEmpty())
+        {
+            return;
+        }
+
+        final @Version long newVersion = nextWriteVersion++;
+        lastKey = null;
+        BTreeNodeHeap batchRoot = null;
+        for (final WriteBatch.Operation operation : batch.getOperationsSortedByKey())
+        {
+            final byte[] key = operation.getKey();
+            final CursorPosition cursorPosition = batchRoot == null
+                    ? getLastCursorPosition(key)
+                    : traverseDown(batchRoot, key);
+
+            //the nodes of the first operation are copied, the following ones reuse the nodes copied by the batch
+            final boolean isInPlace = batchRoot != null;
+            if (!operation.isDelete())
+            {
+                final byte[] storedValue = nodesManager.writeValue(operation.getValue());
+                batchRoot = putWithVersion(cursorPosition, key, storedValue, newVersion, isInPlace);
+            }
+            else if (cursorPosition.index >= 0)
+            {
+                batchRoot = removeWithVersion(cursorPosition, newVersion, isInPlace);
+            }
+        }
+
+        if (batchRoot != null)
+        {
+            setNewRoot(batchRoot);
+        }
+        else
+        {
+            //every delete was for a missing key, still the version has to be visible
+            setNewRoot(getWritableRoot(newVersion));
+        }
+    }
+
+    private BTreeNodeHeap removeWithVersion(
+            final CursorPosition cursorPosition,
+            final @Version long newVersion,
+            final boolean isInPlace)
+    {
         try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
         {
             int index = cursorPosition.index;
@@ -47,9 +117,37 @@ public class BTreeImpl extends BTreeAbstract
                 parentCursor = parentCursor.parent;
             }
 
-            final BTreeNodeHeap targetNode = nodesManager.copyNode(currentNode, newVersion);
+            BTreeNodeHeap targetNode = getWritableNode(currentNode, newVersion, isInPlace);
             targetNode.removeAtIndex(index);
-            updatePathToRoot(parentCursor, targetNode);
+
+            while (parentCursor != null && rebalancer.isUnderflow(targetNode))
+            {
+                final BTreeNodeNonLeaf parent =
+                        (BTreeNodeNonLeaf) getWritableNode(parentCursor.getNode(mappedNode), newVersion, isInPlace);
+                final boolean isMerged = rebalancer.rebalance(
+                        parent,
+                        parentCursor.index,
+                        targetNode,
+                        siblingIndex -> getWritableChild(parent, siblingIndex, newVersion, isInPlace));
+                if (isMerged)
+                {
+                    this.nodesCount--;
+                }
+
+                targetNode = parent;
+                parentCursor = parentCursor.parent;
+            }
+
+            final boolean rootHasSingleChild = parentCursor == null &&
+                    targetNode.getNodeType() == BtreeNodeType.NonLeaf &&
+                    targetNode.getPairCount() == 1;
+            if (rebalancer.isEnabled() && rootHasSingleChild)
+            {
+                this.nodesCount--;
+                targetNode = getWritableChild((BTreeNodeNonLeaf) targetNode, 0, newVersion, isInPlace);
+            }
+
+            return updatePathToRoot(parentCursor, targetNode, isInPlace);
         }
     }
 
@@ -63,15 +161,46 @@ public class BTreeImpl extends BTreeAbstract
     @Override
     public void put(final byte[] key, final byte[] value)
     {
-        final CursorPosition cursorPosition = getLastCursorPosition(key);
+        final boolean isAppend = isAfterLastKey(key);
+        final CursorPosition cursorPosition = isAppend ? getRightmostCursorPosition() : getLastCursorPosition(key);
         final @Version long newVersion = nextWriteVersion++;
+        final byte[] storedValue = nodesManager.writeValue(value);
+
+        setNewRoot(putWithVersion(cursorPosition, key, storedValue, newVersion, false));
+
+        if (isAppend)
+        {
+            lastKey = key.clone();
+        }
+    }
+
+    private boolean isAfterLastKey(final byte[] key)
+    {
+        if (lastKey == null)
+        {
+            try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+            {
+                final BTreeNode rightmostLeaf = findRightmostLeaf(getLatestRootNode(mappedNode), mappedNode);
+                lastKey = rightmostLeaf.getPairCount() == 0 ? EMPTY_KEY : rightmostLeaf.getMaxKey();
+            }
+        }
 
+        return ByteArrayComparator.INSTANCE.compare(key, lastKey) > 0;
+    }
+
+    private BTreeNodeHeap putWithVersion(
+            final CursorPosition cursorPosition,
+            final byte[] key,
+            final byte[] value,
+            final @Version long newVersion,
+            final boolean isInPlace)
+    {
         try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
         {
             final BTreeNode targetNode = cursorPosition.getNode(mappedNode);
             CursorPosition parentCursor = cursorPosition.parent;
 
-            BTreeNodeHeap currentNode = nodesManager.copyNode(targetNode, newVersion);
+            BTreeNodeHeap currentNode = getWritableNode(targetNode, newVersion, isInPlace);
             @ByteSize int requiredSpace = StorageUnits.size(key.length + value.length);
 
             assert (BtreeNodeType.Leaf.equals(currentNode.getNodeType()));
@@ -79,11 +208,12 @@ public class BTreeImpl extends BTreeAbstract
             byte[] splitKey = null;
 
             //Split leaf node
+            boolean isAppend = false;
             if (currentNode.shouldSplit(requiredSpace))
             {
                 this.nodesCount++;
-                final int keyCount = currentNode.getPairCount();
-                final int at = keyCount >> 1;
+                isAppend = isRightmostInsert(cursorPosition, currentNode, key, mappedNode);
+                final int at = SplitPolicy.getLeafSplitIndex(currentNode, isAppend);
                 splitKey = currentNode.getKey(at);
                 splitNode = nodesManager.splitNode(currentNode, at, newVersion);
 
@@ -123,14 +253,13 @@ public class BTreeImpl extends BTreeAbstract
                 else
                 {
                     requiredSpace = StorageUnits.size(splitKey.length + Long.BYTES); //page number size
-                    final BTreeNodeHeap parentNode = nodesManager.copyNode(parentCursor.getNode(mappedNode), newVersion);
+                    final BTreeNodeHeap parentNode = getWritableNode(parentCursor.getNode(mappedNode), newVersion, isInPlace);
                     if (parentNode.shouldSplit(requiredSpace))
                     {
                         parentNode.setChild(parentCursor.index, splitNode);
 
                         this.nodesCount++;
-                        final int keyCount = parentNode.getPairCount();
-                        final int at = keyCount >> 1;
+                        final int at = SplitPolicy.getNonLeafSplitIndex(parentNode, isAppend);
                         final byte[] splitKeyNonLeaf = parentNode.getKey(at);
                         final BTreeNodeHeap splitNonLeaf = nodesManager.splitNode(parentNode, at, newVersion);
 
@@ -162,10 +291,35 @@ public class BTreeImpl extends BTreeAbstract
                 }
             }
 
-            updatePathToRoot(parentCursor, currentNode);
+            return updatePathToRoot(parentCursor, currentNode, isInPlace);
         }
     }
 
+    /**
+     * An insert is an append if the key goes after every key of the leaf, and the leaf is the rightmost one of the tree.
+     */
+    private boolean isRightmostInsert(
+            final CursorPosition cursorPosition,
+            final BTreeNode leaf,
+            final byte[] key,
+            final BTreeMappedNode mappedNode)
+    {
+        if (ByteArrayComparator.INSTANCE.compare(key, leaf.getMaxKey()) <= 0)
+        {
+            return false;
+        }
+
+        for (CursorPosition parentCursor = cursorPosition.parent; parentCursor != null; parentCursor = parentCursor.parent)
+        {
+            if (parentCursor.index != parentCursor.getNode(mappedNode).getPairCount() - 1)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * Gets a value for the key at time/instance t.
      *
@@ -177,39 +331,56 @@ public class BTreeImpl extends BTreeAbstract
     {
         assert version >= 0;
 
-        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        final long pin = nodesManager.pinSnapshot();
+        try
         {
-            final BTreeNode rootNode = getRootNode(version, mappedNode);
-            final CursorPosition cursorPosition = traverseDown(rootNode, key);
-            final BTreeNode node = cursorPosition.getNode(mappedNode);
-
-            return node.get(key);
+            final BTreeMappedNode lookupNode = nodesManager.getLookupMappedNode();
+            final BTreeNode rootNode = getRootNode(version, lookupNode);
+            return nodesManager.readValue(findLeaf(rootNode, key, lookupNode).get(key));
+        }
+        finally
+        {
+            nodesManager.releaseSnapshot(pin);
         }
     }
 
     @Override
     public byte[] get(final byte[] key)
     {
-        //TODO optimize, we don't need the whole path, just the end node.
-        final CursorPosition cursorPosition = getLastCursorPosition(key);
-        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        final long pin = nodesManager.pinSnapshot();
+        try
         {
-            return cursorPosition.getNode(mappedNode).get(key);
+            final BTreeMappedNode lookupNode = nodesManager.getLookupMappedNode();
+            final BTreeNode rootNode = getLatestRootNode(lookupNode);
+            return nodesManager.readValue(findLeaf(rootNode, key, lookupNode).get(key));
+        }
+        finally
+        {
+            nodesManager.releaseSnapshot(pin);
         }
     }
 
+    @Override
+    byte[] getFromRoot(final BTreeNode root, final byte[] key)
+    {
+        return nodesManager.readValue(findLeaf(root, key, nodesManager.getLookupMappedNode()).get(key));
+    }
+
     @Override
     public byte[] getByTimestamp(final byte[] key, final @Milliseconds long timestamp)
     {
         assert timestamp >= 0;
 
-        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        final long pin = nodesManager.pinSnapshot();
+        try
         {
-            final BTreeNode rootNode = getRootNodeByTimestamp(timestamp, mappedNode);
-            final CursorPosition cursorPosition = traverseDown(rootNode, key);
-            final BTreeNode node = cursorPosition.getNode(mappedNode);
-
-            return node.get(key);
+            final BTreeMappedNode lookupNode = nodesManager.getLookupMappedNode();
+            final BTreeNode rootNode = getRootNodeByTimestamp(timestamp, lookupNode);
+            return nodesManager.readValue(findLeaf(rootNode, key, lookupNode).get(key));
+        }
+        finally
+        {
+            nodesManager.releaseSnapshot(pin);
         }
     }
 
@@ -392,7 +563,7 @@ public class BTreeImpl extends BTreeAbstract
             for (int i = 0; i < keyCount; i++)
             {
                 final byte[] key = mappedLeaf.getKey(i);
-                final byte[] value = mappedLeaf.getValue(i);
+                final byte[] value = nodesManager.readValue(mappedLeaf.getValue(i));
 
                 consumer.accept(key, value);
             }
@@ -407,13 +578,16 @@ public class BTreeImpl extends BTreeAbstract
         for (int i = 0; i < keyCount; i++)
         {
             final byte[] key = leaf.getKey(i);
-            final byte[] value = leaf.getValue(i);
+            final byte[] value = nodesManager.readValue(leaf.getValue(i));
 
             consumer.accept(key, value);
         }
     }
 
-    private void updatePathToRoot(final CursorPosition cursor, final BTreeNodeHeap current)
+    private BTreeNodeHeap updatePathToRoot(
+            final CursorPosition cursor,
+            final BTreeNodeHeap current,
+            final boolean isInPlace)
     {
         BTreeNodeHeap currentNode = current;
         CursorPosition parentCursor = cursor;
@@ -424,12 +598,54 @@ public class BTreeImpl extends BTreeAbstract
             while (parentCursor != null)
             {
                 BTreeNodeHeap c = currentNode;
-                currentNode = nodesManager.copyNode(parentCursor.getNode(mappedNode), version);
+                currentNode = getWritableNode(parentCursor.getNode(mappedNode), version, isInPlace);
                 currentNode.setChild(parentCursor.index, c);
                 parentCursor = parentCursor.parent;
             }
         }
 
-        setNewRoot(currentNode);
+        return currentNode;
+    }
+
+    /**
+     * While a batch is being applied, the nodes with the batch version are only reachable from the root
+     * that is being built, so they can be modified in place. Any other node is shared with published roots
+     * and has to be copied.
+     */
+    private BTreeNodeHeap getWritableNode(final BTreeNode node, final @Version long newVersion, final boolean isInPlace)
+    {
+        if (isInPlace && node instanceof BTreeNodeHeap && node.getVersion() == newVersion)
+        {
+            return (BTreeNodeHeap) node;
+        }
+
+        return nodesManager.copyNode(node, newVersion);
+    }
+
+    private BTreeNodeHeap getWritableChild(
+            final BTreeNodeNonLeaf parent,
+            final int index,
+            final @Version long newVersion,
+            final boolean isInPlace)
+    {
+        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        {
+            return getWritableNode(nodesManager.loadNode(index, parent, mappedNode), newVersion, isInPlace);
+        }
+    }
+
+    private BTreeNodeHeap getWritableRoot(final @Version long newVersion)
+    {
+        final RootReference rootReference = uncommittedRoot.get();
+        if (rootReference != null)
+        {
+            return nodesManager.copyNode(rootReference.root, newVersion);
+        }
+
+        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        {
+            mappedNode.initNode(StorageUnits.pageNumber(committedRoot.get()));
+            return nodesManager.copyNode(mappedNode, newVersion);
+        }
     }
 }
@@ -19,7 +19,7 @@ public abstract class BTreeLogNodeAbstract extends BTreeNodeAbstract implements
             final @ByteSize int maxLogSize,
             final int numberOfPairs)
     {
-        super(pageNumber, memory, numberOfPairs, StorageUnits.offset((short)(memory.getCapacity() - maxLogSize)));
+        super(pageNumber, memory, numberOfPairs, StorageUnits.offset((int) (memory.getCapacity() - maxLogSize)));
         this.maxLogSize = maxLogSize;
 
         if (maxLogSize > 0)
@@ -82,7 +82,7 @@ public abstract class BTreeLogNodeAbstract extends BTreeNodeAbstract implements
     boolean logHasFreeSpace(final @ByteSize int sizeToInsert)
     {
         final @ByteSize long actualLogSize = logHeap.getUsedSize();
-        return actualLogSize < maxLogSize && (maxLogSize - actualLogSize) > (sizeToInsert + KeyValueHeapImpl.CELL_SIZE);
+        return actualLogSize < maxLogSize && (maxLogSize - actualLogSize) > (sizeToInsert + logHeap.getCellSize());
     }
 
     KeyValueHeapImpl spillLog()
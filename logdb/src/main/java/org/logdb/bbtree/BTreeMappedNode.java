@@ -19,6 +19,8 @@ public class BTreeMappedNode extends BTreeLogNodeAbstract implements AutoCloseab
     private final Consumer<BTreeMappedNode> closeHandler;
     private final Storage storage;
     private final @ByteSize int maxLogSize;
+    private final KeyValueHeap nonLeafEntries;
+    private final KeyValueHeap leafEntries;
 
     public BTreeMappedNode(
             final Consumer<BTreeMappedNode> closeHandler,
@@ -26,11 +28,35 @@ public class BTreeMappedNode extends BTreeLogNodeAbstract implements AutoCloseab
             final DirectMemory memory,
             final @PageNumber long pageNumber,
             final @ByteSize int maxLogSize)
+    {
+        this(closeHandler, storage, memory, pageNumber, maxLogSize, false);
+    }
+
+    public BTreeMappedNode(
+            final Consumer<BTreeMappedNode> closeHandler,
+            final Storage storage,
+            final DirectMemory memory,
+            final @PageNumber long pageNumber,
+            final @ByteSize int maxLogSize,
+            final boolean leafPrefixCompression)
     {
         super(pageNumber, memory, maxLogSize, 0);
         this.closeHandler = closeHandler;
         this.storage = storage;
         this.maxLogSize = maxLogSize;
+
+        //leaf pages have no log, so their view spans to the end of the page, with the same cell width as when written
+        this.nonLeafEntries = entries;
+        if (leafPrefixCompression || maxLogSize > 0)
+        {
+            final KeyValueHeapImpl leafHeap = KeyValueHeapImpl.create(
+                    memory.sliceRange(BTreeNodePage.CELL_START_OFFSET, StorageUnits.offset((int) memory.getCapacity())));
+            this.leafEntries = leafPrefixCompression ? new PrefixKeyValueHeap(leafHeap) : leafHeap;
+        }
+        else
+        {
+            this.leafEntries = entries;
+        }
     }
 
     /**
@@ -44,15 +70,21 @@ public class BTreeMappedNode extends BTreeLogNodeAbstract implements AutoCloseab
         this.pageNumber = pageNumber;
         storage.mapPage(pageNumber, (DirectMemory) buffer);
 
-        final Memory logMemory = logHeap.getMemory();
-        if (logMemory instanceof DirectMemory)
+        //nodes without a log use the empty log heap, that has no memory to move
+        if (maxLogSize > 0)
         {
-            final @ByteOffset short logStartOffset = StorageUnits.offset((short)getLogStartOffset(buffer, maxLogSize));
-            final @ByteOffset long newBaseAddress = StorageUnits.offset(buffer.getBaseAddress() + logStartOffset);
-            final DirectMemory directMemory = (DirectMemory) logMemory;
-            directMemory.setBaseAddress(newBaseAddress);
+            final Memory logMemory = logHeap.getMemory();
+            if (logMemory instanceof DirectMemory)
+            {
+                final @ByteOffset long logStartOffset = getLogStartOffset(buffer, maxLogSize);
+                final @ByteOffset long newBaseAddress = StorageUnits.offset(buffer.getBaseAddress() + logStartOffset);
+                final DirectMemory directMemory = (DirectMemory) logMemory;
+                directMemory.setBaseAddress(newBaseAddress);
+            }
         }
 
+        entries = getNodeType() == BtreeNodeType.Leaf ? leafEntries : nonLeafEntries;
+
         final Memory entriesMemory = entries.getMemory();
         if (entriesMemory instanceof DirectMemory)
         {
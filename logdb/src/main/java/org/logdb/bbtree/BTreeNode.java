@@ -60,6 +60,15 @@ public interface BTreeNode
      */
     int getKeyIndex(byte[] key);
 
+    /**
+     * Get the key index corresponding to a long key, for nodes whose keys were all encoded with
+     * {@link org.logdb.bit.BinaryHelper#longToSortableBytes(long)}. Node logs are not searched.
+     * @param key key whose index to search for
+     * @return for non leaf nodes the index of the child to follow,
+     *         for leaf nodes the index of the key if found or negative if not found
+     */
+    int getKeyIndex(long key);
+
     /**
      * Splits the current node into 2 nodes.
      * Current node with all the keys from 0...at-1 and a new one from at+1...end.
@@ -99,6 +108,13 @@ public interface BTreeNode
      */
     byte[] getValue(int index);
 
+    /**
+     * Gets the value at index of a non leaf node, that is the page number of a child, without copying it out.
+     * @param index the index to get the value at
+     * @return the value at index, read as a long
+     */
+    long getLongValue(int index);
+
     /**
      * Gets the child at index.
      * @param index the index for which to get a child
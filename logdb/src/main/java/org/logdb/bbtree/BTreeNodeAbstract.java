@@ -1,7 +1,6 @@
 package org.logdb.bbtree;
 
 import org.logdb.bit.BinaryHelper;
-import org.logdb.bit.ByteArrayComparator;
 import org.logdb.bit.DirectMemory;
 import org.logdb.bit.Memory;
 import org.logdb.storage.ByteOffset;
@@ -22,7 +21,7 @@ abstract class BTreeNodeAbstract implements BTreeNode
     @PageNumber long pageNumber;
     boolean isDirty;
     final Memory buffer;
-    final KeyValueHeap entries;
+    KeyValueHeap entries;
 
     /**
      * Constructor.
@@ -34,13 +33,31 @@ abstract class BTreeNodeAbstract implements BTreeNode
     BTreeNodeAbstract(final @PageNumber long pageNumber,
                       final Memory buffer,
                       final int numberOfPairs,
-                      final @ByteOffset short topKeyValueHeapOffset)
+                      final @ByteOffset int topKeyValueHeapOffset)
+    {
+        this(pageNumber, buffer, numberOfPairs, topKeyValueHeapOffset, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param pageNumber     the page number of this node or an id generated for not yet persisted nodes
+     * @param buffer         the buffer used as a content for this node
+     * @param numberOfPairs   number of pairs in this node
+     * @param prefixCompressed true to store the keys delta encoded, see {@link PrefixKeyValueHeap}
+     */
+    BTreeNodeAbstract(final @PageNumber long pageNumber,
+                      final Memory buffer,
+                      final int numberOfPairs,
+                      final @ByteOffset int topKeyValueHeapOffset,
+                      final boolean prefixCompressed)
     {
         this.pageNumber = pageNumber;
         this.buffer = Objects.requireNonNull(buffer, "buffer must not be null");
         this.isDirty = true;
         final Memory entriesBuffer = buffer.sliceRange(CELL_START_OFFSET, topKeyValueHeapOffset);
-        this.entries = KeyValueHeapImpl.create(entriesBuffer, (short)numberOfPairs);
+        final KeyValueHeapImpl keyValueHeap = KeyValueHeapImpl.create(entriesBuffer, (short)numberOfPairs);
+        this.entries = prefixCompressed ? new PrefixKeyValueHeap(keyValueHeap) : keyValueHeap;
     }
 
     void preCommit(
@@ -170,6 +187,12 @@ abstract class BTreeNodeAbstract implements BTreeNode
         return entries.getValueAtIndex(index);
     }
 
+    @Override
+    public long getLongValue(final int index)
+    {
+        return entries.getLongValueAtIndex(index);
+    }
+
     @Override
     public byte[] getMinKey()
     {
@@ -208,10 +231,30 @@ abstract class BTreeNodeAbstract implements BTreeNode
 
     abstract @ByteSize long calculateFreeSpaceLeft(@ByteSize long pageSize);
 
+    @ByteSize long getUsedSize()
+    {
+        return entries.getUsedSize();
+    }
+
+    @ByteSize long getFreeSize()
+    {
+        return calculateFreeSpaceLeft(buffer.getCapacity());
+    }
+
+    /**
+     * Gets the size of a pair as it's laid out in a node.
+     * @param index the index of the pair
+     * @return the space the pair at index takes when inserted in a node, including its cell
+     */
+    @ByteSize int getPairSize(final int index)
+    {
+        return StorageUnits.size(getKey(index).length + getValue(index).length + entries.getCellSize());
+    }
+
     @Override
     public boolean shouldSplit(final @ByteSize int requiredSpace)
     {
-        return requiredSpace + BTreeNodePage.CELL_SIZE >= calculateFreeSpaceLeft(buffer.getCapacity());
+        return requiredSpace + entries.getCellSize() >= calculateFreeSpaceLeft(buffer.getCapacity());
     }
 
     void setDirty()
@@ -232,7 +275,19 @@ abstract class BTreeNodeAbstract implements BTreeNode
 
     int binarySearchNonLeaf(final byte[] key)
     {
-        return SearchUtils.binarySearch(key, entries.getNumberOfPairs() - 1, this::getKey, ByteArrayComparator.INSTANCE);
+        return entries.binarySearch(key, entries.getNumberOfPairs() - 1);
+    }
+
+    @Override
+    public int getKeyIndex(final long key)
+    {
+        if (getNodeType() == BtreeNodeType.NonLeaf)
+        {
+            final int index = entries.binarySearch(key, entries.getNumberOfPairs() - 1) + 1;
+            return index < 0 ? -index : index;
+        }
+
+        return entries.binarySearch(key, entries.getNumberOfPairs());
     }
 
     @Override
@@ -14,7 +14,16 @@ public class BTreeNodeLeaf extends BTreeNodeAbstract implements BTreeNodeHeap
 {
     public BTreeNodeLeaf(final @PageNumber long pageNumber, final HeapMemory memory, final int numberOfKeys)
     {
-        super(pageNumber, memory, numberOfKeys, StorageUnits.offset((short) memory.getCapacity()));
+        this(pageNumber, memory, numberOfKeys, false);
+    }
+
+    public BTreeNodeLeaf(
+            final @PageNumber long pageNumber,
+            final HeapMemory memory,
+            final int numberOfKeys,
+            final boolean prefixCompressed)
+    {
+        super(pageNumber, memory, numberOfKeys, StorageUnits.offset((int) memory.getCapacity()), prefixCompressed);
     }
 
     @Override
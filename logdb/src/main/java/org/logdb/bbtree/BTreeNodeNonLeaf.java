@@ -9,12 +9,18 @@ import org.logdb.storage.Version;
 import org.logdb.time.Milliseconds;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public class BTreeNodeNonLeaf extends BTreeLogNodeAbstract implements BTreeNodeHeap
 {
-    static final byte[] NON_COMMITTED_CHILD = BinaryHelper.longToBytes(Long.MIN_VALUE);
+    static final long NON_COMMITTED_CHILD_VALUE = Long.MIN_VALUE;
+    static final byte[] NON_COMMITTED_CHILD = BinaryHelper.longToBytes(NON_COMMITTED_CHILD_VALUE);
 
-    private BTreeNodeHeap[] children;
+    /**
+     * Readers of the live tree can walk the node while it's committed, so the children are only dropped
+     * by replacing the whole array, once the page numbers that take their place are stored.
+     */
+    private volatile BTreeNodeHeap[] children;
 
     public BTreeNodeNonLeaf(
             final @PageNumber long pageNumber,
@@ -55,6 +61,89 @@ public class BTreeNodeNonLeaf extends BTreeLogNodeAbstract implements BTreeNodeH
         setDirty();
     }
 
+    /**
+     * Points the child at index to a page that is already persisted.
+     * Used when building the tree bottom up, where children are always committed before their parent.
+     */
+    void setCommittedChild(final int index, final @PageNumber long childPageNumber)
+    {
+        setValue(index, childPageNumber);
+
+        children[index] = null;
+
+        setDirty();
+    }
+
+    /**
+     * Adds a child that is already persisted to the right of all the existing children.
+     *
+     * @param key the smallest key stored under the new child
+     * @param childPageNumber the page number of the new child
+     */
+    void appendCommittedChild(final byte[] key, final @PageNumber long childPageNumber)
+    {
+        //the current rightmost child gets the key as upper bound and the new child becomes the rightmost
+        final int rightmostIndex = entries.getNumberOfPairs() - 1;
+        entries.insertAtIndex(rightmostIndex, key, entries.getValueAtIndex(rightmostIndex));
+
+        final BTreeNodeHeap[] newChildren = new BTreeNodeHeap[entries.getNumberOfPairs()];
+        copyWithGap(children, newChildren, rightmostIndex + 1, rightmostIndex);
+        children = newChildren;
+
+        setCommittedChild(rightmostIndex + 1, childPageNumber);
+    }
+
+    /**
+     * Replaces the key of the entry at index, keeping its child.
+     *
+     * @param index the index of the entry, can't be the rightmost entry as it has no key
+     * @param key the new upper bound of the child at index
+     */
+    void setKey(final int index, final byte[] key)
+    {
+        assert index < entries.getNumberOfPairs() - 1 : "the rightmost entry has no key";
+
+        final byte[] value = entries.getValueAtIndex(index);
+        entries.removeKeyValueAtIndex(index);
+        entries.insertAtIndex(index, key, value);
+
+        setDirty();
+    }
+
+    /**
+     * Appends all the children of the right sibling of this node, in the same order.
+     *
+     * @param separatorKey the key separating this node from its right sibling in their parent,
+     *                     it becomes the upper bound of the current rightmost child
+     * @param rightNode the right sibling, it's not modified
+     */
+    void merge(final byte[] separatorKey, final BTreeNode rightNode)
+    {
+        assert rightNode.getNodeType() == BtreeNodeType.NonLeaf : "when merging a non leaf node, needs same type";
+
+        final int rightmostIndex = entries.getNumberOfPairs() - 1;
+        final byte[] rightmostValue = entries.getValueAtIndex(rightmostIndex);
+        entries.removeKeyValueAtIndex(rightmostIndex);
+        entries.insertAtIndex(rightmostIndex, separatorKey, rightmostValue);
+
+        final int rightNumberOfPairs = rightNode.getPairCount();
+        final BTreeNodeHeap[] newChildren = Arrays.copyOf(children, children.length + rightNumberOfPairs);
+        for (int i = 0; i < rightNumberOfPairs; i++)
+        {
+            final int index = rightmostIndex + 1 + i;
+            entries.insertAtIndex(index, rightNode.getKey(i), rightNode.getValue(i));
+
+            //mapped nodes only point to committed children
+            if (rightNode instanceof BTreeNodeNonLeaf)
+            {
+                newChildren[index] = ((BTreeNodeNonLeaf) rightNode).children[i];
+            }
+        }
+        children = newChildren;
+
+        setDirty();
+    }
+
     @Override
     public BTreeNode getChildAt(final int index)
     {
@@ -233,9 +322,9 @@ public class BTreeNodeNonLeaf extends BTreeLogNodeAbstract implements BTreeNodeH
                     }
 
                     setValue(index, pageNumber);
-                    children[index] = null;
                 }
             }
+            children = new BTreeNodeHeap[children.length];
 
             preCommit(isRoot, previousRootPageNumber, timestamp, version);
             this.pageNumber = nodesManager.commitNode(this);
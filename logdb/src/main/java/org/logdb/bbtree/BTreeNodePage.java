@@ -43,6 +43,10 @@ import static org.logdb.storage.StorageUnits.SHORT_BYTES_SIZE;
  * For internal index nodes the values are pointer in the index file to the page that has the child
  * Values are always 8 bytes (long)
  * </p>
+ * <p>
+ * The cells of the pages hold the offset of the pair, the length of the key and the length of the value, as shorts.
+ * When the heap of the page is bigger than 32KB, they are stored as ints instead, see {@link KeyValueHeapImpl}.
+ * </p>
  *
  */
 class BTreeNodePage
@@ -80,6 +84,12 @@ class BTreeNodePage
     static final @ByteSize int CELL_VALUE_LENGTH_SIZE = SHORT_BYTES_SIZE;
     static final @ByteSize int CELL_SIZE = CELL_PAGE_OFFSET_SIZE + CELL_KEY_LENGTH_SIZE + CELL_VALUE_LENGTH_SIZE;
 
+    //pages bigger than 32KB can't address their heap with shorts, their cells are made of ints
+    static final @ByteSize int WIDE_CELL_PAGE_OFFSET_SIZE = INT_BYTES_SIZE;
+    static final @ByteSize int WIDE_CELL_KEY_LENGTH_SIZE = INT_BYTES_SIZE;
+    static final @ByteSize int WIDE_CELL_VALUE_LENGTH_SIZE = INT_BYTES_SIZE;
+    static final @ByteSize int WIDE_CELL_SIZE = WIDE_CELL_PAGE_OFFSET_SIZE + WIDE_CELL_KEY_LENGTH_SIZE + WIDE_CELL_VALUE_LENGTH_SIZE;
+
     static final @ByteSize int KEY_SIZE = LONG_BYTES_SIZE;
     static final @ByteSize int VALUE_SIZE = LONG_BYTES_SIZE;
 }
@@ -0,0 +1,101 @@
+package org.logdb.bbtree;
+
+import org.logdb.Cursor;
+import org.logdb.Snapshot;
+import org.logdb.storage.PageNumber;
+import org.logdb.storage.Version;
+
+import java.util.Objects;
+
+/**
+ * Snapshot pinned either to an uncommitted root, taken from a {@link RootReference},
+ * or to the page number of a committed root, resolved through the root index.
+ * <br>
+ * Committed pages are never modified, and the uncommitted nodes reachable from the root are
+ * not put back into the pool while the snapshot is pinned, even if they are committed in the meantime.
+ */
+final class BTreeSnapshot implements Snapshot
+{
+    private final BTreeAbstract bTree;
+    private final long pin;
+    private final BTreeNode uncommittedRoot;
+    private final @PageNumber long committedRootPageNumber;
+    private final @Version long version;
+
+    private boolean isClosed;
+
+    /**
+     * Creates a snapshot reading a single root of the tree.
+     * @param bTree the tree the snapshot is taken from
+     * @param pin the pin returned by the nodes manager, released when the snapshot is closed
+     * @param uncommittedRoot the root to read, or null if the committed root should be read
+     * @param committedRootPageNumber the page number of the committed root, used when there is no uncommitted root
+     * @param version the version of the root
+     */
+    BTreeSnapshot(
+            final BTreeAbstract bTree,
+            final long pin,
+            final BTreeNode uncommittedRoot,
+            final @PageNumber long committedRootPageNumber,
+            final @Version long version)
+    {
+        this.bTree = Objects.requireNonNull(bTree, "bTree cannot be null");
+        this.pin = pin;
+        this.uncommittedRoot = uncommittedRoot;
+        this.committedRootPageNumber = committedRootPageNumber;
+        this.version = version;
+        this.isClosed = false;
+    }
+
+    @Override
+    public @Version long getVersion()
+    {
+        return version;
+    }
+
+    @Override
+    public byte[] get(final byte[] key)
+    {
+        Objects.requireNonNull(key, "key cannot be null");
+        checkNotClosed();
+
+        if (uncommittedRoot != null)
+        {
+            return bTree.getFromRoot(uncommittedRoot, key);
+        }
+
+        try (BTreeMappedNode mappedRoot = bTree.nodesManager.getOrCreateMappedNode())
+        {
+            mappedRoot.initNode(committedRootPageNumber);
+            return bTree.getFromRoot(mappedRoot, key);
+        }
+    }
+
+    @Override
+    public Cursor openCursor()
+    {
+        checkNotClosed();
+        //the cursor is read within the pin of the snapshot
+        return new BTreeCursor(bTree.nodesManager, uncommittedRoot, committedRootPageNumber, BTreeCursor.NO_PIN);
+    }
+
+    @Override
+    public void close()
+    {
+        if (isClosed)
+        {
+            return;
+        }
+
+        isClosed = true;
+        bTree.nodesManager.releaseSnapshot(pin);
+    }
+
+    private void checkNotClosed()
+    {
+        if (isClosed)
+        {
+            throw new IllegalStateException("Snapshot is closed");
+        }
+    }
+}
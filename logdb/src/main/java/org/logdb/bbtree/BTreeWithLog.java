@@ -1,5 +1,6 @@
 package org.logdb.bbtree;
 
+import org.logdb.WriteBatch;
 import org.logdb.bit.ByteArrayComparator;
 import org.logdb.storage.ByteSize;
 import org.logdb.storage.PageNumber;
@@ -21,6 +22,11 @@ public class BTreeWithLog extends BTreeAbstract
             final RootReference rootReference)
     {
         super(nodesManager, timeSource, nextWriteVersion, lastRootPageNumber, rootReference);
+
+        if (nodesManager.getOverflowValues().isEnabled())
+        {
+            throw new IllegalArgumentException("Tree with node logs doesn't support overflow pages");
+        }
     }
 
     /**
@@ -31,11 +37,45 @@ public class BTreeWithLog extends BTreeAbstract
     @Override
     public void remove(final byte[] key)
     {
-        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        final @Version long newVersion = nextWriteVersion++;
+        setNewRoot(removeFromRoot(getWritableRoot(newVersion), key));
+    }
+
+    /**
+     * Applies all the operations of the batch with a single version and publishes a single new root.
+     * The operations are applied in key order and the nodes already copied by the batch are reused,
+     * so the logs and children shared by consecutive keys are only copied once.
+     *
+     * @param batch the puts and deletes to apply
+     */
+    @Override
+    public void apply(final WriteBatch batch)
+    {
+        if (batch.isEmpty())
         {
-            BTreeNode currentNode;
-            final @Version long newVersion = nextWriteVersion++;
+            return;
+        }
+
+        final @Version long newVersion = nextWriteVersion++;
+        BTreeNodeHeap batchRoot = getWritableRoot(newVersion);
+        for (final WriteBatch.Operation operation : batch.getOperationsSortedByKey())
+        {
+            batchRoot = operation.isDelete()
+                    ? removeFromRoot(batchRoot, operation.getKey())
+                    : putInRoot(batchRoot, operation.getKey(), operation.getValue());
+        }
+
+        setNewRoot(batchRoot);
+    }
 
+    /**
+     * Gets a copy of the current root with the new version.
+     */
+    private BTreeNodeHeap getWritableRoot(final @Version long newVersion)
+    {
+        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        {
+            final BTreeNode currentNode;
             final RootReference rootReference = uncommittedRoot.get();
             if (rootReference != null && rootReference.root != null)
             {
@@ -46,8 +86,16 @@ public class BTreeWithLog extends BTreeAbstract
                 mappedNode.initNode(StorageUnits.pageNumber(committedRoot.get()));
                 currentNode = mappedNode;
             }
-            BTreeNodeHeap newRoot = nodesManager.copyNode(currentNode, newVersion);
 
+            return nodesManager.copyNode(currentNode, newVersion);
+        }
+    }
+
+    private BTreeNodeHeap removeFromRoot(final BTreeNodeHeap root, final byte[] key)
+    {
+        BTreeNodeHeap newRoot = root;
+        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        {
             removeWithLogRecursive(null, -1, newRoot, key);
 
             final boolean rootHasSingleNode = newRoot.getNodeType() == BtreeNodeType.NonLeaf && newRoot.getPairCount() == 1;
@@ -71,9 +119,9 @@ public class BTreeWithLog extends BTreeAbstract
                     }
                 }
             }
-
-            setNewRoot(newRoot);
         }
+
+        return newRoot;
     }
 
     private void removeWithLogRecursive(
@@ -114,6 +162,18 @@ public class BTreeWithLog extends BTreeAbstract
             this.nodesCount--;
             parent.removeAtIndex(nodeIndexInParent);
         }
+        else if (parent != null && rebalancer.isUnderflow(node))
+        {
+            final boolean isMerged = rebalancer.rebalance(
+                    parent,
+                    nodeIndexInParent,
+                    node,
+                    siblingIndex -> getOrCreateChildrenCopy(parent, siblingIndex));
+            if (isMerged)
+            {
+                this.nodesCount--;
+            }
+        }
     }
 
     private void spillLogForRemove(final BTreeNodeNonLeaf node)
@@ -283,32 +343,18 @@ public class BTreeWithLog extends BTreeAbstract
     @Override
     public void put(final byte[] key, final byte[] value)
     {
-        BTreeNodeHeap newRoot;
         final @Version long newVersion = nextWriteVersion++;
+        setNewRoot(putInRoot(getWritableRoot(newVersion), key, value));
+    }
 
-        try (BTreeMappedNode  mappedNode = nodesManager.getOrCreateMappedNode())
-        {
-            BTreeNode currentNode;
-
-            final RootReference rootReference = uncommittedRoot.get();
-            if (rootReference != null && rootReference.root != null)
-            {
-                currentNode = rootReference.root;
-            }
-            else
-            {
-                mappedNode.initNode(StorageUnits.pageNumber(committedRoot.get()));
-                currentNode = mappedNode;
-            }
-            newRoot = nodesManager.copyNode(currentNode, newVersion);
-        }
-
+    private BTreeNodeHeap putInRoot(final BTreeNodeHeap newRoot, final byte[] key, final byte[] value)
+    {
+        final @Version long newVersion = newRoot.getVersion();
         final @ByteSize int sizeToInsert = StorageUnits.size(key.length + value.length);
         if (newRoot.shouldSplit(sizeToInsert))
         {
             this.nodesCount = this.nodesCount + 2;
-            int keyCount = newRoot.getPairCount();
-            final int at = keyCount >> 1;
+            final int at = getEvenSplitIndex(newRoot);
             final byte[] keyAt = newRoot.getKey(at);
             final BTreeNodeHeap split = nodesManager.splitNode(newRoot, at, newVersion);
             final BTreeNodeNonLeaf parent = nodesManager.createEmptyNonLeafNode();
@@ -322,12 +368,12 @@ public class BTreeWithLog extends BTreeAbstract
             final BTreeNodeHeap rootToPut = compare > 0 ? newRoot : split;
             putWithLogRecursive(parent, at, rootToPut, key, value);
 
-            setNewRoot(parent);
+            return parent;
         }
         else
         {
             putWithLogRecursive(null, -1, newRoot, key, value);
-            setNewRoot(newRoot);
+            return newRoot;
         }
     }
 
@@ -365,8 +411,7 @@ public class BTreeWithLog extends BTreeAbstract
             if (currentNonLeaf.shouldSplit(sizeToInsert) && parent != null)
             {
                 this.nodesCount++;
-                final int nodeKeyCount = currentNonLeaf.getPairCount();
-                final int nodeKeyIndex = nodeKeyCount >> 1;
+                final int nodeKeyIndex = getEvenSplitIndex(currentNonLeaf);
                 final byte[] splitKey = currentNonLeaf.getKey(nodeKeyIndex);
 
                 //split current nonleaf into children
@@ -387,8 +432,7 @@ public class BTreeWithLog extends BTreeAbstract
         if (childrenCopy.shouldSplit(sizeToInsert))
         {
             this.nodesCount++;
-            final int childrenKeyCount = childrenCopy.getPairCount();
-            final int at = childrenKeyCount >> 1;
+            final int at = getEvenSplitIndex(childrenCopy);
             final byte[] splitKey = childrenCopy.getKey(at);
 
             final BTreeNodeHeap childrenSplit = nodesManager.splitNode(childrenCopy, at, parent.getVersion());
@@ -412,6 +456,17 @@ public class BTreeWithLog extends BTreeAbstract
         }
     }
 
+    /**
+     * The nodes are always split in half, without the append split of {@link SplitPolicy}. Non leaf nodes take the
+     * children split while spilling their log without checking their own space, so they can't be left almost full.
+     */
+    private static int getEvenSplitIndex(final BTreeNode node)
+    {
+        return node.getNodeType() == BtreeNodeType.Leaf
+                ? SplitPolicy.getLeafSplitIndex(node, false)
+                : SplitPolicy.getNonLeafSplitIndex(node, false);
+    }
+
     private void spillLogForPut(final BTreeNodeNonLeaf nonLeaf)
     {
         final KeyValueHeapImpl keyValueLog = nonLeaf.spillLog();
@@ -455,22 +510,15 @@ public class BTreeWithLog extends BTreeAbstract
     @Override
     public byte[] get(final byte[] key)
     {
-        BTreeNode currentNode;
-        try (BTreeMappedNode  mappedNode = nodesManager.getOrCreateMappedNode())
+        final long pin = nodesManager.pinSnapshot();
+        try
         {
-
-            final RootReference rootReference = uncommittedRoot.get();
-            if (rootReference != null && rootReference.root != null)
-            {
-                currentNode = rootReference.root;
-            }
-            else
-            {
-                mappedNode.initNode(StorageUnits.pageNumber(committedRoot.get()));
-                currentNode = mappedNode;
-            }
-
-            return getKey(key, currentNode);
+            final BTreeMappedNode lookupNode = nodesManager.getLookupMappedNode();
+            return getKey(key, getLatestRootNode(lookupNode), lookupNode);
+        }
+        finally
+        {
+            nodesManager.releaseSnapshot(pin);
         }
     }
 
@@ -485,10 +533,15 @@ public class BTreeWithLog extends BTreeAbstract
     {
         assert version >= 0;
 
-        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        final long pin = nodesManager.pinSnapshot();
+        try
+        {
+            final BTreeMappedNode lookupNode = nodesManager.getLookupMappedNode();
+            return getKey(key, getRootNode(version, lookupNode), lookupNode);
+        }
+        finally
         {
-            final BTreeNode rootNode = getRootNode(version, mappedNode);
-            return getKey(key, rootNode);
+            nodesManager.releaseSnapshot(pin);
         }
     }
 
@@ -497,45 +550,57 @@ public class BTreeWithLog extends BTreeAbstract
     {
         assert timestamp >= 0;
 
-        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        final long pin = nodesManager.pinSnapshot();
+        try
+        {
+            final BTreeMappedNode lookupNode = nodesManager.getLookupMappedNode();
+            return getKey(key, getRootNodeByTimestamp(timestamp, lookupNode), lookupNode);
+        }
+        finally
         {
-            final BTreeNode rootNode = getRootNodeByTimestamp(timestamp, mappedNode);
-            return getKey(key, rootNode);
+            nodesManager.releaseSnapshot(pin);
         }
     }
 
-    private byte[] getKey(final byte[] key, final BTreeNode root)
+    @Override
+    byte[] getFromRoot(final BTreeNode root, final byte[] key)
     {
-        try (BTreeMappedNode  mappedNode = nodesManager.getOrCreateMappedNode())
+        return getKey(key, root, nodesManager.getLookupMappedNode());
+    }
+
+    /**
+     * Descends from the root reusing the mapped node for every committed level, see {@link #findLeaf}.
+     * The logs of the non leaf nodes hold the most recent changes, so the first log with the key has its value.
+     */
+    private byte[] getKey(final byte[] key, final BTreeNode root, final BTreeMappedNode mappedNode)
+    {
+        BTreeNode currentNode = root;
+        while (currentNode.getNodeType() == BtreeNodeType.NonLeaf)
         {
-            BTreeNode currentNode = root;
-            while (currentNode.getNodeType() == BtreeNodeType.NonLeaf)
+            final BTreeLogNode bTreeLogNode = (BTreeLogNode) currentNode;
+            if (bTreeLogNode.getLogKeyValuesCount() > 0)
             {
-                final BTreeLogNode bTreeLogNode = (BTreeLogNode) currentNode;
-                if (bTreeLogNode.getLogKeyValuesCount() > 0)
+                if (bTreeLogNode.hasKeyLog(key))
                 {
-                    if (bTreeLogNode.hasKeyLog(key))
+                    final byte[] logValue = bTreeLogNode.getLogValue(key);
+                    if (isLogValueMarkedToRemove(logValue))
                     {
-                        final byte[] logValue = bTreeLogNode.getLogValue(key);
-                        if (isLogValueMarkedToRemove(logValue))
-                        {
-                            return null;
-                        }
-                        else
-                        {
-                            return logValue;
-                        }
+                        return null;
+                    }
+                    else
+                    {
+                        return logValue;
                     }
                 }
-                final int keyIndex = currentNode.getKeyIndex(key);
-                currentNode = nodesManager.loadNode(keyIndex, currentNode, mappedNode);
             }
-
-            return currentNode.get(key);
+            final int keyIndex = currentNode.getKeyIndex(key);
+            currentNode = nodesManager.loadNode(keyIndex, currentNode, mappedNode);
         }
+
+        return currentNode.get(key);
     }
 
-    private static boolean isLogValueMarkedToRemove(final byte[] logValue)
+    static boolean isLogValueMarkedToRemove(final byte[] logValue)
     {
         return logValue.length == 0;
     }
@@ -0,0 +1,36 @@
+package org.logdb.bbtree;
+
+import java.util.Arrays;
+
+/**
+ * Spreads the keys evenly across the shards by their hash, so the writes of any key range are spread too.
+ * Cursors have to merge the pairs of every shard.
+ */
+public final class HashKeyPartitioner implements KeyPartitioner
+{
+    private final int shardCount;
+
+    public HashKeyPartitioner(final int shardCount)
+    {
+        if (shardCount <= 0)
+        {
+            throw new IllegalArgumentException("Shard count must be positive, provided " + shardCount);
+        }
+
+        this.shardCount = shardCount;
+    }
+
+    @Override
+    public int getShardCount()
+    {
+        return shardCount;
+    }
+
+    @Override
+    public int getShard(final byte[] key)
+    {
+        final int hash = Arrays.hashCode(key);
+        //the high bits are mixed in, keys that only differ in their last bytes would share the low ones
+        return Math.floorMod(hash ^ (hash >>> 16), shardCount);
+    }
+}
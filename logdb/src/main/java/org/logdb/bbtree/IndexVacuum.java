@@ -0,0 +1,227 @@
+package org.logdb.bbtree;
+
+import org.logdb.bit.BinaryHelper;
+import org.logdb.storage.PageNumber;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.Version;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Objects;
+
+/**
+ * Reclaims the space of the index pages that can't be reached anymore from the retained roots.
+ * <br>
+ * Every commit appends a new copy of the whole dirty path, so the pages of the previous versions pile up in the segments.
+ * The vacuum marks the pages reachable from the roots of the versions from the retention horizon onwards,
+ * including the overflow pages of their leaf values, and deletes the sealed segments without any of them.
+ * The pages of the latest root that are stored in mostly dead segments are copied to the end of the storage,
+ * and committed as a new version of the tree with the same content.
+ * Overflow pages are never relocated, they keep their segments alive until the values using them are replaced.
+ * The segments they leave behind are deleted by a later vacuum, once the horizon moves past the versions reading them.
+ * <br>
+ * Versions older than the horizon can't be read once their pages are deleted.
+ * Segments are only deleted once the snapshots opened before the vacuum are closed,
+ * but plain reads don't pin anything, so reads of versions older than the horizon must not be in flight.
+ * The vacuum has to be run by the thread writing to the tree.
+ */
+public final class IndexVacuum
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexVacuum.class);
+
+    private final BTreeAbstract bTree;
+    private final NodesManager nodesManager;
+    private final OverflowValues overflowValues;
+    private final double minDeadRatio;
+
+    /**
+     * Creates a vacuum of the segments of the tree's index file.
+     * @param bTree the tree to vacuum, it must be written synchronously
+     * @param minDeadRatio the minimum ratio of dead pages for the live pages of a segment to be relocated, between 0 and 1
+     */
+    public IndexVacuum(final BTree bTree, final double minDeadRatio)
+    {
+        Objects.requireNonNull(bTree, "bTree cannot be null");
+        if (!(bTree instanceof BTreeAbstract))
+        {
+            throw new IllegalArgumentException("Vacuum requires the tree to be written synchronously");
+        }
+        if (minDeadRatio < 0 || minDeadRatio > 1)
+        {
+            throw new IllegalArgumentException("Min dead ratio must be between 0 and 1, provided " + minDeadRatio);
+        }
+
+        this.bTree = (BTreeAbstract) bTree;
+        this.nodesManager = this.bTree.nodesManager;
+        this.overflowValues = nodesManager.getOverflowValues();
+        this.minDeadRatio = minDeadRatio;
+    }
+
+    /**
+     * Commits the pending changes of the tree and reclaims the segments that no retained root can reach.
+     * @param retainFromVersion the oldest version that has to stay readable, the latest version is always retained
+     * @return the number of deleted segments
+     */
+    public int vacuum(final @Version long retainFromVersion) throws IOException
+    {
+        assert retainFromVersion >= 0 : "version must be positive. Provided " + retainFromVersion;
+
+        synchronized (bTree.commitLock)
+        {
+            bTree.commit();
+
+            final @PageNumber long latestRootPageNumber = StorageUnits.pageNumber(bTree.committedRoot.get());
+            if (latestRootPageNumber <= 0)
+            {
+                return 0;
+            }
+
+            final BitSet latestLivePages = new BitSet();
+            markReachablePages(latestRootPageNumber, latestLivePages);
+
+            final BitSet livePages = (BitSet) latestLivePages.clone();
+            final @Version long latestVersion = getVersion(latestRootPageNumber);
+            for (long version = Math.min(retainFromVersion, latestVersion); version < latestVersion; version++)
+            {
+                markReachablePages(nodesManager.getPageNumberForVersion(StorageUnits.version(version)), livePages);
+            }
+
+            int deletedSegments = 0;
+            final BitSet relocatedPages = new BitSet();
+            for (final int segmentIndex : nodesManager.getSealedSegments())
+            {
+                final int firstPage = toBitIndex(nodesManager.getSegmentFirstPageNumber(segmentIndex));
+                final int endPage = toBitIndex(nodesManager.getSegmentEndPageNumber(segmentIndex));
+                final int segmentLivePages = livePages.get(firstPage, endPage).cardinality();
+
+                if (segmentLivePages == 0)
+                {
+                    nodesManager.deleteSegment(segmentIndex);
+                    deletedSegments++;
+                }
+                else if (endPage - firstPage - segmentLivePages >= (endPage - firstPage) * minDeadRatio)
+                {
+                    relocatedPages.set(firstPage, endPage);
+                }
+            }
+            relocatedPages.and(latestLivePages);
+
+            if (!relocatedPages.isEmpty())
+            {
+                final BTreeNodeHeap relocatedRoot =
+                        relocate(latestRootPageNumber, relocatedPages, bTree.nextWriteVersion);
+                bTree.commitRelocatedRoot(relocatedRoot);
+            }
+
+            LOGGER.info("Vacuumed index, deleted " + deletedSegments + " segments and relocated " +
+                    relocatedPages.cardinality() + " pages");
+
+            return deletedSegments;
+        }
+    }
+
+    /**
+     * Marks the pages under the root, skipping the subtrees that are already marked as they are shared between versions.
+     */
+    private void markReachablePages(final @PageNumber long rootPageNumber, final BitSet markedPages)
+    {
+        final Deque<Long> pendingPages = new ArrayDeque<>();
+        pendingPages.push(rootPageNumber);
+
+        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        {
+            while (!pendingPages.isEmpty())
+            {
+                final @PageNumber long pageNumber = StorageUnits.pageNumber(pendingPages.pop());
+                final int bitIndex = toBitIndex(pageNumber);
+                if (markedPages.get(bitIndex))
+                {
+                    continue;
+                }
+
+                markedPages.set(bitIndex);
+                mappedNode.initNode(pageNumber);
+                if (mappedNode.getNodeType() == BtreeNodeType.NonLeaf)
+                {
+                    for (int i = 0; i < mappedNode.getPairCount(); i++)
+                    {
+                        pendingPages.push(getChildPageNumber(mappedNode, i));
+                    }
+                }
+                else if (overflowValues.isEnabled())
+                {
+                    for (int i = 0; i < mappedNode.getPairCount(); i++)
+                    {
+                        overflowValues.forEachPage(
+                                mappedNode.getValue(i),
+                                overflowPageNumber -> markedPages.set(toBitIndex(StorageUnits.pageNumber(overflowPageNumber))));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the relocated pages under the node, and every node on the path to them.
+     * @return the copy of the node if it or any node below it is relocated, null if it can stay where it is
+     */
+    private BTreeNodeHeap relocate(
+            final @PageNumber long pageNumber,
+            final BitSet relocatedPages,
+            final @Version long version)
+    {
+        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        {
+            mappedNode.initNode(pageNumber);
+
+            BTreeNodeHeap copy = null;
+            if (mappedNode.getNodeType() == BtreeNodeType.NonLeaf)
+            {
+                for (int i = 0; i < mappedNode.getPairCount(); i++)
+                {
+                    final BTreeNodeHeap relocatedChild = relocate(getChildPageNumber(mappedNode, i), relocatedPages, version);
+                    if (relocatedChild != null)
+                    {
+                        if (copy == null)
+                        {
+                            copy = nodesManager.copyNode(mappedNode, version);
+                        }
+                        copy.setChild(i, relocatedChild);
+                    }
+                }
+            }
+
+            if (copy == null && relocatedPages.get(toBitIndex(pageNumber)))
+            {
+                copy = nodesManager.copyNode(mappedNode, version);
+                ((BTreeNodeAbstract) copy).setDirty();
+            }
+
+            return copy;
+        }
+    }
+
+    private @Version long getVersion(final @PageNumber long pageNumber)
+    {
+        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        {
+            mappedNode.initNode(pageNumber);
+            return mappedNode.getVersion();
+        }
+    }
+
+    private static @PageNumber long getChildPageNumber(final BTreeNode node, final int index)
+    {
+        return StorageUnits.pageNumber(BinaryHelper.bytesToLong(node.getValue(index)));
+    }
+
+    private static int toBitIndex(final @PageNumber long pageNumber)
+    {
+        assert pageNumber >= 0 && pageNumber <= Integer.MAX_VALUE : "page number out of range " + pageNumber;
+        return (int) pageNumber;
+    }
+}
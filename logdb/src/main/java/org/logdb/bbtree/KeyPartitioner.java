@@ -0,0 +1,19 @@
+package org.logdb.bbtree;
+
+/**
+ * Assigns every key to one of the shards of a {@link ShardedIndex}.
+ * <br>
+ * A key must always be assigned to the same shard, also after reopening the index,
+ * so the shards of an existing index have to be opened with the same partitioner.
+ */
+public interface KeyPartitioner
+{
+    int getShardCount();
+
+    /**
+     * Assigns a key to a shard, always the same one for the same key.
+     * @param key the key to assign
+     * @return the index of the shard the key is stored in, between 0 and the shard count excluded
+     */
+    int getShard(byte[] key);
+}
@@ -17,14 +17,44 @@ public interface KeyValueHeap
 
     @ByteSize long getUsedSize();
 
+    /**
+     * Gets the size of the cell that locates every pair in the heap.
+     * @return the size taken by the cell of every pair, besides its key and value
+     */
+    @ByteSize int getCellSize();
+
     void cacheNumberOfLogPairs();
 
     int binarySearch(byte[] key);
 
+    /**
+     * Searches the key only between the first keys.
+     * @param key the key to search
+     * @param numberOfKeys the number of keys, from the first one, to search in
+     * @return the index of the key or negative, as {@link #binarySearch(byte[])}
+     */
+    int binarySearch(byte[] key, int numberOfKeys);
+
+    /**
+     * Searches a long key among keys encoded with {@link org.logdb.bit.BinaryHelper#longToSortableBytes(long)},
+     * comparing primitive longs read in place.
+     * @param key the key to search
+     * @param numberOfKeys the number of keys, from the first one, to search in
+     * @return the index of the key or negative, as {@link #binarySearch(byte[])}
+     */
+    int binarySearch(long key, int numberOfKeys);
+
     byte[] getKeyAtIndex(int index);
 
     byte[] getValueAtIndex(int index);
 
+    /**
+     * Reads a value of 8 bytes as {@link org.logdb.bit.BinaryHelper#bytesToLong(byte[])} would, without copying it out.
+     * @param index the index of the value
+     * @return the value as a long
+     */
+    long getLongValueAtIndex(int index);
+
     void insert(byte[] key, byte[] value);
 
     void insertAtIndex(int index, byte[] key, byte[] value);
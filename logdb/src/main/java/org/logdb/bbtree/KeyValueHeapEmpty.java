@@ -53,6 +53,12 @@ public final class KeyValueHeapEmpty implements KeyValueHeap
         return ZERO_SIZE;
     }
 
+    @Override
+    public @ByteSize int getCellSize()
+    {
+        return KeyValueHeapImpl.CELL_SIZE;
+    }
+
     @Override
     public void cacheNumberOfLogPairs()
     {
@@ -66,6 +72,20 @@ public final class KeyValueHeapEmpty implements KeyValueHeap
                 String.format("Method not implemented. Key to search %s", new String(key)));
     }
 
+    @Override
+    public int binarySearch(byte[] key, int numberOfKeys)
+    {
+        throw new RuntimeException(
+                String.format("Method not implemented. Key to search %s", new String(key)));
+    }
+
+    @Override
+    public int binarySearch(long key, int numberOfKeys)
+    {
+        throw new RuntimeException(
+                String.format("Method not implemented. Key to search %d", key));
+    }
+
     @Override
     public byte[] getKeyAtIndex(int index)
     {
@@ -78,6 +98,12 @@ public final class KeyValueHeapEmpty implements KeyValueHeap
         throw new RuntimeException("Method not implemented.");
     }
 
+    @Override
+    public long getLongValueAtIndex(int index)
+    {
+        throw new RuntimeException("Method not implemented.");
+    }
+
     @Override
     public void insertAtIndex(int i, byte[] keyBytes, byte[] valueBytes)
     {
@@ -11,42 +11,70 @@ import org.logdb.storage.ByteOffset;
 import org.logdb.storage.ByteSize;
 import org.logdb.storage.StorageUnits;
 
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 
+import static org.logdb.storage.StorageUnits.INT_BYTES_SIZE;
 import static org.logdb.storage.StorageUnits.LONG_BYTES_SIZE;
 import static org.logdb.storage.StorageUnits.SHORT_BYTES_SIZE;
 import static org.logdb.storage.StorageUnits.ZERO_OFFSET;
 import static org.logdb.storage.StorageUnits.ZERO_SIZE;
-import static org.logdb.storage.StorageUnits.ZERO_SIZE_SHORT;
 
-final class KeyValueHeapImpl implements KeyValueHeap
+/**
+ * Heap of key/value pairs, with a header, an array of cells growing upwards and the pairs growing downwards.
+ * <br>
+ * The header holds the number of pairs and the offset of the top of the heap,
+ * and every cell holds the offset of the pair, the length of the key and the length of the value.
+ * The width of the top of the heap and of the cell fields is chosen by the capacity of the heap:
+ * shorts for heaps up to {@link #MAX_NARROW_CAPACITY}, ints for the heaps of bigger pages.
+ */
+final class KeyValueHeapImpl implements KeyValueHeap, SearchUtils.KeyIndexComparator, SearchUtils.LongKeyIndexComparator
 {
+    /**
+     * The biggest capacity addressed with short cells, bigger heaps use int cells.
+     */
+    static final @ByteSize int MAX_NARROW_CAPACITY = StorageUnits.size(Short.MAX_VALUE);
+
     private static final @ByteOffset int NUMBER_ENTRIES_OFFSET = ZERO_OFFSET;
     private static final @ByteSize int NUMBER_ENTRIES_SIZE = SHORT_BYTES_SIZE;
 
     private static final @ByteOffset int TOP_HEAP_SIZE_OFFSET = StorageUnits.offset(NUMBER_ENTRIES_OFFSET + NUMBER_ENTRIES_SIZE);
     private static final @ByteSize int TOP_HEAP_SIZE = SHORT_BYTES_SIZE;
+    private static final @ByteSize int WIDE_TOP_HEAP_SIZE = INT_BYTES_SIZE;
 
     static final @ByteSize int HEADER_SIZE = NUMBER_ENTRIES_SIZE + TOP_HEAP_SIZE;
+    static final @ByteSize int WIDE_HEADER_SIZE = NUMBER_ENTRIES_SIZE + WIDE_TOP_HEAP_SIZE;
 
-    private static final @ByteOffset int CELL_OFFSET = StorageUnits.offset(HEADER_SIZE);
-    private static final @ByteSize int CELL_PAGE_OFFSET_SIZE = SHORT_BYTES_SIZE;
-    private static final @ByteSize int CELL_KEY_LENGTH_SIZE = SHORT_BYTES_SIZE;
-    private static final @ByteSize int CELL_VALUE_LENGTH_SIZE = SHORT_BYTES_SIZE;
+    private static final @ByteSize int CELL_FIELD_SIZE = SHORT_BYTES_SIZE;
+    private static final @ByteSize int WIDE_CELL_FIELD_SIZE = INT_BYTES_SIZE;
 
-    static final @ByteSize int CELL_SIZE = CELL_PAGE_OFFSET_SIZE + CELL_KEY_LENGTH_SIZE + CELL_VALUE_LENGTH_SIZE;
+    static final @ByteSize int CELL_SIZE = CELL_FIELD_SIZE * 3;
+    static final @ByteSize int WIDE_CELL_SIZE = WIDE_CELL_FIELD_SIZE * 3;
 
     private final Memory keyValuesBuffer;
+    private final boolean isWide;
+    private final @ByteSize int headerSize;
+    private final @ByteSize int cellFieldSize;
+    private final @ByteSize int cellSize;
 
     private short numberOfEntries;
 
     private KeyValueHeapImpl(final Memory keyValuesBuffer, final short numberOfEntries)
     {
-        assert keyValuesBuffer.getCapacity() <= Short.MAX_VALUE
-                : "key value log cannot be bigger than " + Short.MAX_VALUE + ", provided " + keyValuesBuffer.getCapacity();
+        assert keyValuesBuffer.getCapacity() <= Integer.MAX_VALUE
+                : "key value heap cannot be bigger than " + Integer.MAX_VALUE + ", provided " + keyValuesBuffer.getCapacity();
 
         this.keyValuesBuffer = keyValuesBuffer;
         this.numberOfEntries = numberOfEntries;
+        this.isWide = isWide(keyValuesBuffer);
+        this.headerSize = isWide ? WIDE_HEADER_SIZE : HEADER_SIZE;
+        this.cellFieldSize = isWide ? WIDE_CELL_FIELD_SIZE : CELL_FIELD_SIZE;
+        this.cellSize = isWide ? WIDE_CELL_SIZE : CELL_SIZE;
+    }
+
+    private static boolean isWide(final Memory buffer)
+    {
+        return buffer.getCapacity() > MAX_NARROW_CAPACITY;
     }
 
     public static KeyValueHeapImpl create(final Memory buffer)
@@ -56,18 +84,15 @@ final class KeyValueHeapImpl implements KeyValueHeap
 
     public static KeyValueHeapImpl create(final Memory buffer, final short initialNumberOfPairs)
     {
-        assert buffer.getCapacity() <= Short.MAX_VALUE
-                : "key value log cannot be bigger than " + Short.MAX_VALUE + ", provided " + buffer.getCapacity();
-
         //TODO: ugh...
         short numberOfLogEntries = initialNumberOfPairs > 0 ? initialNumberOfPairs : 0;
         if (!(buffer instanceof DirectMemory) ||
                 (buffer instanceof DirectMemory) && ((DirectMemory) buffer).isInitialized())
         {
             //TODO: more ugh...
-            if (buffer.getShort(TOP_HEAP_SIZE_OFFSET) == 0)
+            if (isWide(buffer) ? buffer.getInt(TOP_HEAP_SIZE_OFFSET) == 0 : buffer.getShort(TOP_HEAP_SIZE_OFFSET) == 0)
             {
-                buffer.putShort(TOP_HEAP_SIZE_OFFSET, (short) buffer.getCapacity());
+                putTopHeapOffset(buffer, StorageUnits.offset((int) buffer.getCapacity()));
             }
 
             numberOfLogEntries = numberOfLogEntries == 0 ? buffer.getShort(NUMBER_ENTRIES_OFFSET) : numberOfLogEntries;
@@ -88,7 +113,23 @@ final class KeyValueHeapImpl implements KeyValueHeap
         this.keyValuesBuffer.reset();
         this.numberOfEntries = numberOfEntries;
 
-        keyValuesBuffer.putShort(TOP_HEAP_SIZE_OFFSET, (short)keyValuesBuffer.getCapacity());
+        putTopHeapOffset(keyValuesBuffer, StorageUnits.offset((int) keyValuesBuffer.getCapacity()));
+    }
+
+    /**
+     * Gets the size of a cell, heaps with a capacity over a short have wider cells.
+     * @param capacity the capacity of the heap
+     * @return the size of a cell of a heap with that capacity
+     */
+    static @ByteSize int getCellSize(final @ByteSize long capacity)
+    {
+        return capacity > MAX_NARROW_CAPACITY ? WIDE_CELL_SIZE : CELL_SIZE;
+    }
+
+    @Override
+    public @ByteSize int getCellSize()
+    {
+        return cellSize;
     }
 
     @Override
@@ -100,8 +141,8 @@ final class KeyValueHeapImpl implements KeyValueHeap
     @Override
     public byte[] getKeyAtIndex(final int index)
     {
-        final @ByteOffset short entryOffset = StorageUnits.offset(keyValuesBuffer.getShort(getIndexOffset(index)));
-        final @ByteSize short entryKeySize = StorageUnits.size(keyValuesBuffer.getShort(getKeyLengthOffset(index)));
+        final @ByteOffset int entryOffset = StorageUnits.offset(getCellField(getIndexOffset(index)));
+        final @ByteSize int entryKeySize = StorageUnits.size(getCellField(getKeyLengthOffset(index)));
 
         final byte[] keyBytes = new byte[entryKeySize];
 
@@ -110,12 +151,35 @@ final class KeyValueHeapImpl implements KeyValueHeap
         return keyBytes;
     }
 
+    @ByteOffset int getKeyOffsetAtIndex(final int index)
+    {
+        return StorageUnits.offset(getCellField(getIndexOffset(index)));
+    }
+
+    @ByteSize int getKeyLengthAtIndex(final int index)
+    {
+        return StorageUnits.size(getCellField(getKeyLengthOffset(index)));
+    }
+
+    @Override
+    public long getLongValueAtIndex(final int index)
+    {
+        final @ByteOffset int entryOffset = StorageUnits.offset(getCellField(getIndexOffset(index)));
+        final @ByteSize int entryKeySize = StorageUnits.size(getCellField(getKeyLengthOffset(index)));
+        assert getCellField(getValueLengthOffset(index)) == LONG_BYTES_SIZE
+                : "value at index " + index + " is not a long";
+
+        //values are stored in little endian, see BinaryHelper.longToBytes
+        final long value = keyValuesBuffer.getLong(StorageUnits.offset(entryOffset + entryKeySize));
+        return ByteOrder.LITTLE_ENDIAN.equals(keyValuesBuffer.getByteOrder()) ? value : Long.reverseBytes(value);
+    }
+
     @Override
     public byte[] getValueAtIndex(final int index)
     {
-        final @ByteOffset short entryOffset = StorageUnits.offset(keyValuesBuffer.getShort(getIndexOffset(index)));
-        final @ByteSize short entryKeySize = StorageUnits.size(keyValuesBuffer.getShort(getKeyLengthOffset(index)));
-        final @ByteSize short entryValueSize = StorageUnits.size(keyValuesBuffer.getShort(getValueLengthOffset(index)));
+        final @ByteOffset int entryOffset = StorageUnits.offset(getCellField(getIndexOffset(index)));
+        final @ByteSize int entryKeySize = StorageUnits.size(getCellField(getKeyLengthOffset(index)));
+        final @ByteSize int entryValueSize = StorageUnits.size(getCellField(getValueLengthOffset(index)));
         final @ByteOffset int valueOffset = StorageUnits.offset(entryOffset + entryKeySize);
 
         final byte[] valueBytes = new byte[entryValueSize];
@@ -195,23 +259,23 @@ final class KeyValueHeapImpl implements KeyValueHeap
     @Override
     public void insertAtIndex(final int index, final byte[] key, final byte[] value)
     {
-        assert key.length < Short.MAX_VALUE;
-        assert value.length < Short.MAX_VALUE;
+        assert isWide || key.length < Short.MAX_VALUE;
+        assert isWide || value.length < Short.MAX_VALUE;
 
-        assert key.length + value.length + CELL_SIZE <= keyValuesBuffer.getCapacity() - getUsedSize()
+        assert key.length + value.length + cellSize <= keyValuesBuffer.getCapacity() - getUsedSize()
                 :
                 String.format("cannot insert pair due to insufficient capacity. Current Max Capacity : %d Used Capacity: %d, Required: %d",
                         keyValuesBuffer.getCapacity(),
                         getUsedSize(),
-                        key.length + value.length + CELL_SIZE);
+                        key.length + value.length + cellSize);
 
         copyKeyValueCellsWithGap(index);
 
-        final @ByteOffset short pageRelativeOffset = appendKeyAndValue(key, value);
+        final @ByteOffset int pageRelativeOffset = appendKeyAndValue(key, value);
 
-        keyValuesBuffer.putShort(getIndexOffset(index), pageRelativeOffset);
-        keyValuesBuffer.putShort(getKeyLengthOffset(index), (short)key.length);
-        keyValuesBuffer.putShort(getValueLengthOffset(index), (short)value.length);
+        putCellField(getIndexOffset(index), pageRelativeOffset);
+        putCellField(getKeyLengthOffset(index), key.length);
+        putCellField(getValueLengthOffset(index), value.length);
 
         numberOfEntries++;
 
@@ -223,12 +287,12 @@ final class KeyValueHeapImpl implements KeyValueHeap
     {
         final @ByteSize int newValueLength = StorageUnits.size(value.length);
 
-        assert newValueLength < Short.MAX_VALUE;
+        assert isWide || newValueLength < Short.MAX_VALUE;
         assert (numberOfEntries > 0 && index >= 0 && index <= (numberOfEntries - 1))
                 : String.format("Index %d outside of the range of pairs [0, %d]", index, numberOfEntries - 1);
 
-        final @ByteSize short existingValueLength = StorageUnits.size(keyValuesBuffer.getShort(getValueLengthOffset(index)));
-        final @ByteSize short lengthDifferenceFromExistingPerspective = StorageUnits.size((short)(existingValueLength - newValueLength));
+        final @ByteSize int existingValueLength = StorageUnits.size(getCellField(getValueLengthOffset(index)));
+        final @ByteSize int lengthDifferenceFromExistingPerspective = StorageUnits.size(existingValueLength - newValueLength);
 
         assert lengthDifferenceFromExistingPerspective < keyValuesBuffer.getCapacity() - getUsedSize()
                 : String.format("cannot insert pair due to insufficient capacity. Current Max Capacity : %d Used Capacity: %d, Required: %d",
@@ -236,8 +300,8 @@ final class KeyValueHeapImpl implements KeyValueHeap
                         getUsedSize(),
                         newValueLength);
 
-        final @ByteOffset short originalOffset = StorageUnits.offset(keyValuesBuffer.getShort(getIndexOffset(index)));
-        final @ByteSize short keyLength = StorageUnits.size(keyValuesBuffer.getShort(getKeyLengthOffset(index)));
+        final @ByteOffset int originalOffset = StorageUnits.offset(getCellField(getIndexOffset(index)));
+        final @ByteSize int keyLength = StorageUnits.size(getCellField(getKeyLengthOffset(index)));
         final @ByteOffset int valueOriginalOffset = StorageUnits.offset(originalOffset + keyLength);
 
         if (lengthDifferenceFromExistingPerspective != 0)
@@ -253,7 +317,7 @@ final class KeyValueHeapImpl implements KeyValueHeap
             updateCell(index, ZERO_OFFSET, ZERO_SIZE, lengthDifferenceSize);
             updateCellOffsetsFromOffset(originalOffset, lengthDifferenceFromExistingPerspective);
 
-            final @ByteOffset int newOffset = StorageUnits.offset(keyValuesBuffer.getShort(getIndexOffset(index)));
+            final @ByteOffset int newOffset = StorageUnits.offset(getCellField(getIndexOffset(index)));
             final @ByteOffset int newValueOffset = StorageUnits.offset(newOffset + keyLength);
             keyValuesBuffer.putBytes(newValueOffset, value);
 
@@ -268,25 +332,25 @@ final class KeyValueHeapImpl implements KeyValueHeap
     @Override
     public void putValue(final int index, final byte[] value)
     {
-        final @ByteOffset short pairOffset = StorageUnits.offset(keyValuesBuffer.getShort(getIndexOffset(index)));
+        final @ByteOffset int pairOffset = StorageUnits.offset(getCellField(getIndexOffset(index)));
         if (pairOffset == ZERO_OFFSET)
             {
-                final @ByteOffset short pageRelativeOffset = appendKeyAndValue(new byte[0], value);
-                keyValuesBuffer.putShort(getIndexOffset(index), pageRelativeOffset);
-                keyValuesBuffer.putShort(getKeyLengthOffset(index), StorageUnits.ZERO_SHORT_SIZE);
-                keyValuesBuffer.putShort(getValueLengthOffset(index), (short)value.length);
+                final @ByteOffset int pageRelativeOffset = appendKeyAndValue(new byte[0], value);
+                putCellField(getIndexOffset(index), pageRelativeOffset);
+                putCellField(getKeyLengthOffset(index), ZERO_SIZE);
+                putCellField(getValueLengthOffset(index), value.length);
             }
     }
 
-    private @ByteOffset short appendKeyAndValue(final byte[] key, final byte[] value)
+    private @ByteOffset int appendKeyAndValue(final byte[] key, final byte[] value)
     {
-        assert key.length <= Short.MAX_VALUE : "Key size must be below " + Short.MAX_VALUE + ", provided " + key.length;
-        assert value.length <= Short.MAX_VALUE : "Value size must be below " + Short.MAX_VALUE + ", provided " + value.length;
+        assert isWide || key.length <= Short.MAX_VALUE : "Key size must be below " + Short.MAX_VALUE + ", provided " + key.length;
+        assert isWide || value.length <= Short.MAX_VALUE : "Value size must be below " + Short.MAX_VALUE + ", provided " + value.length;
 
-        final @ByteSize short keyValueTotalSize = StorageUnits.size((short)(key.length + value.length));
+        final @ByteSize int keyValueTotalSize = StorageUnits.size(key.length + value.length);
         pushBytesToHeap(keyValueTotalSize);
 
-        final @ByteOffset short topHeapOffset = getTopHeapOffset();
+        final @ByteOffset int topHeapOffset = getTopHeapOffset();
 
         keyValuesBuffer.putBytes(topHeapOffset, key);
         keyValuesBuffer.putBytes(StorageUnits.offset(topHeapOffset + key.length), value);
@@ -294,42 +358,71 @@ final class KeyValueHeapImpl implements KeyValueHeap
         return topHeapOffset;
     }
 
-    private void popBytesFromHeap(final @ByteSize short length)
+    private void popBytesFromHeap(final @ByteSize int length)
     {
-        @ByteOffset short topKeyValueHeapOffset = getTopHeapOffset();
+        @ByteOffset int topKeyValueHeapOffset = getTopHeapOffset();
 
         topKeyValueHeapOffset += StorageUnits.offset(length);
 
-        keyValuesBuffer.putShort(TOP_HEAP_SIZE_OFFSET, topKeyValueHeapOffset);
+        putTopHeapOffset(keyValuesBuffer, topKeyValueHeapOffset);
     }
 
-    private void pushBytesToHeap(final @ByteSize short length)
+    private void pushBytesToHeap(final @ByteSize int length)
     {
-        @ByteOffset short topKeyValueHeapOffset = getTopHeapOffset();
+        @ByteOffset int topKeyValueHeapOffset = getTopHeapOffset();
 
         topKeyValueHeapOffset -= StorageUnits.offset(length);
 
-        keyValuesBuffer.putShort(TOP_HEAP_SIZE_OFFSET, topKeyValueHeapOffset);
+        putTopHeapOffset(keyValuesBuffer, topKeyValueHeapOffset);
+    }
+
+    private @ByteOffset int getTopHeapOffset()
+    {
+        return StorageUnits.offset(isWide ? keyValuesBuffer.getInt(TOP_HEAP_SIZE_OFFSET) : keyValuesBuffer.getShort(TOP_HEAP_SIZE_OFFSET));
+    }
+
+    private static void putTopHeapOffset(final Memory buffer, final @ByteOffset int topHeapOffset)
+    {
+        if (isWide(buffer))
+        {
+            buffer.putInt(TOP_HEAP_SIZE_OFFSET, topHeapOffset);
+        }
+        else
+        {
+            buffer.putShort(TOP_HEAP_SIZE_OFFSET, (short) topHeapOffset);
+        }
+    }
+
+    private int getCellField(final @ByteOffset long cellFieldOffset)
+    {
+        return isWide ? keyValuesBuffer.getInt(cellFieldOffset) : keyValuesBuffer.getShort(cellFieldOffset);
     }
 
-    private @ByteOffset short getTopHeapOffset()
+    private void putCellField(final @ByteOffset long cellFieldOffset, final int value)
     {
-        return StorageUnits.offset(keyValuesBuffer.getShort(TOP_HEAP_SIZE_OFFSET));
+        if (isWide)
+        {
+            keyValuesBuffer.putInt(cellFieldOffset, value);
+        }
+        else
+        {
+            keyValuesBuffer.putShort(cellFieldOffset, (short) value);
+        }
     }
 
-    private static @ByteOffset long getKeyLengthOffset(final int index)
+    private @ByteOffset long getKeyLengthOffset(final int index)
     {
-        return StorageUnits.offset(getIndexOffset(index) + CELL_PAGE_OFFSET_SIZE);
+        return StorageUnits.offset(getIndexOffset(index) + cellFieldSize);
     }
 
-    private static @ByteOffset long getValueLengthOffset(final int index)
+    private @ByteOffset long getValueLengthOffset(final int index)
     {
-        return StorageUnits.offset(getIndexOffset(index) + CELL_PAGE_OFFSET_SIZE + CELL_KEY_LENGTH_SIZE);
+        return StorageUnits.offset(getIndexOffset(index) + cellFieldSize + cellFieldSize);
     }
 
-    private static @ByteOffset long getIndexOffset(final int index)
+    private @ByteOffset long getIndexOffset(final int index)
     {
-        return StorageUnits.offset(CELL_OFFSET + (index * CELL_SIZE));
+        return StorageUnits.offset(headerSize + (index * cellSize));
     }
 
     private void setNumberOfPairs(final short numberOfLogKeyValues)
@@ -356,7 +449,7 @@ final class KeyValueHeapImpl implements KeyValueHeap
         final @ByteOffset long newIndexOffset = getIndexOffset(gapIndex + 1);
 
         final int numberOfEntriesToMove = numberOfEntries - gapIndex;
-        final @ByteSize int size = StorageUnits.size(numberOfEntriesToMove * CELL_SIZE);
+        final @ByteSize int size = StorageUnits.size(numberOfEntriesToMove * cellSize);
         if (size > 0)
         {
             MemoryCopy.copy(keyValuesBuffer, oldIndexOffset, keyValuesBuffer, newIndexOffset, size);
@@ -400,8 +493,8 @@ final class KeyValueHeapImpl implements KeyValueHeap
     @Override
     public void removeOnlyKey(final int index)
     {
-        final @ByteOffset short offset = StorageUnits.offset(keyValuesBuffer.getShort(getIndexOffset(index)));
-        final @ByteSize short keyLength = StorageUnits.size(keyValuesBuffer.getShort(getKeyLengthOffset(index)));
+        final @ByteOffset int offset = StorageUnits.offset(getCellField(getIndexOffset(index)));
+        final @ByteSize int keyLength = StorageUnits.size(getCellField(getKeyLengthOffset(index)));
 
         final @ByteOffset int oldLogKeyValueIndexOffset = getTopHeapOffset();
         final @ByteOffset int newLogKeyValueIndexOffset = StorageUnits.offset(getTopHeapOffset() + keyLength);
@@ -414,25 +507,25 @@ final class KeyValueHeapImpl implements KeyValueHeap
         }
         else
         {
-            final @ByteOffset short newOffset = StorageUnits.offset((short) (offset + keyLength));
-            keyValuesBuffer.putShort(getIndexOffset(index), newOffset);
+            final @ByteOffset int newOffset = StorageUnits.offset(offset + keyLength);
+            putCellField(getIndexOffset(index), newOffset);
         }
 
-        keyValuesBuffer.putShort(getKeyLengthOffset(index), ZERO_SIZE_SHORT);
+        putCellField(getKeyLengthOffset(index), ZERO_SIZE);
 
         popBytesFromHeap(keyLength);
     }
 
-    private void updateMovedCellOffsets(final @ByteOffset short offsetMoved, final @ByteSize int totalRemoveLength)
+    private void updateMovedCellOffsets(final @ByteOffset int offsetMoved, final @ByteSize int totalRemoveLength)
     {
         for (int i = 0; i < numberOfEntries; i++)
         {
             final @ByteOffset long cellIndexOffset = getIndexOffset(i);
-            final short currentOffset = keyValuesBuffer.getShort(cellIndexOffset);
+            final int currentOffset = getCellField(cellIndexOffset);
 
             if (currentOffset <= offsetMoved)
             {
-                keyValuesBuffer.putShort(cellIndexOffset, (short) (currentOffset + totalRemoveLength));
+                putCellField(cellIndexOffset, currentOffset + totalRemoveLength);
             }
         }
     }
@@ -440,7 +533,41 @@ final class KeyValueHeapImpl implements KeyValueHeap
     @Override
     public int binarySearch(final byte[] key)
     {
-        return SearchUtils.binarySearch(key, numberOfEntries, this::getKeyAtIndex, ByteArrayComparator.INSTANCE);
+        return binarySearch(key, numberOfEntries);
+    }
+
+    @Override
+    public int binarySearch(final byte[] key, final int numberOfKeys)
+    {
+        return SearchUtils.binarySearch(key, numberOfKeys, this);
+    }
+
+    @Override
+    public int binarySearch(final long key, final int numberOfKeys)
+    {
+        return SearchUtils.binarySearch(key, numberOfKeys, this);
+    }
+
+    @Override
+    public int compareToKeyAt(final byte[] key, final int index)
+    {
+        final @ByteOffset int entryOffset = StorageUnits.offset(getCellField(getIndexOffset(index)));
+        final @ByteSize int entryKeySize = StorageUnits.size(getCellField(getKeyLengthOffset(index)));
+
+        return ByteArrayComparator.compare(key, keyValuesBuffer, entryOffset, entryKeySize);
+    }
+
+    @Override
+    public int compareToKeyAt(final long key, final int index)
+    {
+        final @ByteOffset int entryOffset = StorageUnits.offset(getCellField(getIndexOffset(index)));
+        assert getCellField(getKeyLengthOffset(index)) == LONG_BYTES_SIZE
+                : "key at index " + index + " is not a long";
+
+        //keys are stored big endian, see BinaryHelper.longToSortableBytes
+        final long word = keyValuesBuffer.getLong(entryOffset);
+        final long bigEndianWord = ByteOrder.BIG_ENDIAN.equals(keyValuesBuffer.getByteOrder()) ? word : Long.reverseBytes(word);
+        return Long.compare(key, BinaryHelper.sortableWordToLong(bigEndianWord));
     }
 
     private void copyKeyValuesExcept(final int removeIndex)
@@ -448,10 +575,10 @@ final class KeyValueHeapImpl implements KeyValueHeap
         assert  (numberOfEntries > 0 && removeIndex <= (numberOfEntries - 1))
                 : String.format("invalid index to remove %d from range [0, %d]", removeIndex, numberOfEntries - 1);
 
-        final @ByteOffset short offset = StorageUnits.offset(keyValuesBuffer.getShort(getIndexOffset(removeIndex)));
-        final @ByteSize short keyLength = StorageUnits.size(keyValuesBuffer.getShort(getKeyLengthOffset(removeIndex)));
-        final @ByteSize short valueLength = StorageUnits.size(keyValuesBuffer.getShort(getValueLengthOffset(removeIndex)));
-        final @ByteSize short totalRemoveLength = StorageUnits.size((short)(keyLength + valueLength));
+        final @ByteOffset int offset = StorageUnits.offset(getCellField(getIndexOffset(removeIndex)));
+        final @ByteSize int keyLength = StorageUnits.size(getCellField(getKeyLengthOffset(removeIndex)));
+        final @ByteSize int valueLength = StorageUnits.size(getCellField(getValueLengthOffset(removeIndex)));
+        final @ByteSize int totalRemoveLength = StorageUnits.size(keyLength + valueLength);
 
         final @ByteOffset int oldKeyValueIndexOffset = getTopHeapOffset();
         final @ByteOffset int newKeyValueIndexOffset = StorageUnits.offset(getTopHeapOffset() + totalRemoveLength);
@@ -465,11 +592,11 @@ final class KeyValueHeapImpl implements KeyValueHeap
         popBytesFromHeap(totalRemoveLength);
     }
 
-    private void updateCellOffsetsFromOffset(final @ByteOffset short fromOffset, final @ByteSize int totalMovedLength)
+    private void updateCellOffsetsFromOffset(final @ByteOffset int fromOffset, final @ByteSize int totalMovedLength)
     {
         for (int i = 0; i < numberOfEntries; i++)
         {
-            final @ByteSize int offset = StorageUnits.size(keyValuesBuffer.getShort(getIndexOffset(i)));
+            final @ByteSize int offset = StorageUnits.size(getCellField(getIndexOffset(i)));
             if (offset <= fromOffset)
             {
                 updateCell(i, totalMovedLength, ZERO_SIZE, ZERO_SIZE);
@@ -486,25 +613,25 @@ final class KeyValueHeapImpl implements KeyValueHeap
         if (offsetDifference != ZERO_SIZE)
         {
             final @ByteOffset long cellIndexOffset = getIndexOffset(cellIndex);
-            final @ByteOffset short oldPairOffset = StorageUnits.offset(keyValuesBuffer.getShort(cellIndexOffset));
-            final @ByteOffset short newPairOffset = StorageUnits.offset((short) (oldPairOffset + offsetDifference));
-            keyValuesBuffer.putShort(cellIndexOffset, newPairOffset);
+            final @ByteOffset int oldPairOffset = StorageUnits.offset(getCellField(cellIndexOffset));
+            final @ByteOffset int newPairOffset = StorageUnits.offset(oldPairOffset + offsetDifference);
+            putCellField(cellIndexOffset, newPairOffset);
         }
 
         if (keyLengthDifference != ZERO_SIZE)
         {
             final @ByteOffset long cellKeyLengthOffset = getKeyLengthOffset(cellIndex);
-            final @ByteSize short oldKeyLength = StorageUnits.size(keyValuesBuffer.getShort(cellKeyLengthOffset));
-            final @ByteSize short newKeyLength = StorageUnits.size((short) (oldKeyLength + keyLengthDifference));
-            keyValuesBuffer.putShort(cellKeyLengthOffset, newKeyLength);
+            final @ByteSize int oldKeyLength = StorageUnits.size(getCellField(cellKeyLengthOffset));
+            final @ByteSize int newKeyLength = StorageUnits.size(oldKeyLength + keyLengthDifference);
+            putCellField(cellKeyLengthOffset, newKeyLength);
         }
 
         if (valueLengthDifference != ZERO_SIZE)
         {
             final @ByteOffset long cellValueLengthOffset = getValueLengthOffset(cellIndex);
-            final @ByteSize short oldValueLength = StorageUnits.size(keyValuesBuffer.getShort(cellValueLengthOffset));
-            final @ByteSize short newValueLength = StorageUnits.offset((short) (oldValueLength + valueLengthDifference));
-            keyValuesBuffer.putShort(cellValueLengthOffset, newValueLength);
+            final @ByteSize int oldValueLength = StorageUnits.size(getCellField(cellValueLengthOffset));
+            final @ByteSize int newValueLength = StorageUnits.size(oldValueLength + valueLengthDifference);
+            putCellField(cellValueLengthOffset, newValueLength);
         }
     }
 
@@ -519,7 +646,7 @@ final class KeyValueHeapImpl implements KeyValueHeap
         final @ByteOffset long oldIndexOffset = getIndexOffset(removeIndex);
         final @ByteOffset long newIndexOffset = getIndexOffset(removeIndex + 1);
 
-        final @ByteSize int size = StorageUnits.size(pairsToMove * CELL_SIZE);
+        final @ByteSize int size = StorageUnits.size(pairsToMove * cellSize);
         MemoryCopy.copy(keyValuesBuffer, newIndexOffset, keyValuesBuffer, oldIndexOffset, size);
     }
 
@@ -527,8 +654,8 @@ final class KeyValueHeapImpl implements KeyValueHeap
     public @ByteSize long getUsedSize()
     {
         final @ByteSize long heapSize = StorageUnits.size(keyValuesBuffer.getCapacity() - getTopHeapOffset());
-        final @ByteSize long cellArraySize = StorageUnits.size(numberOfEntries * CELL_SIZE);
-        return KeyValueHeapImpl.HEADER_SIZE + heapSize + cellArraySize;
+        final @ByteSize long cellArraySize = StorageUnits.size(numberOfEntries * cellSize);
+        return headerSize + heapSize + cellArraySize;
     }
 
     @Override
@@ -576,9 +703,9 @@ final class KeyValueHeapImpl implements KeyValueHeap
 
                 contentBuilder.append(System.lineSeparator())
                         .append("Cell ").append(i)
-                        .append(", offset ").append(keyValuesBuffer.getShort(getIndexOffset(i)))
-                        .append(", keyLength ").append(keyValuesBuffer.getShort(getKeyLengthOffset(i)))
-                        .append(", valueLength ").append(keyValuesBuffer.getShort(getValueLengthOffset(i)))
+                        .append(", offset ").append(getCellField(getIndexOffset(i)))
+                        .append(", keyLength ").append(getCellField(getKeyLengthOffset(i)))
+                        .append(", valueLength ").append(getCellField(getValueLengthOffset(i)))
                         .append(", key ").append(new String(keyBytes, StandardCharsets.UTF_8)).append(keyLong)
                         .append(", value ").append(new String(valueBytes, StandardCharsets.UTF_8)).append(valueLong);
             }
@@ -0,0 +1,108 @@
+package org.logdb.bbtree;
+
+import org.logdb.LongIndex;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.storage.Version;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Long key index stored in a regular tree.
+ * <br>
+ * The keys are stored as 8 bytes encoded with {@link BinaryHelper#longToSortableBytes(long)},
+ * so the order of the stored keys is the numeric order and the lookups compare primitive longs read in place.
+ * Lookups descend with the thread confined lookup node and read the value in place, so they don't allocate.
+ * The values are stored as {@link BinaryHelper#longToBytes(long)}.
+ */
+public final class LongBTree implements LongIndex
+{
+    private final BTreeImpl bTree;
+
+    /**
+     * Creates a long key index over a tree.
+     * @param bTree the tree to store the pairs in, without node logs and written synchronously.
+     *              It must only be written through this index.
+     */
+    public LongBTree(final BTree bTree)
+    {
+        Objects.requireNonNull(bTree, "bTree cannot be null");
+        if (!(bTree instanceof BTreeImpl))
+        {
+            throw new IllegalArgumentException("Long index requires a tree without node logs written synchronously");
+        }
+        if (((BTreeImpl) bTree).nodesManager.getOverflowValues().isEnabled())
+        {
+            throw new IllegalArgumentException("Long index reads the values in place, it requires a tree without overflow pages");
+        }
+
+        this.bTree = (BTreeImpl) bTree;
+    }
+
+    @Override
+    public void put(final long key, final long value)
+    {
+        if (value == NO_VALUE)
+        {
+            throw new IllegalArgumentException("Value " + value + " is reserved for keys not found");
+        }
+
+        bTree.put(BinaryHelper.longToSortableBytes(key), BinaryHelper.longToBytes(value));
+    }
+
+    @Override
+    public long get(final long key)
+    {
+        final long pin = bTree.nodesManager.pinSnapshot();
+        try
+        {
+            final BTreeMappedNode lookupNode = bTree.nodesManager.getLookupMappedNode();
+            return getFromLeaf(bTree.findLeaf(bTree.getLatestRootNode(lookupNode), key, lookupNode), key);
+        }
+        finally
+        {
+            bTree.nodesManager.releaseSnapshot(pin);
+        }
+    }
+
+    @Override
+    public long get(final long key, final @Version long version)
+    {
+        assert version >= 0;
+
+        final long pin = bTree.nodesManager.pinSnapshot();
+        try
+        {
+            final BTreeMappedNode lookupNode = bTree.nodesManager.getLookupMappedNode();
+            return getFromLeaf(bTree.findLeaf(bTree.getRootNode(version, lookupNode), key, lookupNode), key);
+        }
+        finally
+        {
+            bTree.nodesManager.releaseSnapshot(pin);
+        }
+    }
+
+    private static long getFromLeaf(final BTreeNode leaf, final long key)
+    {
+        final int index = leaf.getKeyIndex(key);
+        return index < 0 ? NO_VALUE : leaf.getLongValue(index);
+    }
+
+    @Override
+    public void remove(final long key)
+    {
+        bTree.remove(BinaryHelper.longToSortableBytes(key));
+    }
+
+    @Override
+    public void commit() throws IOException
+    {
+        bTree.commit();
+    }
+
+    @Override
+    public void close()
+    {
+        bTree.close();
+    }
+}
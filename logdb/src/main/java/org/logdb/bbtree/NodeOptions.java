@@ -0,0 +1,71 @@
+package org.logdb.bbtree;
+
+import org.logdb.storage.ByteSize;
+
+/**
+ * The optional layouts of the index nodes, all of them are disabled by default.
+ * <br>
+ * It's immutable, every option returns a copy with the option changed. The options are validated by the nodes manager,
+ * as some of them depend on the page size of its storage.
+ */
+public final class NodeOptions
+{
+    public static final NodeOptions DEFAULT = new NodeOptions(false, OverflowValues.NO_OVERFLOW, NodeRebalancer.NO_REBALANCE);
+
+    private final boolean leafPrefixCompression;
+    private final @ByteSize int overflowThreshold;
+    private final double minFillRatio;
+
+    private NodeOptions(final boolean leafPrefixCompression, final @ByteSize int overflowThreshold, final double minFillRatio)
+    {
+        this.leafPrefixCompression = leafPrefixCompression;
+        this.overflowThreshold = overflowThreshold;
+        this.minFillRatio = minFillRatio;
+    }
+
+    /**
+     * Sets whether the leaf pages store their keys delta encoded, see {@link PrefixKeyValueHeap}.
+     * @param leafPrefixCompression true to delta encode the keys of the leaves
+     * @return a copy of these options with the leaf prefix compression changed
+     */
+    public NodeOptions leafPrefixCompression(final boolean leafPrefixCompression)
+    {
+        return new NodeOptions(leafPrefixCompression, overflowThreshold, minFillRatio);
+    }
+
+    /**
+     * Sets the size above which leaf values are stored in overflow pages, see {@link OverflowValues}.
+     * @param overflowThreshold the threshold, 0 to store every value in the leaves
+     * @return a copy of these options with the overflow threshold changed
+     */
+    public NodeOptions overflowThreshold(final @ByteSize int overflowThreshold)
+    {
+        return new NodeOptions(leafPrefixCompression, overflowThreshold, minFillRatio);
+    }
+
+    /**
+     * Sets the ratio of the page under which nodes are merged or rebalanced with a sibling on removes,
+     * see {@link NodeRebalancer}.
+     * @param minFillRatio the ratio, 0 to only remove empty nodes
+     * @return a copy of these options with the min fill ratio changed
+     */
+    public NodeOptions minFillRatio(final double minFillRatio)
+    {
+        return new NodeOptions(leafPrefixCompression, overflowThreshold, minFillRatio);
+    }
+
+    boolean isLeafPrefixCompression()
+    {
+        return leafPrefixCompression;
+    }
+
+    @ByteSize int getOverflowThreshold()
+    {
+        return overflowThreshold;
+    }
+
+    double getMinFillRatio()
+    {
+        return minFillRatio;
+    }
+}
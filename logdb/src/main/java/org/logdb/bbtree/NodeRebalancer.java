@@ -0,0 +1,223 @@
+package org.logdb.bbtree;
+
+import org.logdb.storage.ByteSize;
+
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * Keeps the nodes of a tree filled while keys are removed, so delete churn doesn't leave the tree
+ * with many almost empty pages.
+ * <br>
+ * A node underflows when its pairs use less than a ratio of its page. An underflowing node is merged with its
+ * sibling when the pairs of both fit in a single page, otherwise a leaf borrows pairs from its sibling until it's
+ * over the ratio again, as long as the sibling stays over it too. The sibling is the right one, or the left one
+ * for the rightmost child. Non leaf nodes with pairs in their log are never merged.
+ * <br>
+ * The node, its sibling and their parent are modified, so they have to be writable nodes of the version being built.
+ */
+final class NodeRebalancer
+{
+    /**
+     * Ratio that disables rebalancing, nodes are only removed once they are empty.
+     */
+    static final double NO_REBALANCE = 0;
+
+    /**
+     * Two siblings under this ratio always fit in a single page.
+     */
+    static final double MAX_MIN_FILL_RATIO = 0.5;
+
+    private final NodesManager nodesManager;
+    private final double minFillRatio;
+
+    NodeRebalancer(final NodesManager nodesManager)
+    {
+        this.nodesManager = Objects.requireNonNull(nodesManager, "nodesManager cannot be null");
+        this.minFillRatio = nodesManager.getMinFillRatio();
+    }
+
+    boolean isEnabled()
+    {
+        return minFillRatio != NO_REBALANCE;
+    }
+
+    boolean isUnderflow(final BTreeNode node)
+    {
+        if (!isEnabled())
+        {
+            return false;
+        }
+
+        final BTreeNodeAbstract abstractNode = (BTreeNodeAbstract) node;
+        return abstractNode.getUsedSize() < getMinFillSize(abstractNode);
+    }
+
+    /**
+     * Merges the node with a sibling, or moves pairs from the sibling into it.
+     *
+     * @param parent the writable parent of the node
+     * @param index the index of the node in the parent
+     * @param node the writable underflowing node
+     * @param writableSibling gets the writable child at an index of the parent, only called if the sibling changes
+     * @return true if the node and its sibling were merged, so the parent has one child less
+     */
+    boolean rebalance(
+            final BTreeNodeNonLeaf parent,
+            final int index,
+            final BTreeNodeHeap node,
+            final IntFunction<BTreeNodeHeap> writableSibling)
+    {
+        parent.setChild(index, node);
+        if (parent.getPairCount() < 2)
+        {
+            return false;
+        }
+
+        final boolean isRightmost = index == parent.getPairCount() - 1;
+        final int leftIndex = isRightmost ? index - 1 : index;
+        final int siblingIndex = isRightmost ? index - 1 : index + 1;
+        final byte[] separatorKey = parent.getKey(leftIndex);
+
+        final boolean shouldMerge;
+        final int pairsToBorrow;
+        try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+        {
+            final BTreeNodeAbstract sibling = (BTreeNodeAbstract) nodesManager.loadNode(siblingIndex, parent, mappedNode);
+            final BTreeNodeAbstract nodeAbstract = (BTreeNodeAbstract) node;
+
+            shouldMerge = isRightmost
+                    ? canMerge(sibling, nodeAbstract, separatorKey)
+                    : canMerge(nodeAbstract, sibling, separatorKey);
+
+            pairsToBorrow = shouldMerge || node.getNodeType() != BtreeNodeType.Leaf
+                    ? 0
+                    : getPairsToBorrow(parent, separatorKey, nodeAbstract, sibling, isRightmost);
+        }
+
+        if (shouldMerge)
+        {
+            final BTreeNodeHeap leftNode;
+            if (isRightmost)
+            {
+                leftNode = writableSibling.apply(siblingIndex);
+                merge(leftNode, separatorKey, node);
+            }
+            else
+            {
+                leftNode = node;
+                try (BTreeMappedNode mappedNode = nodesManager.getOrCreateMappedNode())
+                {
+                    merge(leftNode, separatorKey, nodesManager.loadNode(siblingIndex, parent, mappedNode));
+                }
+            }
+
+            //the merged node takes the upper bound of the right node
+            parent.removeAtIndex(leftIndex);
+            parent.setChild(leftIndex, leftNode);
+            return true;
+        }
+
+        if (pairsToBorrow > 0)
+        {
+            final BTreeNodeHeap sibling = writableSibling.apply(siblingIndex);
+            for (int i = 0; i < pairsToBorrow; i++)
+            {
+                final int siblingPairIndex = isRightmost ? sibling.getPairCount() - 1 : 0;
+                node.insert(sibling.getKey(siblingPairIndex), sibling.getValue(siblingPairIndex));
+                sibling.removeAtIndex(siblingPairIndex);
+            }
+
+            final BTreeNodeHeap rightNode = isRightmost ? node : sibling;
+            parent.setKey(leftIndex, rightNode.getMinKey());
+            parent.setChild(siblingIndex, sibling);
+            parent.setChild(index, node);
+        }
+
+        return false;
+    }
+
+    private boolean canMerge(final BTreeNodeAbstract leftNode, final BTreeNodeAbstract rightNode, final byte[] separatorKey)
+    {
+        long requiredSpace = 0;
+        if (leftNode.getNodeType() == BtreeNodeType.NonLeaf)
+        {
+            final boolean hasLog = ((BTreeLogNode) leftNode).getLogKeyValuesCount() > 0 ||
+                    ((BTreeLogNode) rightNode).getLogKeyValuesCount() > 0;
+            if (hasLog)
+            {
+                return false;
+            }
+
+            //the separator is pulled down as the key of the current rightmost child of the left node
+            requiredSpace += separatorKey.length;
+        }
+
+        for (int i = 0; i < rightNode.getPairCount(); i++)
+        {
+            requiredSpace += rightNode.getPairSize(i);
+        }
+
+        return requiredSpace < leftNode.getFreeSize();
+    }
+
+    private int getPairsToBorrow(
+            final BTreeNodeNonLeaf parent,
+            final byte[] separatorKey,
+            final BTreeNodeAbstract node,
+            final BTreeNodeAbstract sibling,
+            final boolean isSiblingLeft)
+    {
+        final double nodeMinFillSize = getMinFillSize(node);
+        final double siblingMinFillSize = getMinFillSize(sibling);
+        final int siblingPairCount = sibling.getPairCount();
+
+        long nodeUsedSize = node.getUsedSize();
+        long nodeFreeSize = node.getFreeSize();
+        long siblingUsedSize = sibling.getUsedSize();
+        int pairsToBorrow = 0;
+        while (nodeUsedSize < nodeMinFillSize && pairsToBorrow < siblingPairCount - 1)
+        {
+            final int siblingPairIndex = isSiblingLeft ? siblingPairCount - 1 - pairsToBorrow : pairsToBorrow;
+            final @ByteSize int pairSize = sibling.getPairSize(siblingPairIndex);
+            if (siblingUsedSize - pairSize < siblingMinFillSize || pairSize >= nodeFreeSize)
+            {
+                break;
+            }
+
+            nodeUsedSize += pairSize;
+            nodeFreeSize -= pairSize;
+            siblingUsedSize -= pairSize;
+            pairsToBorrow++;
+        }
+
+        if (pairsToBorrow == 0)
+        {
+            return 0;
+        }
+
+        //the min key of the right node is the new separator, the parent needs space for it if it's longer
+        final byte[] newSeparatorKey = sibling.getKey(isSiblingLeft ? siblingPairCount - pairsToBorrow : pairsToBorrow);
+        return newSeparatorKey.length - separatorKey.length < parent.getFreeSize() ? pairsToBorrow : 0;
+    }
+
+    private static void merge(final BTreeNodeHeap leftNode, final byte[] separatorKey, final BTreeNode rightNode)
+    {
+        if (leftNode.getNodeType() == BtreeNodeType.Leaf)
+        {
+            for (int i = 0; i < rightNode.getPairCount(); i++)
+            {
+                leftNode.insert(rightNode.getKey(i), rightNode.getValue(i));
+            }
+        }
+        else
+        {
+            ((BTreeNodeNonLeaf) leftNode).merge(separatorKey, rightNode);
+        }
+    }
+
+    private double getMinFillSize(final BTreeNodeAbstract node)
+    {
+        return minFillRatio * (node.getUsedSize() + node.getFreeSize());
+    }
+}
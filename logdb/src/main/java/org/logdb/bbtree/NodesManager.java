@@ -1,10 +1,11 @@
 package org.logdb.bbtree;
 
-import org.logdb.bit.BinaryHelper;
 import org.logdb.bit.HeapMemory;
 import org.logdb.root.index.RootIndex;
 import org.logdb.storage.ByteOffset;
 import org.logdb.storage.ByteSize;
+import org.logdb.storage.EpochGuard;
+import org.logdb.storage.PageAppendBatch;
 import org.logdb.storage.PageNumber;
 import org.logdb.storage.Storage;
 import org.logdb.storage.StorageUnits;
@@ -15,7 +16,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Queue;
@@ -24,37 +24,76 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 public class NodesManager
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(NodesManager.class);
+    //the most buffers written by a single gathering write on linux
+    private static final int MAX_COMMIT_BATCH_PAGES = 1024;
+    private static final @PageNumber long NO_UNWRITTEN_PAGE = StorageUnits.pageNumber(Long.MAX_VALUE);
 
     private final Storage storage;
     private final IdSupplier idSupplier;
     private final RootIndex rootIndex;
     private final boolean shouldSyncWrite;
     private final @ByteSize int maxLogSize;
+    private final boolean leafPrefixCompression;
+    private final OverflowValues overflowValues;
+    private final double minFillRatio;
 
     private final List<RootReference> dirtyRootNodes;
+    private final List<Runnable> writtenNodeReleases;
+    private final List<Runnable> committedNodeReleases;
     private final Queue<BTreeNodeNonLeaf> nonLeafNodesCache;
     private final Queue<BTreeNodeLeaf> leafNodesCache;
     private final Queue<BTreeMappedNode> mappedNodes;
+    private final ThreadLocal<BTreeMappedNode> lookupNodes;
+    private final EpochGuard snapshotGuard;
 
     private @PageNumber long lastPersistedPageNumber;
+    private PageAppendBatch commitBatch;
+    private boolean isCommittingDirtyNodes;
+    private IOException commitFailure;
+    private volatile @PageNumber long firstUnwrittenPageNumber;
 
+    /**
+     * Creates the manager of the nodes of a tree.
+     * @param storage the storage of the index pages
+     * @param rootIndex the index of the root pages
+     * @param shouldSyncWrite true to flush the storage on every commit
+     * @param maxLogSize the size of the log of the non leaf nodes
+     * @param nodeOptions the optional layouts of the nodes, see {@link NodeOptions}
+     */
     public NodesManager(
             final Storage storage,
             final RootIndex rootIndex,
             final boolean shouldSyncWrite,
-            final @ByteSize int maxLogSize)
+            final @ByteSize int maxLogSize,
+            final NodeOptions nodeOptions)
     {
+        Objects.requireNonNull(nodeOptions, "nodeOptions cannot be null");
+        final double minFillRatio = nodeOptions.getMinFillRatio();
+        if (minFillRatio < NodeRebalancer.NO_REBALANCE || minFillRatio >= NodeRebalancer.MAX_MIN_FILL_RATIO)
+        {
+            throw new IllegalArgumentException("Min fill ratio must be between " + NodeRebalancer.NO_REBALANCE +
+                    " and " + NodeRebalancer.MAX_MIN_FILL_RATIO + ", provided " + minFillRatio);
+        }
+
         this.storage = Objects.requireNonNull(storage, "storage cannot be null");
         this.rootIndex = Objects.requireNonNull(rootIndex, "rootIndex cannot be null");
         this.shouldSyncWrite = shouldSyncWrite;
         this.maxLogSize = maxLogSize;
+        this.leafPrefixCompression = nodeOptions.isLeafPrefixCompression();
+        this.overflowValues = new OverflowValues(storage, nodeOptions.getOverflowThreshold());
+        this.minFillRatio = minFillRatio;
 
         this.idSupplier = new IdSupplier();
         this.dirtyRootNodes = new ArrayList<>();
         this.nonLeafNodesCache = new ConcurrentLinkedQueue<>();
         this.leafNodesCache = new ConcurrentLinkedQueue<>();
         this.mappedNodes = new ConcurrentLinkedQueue<>();
+        this.lookupNodes = ThreadLocal.withInitial(this::createLookupNode);
+        this.snapshotGuard = new EpochGuard();
         this.lastPersistedPageNumber = StorageUnits.INVALID_PAGE_NUMBER;
+        this.writtenNodeReleases = new ArrayList<>();
+        this.committedNodeReleases = new ArrayList<>();
+        this.firstUnwrittenPageNumber = NO_UNWRITTEN_PAGE;
     }
 
     public BTreeNodeLeaf createEmptyLeafNode()
@@ -78,7 +117,8 @@ public class NodesManager
                     storage,
                     storage.getUninitiatedDirectMemoryPage(),
                     StorageUnits.pageNumber(0),
-                    maxLogSize);
+                    maxLogSize,
+                    leafPrefixCompression);
         }
 
         return mappedNode;
@@ -89,6 +129,31 @@ public class NodesManager
         mappedNodes.add(mappedNode);
     }
 
+    /**
+     * Gets the mapped node of the calling thread used by point lookups, which descend the tree reusing it for every level.
+     * It's never shared with other threads nor returned to the pool, so getting it takes no synchronisation.
+     * The node is only valid until the next lookup of the same thread.
+     * @return the lookup node of the calling thread
+     */
+    BTreeMappedNode getLookupMappedNode()
+    {
+        return lookupNodes.get();
+    }
+
+    private BTreeMappedNode createLookupNode()
+    {
+        return new BTreeMappedNode(
+                mappedNode ->
+                {
+                    //the lookup node is kept by its thread, it's never returned to the pool
+                },
+                storage,
+                storage.getUninitiatedDirectMemoryPage(),
+                StorageUnits.pageNumber(0),
+                maxLogSize,
+                leafPrefixCompression);
+    }
+
     BTreeNodeHeap splitNode(
             final BTreeNode originalNode,
             final int at,
@@ -146,7 +211,7 @@ public class NodesManager
         BTreeNodeLeaf leaf = leafNodesCache.poll();
         if (leaf == null)
         {
-            leaf = new BTreeNodeLeaf(idSupplier.getAsLong(), storage.allocateHeapPage(), 0);
+            leaf = new BTreeNodeLeaf(idSupplier.getAsLong(), storage.allocateHeapPage(), 0, leafPrefixCompression);
         }
 
         else
@@ -164,9 +229,15 @@ public class NodesManager
 
     /**
      * Stores into persistent storage all the dirty roots and their paths.
+     * Once a commit fails, the committed nodes point to pages that were never written, so no commit is attempted again.
      */
     void commitDirtyNodes() throws IOException
     {
+        if (commitFailure != null)
+        {
+            throw new IOException("Unable to commit after a failed commit", commitFailure);
+        }
+
         if (dirtyRootNodes.isEmpty())
         {
             return;
@@ -174,30 +245,71 @@ public class NodesManager
 
         final @PageNumber long lastRootPageNumber = loadLastRootPageNumber();
 
-        //Note: dirty nodes are sorted by version (previous root is always committed before current).
-        // That is because of the way they are inserted and because the array list they are stored in, preserves the insertion order.
-        for (int i = 0; i < dirtyRootNodes.size(); ++i)
+        //the dirty pages get their page number as they are committed, and are written together with a few writes
+        if (commitBatch == null)
         {
-            final RootReference dirtyRootNode = dirtyRootNodes.get(i);
+            commitBatch = storage.startPageAppendBatch(MAX_COMMIT_BATCH_PAGES);
+        }
 
-            final @PageNumber long previousRootPageNumber = dirtyRootNode.previous == null
-                    ? lastRootPageNumber
-                    : dirtyRootNode.previous.getPageNumber();
-            final @PageNumber long pageNumber = dirtyRootNode.root.commit(
-                    this,
-                    true,
-                    previousRootPageNumber,
-                    dirtyRootNode.timestamp,
-                    dirtyRootNode.version);
+        isCommittingDirtyNodes = true;
+        boolean isWritten = false;
+        try
+        {
+            //Note: dirty nodes are sorted by version (previous root is always committed before current).
+            // That is because of the way they are inserted and because the array list they are stored in, preserves the insertion order.
+            for (int i = 0; i < dirtyRootNodes.size(); ++i)
+            {
+                final RootReference dirtyRootNode = dirtyRootNodes.get(i);
+
+                final @PageNumber long previousRootPageNumber = dirtyRootNode.previous == null
+                        ? lastRootPageNumber
+                        : dirtyRootNode.previous.getPageNumber();
+                final @PageNumber long pageNumber = dirtyRootNode.root.commit(
+                        this,
+                        true,
+                        previousRootPageNumber,
+                        dirtyRootNode.timestamp,
+                        dirtyRootNode.version);
+
+                dirtyRootNode.setPageNumber(pageNumber);
+            }
+
+            commitBatch.write();
+            isWritten = true;
+        }
+        catch (final IOException | RuntimeException e)
+        {
+            commitFailure = e instanceof IOException ? (IOException) e : new IOException(e);
+            throw e;
+        }
+        finally
+        {
+            isCommittingDirtyNodes = false;
+            firstUnwrittenPageNumber = NO_UNWRITTEN_PAGE;
+            if (isWritten)
+            {
+                committedNodeReleases.addAll(writtenNodeReleases);
+            }
+            else
+            {
+                //the storage can't roll its segment while the batch holds reservations in it
+                commitBatch.abort();
+                //the uncommitted root still reaches the nodes, so they are left to the garbage collector instead of the pool
+            }
+            writtenNodeReleases.clear();
+        }
 
-            dirtyRootNode.setPageNumber(pageNumber);
+        //the roots are only recorded once all the pages they reach are written
+        for (int i = 0; i < dirtyRootNodes.size(); ++i)
+        {
+            final RootReference dirtyRootNode = dirtyRootNodes.get(i);
 
-            lastPersistedPageNumber = pageNumber;
+            lastPersistedPageNumber = dirtyRootNode.getPageNumber();
 
             rootIndex.append(
                     dirtyRootNode.version,
                     dirtyRootNode.timestamp,
-                    storage.getOffset(pageNumber));
+                    storage.getOffset(dirtyRootNode.getPageNumber()));
         }
 
         if (shouldSyncWrite)
@@ -209,53 +321,175 @@ public class NodesManager
         dirtyRootNodes.clear();
     }
 
+    /**
+     * Puts the nodes written by {@link #commitDirtyNodes()} back into the pool, once no reader can reach them.
+     * It has to be called once the committed root is published, as readers walk the nodes from the uncommitted root until then.
+     */
+    void releaseCommittedNodes()
+    {
+        for (int i = 0; i < committedNodeReleases.size(); i++)
+        {
+            snapshotGuard.retire(committedNodeReleases.get(i));
+        }
+
+        committedNodeReleases.clear();
+    }
+
+    /**
+     * Stores a root whose children are already persisted and records it in the root index.
+     * @param root the root to commit, it should not be used afterwards as it's put back into the pool
+     * @return the page number where the root is stored
+     */
+    @PageNumber long commitRoot(
+            final BTreeNodeHeap root,
+            final @Milliseconds long timestamp,
+            final @Version long version) throws IOException
+    {
+        final @PageNumber long pageNumber = root.commit(this, true, loadLastRootPageNumber(), timestamp, version);
+
+        lastPersistedPageNumber = pageNumber;
+
+        rootIndex.append(version, timestamp, storage.getOffset(pageNumber));
+
+        if (shouldSyncWrite)
+        {
+            rootIndex.flush(false);
+            storage.flush(false);
+        }
+
+        return pageNumber;
+    }
+
     /**
      * After this method, the node should not be used anymore as it's put backed into the pool.
+     * The node is only put back once no snapshot pinned before the commit can read it.
      * @param node the node to commit
      * @return the page number where this node is stored
      */
     @PageNumber long commitNode(final BTreeNodeNonLeaf node) throws IOException
     {
-        final @PageNumber long pageNumber = commitNodeToStorage(node);
-        node.reset();
-        nonLeafNodesCache.add(node);
-        return pageNumber;
+        return commitNodeToStorage(node, () ->
+        {
+            node.reset();
+            nonLeafNodesCache.add(node);
+        });
     }
 
     /**
      * After this method, the node should not be used anymore as it's put backed into the pool.
+     * The node is only put back once no snapshot pinned before the commit can read it.
      * @param node the node to commit
      * @return the page number where this node is stored
      */
     @PageNumber long commitNode(final BTreeNodeLeaf node) throws IOException
     {
-        final @PageNumber long pageNumber = commitNodeToStorage(node);
-        node.reset();
-        leafNodesCache.add(node);
-        return pageNumber;
+        return commitNodeToStorage(node, () ->
+        {
+            node.reset();
+            leafNodesCache.add(node);
+        });
+    }
+
+    /**
+     * Prevents the uncommitted nodes that are reachable at this point from being reused, even if they get committed.
+     * @return the pin, that must be provided to release it
+     */
+    long pinSnapshot()
+    {
+        return snapshotGuard.enter();
     }
 
-    private @PageNumber long commitNodeToStorage(final BTreeNodeHeap node) throws IOException
+    void releaseSnapshot(final long pin)
+    {
+        snapshotGuard.exit(pin);
+    }
+
+    OverflowValues getOverflowValues()
+    {
+        return overflowValues;
+    }
+
+    double getMinFillRatio()
+    {
+        return minFillRatio;
+    }
+
+    /**
+     * Encodes a value to store in a leaf, see {@link OverflowValues#write(byte[])}.
+     * @param value the value to store
+     * @return the bytes to store in the leaf
+     */
+    byte[] writeValue(final byte[] value)
+    {
+        return overflowValues.write(value);
+    }
+
+    /**
+     * Decodes a value stored in a leaf, see {@link OverflowValues#read(byte[])}.
+     * @param storedValue the bytes stored in the leaf, can be null
+     * @return the value
+     */
+    byte[] readValue(final byte[] storedValue)
+    {
+        return overflowValues.read(storedValue);
+    }
+
+    /**
+     * Stores the node and releases it once no snapshot can read it.
+     * While committing the dirty nodes, the node is added to the commit batch and released once the batch is written.
+     */
+    private @PageNumber long commitNodeToStorage(final BTreeNodeHeap node, final Runnable release) throws IOException
     {
         final HeapMemory buffer = node.getBuffer();
-        return storage.appendPageAligned(buffer.getSupportByteBuffer());
+        if (!isCommittingDirtyNodes)
+        {
+            final @PageNumber long pageNumber = storage.appendPageAligned(buffer.getSupportByteBuffer());
+            snapshotGuard.retire(release);
+            return pageNumber;
+        }
+
+        final @PageNumber long pageNumber = commitBatch.append(buffer.getSupportByteBuffer());
+        if (firstUnwrittenPageNumber == NO_UNWRITTEN_PAGE)
+        {
+            firstUnwrittenPageNumber = pageNumber;
+        }
+        writtenNodeReleases.add(release);
+        return pageNumber;
+    }
+
+    /**
+     * The pages of the commit in progress are referenced by their parents before they are written,
+     * a reader that gets to one of them waits until the commit writes it.
+     */
+    private void awaitPageWritten(final @PageNumber long pageNumber)
+    {
+        while (pageNumber >= firstUnwrittenPageNumber)
+        {
+            Thread.yield();
+        }
     }
 
     BTreeNode loadNode(final int index, final BTreeNode parentNode, final BTreeMappedNode mappedNode)
     {
         assert parentNode.getNodeType() == BtreeNodeType.NonLeaf : "node must be non leaf";
 
-        final @PageNumber byte[] childPageNumberBytes = StorageUnits.pageNumber(parentNode.getValue(index));
-        if (Arrays.equals(childPageNumberBytes, BTreeNodeNonLeaf.NON_COMMITTED_CHILD))
-        {
-            return parentNode.getChildAt(index);
-        }
-        else
+        if (parentNode instanceof BTreeNodeNonLeaf)
         {
-            final @PageNumber long pageNumber = StorageUnits.pageNumber(BinaryHelper.bytesToLong(childPageNumberBytes));
-            mappedNode.initNode(pageNumber);
-            return mappedNode;
+            final BTreeNode child = parentNode.getChildAt(index);
+            if (child != null)
+            {
+                return child;
+            }
         }
+
+        //the children of a node being committed are only dropped once their page numbers are completely stored
+        final long childValue = parentNode.getLongValue(index);
+
+        awaitPageWritten(StorageUnits.pageNumber(childValue));
+
+        //the parent can be the mapped node itself, the child page number is read before it's reinitialised
+        mappedNode.initNode(StorageUnits.pageNumber(childValue));
+        return mappedNode;
     }
 
     void commitLastRootPage(final @PageNumber long pageNumber, final @Version long version)
@@ -287,6 +521,58 @@ public class NodesManager
 
     }
 
+    /**
+     * @return the indexes of the segments of the index storage that don't receive appends anymore, in offset order
+     */
+    int[] getSealedSegments()
+    {
+        return storage.getSealedSegments();
+    }
+
+    /**
+     * Gets the first page of a segment.
+     * @param segmentIndex the index of the segment
+     * @return the first page that can be stored in the segment
+     */
+    @PageNumber long getSegmentFirstPageNumber(final int segmentIndex)
+    {
+        final @ByteOffset long startOffset = storage.getSegmentStartOffset(segmentIndex);
+        final @PageNumber long pageNumber = storage.getPageNumber(startOffset);
+        return storage.getOffset(pageNumber) == startOffset ? pageNumber : StorageUnits.pageNumber(pageNumber + 1);
+    }
+
+    /**
+     * Gets the page where a segment ends.
+     * @param segmentIndex the index of the segment
+     * @return the page right after the last page of the segment
+     */
+    @PageNumber long getSegmentEndPageNumber(final int segmentIndex)
+    {
+        return storage.getPageNumber(storage.getSegmentEndOffset(segmentIndex));
+    }
+
+    /**
+     * Deletes a sealed segment once no snapshot pinned before this call can read it.
+     * The storage is flushed first, so the pages relocated out of the segment are on disk before it's gone.
+     * @param segmentIndex the index of the segment
+     */
+    void deleteSegment(final int segmentIndex)
+    {
+        rootIndex.flush(false);
+        storage.flush(false);
+        snapshotGuard.retire(() ->
+        {
+            try
+            {
+                storage.deleteSegment(segmentIndex);
+            }
+            catch (final IOException e)
+            {
+                LOGGER.error("Unable to delete index segment " + segmentIndex, e);
+            }
+        });
+    }
+
     public void close()
     {
         try
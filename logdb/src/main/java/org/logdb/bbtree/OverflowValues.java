@@ -0,0 +1,189 @@
+package org.logdb.bbtree;
+
+import org.logdb.storage.ByteSize;
+import org.logdb.storage.PageNumber;
+import org.logdb.storage.Storage;
+import org.logdb.storage.StorageUnits;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+import static org.logdb.storage.StorageUnits.INT_BYTES_SIZE;
+import static org.logdb.storage.StorageUnits.LONG_BYTES_SIZE;
+
+/**
+ * Stores the leaf values bigger than a threshold out of the leaf, in a chain of dedicated overflow pages.
+ * <br>
+ * When enabled every value stored in a leaf starts with a tag byte. Inline values follow the tag as they are,
+ * overflowed values are replaced by the page number of the first page of the chain and the length of the value.
+ * Every overflow page starts with the page number of the next page of the chain, followed by the next bytes of the value.
+ * The pages are appended as soon as the value is put, so a chain is only reachable once the leaf pointing
+ * to it is committed.
+ */
+final class OverflowValues
+{
+    /**
+     * Threshold that disables overflow pages, values are stored in the leaves as they are.
+     */
+    static final @ByteSize int NO_OVERFLOW = StorageUnits.ZERO_SIZE;
+
+    private static final byte INLINE_VALUE = 0;
+    private static final byte OVERFLOW_VALUE = 1;
+
+    private static final @ByteSize int TAG_SIZE = StorageUnits.BYTE_SIZE;
+    private static final @ByteSize int POINTER_SIZE = TAG_SIZE + LONG_BYTES_SIZE + INT_BYTES_SIZE;
+    private static final @ByteSize int PAGE_HEADER_SIZE = LONG_BYTES_SIZE;
+
+    private final Storage storage;
+    private final @ByteSize int threshold;
+    private final @ByteSize int pageSize;
+    private final @ByteSize int pagePayloadSize;
+
+    OverflowValues(final Storage storage, final @ByteSize int threshold)
+    {
+        this.storage = Objects.requireNonNull(storage, "storage cannot be null");
+        this.pageSize = StorageUnits.size((int) storage.getPageSize());
+        this.pagePayloadSize = StorageUnits.size(pageSize - PAGE_HEADER_SIZE);
+
+        if (threshold != NO_OVERFLOW && (threshold < POINTER_SIZE || threshold >= pageSize))
+        {
+            throw new IllegalArgumentException("Overflow threshold must be between " + POINTER_SIZE +
+                    " and the page size " + pageSize + ", provided " + threshold);
+        }
+        this.threshold = threshold;
+    }
+
+    boolean isEnabled()
+    {
+        return threshold != NO_OVERFLOW;
+    }
+
+    /**
+     * Encodes the value to store in a leaf, appending its overflow pages if it's bigger than the threshold.
+     * @param value the value to store
+     * @return the bytes to store in the leaf
+     */
+    byte[] write(final byte[] value)
+    {
+        if (!isEnabled())
+        {
+            return value;
+        }
+
+        if (value.length <= threshold)
+        {
+            final byte[] inlineValue = new byte[TAG_SIZE + value.length];
+            inlineValue[0] = INLINE_VALUE;
+            System.arraycopy(value, 0, inlineValue, TAG_SIZE, value.length);
+            return inlineValue;
+        }
+
+        final @PageNumber long firstPageNumber = appendPages(value);
+
+        final ByteBuffer pointer = ByteBuffer.allocate(POINTER_SIZE).order(storage.getOrder());
+        pointer.put(OVERFLOW_VALUE);
+        pointer.putLong(firstPageNumber);
+        pointer.putInt(value.length);
+        return pointer.array();
+    }
+
+    /**
+     * Decodes a value stored in a leaf, reading its overflow pages if it was overflowed.
+     * @param storedValue the bytes stored in the leaf, can be null
+     * @return the value or null if the stored value is null
+     */
+    byte[] read(final byte[] storedValue)
+    {
+        if (!isEnabled() || storedValue == null)
+        {
+            return storedValue;
+        }
+
+        if (storedValue[0] == INLINE_VALUE)
+        {
+            final byte[] value = new byte[storedValue.length - TAG_SIZE];
+            System.arraycopy(storedValue, TAG_SIZE, value, 0, value.length);
+            return value;
+        }
+
+        final ByteBuffer pointer = ByteBuffer.wrap(storedValue).order(storage.getOrder());
+        @PageNumber long pageNumber = StorageUnits.pageNumber(pointer.getLong(TAG_SIZE));
+        final byte[] value = new byte[pointer.getInt(TAG_SIZE + LONG_BYTES_SIZE)];
+
+        final ByteBuffer page = ByteBuffer.allocate(pageSize).order(storage.getOrder());
+        int position = 0;
+        while (position < value.length)
+        {
+            storage.readBytes(storage.getOffset(pageNumber), page);
+
+            final int length = Math.min(pagePayloadSize, value.length - position);
+            System.arraycopy(page.array(), PAGE_HEADER_SIZE, value, position, length);
+            position += length;
+
+            pageNumber = StorageUnits.pageNumber(page.getLong(0));
+        }
+
+        return value;
+    }
+
+    /**
+     * Calls the consumer with the page numbers of the overflow pages of a stored value, if it has any.
+     * @param storedValue the bytes stored in the leaf
+     * @param pageConsumer the consumer of the page numbers
+     */
+    void forEachPage(final byte[] storedValue, final LongConsumer pageConsumer)
+    {
+        if (!isEnabled() || storedValue[0] == INLINE_VALUE)
+        {
+            return;
+        }
+
+        final ByteBuffer pointer = ByteBuffer.wrap(storedValue).order(storage.getOrder());
+        @PageNumber long pageNumber = StorageUnits.pageNumber(pointer.getLong(TAG_SIZE));
+        final int numberOfPages = (pointer.getInt(TAG_SIZE + LONG_BYTES_SIZE) + pagePayloadSize - 1) / pagePayloadSize;
+
+        final ByteBuffer pageHeader = ByteBuffer.allocate(PAGE_HEADER_SIZE).order(storage.getOrder());
+        for (int i = 0; i < numberOfPages; i++)
+        {
+            pageConsumer.accept(pageNumber);
+
+            storage.readBytes(storage.getOffset(pageNumber), pageHeader);
+            pageNumber = StorageUnits.pageNumber(pageHeader.getLong(0));
+        }
+    }
+
+    /**
+     * Appends the pages from the last one, so every page can point to the next one that's already written.
+     */
+    private @PageNumber long appendPages(final byte[] value)
+    {
+        final int numberOfPages = (value.length + pagePayloadSize - 1) / pagePayloadSize;
+        final ByteBuffer page = ByteBuffer.allocate(pageSize).order(storage.getOrder());
+
+        @PageNumber long nextPageNumber = StorageUnits.INVALID_PAGE_NUMBER;
+        try
+        {
+            for (int i = numberOfPages - 1; i >= 0; i--)
+            {
+                final int position = i * pagePayloadSize;
+                final int length = Math.min(pagePayloadSize, value.length - position);
+
+                page.clear();
+                page.putLong(nextPageNumber);
+                page.put(value, position, length);
+                page.clear();
+
+                nextPageNumber = storage.appendPageAligned(page);
+            }
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException("Unable to append the overflow pages of a value of " + value.length + " bytes", e);
+        }
+
+        return nextPageNumber;
+    }
+}
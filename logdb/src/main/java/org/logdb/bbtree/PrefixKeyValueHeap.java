@@ -0,0 +1,394 @@
+package org.logdb.bbtree;
+
+import org.logdb.bit.BinaryHelper;
+import org.logdb.bit.ByteArrayComparator;
+import org.logdb.bit.Memory;
+import org.logdb.storage.ByteOffset;
+import org.logdb.storage.ByteSize;
+import org.logdb.storage.StorageUnits;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import static org.logdb.storage.StorageUnits.SHORT_BYTES_SIZE;
+
+/**
+ * Key value heap of leaf pages that stores keys delta encoded against an anchor key.
+ * <br>
+ * The first cell of the underlying heap holds the anchor, the first key inserted in the empty page, with no value.
+ * Every other key is stored as the number of leading bytes it shares with the anchor, 2 bytes big endian,
+ * followed by the rest of the key. The anchor never changes while the page has pairs, so an insertion never has
+ * to rewrite the keys already stored.
+ * <br>
+ * The search compares the key against the anchor once and then only compares the suffixes that can differ.
+ */
+final class PrefixKeyValueHeap implements KeyValueHeap
+{
+    private static final @ByteSize int SHARED_LENGTH_SIZE = SHORT_BYTES_SIZE;
+    private static final int MAX_SHARED_LENGTH = 0xFFFF;
+    private static final int ANCHOR_INDEX = 0;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final KeyValueHeapImpl keyValueHeap;
+
+    PrefixKeyValueHeap(final KeyValueHeapImpl keyValueHeap)
+    {
+        this.keyValueHeap = Objects.requireNonNull(keyValueHeap, "keyValueHeap cannot be null");
+    }
+
+    @Override
+    public void reset(final short numberOfEntries)
+    {
+        keyValueHeap.reset(numberOfEntries);
+    }
+
+    @Override
+    public int getNumberOfPairs()
+    {
+        final int numberOfEntries = keyValueHeap.getNumberOfPairs();
+        return numberOfEntries > 0 ? numberOfEntries - 1 : 0;
+    }
+
+    @Override
+    public boolean removeKeyValue(final byte[] key)
+    {
+        final int index = binarySearch(key);
+        if (index >= 0)
+        {
+            return keyValueHeap.removeKeyValueAtIndex(toHeapIndex(index));
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean removeKeyValueAtIndex(final int index)
+    {
+        if (index >= 0)
+        {
+            return keyValueHeap.removeKeyValueAtIndex(toHeapIndex(index));
+        }
+
+        return false;
+    }
+
+    @Override
+    public void removeOnlyKey(final int index)
+    {
+        throw new UnsupportedOperationException("Prefix compressed heaps only hold leaf pairs");
+    }
+
+    /**
+     * The used size counts the cell of the anchor even before it's inserted and the bytes of the shared length
+     * of one more key, so a pair fits when its key and value fit, as in an uncompressed heap.
+     * @return the used size
+     */
+    @Override
+    public @ByteSize long getUsedSize()
+    {
+        final @ByteSize long anchorCellSize = keyValueHeap.getNumberOfPairs() == 0
+                ? keyValueHeap.getCellSize()
+                : StorageUnits.ZERO_SIZE;
+        return StorageUnits.size(keyValueHeap.getUsedSize() + anchorCellSize + SHARED_LENGTH_SIZE);
+    }
+
+    @Override
+    public @ByteSize int getCellSize()
+    {
+        //every pair also stores the length of the prefix it shares with the anchor
+        return StorageUnits.size(keyValueHeap.getCellSize() + SHARED_LENGTH_SIZE);
+    }
+
+    @Override
+    public void cacheNumberOfLogPairs()
+    {
+        keyValueHeap.cacheNumberOfLogPairs();
+    }
+
+    @Override
+    public int binarySearch(final byte[] key)
+    {
+        return binarySearch(key, getNumberOfPairs());
+    }
+
+    @Override
+    public int binarySearch(final byte[] key, final int numberOfKeys)
+    {
+        if (numberOfKeys == 0)
+        {
+            return -1;
+        }
+
+        final int anchorSharedLength = getSharedLengthWithAnchor(key);
+
+        int low = 0;
+        int high = numberOfKeys - 1;
+        while (low <= high)
+        {
+            final int index = (low + high) >>> 1;
+            final int compare = compareToKeyAt(key, anchorSharedLength, index);
+            if (compare > 0)
+            {
+                low = index + 1;
+            }
+            else if (compare < 0)
+            {
+                high = index - 1;
+            }
+            else
+            {
+                return index;
+            }
+        }
+        return -(low + 1);
+    }
+
+    @Override
+    public int binarySearch(final long key, final int numberOfKeys)
+    {
+        return binarySearch(BinaryHelper.longToSortableBytes(key), numberOfKeys);
+    }
+
+    private int compareToKeyAt(final byte[] key, final int anchorSharedLength, final int index)
+    {
+        final Memory memory = keyValueHeap.getMemory();
+        final int heapIndex = toHeapIndex(index);
+        final @ByteOffset int keyOffset = keyValueHeap.getKeyOffsetAtIndex(heapIndex);
+        final @ByteSize int keyLength = keyValueHeap.getKeyLengthAtIndex(heapIndex);
+        final int sharedLength = readSharedLength(memory, keyOffset);
+
+        if (anchorSharedLength < sharedLength)
+        {
+            //both keys match the anchor up to anchorSharedLength, from there the stored key is the anchor
+            if (anchorSharedLength == key.length)
+            {
+                return -1;
+            }
+
+            final byte anchorByte = memory.getByte(StorageUnits.offset(getAnchorOffset() + anchorSharedLength));
+            return Byte.toUnsignedInt(key[anchorSharedLength]) - Byte.toUnsignedInt(anchorByte);
+        }
+
+        return ByteArrayComparator.compare(
+                key,
+                sharedLength,
+                memory,
+                StorageUnits.offset(keyOffset + SHARED_LENGTH_SIZE),
+                StorageUnits.size(keyLength - SHARED_LENGTH_SIZE));
+    }
+
+    @Override
+    public byte[] getKeyAtIndex(final int index)
+    {
+        final Memory memory = keyValueHeap.getMemory();
+        final int heapIndex = toHeapIndex(index);
+        final @ByteOffset int keyOffset = keyValueHeap.getKeyOffsetAtIndex(heapIndex);
+        final @ByteSize int suffixLength = StorageUnits.size(keyValueHeap.getKeyLengthAtIndex(heapIndex) - SHARED_LENGTH_SIZE);
+        final @ByteSize int sharedLength = StorageUnits.size(readSharedLength(memory, keyOffset));
+
+        final byte[] keyBytes = new byte[sharedLength + suffixLength];
+        if (sharedLength > 0)
+        {
+            memory.getBytes(getAnchorOffset(), sharedLength, keyBytes);
+        }
+        if (suffixLength > 0)
+        {
+            memory.getBytes(
+                    StorageUnits.offset(keyOffset + SHARED_LENGTH_SIZE),
+                    suffixLength,
+                    keyBytes,
+                    StorageUnits.offset(sharedLength));
+        }
+
+        return keyBytes;
+    }
+
+    @Override
+    public byte[] getValueAtIndex(final int index)
+    {
+        return keyValueHeap.getValueAtIndex(toHeapIndex(index));
+    }
+
+    @Override
+    public long getLongValueAtIndex(final int index)
+    {
+        return keyValueHeap.getLongValueAtIndex(toHeapIndex(index));
+    }
+
+    @Override
+    public void insert(final byte[] key, final byte[] value)
+    {
+        final int index = binarySearch(key);
+        if (index < 0)
+        {
+            final int absIndex = -index - 1;
+            insertAtIndex(absIndex, key, value);
+        }
+        else
+        {
+            setValue(index, value);
+        }
+    }
+
+    @Override
+    public void insertAtIndex(final int index, final byte[] key, final byte[] value)
+    {
+        if (getNumberOfPairs() == 0)
+        {
+            setAnchor(key, value);
+        }
+
+        keyValueHeap.insertAtIndex(toHeapIndex(index), encodeKey(key), value);
+    }
+
+    @Override
+    public void setValue(final int index, final byte[] value)
+    {
+        keyValueHeap.setValue(toHeapIndex(index), value);
+    }
+
+    @Override
+    public void putValue(final int index, final byte[] value)
+    {
+        throw new UnsupportedOperationException("Prefix compressed heaps only hold leaf pairs");
+    }
+
+    @Override
+    public KeyValueHeapImpl spill()
+    {
+        throw new UnsupportedOperationException("Prefix compressed heaps can't be used as logs");
+    }
+
+    @Override
+    public void split(final byte[] key, final KeyValueHeap newKeyValueHeap)
+    {
+        final int keyIndex = binarySearch(key);
+        final int aKeyValues = keyIndex + 1;
+        final int bKeyValues = getNumberOfPairs() - aKeyValues;
+
+        split(aKeyValues, bKeyValues, newKeyValueHeap);
+    }
+
+    @Override
+    public void split(final int index, final int newKeyValues, final KeyValueHeap newKeyValueHeap)
+    {
+        for (int i = 0; i < newKeyValues; i++)
+        {
+            final byte[] keyBytes = getKeyAtIndex(index);
+            final byte[] valueBytes = getValueAtIndex(index);
+
+            newKeyValueHeap.insertAtIndex(i, keyBytes, valueBytes);
+
+            removeKeyValueAtIndex(index);
+        }
+    }
+
+    @Override
+    public Memory getMemory()
+    {
+        return keyValueHeap.getMemory();
+    }
+
+    /**
+     * Sets the anchor of an empty page to the first key inserted in it.
+     * The key is only used as the anchor if it fits along with the pair, otherwise the anchor is empty
+     * and the keys are stored in full.
+     */
+    private void setAnchor(final byte[] key, final byte[] value)
+    {
+        if (keyValueHeap.getNumberOfPairs() > 0)
+        {
+            keyValueHeap.removeKeyValueAtIndex(ANCHOR_INDEX);
+        }
+
+        final @ByteSize long freeSpace = StorageUnits.size(keyValueHeap.getMemory().getCapacity() - keyValueHeap.getUsedSize());
+        final @ByteSize long requiredSpace = StorageUnits.size(
+                key.length + keyValueHeap.getCellSize() + SHARED_LENGTH_SIZE + value.length + keyValueHeap.getCellSize());
+        final byte[] anchor = requiredSpace <= freeSpace ? key : EMPTY;
+
+        keyValueHeap.insertAtIndex(ANCHOR_INDEX, anchor, EMPTY);
+    }
+
+    private byte[] encodeKey(final byte[] key)
+    {
+        final int sharedLength = getSharedLengthWithAnchor(key);
+        final int suffixLength = key.length - sharedLength;
+
+        final byte[] encodedKey = new byte[SHARED_LENGTH_SIZE + suffixLength];
+        encodedKey[0] = (byte) (sharedLength >>> 8);
+        encodedKey[1] = (byte) sharedLength;
+        System.arraycopy(key, sharedLength, encodedKey, SHARED_LENGTH_SIZE, suffixLength);
+
+        return encodedKey;
+    }
+
+    private int getSharedLengthWithAnchor(final byte[] key)
+    {
+        final Memory memory = keyValueHeap.getMemory();
+        final @ByteOffset int anchorOffset = getAnchorOffset();
+        final int anchorLength = keyValueHeap.getKeyLengthAtIndex(ANCHOR_INDEX);
+        final int maxLength = Math.min(MAX_SHARED_LENGTH, Math.min(anchorLength, key.length));
+
+        int sharedLength = 0;
+        while (sharedLength < maxLength && key[sharedLength] == memory.getByte(StorageUnits.offset(anchorOffset + sharedLength)))
+        {
+            sharedLength++;
+        }
+
+        return sharedLength;
+    }
+
+    private @ByteOffset int getAnchorOffset()
+    {
+        return keyValueHeap.getKeyOffsetAtIndex(ANCHOR_INDEX);
+    }
+
+    private static int readSharedLength(final Memory memory, final @ByteOffset int keyOffset)
+    {
+        final int high = Byte.toUnsignedInt(memory.getByte(keyOffset));
+        final int low = Byte.toUnsignedInt(memory.getByte(StorageUnits.offset(keyOffset + 1)));
+        return (high << 8) | low;
+    }
+
+    private static int toHeapIndex(final int index)
+    {
+        return index + 1;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder contentBuilder = new StringBuilder();
+
+        final int numberOfPairs = getNumberOfPairs();
+        if (numberOfPairs > 0)
+        {
+            contentBuilder.append("PrefixKVHeap : ");
+            for (int i = 0; i < numberOfPairs; i++)
+            {
+                contentBuilder.append(new String(getKeyAtIndex(i), StandardCharsets.UTF_8));
+                contentBuilder.append("-");
+                contentBuilder.append(new String(getValueAtIndex(i), StandardCharsets.UTF_8));
+                if (i + 1 != numberOfPairs)
+                {
+                    contentBuilder.append(",");
+                }
+            }
+        }
+
+        return contentBuilder.toString();
+    }
+
+    @Override
+    public String printDebug()
+    {
+        if (keyValueHeap.getNumberOfPairs() == 0)
+        {
+            return "";
+        }
+
+        return "Anchor " + new String(keyValueHeap.getKeyAtIndex(ANCHOR_INDEX), StandardCharsets.UTF_8) +
+                System.lineSeparator() +
+                keyValueHeap.printDebug();
+    }
+}
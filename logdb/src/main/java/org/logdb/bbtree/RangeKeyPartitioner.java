@@ -0,0 +1,50 @@
+package org.logdb.bbtree;
+
+import org.logdb.bit.ByteArrayComparator;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Stores contiguous key ranges in each shard, split by the given keys.
+ * The shard at index i holds the keys equal or greater than the split key i - 1 and smaller than the split key i.
+ * <br>
+ * Keeps range scans within a few shards, but the shards are only written in parallel if the writes spread across
+ * the ranges, monotonically increasing keys all go to the last shard.
+ */
+public final class RangeKeyPartitioner implements KeyPartitioner
+{
+    private final byte[][] splitKeys;
+
+    /**
+     * Creates a partitioner assigning each key to the shard of the range it falls in.
+     * @param splitKeys the keys splitting the shards, in increasing order, there is one shard more than split keys
+     */
+    public RangeKeyPartitioner(final byte[]... splitKeys)
+    {
+        Objects.requireNonNull(splitKeys, "splitKeys cannot be null");
+        for (int i = 1; i < splitKeys.length; i++)
+        {
+            if (ByteArrayComparator.INSTANCE.compare(splitKeys[i - 1], splitKeys[i]) >= 0)
+            {
+                throw new IllegalArgumentException("Split keys must be in increasing order, the key at " + i + " is not");
+            }
+        }
+
+        this.splitKeys = Arrays.copyOf(splitKeys, splitKeys.length);
+    }
+
+    @Override
+    public int getShardCount()
+    {
+        return splitKeys.length + 1;
+    }
+
+    @Override
+    public int getShard(final byte[] key)
+    {
+        final int index = Arrays.binarySearch(splitKeys, key, ByteArrayComparator.INSTANCE);
+        //a key equal to a split key is the first key of the next shard
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
@@ -56,6 +56,85 @@ public final class SearchUtils
         return -(low + 1);
     }
 
+    /**
+     * <p>Tries to find a key in a previously sorted array, comparing it in place against the stored keys.</p>
+     *
+     * <p>Returns the same values as the other binary searches,
+     * but the stored keys are never copied out, so the search doesn't allocate.</p>
+     *
+     * @param key the key to find
+     * @param numberOfKeys the number of total keys
+     * @param keyIndexComparator compares the key against the stored key at a given index/position
+     * @return the index in existing keys or negative
+     */
+    static int binarySearch(
+            final byte[] key,
+            final int numberOfKeys,
+            final KeyIndexComparator keyIndexComparator)
+    {
+        int low = 0;
+        int high = numberOfKeys - 1;
+        int index = high >>> 1;
+
+        while (low <= high)
+        {
+            final int compare = keyIndexComparator.compareToKeyAt(key, index);
+            if (compare > 0)
+            {
+                low = index + 1;
+            }
+            else if (compare < 0)
+            {
+                high = index - 1;
+            }
+            else
+            {
+                return index;
+            }
+            index = (low + high) >>> 1;
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * <p>Tries to find a long key in a previously sorted array, comparing it in place against the stored keys.</p>
+     *
+     * <p>Returns the same values as the other binary searches, without boxing or copying the stored keys.</p>
+     *
+     * @param key the key to find
+     * @param numberOfKeys the number of total keys
+     * @param keyIndexComparator compares the key against the stored key at a given index/position
+     * @return the index in existing keys or negative
+     */
+    static int binarySearch(
+            final long key,
+            final int numberOfKeys,
+            final LongKeyIndexComparator keyIndexComparator)
+    {
+        int low = 0;
+        int high = numberOfKeys - 1;
+        int index = high >>> 1;
+
+        while (low <= high)
+        {
+            final int compare = keyIndexComparator.compareToKeyAt(key, index);
+            if (compare > 0)
+            {
+                low = index + 1;
+            }
+            else if (compare < 0)
+            {
+                high = index - 1;
+            }
+            else
+            {
+                return index;
+            }
+            index = (low + high) >>> 1;
+        }
+        return -(low + 1);
+    }
+
     /**
      * <p>Tries to find a key in a previously sorted array.</p>
      *
@@ -167,6 +246,24 @@ public final class SearchUtils
         T getKey(int index);
     }
 
+    interface KeyIndexComparator
+    {
+        /**
+         * Compares a key to the key stored at an index, without copying the stored key.
+         * @return negative, zero or positive if the key is smaller, equal or greater than the key at index
+         */
+        int compareToKeyAt(byte[] key, int index);
+    }
+
+    interface LongKeyIndexComparator
+    {
+        /**
+         * Compares a long key to the key stored at an index, without reading the stored key into an array.
+         * @return negative, zero or positive if the key is smaller, equal or greater than the key at index
+         */
+        int compareToKeyAt(long key, int index);
+    }
+
     public interface LongKeyIndexSupplier
     {
         long getKey(long index);
@@ -0,0 +1,200 @@
+package org.logdb.bbtree;
+
+import org.logdb.Cursor;
+import org.logdb.bit.ByteArrayComparator;
+
+import java.util.Objects;
+
+/**
+ * Merges the cursors of the shards of a {@link ShardedIndex} into a single cursor in key order.
+ * <br>
+ * Every key is stored in a single shard, so the cursors never share a key. While moving forwards the cursors of the
+ * other shards are positioned at their first key after the current one, and the current pair is the smallest of them.
+ * While moving backwards they are positioned at their last key before the current one, and the current pair is
+ * the greatest. The other cursors are only repositioned when the direction changes.
+ */
+final class ShardedCursor implements Cursor
+{
+    private static final int NOT_POSITIONED = -1;
+
+    private final Cursor[] cursors;
+
+    private int current;
+    private boolean isForward;
+
+    /**
+     * Creates a cursor merging the keys of every shard in order.
+     * @param cursors the cursors of the shards, closed together with this cursor
+     */
+    ShardedCursor(final Cursor[] cursors)
+    {
+        this.cursors = Objects.requireNonNull(cursors, "cursors cannot be null");
+        this.current = NOT_POSITIONED;
+        this.isForward = true;
+    }
+
+    @Override
+    public boolean seek(final byte[] fromKey)
+    {
+        Objects.requireNonNull(fromKey, "fromKey cannot be null");
+
+        for (final Cursor cursor : cursors)
+        {
+            cursor.seek(fromKey);
+        }
+
+        return positionForward();
+    }
+
+    @Override
+    public boolean seekToFirst()
+    {
+        for (final Cursor cursor : cursors)
+        {
+            cursor.seekToFirst();
+        }
+
+        return positionForward();
+    }
+
+    @Override
+    public boolean seekToLast()
+    {
+        for (final Cursor cursor : cursors)
+        {
+            cursor.seekToLast();
+        }
+
+        return positionBackward();
+    }
+
+    @Override
+    public boolean next()
+    {
+        if (!isValid())
+        {
+            return false;
+        }
+
+        if (!isForward)
+        {
+            final byte[] currentKey = cursors[current].getKey();
+            for (int i = 0; i < cursors.length; i++)
+            {
+                if (i != current)
+                {
+                    //no other shard has the current key, so the key found is after it
+                    cursors[i].seek(currentKey);
+                }
+            }
+        }
+
+        cursors[current].next();
+        return positionForward();
+    }
+
+    @Override
+    public boolean prev()
+    {
+        if (!isValid())
+        {
+            return false;
+        }
+
+        if (isForward)
+        {
+            final byte[] currentKey = cursors[current].getKey();
+            for (int i = 0; i < cursors.length; i++)
+            {
+                if (i != current)
+                {
+                    if (cursors[i].seek(currentKey))
+                    {
+                        cursors[i].prev();
+                    }
+                    else
+                    {
+                        cursors[i].seekToLast();
+                    }
+                }
+            }
+        }
+
+        cursors[current].prev();
+        return positionBackward();
+    }
+
+    @Override
+    public boolean isValid()
+    {
+        return current != NOT_POSITIONED && cursors[current].isValid();
+    }
+
+    @Override
+    public byte[] getKey()
+    {
+        checkPositioned();
+        return cursors[current].getKey();
+    }
+
+    @Override
+    public byte[] getValue()
+    {
+        checkPositioned();
+        return cursors[current].getValue();
+    }
+
+    @Override
+    public void close()
+    {
+        for (final Cursor cursor : cursors)
+        {
+            cursor.close();
+        }
+    }
+
+    private boolean positionForward()
+    {
+        isForward = true;
+        current = NOT_POSITIONED;
+        for (int i = 0; i < cursors.length; i++)
+        {
+            if (cursors[i].isValid() &&
+                    (current == NOT_POSITIONED || compareKeys(i, current) < 0))
+            {
+                current = i;
+            }
+        }
+
+        return current != NOT_POSITIONED;
+    }
+
+    private boolean positionBackward()
+    {
+        isForward = false;
+        current = NOT_POSITIONED;
+        for (int i = 0; i < cursors.length; i++)
+        {
+            if (cursors[i].isValid() &&
+                    (current == NOT_POSITIONED || compareKeys(i, current) > 0))
+            {
+                current = i;
+            }
+        }
+
+        return current != NOT_POSITIONED;
+    }
+
+    private int compareKeys(final int cursorIndex, final int otherCursorIndex)
+    {
+        return ByteArrayComparator.INSTANCE.compare(cursors[cursorIndex].getKey(), cursors[otherCursorIndex].getKey());
+    }
+
+    private void checkPositioned()
+    {
+        if (!isValid())
+        {
+            throw new IllegalStateException("Cursor is not positioned at any pair");
+        }
+    }
+}
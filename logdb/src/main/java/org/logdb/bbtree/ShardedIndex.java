@@ -0,0 +1,407 @@
+package org.logdb.bbtree;
+
+import org.logdb.Cursor;
+import org.logdb.Snapshot;
+import org.logdb.WriteBatch;
+import org.logdb.root.index.ShardedRootIndex;
+import org.logdb.root.index.VersionForTimestampNotFoundException;
+import org.logdb.storage.PageNumber;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.Version;
+import org.logdb.time.Milliseconds;
+import org.logdb.time.TimeSource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+import static org.logdb.storage.StorageUnits.INITIAL_VERSION;
+
+/**
+ * Index that partitions the keys across independent trees, each with its own nodes manager and storage.
+ * <br>
+ * A tree only has a single writer, the writes of each shard are serialised by a lock of the shard,
+ * so writers of different shards don't wait for each other. The shards can also be written asynchronously,
+ * each one by its own thread.
+ * <br>
+ * Every shard has its own versions. A commit of the sharded index commits every shard holding all their locks,
+ * and records the versions of the shards as a new sharded version, which is the version used by the methods
+ * of this index. The versions of the shards of every sharded version are persisted in a sharded root index,
+ * and loaded back when the index is reopened.
+ * A batch is applied as one version of every shard it writes to, so it is only atomic within each shard.
+ */
+public class ShardedIndex implements BTree
+{
+    private final BTree[] shards;
+    private final ReentrantLock[] shardLocks;
+    private final KeyPartitioner partitioner;
+    private final ShardedRootIndex rootIndex;
+    private final TimeSource timeSource;
+    private final List<CommitPoint> commitPoints;
+
+    public ShardedIndex(
+            final List<BTree> shards,
+            final KeyPartitioner partitioner,
+            final ShardedRootIndex rootIndex,
+            final TimeSource timeSource)
+    {
+        Objects.requireNonNull(shards, "shards cannot be null");
+        this.partitioner = Objects.requireNonNull(partitioner, "partitioner cannot be null");
+        this.rootIndex = Objects.requireNonNull(rootIndex, "rootIndex cannot be null");
+        this.timeSource = Objects.requireNonNull(timeSource, "timeSource cannot be null");
+
+        if (shards.size() != partitioner.getShardCount())
+        {
+            throw new IllegalArgumentException("The partitioner has " + partitioner.getShardCount() +
+                    " shards, provided " + shards.size());
+        }
+
+        if (rootIndex.getShardCount() != partitioner.getShardCount())
+        {
+            throw new IllegalArgumentException("The partitioner has " + partitioner.getShardCount() +
+                    " shards, the root index " + rootIndex.getShardCount());
+        }
+
+        this.shards = shards.toArray(new BTree[0]);
+        this.shardLocks = new ReentrantLock[this.shards.length];
+        for (int i = 0; i < shardLocks.length; i++)
+        {
+            shardLocks[i] = new ReentrantLock();
+        }
+        this.commitPoints = loadCommitPoints(rootIndex);
+    }
+
+    @Override
+    public void put(final byte[] key, final byte[] value)
+    {
+        final int shard = partitioner.getShard(key);
+        shardLocks[shard].lock();
+        try
+        {
+            shards[shard].put(key, value);
+        }
+        finally
+        {
+            shardLocks[shard].unlock();
+        }
+    }
+
+    @Override
+    public void remove(final byte[] key)
+    {
+        final int shard = partitioner.getShard(key);
+        shardLocks[shard].lock();
+        try
+        {
+            shards[shard].remove(key);
+        }
+        finally
+        {
+            shardLocks[shard].unlock();
+        }
+    }
+
+    @Override
+    public void apply(final WriteBatch batch)
+    {
+        final WriteBatch[] shardBatches = new WriteBatch[shards.length];
+        for (final WriteBatch.Operation operation : batch.getOperations())
+        {
+            final int shard = partitioner.getShard(operation.getKey());
+            if (shardBatches[shard] == null)
+            {
+                shardBatches[shard] = new WriteBatch();
+            }
+
+            if (operation.isDelete())
+            {
+                shardBatches[shard].delete(operation.getKey());
+            }
+            else
+            {
+                shardBatches[shard].put(operation.getKey(), operation.getValue());
+            }
+        }
+
+        for (int shard = 0; shard < shards.length; shard++)
+        {
+            if (shardBatches[shard] != null)
+            {
+                shardLocks[shard].lock();
+                try
+                {
+                    shards[shard].apply(shardBatches[shard]);
+                }
+                finally
+                {
+                    shardLocks[shard].unlock();
+                }
+            }
+        }
+    }
+
+    @Override
+    public byte[] get(final byte[] key)
+    {
+        return shards[partitioner.getShard(key)].get(key);
+    }
+
+    /**
+     * Tries to retrieve the value for a given key as it was at a sharded version.
+     * @param key the key
+     * @param version the sharded version, returned by a previous commit
+     * @return the value for the given key or null if not found
+     */
+    @Override
+    public byte[] get(final byte[] key, final @Version long version)
+    {
+        final int shard = partitioner.getShard(key);
+        final @Version long shardVersion = getCommitPoint(version).shardVersions[shard];
+        return hasVersion(shardVersion) ? shards[shard].get(key, shardVersion) : null;
+    }
+
+    @Override
+    public byte[] getByTimestamp(final byte[] key, final @Milliseconds long timestamp)
+    {
+        return shards[partitioner.getShard(key)].getByTimestamp(key, timestamp);
+    }
+
+    @Override
+    public Cursor openCursor()
+    {
+        final Cursor[] cursors = new Cursor[shards.length];
+        for (int i = 0; i < shards.length; i++)
+        {
+            cursors[i] = shards[i].openCursor();
+        }
+
+        return new ShardedCursor(cursors);
+    }
+
+    /**
+     * Pins the latest version of every shard, including the changes not committed yet.
+     * @return a snapshot with the version of the last sharded commit, it must be closed once done with it
+     */
+    @Override
+    public Snapshot snapshot()
+    {
+        return openSnapshot(getLastCommittedVersion(), shard -> shards[shard].snapshot());
+    }
+
+    @Override
+    public Snapshot snapshot(final @Version long version)
+    {
+        final CommitPoint commitPoint = getCommitPoint(version);
+        return openSnapshot(version, shard -> hasVersion(commitPoint.shardVersions[shard])
+                ? shards[shard].snapshot(commitPoint.shardVersions[shard])
+                : null);
+    }
+
+    /**
+     * Pins the last sharded version committed at or before the given timestamp.
+     * @param timestamp the timestamp to search for
+     * @return a snapshot that must be closed once done with it
+     */
+    @Override
+    public Snapshot snapshotAt(final @Milliseconds long timestamp)
+    {
+        @Version long version = StorageUnits.version(INITIAL_VERSION - 1);
+        synchronized (commitPoints)
+        {
+            for (int i = commitPoints.size() - 1; i >= 0; i--)
+            {
+                if (commitPoints.get(i).timestamp <= timestamp)
+                {
+                    version = StorageUnits.version(INITIAL_VERSION + i);
+                    break;
+                }
+            }
+        }
+
+        if (!hasVersion(version))
+        {
+            throw new VersionForTimestampNotFoundException(timestamp);
+        }
+
+        return snapshot(version);
+    }
+
+    /**
+     * Commits every shard and records their versions as a new sharded version.
+     * The writes of every shard wait until all of them are committed.
+     */
+    @Override
+    public void commit() throws IOException
+    {
+        for (final ReentrantLock shardLock : shardLocks)
+        {
+            shardLock.lock();
+        }
+
+        try
+        {
+            final @Version long[] shardVersions = new long[shards.length];
+            for (int i = 0; i < shards.length; i++)
+            {
+                shards[i].commit();
+                try (Snapshot snapshot = shards[i].snapshot())
+                {
+                    shardVersions[i] = snapshot.getVersion();
+                }
+            }
+
+            final @Milliseconds long timestamp = timeSource.getCurrentMillis();
+            synchronized (commitPoints)
+            {
+                rootIndex.append(StorageUnits.version(INITIAL_VERSION + commitPoints.size()), timestamp, shardVersions);
+                commitPoints.add(new CommitPoint(timestamp, shardVersions));
+            }
+        }
+        finally
+        {
+            for (int i = shardLocks.length - 1; i >= 0; i--)
+            {
+                shardLocks[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the sharded version of the last commit.
+     * @return the version recorded by the last commit, or a version before the initial one if there was no commit
+     */
+    public @Version long getLastCommittedVersion()
+    {
+        synchronized (commitPoints)
+        {
+            return StorageUnits.version(INITIAL_VERSION + commitPoints.size() - 1);
+        }
+    }
+
+    public List<BTree> getShards()
+    {
+        final List<BTree> shardsList = new ArrayList<>(shards.length);
+        Collections.addAll(shardsList, shards);
+        return Collections.unmodifiableList(shardsList);
+    }
+
+    @Override
+    public String print()
+    {
+        final StringBuilder printedShards = new StringBuilder();
+        for (final BTree shard : shards)
+        {
+            printedShards.append(shard.print());
+        }
+        return printedShards.toString();
+    }
+
+    @Override
+    public long getNodesCount()
+    {
+        long nodesCount = 0;
+        for (final BTree shard : shards)
+        {
+            nodesCount += shard.getNodesCount();
+        }
+        return nodesCount;
+    }
+
+    @Override
+    public @PageNumber long getCommittedRoot()
+    {
+        throw new UnsupportedOperationException("A sharded index has a committed root per shard");
+    }
+
+    @Override
+    public BTreeNode getUncommittedRoot()
+    {
+        throw new UnsupportedOperationException("A sharded index has an uncommitted root per shard");
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        for (final BTree shard : shards)
+        {
+            shard.close();
+        }
+        rootIndex.close();
+    }
+
+    private static List<CommitPoint> loadCommitPoints(final ShardedRootIndex rootIndex)
+    {
+        final long numberOfRecords = rootIndex.getNumberOfRecords();
+        final List<CommitPoint> commitPoints = new ArrayList<>();
+        for (long i = 0; i < numberOfRecords; i++)
+        {
+            final @Version long[] shardVersions = new long[rootIndex.getShardCount()];
+            final @Milliseconds long timestamp = rootIndex.read(StorageUnits.version(INITIAL_VERSION + i), shardVersions);
+            commitPoints.add(new CommitPoint(timestamp, shardVersions));
+        }
+        return commitPoints;
+    }
+
+    private Snapshot openSnapshot(final @Version long version, final IntFunction<Snapshot> shardSnapshot)
+    {
+        final Snapshot[] snapshots = new Snapshot[shards.length];
+        try
+        {
+            for (int i = 0; i < shards.length; i++)
+            {
+                snapshots[i] = shardSnapshot.apply(i);
+            }
+        }
+        catch (final RuntimeException e)
+        {
+            for (final Snapshot snapshot : snapshots)
+            {
+                if (snapshot != null)
+                {
+                    snapshot.close();
+                }
+            }
+            throw e;
+        }
+
+        return new ShardedSnapshot(snapshots, partitioner, version);
+    }
+
+    private CommitPoint getCommitPoint(final @Version long version)
+    {
+        synchronized (commitPoints)
+        {
+            final long index = version - INITIAL_VERSION;
+            if (index < 0 || index >= commitPoints.size())
+            {
+                throw new VersionNotFoundException(version);
+            }
+
+            return commitPoints.get((int) index);
+        }
+    }
+
+    /**
+     * A shard that was never written has its empty root before the initial version.
+     */
+    private static boolean hasVersion(final @Version long version)
+    {
+        return version >= INITIAL_VERSION;
+    }
+
+    private static final class CommitPoint
+    {
+        private final @Milliseconds long timestamp;
+        private final @Version long[] shardVersions;
+
+        private CommitPoint(final @Milliseconds long timestamp, final @Version long[] shardVersions)
+        {
+            this.timestamp = timestamp;
+            this.shardVersions = shardVersions;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.logdb.bbtree;
+
+import org.logdb.Cursor;
+import org.logdb.Snapshot;
+import org.logdb.storage.Version;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Snapshot of a {@link ShardedIndex}, made of a snapshot of every shard.
+ * A shard that had no version yet when the snapshot was taken is read as empty.
+ */
+final class ShardedSnapshot implements Snapshot
+{
+    private final Snapshot[] snapshots;
+    private final KeyPartitioner partitioner;
+    private final @Version long version;
+
+    /**
+     * Creates a snapshot reading every key from the snapshot of its shard.
+     * @param snapshots the snapshots of the shards, null for the shards read as empty, closed with this snapshot
+     * @param partitioner the partitioner of the index
+     * @param version the sharded version the snapshots belong to
+     */
+    ShardedSnapshot(final Snapshot[] snapshots, final KeyPartitioner partitioner, final @Version long version)
+    {
+        this.snapshots = Objects.requireNonNull(snapshots, "snapshots cannot be null");
+        this.partitioner = Objects.requireNonNull(partitioner, "partitioner cannot be null");
+        this.version = version;
+    }
+
+    @Override
+    public @Version long getVersion()
+    {
+        return version;
+    }
+
+    @Override
+    public byte[] get(final byte[] key)
+    {
+        Objects.requireNonNull(key, "key cannot be null");
+
+        final Snapshot snapshot = snapshots[partitioner.getShard(key)];
+        return snapshot == null ? null : snapshot.get(key);
+    }
+
+    @Override
+    public Cursor openCursor()
+    {
+        final List<Cursor> cursors = new ArrayList<>(snapshots.length);
+        for (final Snapshot snapshot : snapshots)
+        {
+            if (snapshot != null)
+            {
+                cursors.add(snapshot.openCursor());
+            }
+        }
+
+        return new ShardedCursor(cursors.toArray(new Cursor[0]));
+    }
+
+    @Override
+    public void close()
+    {
+        for (final Snapshot snapshot : snapshots)
+        {
+            if (snapshot != null)
+            {
+                snapshot.close();
+            }
+        }
+    }
+}
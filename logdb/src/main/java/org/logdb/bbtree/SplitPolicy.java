@@ -0,0 +1,84 @@
+package org.logdb.bbtree;
+
+/**
+ * Chooses where full nodes are split, by the bytes used by their pairs rather than by their count.
+ * <br>
+ * Nodes are split in half, unless the pair being inserted goes after every key of the rightmost node of the tree.
+ * Monotonically increasing keys only ever insert there, so an even split would leave every left node half empty
+ * forever. Those nodes are split near their end instead, keeping the left node almost full.
+ */
+final class SplitPolicy
+{
+    static final double EVEN_SPLIT_RATIO = 0.5;
+    static final double APPEND_SPLIT_RATIO = 0.9;
+
+    private SplitPolicy()
+    {
+    }
+
+    /**
+     * Gets the index to split a leaf at, the leaf keeps the pairs before it.
+     *
+     * @param leaf the full leaf
+     * @param isAppend true if the pair being inserted goes after every key of the rightmost leaf of the tree
+     * @return the split index
+     */
+    static int getLeafSplitIndex(final BTreeNode leaf, final boolean isAppend)
+    {
+        final BTreeNodeAbstract node = (BTreeNodeAbstract) leaf;
+        final int pairCount = node.getPairCount();
+        final double sizeToKeep = getSplitRatio(isAppend) * getPairsSize(node, pairCount);
+
+        //keeps as many pairs as fit in the size to keep
+        long keptSize = 0;
+        int at = 0;
+        while (at < pairCount && keptSize + node.getPairSize(at) <= sizeToKeep)
+        {
+            keptSize += node.getPairSize(at);
+            at++;
+        }
+
+        return Math.min(Math.max(1, at), pairCount - 1);
+    }
+
+    /**
+     * Gets the index to split a non leaf node at, the key at the index moves up to the parent
+     * and the node keeps the children up to the index included.
+     *
+     * @param nonLeaf the full non leaf node
+     * @param isAppend true if the child being inserted goes after every child of the rightmost node of its level
+     * @return the split index
+     */
+    static int getNonLeafSplitIndex(final BTreeNode nonLeaf, final boolean isAppend)
+    {
+        final BTreeNodeAbstract node = (BTreeNodeAbstract) nonLeaf;
+        final int keyCount = node.getPairCount() - 1;
+        final double sizeToKeep = getSplitRatio(isAppend) * getPairsSize(node, keyCount);
+
+        //keeps the keys until they reach the size to keep, the rightmost entry has no key
+        long keptSize = 0;
+        int at = 0;
+        while (at < keyCount && keptSize < sizeToKeep)
+        {
+            keptSize += node.getPairSize(at);
+            at++;
+        }
+
+        return Math.max(0, Math.min(at, keyCount - 1));
+    }
+
+    private static double getSplitRatio(final boolean isAppend)
+    {
+        return isAppend ? APPEND_SPLIT_RATIO : EVEN_SPLIT_RATIO;
+    }
+
+    private static long getPairsSize(final BTreeNodeAbstract node, final int pairCount)
+    {
+        long size = 0;
+        for (int i = 0; i < pairCount; i++)
+        {
+            size += node.getPairSize(i);
+        }
+        return size;
+    }
+}
@@ -44,6 +44,34 @@ public final class BinaryHelper
                 ((long) bytes[0] & 0xff);
     }
 
+    /**
+     * Encodes the value big endian with the sign bit flipped,
+     * so comparing the bytes as unsigned gives the same order as comparing the values.
+     * @param value the value to encode
+     * @return the 8 bytes of the encoded value
+     */
+    public static byte[] longToSortableBytes(final long value)
+    {
+        final long flipped = value ^ Long.MIN_VALUE;
+        final byte[] bytes = new byte[Long.BYTES];
+        for (int i = 0; i < Long.BYTES; i++)
+        {
+            bytes[i] = (byte)(flipped >> ((Long.BYTES - 1 - i) * Byte.SIZE));
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Decodes a value encoded by {@link #longToSortableBytes(long)}, from its 8 bytes read as a big endian long.
+     * @param bigEndianWord the encoded bytes as a big endian long
+     * @return the value
+     */
+    public static long sortableWordToLong(final long bigEndianWord)
+    {
+        return bigEndianWord ^ Long.MIN_VALUE;
+    }
+
     public static int bytesToInt(final byte[] bytes)
     {
         return ((int) bytes[3] & 0xff) << 24 |
@@ -1,11 +1,26 @@
 package org.logdb.bit;
 
+import org.logdb.storage.ByteOffset;
+import org.logdb.storage.ByteSize;
+import org.logdb.storage.StorageUnits;
+
+import java.nio.ByteOrder;
 import java.util.Comparator;
 
+import static org.logdb.storage.StorageUnits.LONG_BYTES_SIZE;
+
+/**
+ * Compares keys as unsigned bytes, in lexicographical order.
+ * <br>
+ * The bytes are compared 8 at a time, read as big endian longs so the unsigned comparison of the longs
+ * gives the same result as comparing them one by one. Only the remaining tail is compared byte by byte.
+ */
 public final class ByteArrayComparator implements Comparator<byte[]>
 {
     public static final ByteArrayComparator INSTANCE = new ByteArrayComparator();
 
+    private static final boolean IS_NATIVE_BIG_ENDIAN = ByteOrder.BIG_ENDIAN.equals(MemoryOrder.nativeOrder);
+
     private ByteArrayComparator()
     {
     }
@@ -14,7 +29,19 @@ public final class ByteArrayComparator implements Comparator<byte[]>
     public int compare(final byte[] a, final byte[] b)
     {
         final int minLength = a.length < b.length ? a.length : b.length;
-        for (int i = 0; i < minLength; i++)
+
+        int i = 0;
+        for (; i + LONG_BYTES_SIZE <= minLength; i += LONG_BYTES_SIZE)
+        {
+            final long wordA = getBigEndianLong(a, i);
+            final long wordB = getBigEndianLong(b, i);
+            if (wordA != wordB)
+            {
+                return Long.compareUnsigned(wordA, wordB);
+            }
+        }
+
+        for (; i < minLength; i++)
         {
             if (a[i] != b[i])
             {
@@ -24,4 +51,71 @@ public final class ByteArrayComparator implements Comparator<byte[]>
 
         return a.length - b.length;
     }
+
+    /**
+     * Compares a key against a key stored in memory, reading the stored key in place instead of copying it out.
+     * @param key the key to compare
+     * @param memory the memory that holds the stored key
+     * @param offset the offset of the stored key in the memory
+     * @param length the length of the stored key
+     * @return negative, zero or positive if the key is smaller, equal or greater than the stored key
+     */
+    public static int compare(
+            final byte[] key,
+            final Memory memory,
+            final @ByteOffset long offset,
+            final @ByteSize int length)
+    {
+        return compare(key, 0, memory, offset, length);
+    }
+
+    /**
+     * Compares the bytes of a key from an offset against a key stored in memory, reading the stored key in place.
+     * @param key the key to compare
+     * @param keyOffset the index of the first byte of the key to compare, the bytes before it are ignored
+     * @param memory the memory that holds the stored key
+     * @param offset the offset of the stored key in the memory
+     * @param length the length of the stored key
+     * @return negative, zero or positive if the key from the offset is smaller, equal or greater than the stored key
+     */
+    public static int compare(
+            final byte[] key,
+            final int keyOffset,
+            final Memory memory,
+            final @ByteOffset long offset,
+            final @ByteSize int length)
+    {
+        final int keyLength = key.length - keyOffset;
+        final int minLength = keyLength < length ? keyLength : length;
+        final boolean isMemoryBigEndian = ByteOrder.BIG_ENDIAN.equals(memory.getByteOrder());
+
+        int i = 0;
+        for (; i + LONG_BYTES_SIZE <= minLength; i += LONG_BYTES_SIZE)
+        {
+            final long keyWord = getBigEndianLong(key, keyOffset + i);
+            final long memoryWord = memory.getLong(StorageUnits.offset(offset + i));
+            final long storedWord = isMemoryBigEndian ? memoryWord : Long.reverseBytes(memoryWord);
+            if (keyWord != storedWord)
+            {
+                return Long.compareUnsigned(keyWord, storedWord);
+            }
+        }
+
+        for (; i < minLength; i++)
+        {
+            final byte storedByte = memory.getByte(StorageUnits.offset(offset + i));
+            if (key[keyOffset + i] != storedByte)
+            {
+                return Byte.toUnsignedInt(key[keyOffset + i]) - Byte.toUnsignedInt(storedByte);
+            }
+        }
+
+        return keyLength - length;
+    }
+
+    private static long getBigEndianLong(final byte[] bytes, final int index)
+    {
+        final long word = NativeMemoryAccess.getLong(bytes, index);
+        return IS_NATIVE_BIG_ENDIAN ? word : Long.reverseBytes(word);
+    }
 }
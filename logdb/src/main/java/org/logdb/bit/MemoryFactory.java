@@ -55,6 +55,19 @@ public class MemoryFactory
         return getDirectMemory(baseAddress, capacity, byteOrder);
     }
 
+    /**
+     * Gets a direct memory over the whole buffer, in the order of the buffer.
+     * The memory is released once the buffer is collected, so the buffer has to be kept reachable while it's used.
+     */
+    public static DirectMemory wrapDirect(final ByteBuffer directBuffer)
+    {
+        Objects.requireNonNull(directBuffer, "buffer cannot be null");
+
+        final @ByteOffset long baseAddress = NativeMemoryAccess.getBaseAddressForDirectBuffer(directBuffer);
+
+        return getDirectMemory(baseAddress, StorageUnits.size(directBuffer.capacity()), directBuffer.order());
+    }
+
     public static HeapMemory allocateHeap(final @ByteSize int capacity, final ByteOrder byteOrder)
     {
         final ByteBuffer buffer = ByteBuffer.allocate(capacity);
@@ -15,6 +15,17 @@ public final class NativeMemoryAccess extends MemoryAccess
         return THE_UNSAFE.getLong(address);
     }
 
+    /**
+     * Reads 8 bytes of the array in native order, without bounds checks.
+     * @param array the array to read from
+     * @param index the index of the first byte, there must be 8 bytes from it
+     * @return the long value
+     */
+    static long getLong(final byte[] array, final int index)
+    {
+        return THE_UNSAFE.getLong(array, (long) Unsafe.ARRAY_BYTE_BASE_OFFSET + index);
+    }
+
     public static void putLong(final long address, final long value)
     {
         THE_UNSAFE.putLong(address, value);
@@ -65,6 +76,32 @@ public final class NativeMemoryAccess extends MemoryAccess
         }
     }
 
+    /**
+     * Copies a range of the array to the address.
+     * @param destinationAddress the address to copy to
+     * @param sourceArray the array to copy from
+     * @param offset the index of the first byte to copy
+     * @param lengthBytes the number of bytes to copy
+     */
+    public static void putBytes(
+            final long destinationAddress,
+            final byte[] sourceArray,
+            final @ByteOffset long offset,
+            final @ByteSize long lengthBytes)
+    {
+        long srcAdd = Unsafe.ARRAY_BYTE_BASE_OFFSET + offset;
+        long dstAdd = destinationAddress;
+        long remainingBytes = lengthBytes;
+        while (remainingBytes > 0)
+        {
+            final long chunk = Math.min(remainingBytes, UNSAFE_COPY_THRESHOLD_BYTES);
+            THE_UNSAFE.copyMemory(sourceArray, srcAdd, null, dstAdd, chunk);
+            remainingBytes -= chunk;
+            srcAdd += chunk;
+            dstAdd += chunk;
+        }
+    }
+
     public static void getBytes(
             final long sourceAddress,
             final byte[] destinationArray,
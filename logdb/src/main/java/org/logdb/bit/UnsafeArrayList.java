@@ -34,6 +34,14 @@ public class UnsafeArrayList<S>
         return storageArray[index];
     }
 
+    public void set(final int index, final S element)
+    {
+        assert index >= 0;
+        assert index <= maxValidIndex;
+
+        storageArray[index] = element;
+    }
+
     public int size()
     {
         return maxValidIndex + 1;
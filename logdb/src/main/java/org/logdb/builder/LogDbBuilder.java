@@ -1,13 +1,21 @@
 package org.logdb.builder;
 
 import org.logdb.LogDb;
+import org.logdb.LongLogDb;
 import org.logdb.async.AsyncWriteDelegatingBTree;
+import org.logdb.async.ConcurrentWriteBTree;
 import org.logdb.async.NonDaemonThreadFactory;
 import org.logdb.bbtree.BTree;
 import org.logdb.bbtree.BTreeImpl;
 import org.logdb.bbtree.BTreeWithLog;
+import org.logdb.bbtree.HashKeyPartitioner;
+import org.logdb.bbtree.KeyPartitioner;
+import org.logdb.bbtree.LongBTree;
+import org.logdb.bbtree.NodeOptions;
 import org.logdb.bbtree.NodesManager;
+import org.logdb.bbtree.RangeKeyPartitioner;
 import org.logdb.bbtree.RootReference;
+import org.logdb.bbtree.ShardedIndex;
 import org.logdb.bit.DirectMemory;
 import org.logdb.checksum.Checksum;
 import org.logdb.checksum.ChecksumFactory;
@@ -16,6 +24,7 @@ import org.logdb.checksum.ChecksumType;
 import org.logdb.logfile.LogFile;
 import org.logdb.root.index.RootIndex;
 import org.logdb.root.index.RootIndexRecord;
+import org.logdb.root.index.ShardedRootIndex;
 import org.logdb.storage.ByteOffset;
 import org.logdb.storage.ByteSize;
 import org.logdb.storage.PageNumber;
@@ -24,6 +33,7 @@ import org.logdb.storage.Version;
 import org.logdb.storage.file.FileStorage;
 import org.logdb.storage.file.FileStorageFactory;
 import org.logdb.storage.file.FileType;
+import org.logdb.storage.file.header.FileStorageStaticHeader;
 import org.logdb.time.Milliseconds;
 import org.logdb.time.TimeSource;
 import org.logdb.time.TimeUnits;
@@ -34,7 +44,10 @@ import java.io.IOException;
 import java.nio.ByteOrder;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 import static org.logdb.bbtree.BTreeValidation.isNewTree;
 import static org.logdb.storage.StorageUnits.INITIAL_VERSION;
@@ -42,6 +55,9 @@ import static org.logdb.storage.StorageUnits.INITIAL_VERSION;
 public class LogDbBuilder
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(LogDbBuilder.class);
+    private static final String INDEX_SHARD_DIRECTORY_PREFIX = "index-shard-";
+    private static final String SHARDED_ROOT_INDEX_DIRECTORY = "sharded-root-index";
+    private static final int CONCURRENT_WRITE_MAX_BATCH_SIZE = 256;
 
     private Path rootDirectory;
     private @ByteSize long segmentFileSize;
@@ -51,9 +67,20 @@ public class LogDbBuilder
     private TimeSource timeSource;
     private boolean useIndexWithLog;
     private boolean asyncIndexWrite;
+    private boolean concurrentIndexWrite;
+    private boolean concurrentWriters = false;
     private int asyncQueueCapacity = 8192;
     private boolean shouldSyncWrite = false;
     private ChecksumType checksumType = ChecksumType.CRC32;
+    private boolean groupCommit = false;
+    private int groupCommitMaxSize = 256;
+    private @ByteSize int heapAppendBufferSize = StorageUnits.ZERO_SIZE;
+    private boolean mappedHeapAppends = false;
+    private boolean preallocateSegments = false;
+    private boolean leafPrefixCompression = false;
+    private double nodeMinFillRatio = 0;
+    private int indexShards = 1;
+    private byte[][] indexShardSplitKeys;
 
     public LogDbBuilder setRootDirectory(final Path rootDirectory)
     {
@@ -97,6 +124,30 @@ public class LogDbBuilder
         return this;
     }
 
+    /**
+     * Lets several threads write the index at once, the writes arriving together are applied as a single batch
+     * by one of the writers. Unlike asynchronous writes, a write is applied once the call returns.
+     * @param concurrentIndexWrite true to combine the writes of concurrent writers
+     * @return this builder
+     */
+    public LogDbBuilder concurrentIndexWrite(final boolean concurrentIndexWrite)
+    {
+        this.concurrentIndexWrite = concurrentIndexWrite;
+        return this;
+    }
+
+    /**
+     * Lets several threads write the database at once. Their writes lock the keys they write, so the index always
+     * points to the newest record of a key. The index must be written asynchronously, concurrently or be sharded.
+     * @param concurrentWriters true if several threads write at once
+     * @return this builder
+     */
+    public LogDbBuilder concurrentWriters(final boolean concurrentWriters)
+    {
+        this.concurrentWriters = concurrentWriters;
+        return this;
+    }
+
     public LogDbBuilder asyncQueueCapacity(final int asyncQueueCapacity)
     {
         this.asyncQueueCapacity = asyncQueueCapacity;
@@ -109,6 +160,56 @@ public class LogDbBuilder
         return this;
     }
 
+    public LogDbBuilder groupCommit(final boolean groupCommit)
+    {
+        this.groupCommit = groupCommit;
+        return this;
+    }
+
+    public LogDbBuilder groupCommitMaxSize(final int groupCommitMaxSize)
+    {
+        this.groupCommitMaxSize = groupCommitMaxSize;
+        return this;
+    }
+
+    /**
+     * Copies the records appended to the heap file to an off heap buffer, that is written once full,
+     * before the appended records are committed or read. Records bigger than the buffer are written straight away.
+     * Together with group commit, a whole group of records is written with a single write.
+     * @param heapAppendBufferSize the size of the buffer, 0 writes every record as it's appended
+     * @return this builder
+     */
+    public LogDbBuilder heapAppendBufferSize(final @ByteSize int heapAppendBufferSize)
+    {
+        this.heapAppendBufferSize = heapAppendBufferSize;
+        return this;
+    }
+
+    /**
+     * Maps the heap file segment receiving appends READ_WRITE and copies the records straight into the mapping,
+     * instead of writing them through the file channel. The mapping is forced when the heap file is flushed.
+     * @param mappedHeapAppends true to append through the mapping
+     * @return this builder
+     */
+    public LogDbBuilder mappedHeapAppends(final boolean mappedHeapAppends)
+    {
+        this.mappedHeapAppends = mappedHeapAppends;
+        return this;
+    }
+
+    /**
+     * Prepares the next segment of the heap and index files on a background thread, so rolling a full segment
+     * only swaps in the prepared one instead of creating and mapping a new file on the writer thread.
+     * The sealed segment is synced and closed on the same thread.
+     * @param preallocateSegments true to prepare the segments ahead of time
+     * @return this builder
+     */
+    public LogDbBuilder preallocateSegments(final boolean preallocateSegments)
+    {
+        this.preallocateSegments = preallocateSegments;
+        return this;
+    }
+
     public LogDbBuilder checksum(final ChecksumType checksumType)
     {
         this.checksumType = checksumType;
@@ -121,6 +222,54 @@ public class LogDbBuilder
         return this;
     }
 
+    /**
+     * Stores the keys of the index leaf pages delta encoded, so pages with keys sharing long prefixes hold more keys.
+     * Only applies to new index files, an existing index keeps the format it was created with.
+     * @param leafPrefixCompression true to compress the keys of the leaf pages
+     * @return this builder
+     */
+    public LogDbBuilder leafPrefixCompression(final boolean leafPrefixCompression)
+    {
+        this.leafPrefixCompression = leafPrefixCompression;
+        return this;
+    }
+
+    /**
+     * Merges an index node with a sibling, or moves pairs from the sibling into it, when a remove leaves it
+     * using less than the ratio of its page. Keeps the index from growing with removes.
+     * @param nodeMinFillRatio ratio between 0 and 0.5, 0 only removes the nodes once they are empty
+     * @return this builder
+     */
+    public LogDbBuilder nodeMinFillRatio(final double nodeMinFillRatio)
+    {
+        this.nodeMinFillRatio = nodeMinFillRatio;
+        return this;
+    }
+
+    /**
+     * Partitions the keys of the index by their hash across independent index trees, each one in its own directory
+     * and written by its own thread when the index is written asynchronously. Writers of different shards don't
+     * wait for each other. An existing index has to be opened with the same number of shards.
+     * @param indexShards the number of index trees, 1 keeps a single tree
+     * @return this builder
+     */
+    public LogDbBuilder indexShards(final int indexShards)
+    {
+        this.indexShards = indexShards;
+        return this;
+    }
+
+    /**
+     * Partitions the keys of the index in ranges across independent index trees, instead of by their hash.
+     * @param indexShardSplitKeys the keys splitting the ranges in increasing order, there is one shard more than keys
+     * @return this builder
+     */
+    public LogDbBuilder indexShardSplitKeys(final byte[]... indexShardSplitKeys)
+    {
+        this.indexShardSplitKeys = indexShardSplitKeys;
+        return this;
+    }
+
     public LogDb build() throws IOException
     {
         validateConfig();
@@ -131,15 +280,29 @@ public class LogDbBuilder
         final LogFile logFile = buildLogFile(timeSource);
         LOGGER.info("Finnish constructing LogDB heap file");
 
+        final BTree indexToUse;
+        if (isIndexSharded())
+        {
+            indexToUse = buildShardedIndex();
+        }
+        else
+        {
+            indexToUse = buildWritableIndex(rootDirectory);
+        }
+
+        return new LogDb(logFile, indexToUse, concurrentWriters);
+    }
+
+    private BTree buildWritableIndex(final Path directory) throws IOException
+    {
         LOGGER.info("Starting constructing LogDB root index file");
-        final RootIndex rootIndex = buildRootIndex();
+        final RootIndex rootIndex = buildRootIndex(directory);
         LOGGER.info("Finnish constructing LogDB root index file");
 
         LOGGER.info("Starting constructing LogDB index file");
-        final BTree index = buildIndex(timeSource, rootIndex);
+        final BTree index = buildIndex(timeSource, rootIndex, directory);
         LOGGER.info("Finnish constructing LogDB index file");
 
-        final BTree indexToUse;
         if (asyncIndexWrite)
         {
             final AsyncWriteDelegatingBTree asyncWriteDelegatingBTree = new AsyncWriteDelegatingBTree(
@@ -148,14 +311,89 @@ public class LogDbBuilder
                     asyncQueueCapacity);
             asyncWriteDelegatingBTree.start();
 
-            indexToUse = asyncWriteDelegatingBTree;
+            return asyncWriteDelegatingBTree;
         }
-        else
+
+        if (concurrentIndexWrite)
+        {
+            return new ConcurrentWriteBTree(index, CONCURRENT_WRITE_MAX_BATCH_SIZE);
+        }
+
+        return index;
+    }
+
+    private ShardedIndex buildShardedIndex() throws IOException
+    {
+        final KeyPartitioner partitioner = indexShardSplitKeys == null
+                ? new HashKeyPartitioner(indexShards)
+                : new RangeKeyPartitioner(indexShardSplitKeys);
+
+        if (Files.exists(rootDirectory))
+        {
+            final long existingShards;
+            try (Stream<Path> paths = Files.list(rootDirectory))
+            {
+                existingShards = paths
+                        .filter(path -> path.getFileName().toString().startsWith(INDEX_SHARD_DIRECTORY_PREFIX))
+                        .count();
+            }
+
+            if (existingShards != 0 && existingShards != partitioner.getShardCount())
+            {
+                throw new RuntimeException("The index has " + existingShards + " shards, configured " +
+                        partitioner.getShardCount());
+            }
+        }
+
+        final List<BTree> shards = new ArrayList<>(partitioner.getShardCount());
+        for (int i = 0; i < partitioner.getShardCount(); i++)
+        {
+            LOGGER.info("Constructing LogDB index shard " + i);
+            shards.add(buildWritableIndex(rootDirectory.resolve(INDEX_SHARD_DIRECTORY_PREFIX + i)));
+        }
+
+        LOGGER.info("Constructing LogDB sharded root index file");
+        final ShardedRootIndex rootIndex = new ShardedRootIndex(
+                buildFileStorage(rootDirectory.resolve(SHARDED_ROOT_INDEX_DIRECTORY), FileType.ROOT_INDEX),
+                partitioner.getShardCount());
+
+        return new ShardedIndex(shards, partitioner, rootIndex, timeSource);
+    }
+
+    private boolean isIndexSharded()
+    {
+        return indexShards > 1 || indexShardSplitKeys != null;
+    }
+
+    /**
+     * Builds the variant for long keys and long values, whose index looks up keys without allocating.
+     * The index can't have node logs or be written asynchronously.
+     * @return the long key LogDb
+     */
+    public LongLogDb buildLongLogDb() throws IOException
+    {
+        validateConfig();
+
+        if (useIndexWithLog || asyncIndexWrite || concurrentIndexWrite || isIndexSharded())
         {
-            indexToUse = index;
+            throw new RuntimeException("Long index can't have node logs, be written asynchronously, concurrently or be sharded");
         }
 
-        return new LogDb(logFile, indexToUse);
+        LOGGER.info("Constructing long LogDB");
+
+        LOGGER.info("Starting constructing LogDB heap file");
+        final LogFile logFile = buildLogFile(timeSource);
+        LOGGER.info("Finnish constructing LogDB heap file");
+
+        LOGGER.info("Starting constructing LogDB root index file");
+        final RootIndex rootIndex = buildRootIndex(rootDirectory);
+        LOGGER.info("Finnish constructing LogDB root index file");
+
+        LOGGER.info("Starting constructing LogDB long index file");
+        final LongBTree index = new LongBTree(buildIndex(timeSource, rootIndex, rootDirectory));
+        LOGGER.info("Finnish constructing LogDB long index file");
+
+        return new LongLogDb(logFile, index);
     }
 
     private void validateConfig()
@@ -172,6 +410,39 @@ public class LogDbBuilder
             throw new RuntimeException("Invalid segment size, provided " + segmentFileSize);
         }
 
+        if (groupCommit && groupCommitMaxSize <= 0)
+        {
+            throw new RuntimeException("Invalid group commit max size, provided " + groupCommitMaxSize);
+        }
+
+        if (heapAppendBufferSize < 0)
+        {
+            throw new RuntimeException("Invalid heap append buffer size, provided " + heapAppendBufferSize);
+        }
+
+        if (mappedHeapAppends && heapAppendBufferSize > 0)
+        {
+            throw new RuntimeException("Heap appends can't be both buffered and appended through the mapping");
+        }
+
+        if (asyncIndexWrite && concurrentIndexWrite)
+        {
+            throw new RuntimeException("Index can't be written both asynchronously and concurrently");
+        }
+
+        if (concurrentWriters && !(asyncIndexWrite || concurrentIndexWrite || isIndexSharded()))
+        {
+            throw new RuntimeException("Concurrent writers require an index written asynchronously, concurrently or sharded");
+        }
+
+        final boolean isShardCountMismatch = indexShardSplitKeys != null &&
+                indexShards != 1 &&
+                indexShards != indexShardSplitKeys.length + 1;
+        if (indexShards <= 0 || isShardCountMismatch)
+        {
+            throw new RuntimeException("Invalid number of index shards, provided " + indexShards);
+        }
+
         if (pageLogSize >= pageSizeBytes || pageLogSize < 0)
         {
             final String message = String.format(
@@ -182,9 +453,9 @@ public class LogDbBuilder
         }
     }
 
-    private RootIndex buildRootIndex() throws IOException
+    private RootIndex buildRootIndex(final Path directory) throws IOException
     {
-        final FileStorage logDbRootIndexFileStorage = buildFileStorage(FileType.ROOT_INDEX);
+        final FileStorage logDbRootIndexFileStorage = buildFileStorage(directory, FileType.ROOT_INDEX);
 
         final @Version long version;
         final @Milliseconds long timestamp;
@@ -213,11 +484,19 @@ public class LogDbBuilder
         return new RootIndex(logDbRootIndexFileStorage, version, timestamp, offset);
     }
 
-    private BTree buildIndex(final TimeSource timeSource, final RootIndex rootIndex) throws IOException
+    private BTree buildIndex(final TimeSource timeSource, final RootIndex rootIndex, final Path directory) throws IOException
     {
-        final FileStorage logDbIndexFileStorage = buildFileStorage(FileType.INDEX);
+        final FileStorage logDbIndexFileStorage = buildFileStorage(directory, FileType.INDEX);
+        startSegmentPreallocation(logDbIndexFileStorage);
         final @Version long nextWriteVersion = getNextWriteVersion(logDbIndexFileStorage.getAppendVersion());
-        final NodesManager nodesManager = new NodesManager(logDbIndexFileStorage, rootIndex, shouldSyncWrite, pageLogSize);
+        final boolean isLeafPrefixCompressed =
+                (logDbIndexFileStorage.getFormatFlags() & FileStorageStaticHeader.FORMAT_LEAF_PREFIX_COMPRESSION) != 0;
+        final NodesManager nodesManager = new NodesManager(
+                logDbIndexFileStorage,
+                rootIndex,
+                shouldSyncWrite,
+                pageLogSize,
+                NodeOptions.DEFAULT.leafPrefixCompression(isLeafPrefixCompressed).minFillRatio(nodeMinFillRatio));
 
         final @PageNumber long lastRootPageNumber = nodesManager.loadLastRootPageNumber();
         final RootReference rootReference;
@@ -249,13 +528,36 @@ public class LogDbBuilder
 
     private LogFile buildLogFile(final TimeSource timeSource) throws IOException
     {
-        final FileStorage logDbFileStorage = buildFileStorage(FileType.HEAP);
+        final FileStorage logDbFileStorage = buildFileStorage(rootDirectory, FileType.HEAP);
+        if (heapAppendBufferSize > 0)
+        {
+            logDbFileStorage.bufferAppends(heapAppendBufferSize);
+        }
+        if (mappedHeapAppends)
+        {
+            logDbFileStorage.appendThroughMapping();
+        }
+        startSegmentPreallocation(logDbFileStorage);
         final @Version long nextWriteVersion = getNextWriteVersion(logDbFileStorage.getAppendVersion());
 
         final Checksum checksum = ChecksumFactory.checksumFromType(checksumType);
         final ChecksumHelper checksumHelper = new ChecksumHelper(checksum, checksumType);
 
-        return new LogFile(logDbFileStorage, timeSource, nextWriteVersion, shouldSyncWrite, checksumHelper);
+        final LogFile logFile = new LogFile(logDbFileStorage, timeSource, nextWriteVersion, shouldSyncWrite, checksumHelper);
+        if (groupCommit)
+        {
+            logFile.startGroupCommit(new NonDaemonThreadFactory(), groupCommitMaxSize);
+        }
+
+        return logFile;
+    }
+
+    private void startSegmentPreallocation(final FileStorage fileStorage)
+    {
+        if (preallocateSegments)
+        {
+            fileStorage.preallocateSegments(new NonDaemonThreadFactory());
+        }
     }
 
     private @Version long getNextWriteVersion(final @Version long appendVersion)
@@ -263,25 +565,30 @@ public class LogDbBuilder
         return appendVersion == INITIAL_VERSION ? INITIAL_VERSION : StorageUnits.version(appendVersion + 1);
     }
 
-    private FileStorage buildFileStorage(final FileType fileType) throws IOException
+    private FileStorage buildFileStorage(final Path directory, final FileType fileType) throws IOException
     {
         final FileStorage fileStorage;
-        if (!Files.exists(rootDirectory) || Files.list(rootDirectory).noneMatch(fileType))
+        if (!Files.exists(directory) || Files.list(directory).noneMatch(fileType))
         {
-            Files.createDirectories(rootDirectory);
+            Files.createDirectories(directory);
+
+            final int formatFlags = FileType.INDEX == fileType && leafPrefixCompression
+                    ? FileStorageStaticHeader.FORMAT_LEAF_PREFIX_COMPRESSION
+                    : FileStorageStaticHeader.NO_FORMAT_FLAGS;
 
             fileStorage = FileStorageFactory.createNew(
-                    rootDirectory,
+                    directory,
                     fileType,
                     segmentFileSize,
                     byteOrder,
                     pageSizeBytes,
                     pageLogSize,
-                    checksumType);
+                    checksumType,
+                    formatFlags);
         }
         else
         {
-            fileStorage = FileStorageFactory.openExisting(rootDirectory, fileType, checksumType);
+            fileStorage = FileStorageFactory.openExisting(directory, fileType, checksumType);
         }
         return fileStorage;
     }
@@ -0,0 +1,126 @@
+package org.logdb.logfile;
+
+import org.logdb.storage.ByteOffset;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.Version;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides how far the metadata of the log can be committed while several writers append at the same time.
+ * Writers reserve their regions of the storage in any order, so a record can be completely written while
+ * a region reserved before it is still being written. Committing the metadata of that record would make it point
+ * past a hole that a crash would leave behind.
+ *
+ * Every append takes a ticket before reserving its region. A completed record can only be committed once all the
+ * tickets that were taken before it completed are done, as every region reserved before the record was reserved
+ * by one of those tickets. Tickets are dense, so the first one still in flight is tracked as a contiguous prefix.
+ *
+ * The ticket is also the version of the records of the append. Versions are then handed out in the same order
+ * as the tickets, so a committed version never covers a version whose append is still in flight.
+ *
+ * Tickets are taken from any thread, everything else has to be called holding the metadata lock of the log file.
+ */
+final class AppendCommitTracker
+{
+    private final AtomicLong nextTicket;
+    private final Set<Long> completedOutOfOrderTickets;
+    private final ArrayDeque<CompletedAppend> completedAppends;
+    private long firstInFlightTicket;
+    private @ByteOffset long committedOffset;
+    private @Version long committedVersion;
+
+    AppendCommitTracker(final @Version long nextVersion)
+    {
+        this.nextTicket = new AtomicLong(nextVersion);
+        this.completedOutOfOrderTickets = new HashSet<>();
+        this.completedAppends = new ArrayDeque<>();
+        this.firstInFlightTicket = nextVersion;
+        this.committedOffset = StorageUnits.INVALID_OFFSET;
+        this.committedVersion = StorageUnits.version(nextVersion - 1);
+    }
+
+    /**
+     * Takes the ticket of an append that is about to reserve its region, it must always be completed.
+     * @return the ticket, that is also the version of the records of the append
+     */
+    @Version long startAppend()
+    {
+        return StorageUnits.version(nextTicket.getAndIncrement());
+    }
+
+    /**
+     * Records that the append of the ticket is done, whether it managed to write its record or not.
+     * @param ticket the ticket returned by {@link #startAppend()}
+     * @param recordStartOffset the offset of the last record written by the append, or invalid if it failed
+     */
+    void completeAppend(final @Version long ticket, final @ByteOffset long recordStartOffset)
+    {
+        if (recordStartOffset != StorageUnits.INVALID_OFFSET)
+        {
+            //any ticket taken from now on reserves its region after the record
+            completedAppends.addLast(new CompletedAppend(nextTicket.get(), recordStartOffset, ticket));
+        }
+
+        if (ticket != firstInFlightTicket)
+        {
+            completedOutOfOrderTickets.add(ticket);
+            return;
+        }
+
+        firstInFlightTicket++;
+        while (!completedOutOfOrderTickets.isEmpty() && completedOutOfOrderTickets.remove(firstInFlightTicket))
+        {
+            firstInFlightTicket++;
+        }
+    }
+
+    /**
+     * Moves the committed offset and version over the completed records with no region still being written before them.
+     * @return true if the committed offset or version moved
+     */
+    boolean advance()
+    {
+        boolean hasAdvanced = false;
+        //appends are completed in the order of their barriers, as the barrier is read holding the metadata lock
+        while (!completedAppends.isEmpty() && completedAppends.peekFirst().barrierTicket <= firstInFlightTicket)
+        {
+            final CompletedAppend completedAppend = completedAppends.pollFirst();
+            if (completedAppend.recordStartOffset > committedOffset || completedAppend.version > committedVersion)
+            {
+                committedOffset = StorageUnits.offset(Math.max(committedOffset, completedAppend.recordStartOffset));
+                committedVersion = StorageUnits.version(Math.max(committedVersion, completedAppend.version));
+                hasAdvanced = true;
+            }
+        }
+
+        return hasAdvanced;
+    }
+
+    @ByteOffset long getCommittedOffset()
+    {
+        return committedOffset;
+    }
+
+    @Version long getCommittedVersion()
+    {
+        return committedVersion;
+    }
+
+    private static final class CompletedAppend
+    {
+        private final long barrierTicket;
+        private final @ByteOffset long recordStartOffset;
+        private final @Version long version;
+
+        CompletedAppend(final long barrierTicket, final @ByteOffset long recordStartOffset, final @Version long version)
+        {
+            this.barrierTicket = barrierTicket;
+            this.recordStartOffset = recordStartOffset;
+            this.version = version;
+        }
+    }
+}
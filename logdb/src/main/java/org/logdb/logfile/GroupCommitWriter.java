@@ -0,0 +1,180 @@
+package org.logdb.logfile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single writer that drains the records submitted by concurrent callers and appends them as a group.
+ * Each group is followed by only one metadata commit and one flush of the storage,
+ * so the cost of the fsync is shared between all the records in the group.
+ * The futures handed to the callers complete once the group containing their record has been flushed,
+ * and complete exceptionally if it couldn't be appended or flushed, or if the writer stopped before writing it.
+ */
+final class GroupCommitWriter implements Runnable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupCommitWriter.class);
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final LogFile logFile;
+    private final BlockingQueue<PendingLogRecord> queue;
+    private final List<PendingLogRecord> group;
+    private final int maxGroupSize;
+    private volatile boolean isRunning;
+    private volatile boolean hasTerminated;
+
+    GroupCommitWriter(final LogFile logFile, final int maxGroupSize)
+    {
+        if (maxGroupSize <= 0)
+        {
+            throw new IllegalArgumentException("Group commit max group size must be positive, provided " + maxGroupSize);
+        }
+
+        this.logFile = Objects.requireNonNull(logFile, "log file cannot be null");
+        this.maxGroupSize = maxGroupSize;
+        this.queue = new ArrayBlockingQueue<>(maxGroupSize * 2);
+        this.group = new ArrayList<>(maxGroupSize);
+        this.isRunning = true;
+    }
+
+    CompletableFuture<Long> submit(final PendingLogRecord record)
+    {
+        if (!isRunning)
+        {
+            throw new IllegalStateException("Group commit writer is stopped");
+        }
+
+        try
+        {
+            queue.put(record);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            record.future.completeExceptionally(e);
+        }
+
+        //the writer may have terminated after the running check, in which case nobody else drains the record
+        if (hasTerminated)
+        {
+            failQueuedRecords();
+        }
+
+        return record.future;
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            while (isRunning || !queue.isEmpty())
+            {
+                final PendingLogRecord first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null)
+                {
+                    continue;
+                }
+
+                group.add(first);
+                queue.drainTo(group, maxGroupSize - 1);
+
+                try
+                {
+                    writeGroup();
+                }
+                finally
+                {
+                    group.clear();
+                }
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            LOGGER.error("Group commit writer interrupted", e);
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            isRunning = false;
+            hasTerminated = true;
+            failQueuedRecords();
+        }
+    }
+
+    /**
+     * Stops accepting records. The records already submitted are written before the writer thread terminates.
+     */
+    void stop()
+    {
+        isRunning = false;
+    }
+
+    private void failQueuedRecords()
+    {
+        PendingLogRecord record;
+        while ((record = queue.poll()) != null)
+        {
+            record.future.completeExceptionally(new IllegalStateException("Group commit writer is stopped"));
+        }
+    }
+
+    private void writeGroup()
+    {
+        int written = 0;
+        Throwable appendFailure = null;
+        try
+        {
+            for (; written < group.size(); written++)
+            {
+                final PendingLogRecord record = group.get(written);
+                record.offset = record.isDelete()
+                        ? logFile.appendDelete(record.key)
+                        : logFile.appendPut(record.key, record.value);
+            }
+        }
+        catch (final Throwable e)
+        {
+            LOGGER.error("Unable to append log record " + written + " of a group of " + group.size(), e);
+            appendFailure = e;
+        }
+
+        Throwable commitFailure = null;
+        if (written > 0)
+        {
+            try
+            {
+                logFile.commitAppended();
+            }
+            catch (final Throwable e)
+            {
+                LOGGER.error("Unable to commit group of " + written + " log records", e);
+                commitFailure = e;
+            }
+        }
+
+        for (int i = 0; i < group.size(); i++)
+        {
+            final PendingLogRecord record = group.get(i);
+            if (i >= written)
+            {
+                record.future.completeExceptionally(appendFailure);
+            }
+            else if (commitFailure != null)
+            {
+                record.future.completeExceptionally(commitFailure);
+            }
+            else
+            {
+                record.future.complete(record.offset);
+            }
+        }
+    }
+}
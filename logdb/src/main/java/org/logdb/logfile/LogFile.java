@@ -1,24 +1,48 @@
 package org.logdb.logfile;
 
+import org.logdb.WriteBatch;
+import org.logdb.bit.DirectMemory;
+import org.logdb.bit.ReadMemory;
 import org.logdb.checksum.ChecksumHelper;
 import org.logdb.storage.ByteOffset;
+import org.logdb.storage.ByteSize;
+import org.logdb.storage.EpochGuard;
 import org.logdb.storage.Storage;
+import org.logdb.storage.StorageUnits;
 import org.logdb.storage.Version;
 import org.logdb.time.Milliseconds;
 import org.logdb.time.TimeSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.ObjIntConsumer;
 
 public class LogFile implements AutoCloseable
 {
-    //TODO: LogRecordStorage is currently single threaded, think about ways to improve it
-    private final LogRecordStorage writeLogRecordStorage;
-    private final LogRecordStorage readLogRecordStorage;
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogFile.class);
+    private static final int DELETED_SEGMENT_FIELDS = 3;
+    private static final long DELETED_BEFORE_OPEN_EPOCH = -1;
+
+    private final LogRecordStorage logRecordStorage;
     private final boolean shouldSyncWrite;
     private final Storage storage;
     private final TimeSource timeSource;
+    private final EpochGuard readGuard;
+    /**
+     * The start offset, end offset and deletion epoch of every deleted segment, in offset order.
+     * It's replaced as a whole on every deletion, so readers check it without locking.
+     */
+    private volatile long[] deletedSegments;
 
-    private @Version long nextWriteVersion;
+    private final Object metadataLock;
+    private final AppendCommitTracker appendCommitTracker;
+    private GroupCommitWriter groupCommitWriter;
+    private Thread groupCommitThread;
 
     public LogFile(
             final Storage storage,
@@ -29,60 +53,458 @@ public class LogFile implements AutoCloseable
     {
         this.storage = storage;
         this.timeSource = timeSource;
-        this.nextWriteVersion = nextWriteVersion;
-        this.writeLogRecordStorage = new LogRecordStorage(storage, checksumHelper);
-        this.readLogRecordStorage = new LogRecordStorage(storage, checksumHelper);
+        this.metadataLock = new Object();
+        this.appendCommitTracker = new AppendCommitTracker(nextWriteVersion);
+        this.logRecordStorage = new LogRecordStorage(storage, checksumHelper);
         this.shouldSyncWrite = shouldSyncWrite;
+        this.readGuard = new EpochGuard();
+        this.deletedSegments = new long[0];
+        for (final int segmentIndex : storage.getDeletedSegments())
+        {
+            addDeletedSegment(segmentIndex, DELETED_BEFORE_OPEN_EPOCH);
+        }
     }
 
-    public @ByteOffset long put(final byte[] key, final byte[] value) throws IOException
+    /**
+     * Starts a group commit writer thread. From this point on, puts and deletes coming from any number of threads
+     * are appended by that single thread, and every group of records drained together shares
+     * a single metadata commit and flush of the storage.
+     * @param threadFactory factory used to create the writer thread
+     * @param maxGroupSize the maximum number of records that are written before committing
+     */
+    public void startGroupCommit(final ThreadFactory threadFactory, final int maxGroupSize)
     {
-        final @Milliseconds long timestamp = timeSource.getCurrentMillis();
-        final @ByteOffset long putRecordStartOffset = writeLogRecordStorage.writePut(
-                key,
-                value,
-                nextWriteVersion,
-                timestamp);
+        if (groupCommitWriter != null)
+        {
+            return;
+        }
 
-        storage.commitMetadata(putRecordStartOffset, nextWriteVersion);
-        flushStorage();
+        groupCommitWriter = new GroupCommitWriter(this, maxGroupSize);
+        groupCommitThread = threadFactory.newThread(groupCommitWriter);
+        groupCommitThread.start();
+    }
 
-        nextWriteVersion++;
+    public @ByteOffset long put(final byte[] key, final byte[] value) throws IOException
+    {
+        if (groupCommitWriter != null)
+        {
+            return awaitCommitted(putAsync(key, value));
+        }
+
+        final @ByteOffset long putRecordStartOffset = appendPut(key, value);
+        commitAppended();
 
         return putRecordStartOffset;
     }
 
+    /**
+     * Submits a put to the group commit writer.
+     * @param key the key
+     * @param value the value
+     * @return a future that completes with the offset of the record once it is committed
+     */
+    public CompletableFuture<Long> putAsync(final byte[] key, final byte[] value)
+    {
+        return getGroupCommitWriter().submit(PendingLogRecord.put(key, value));
+    }
+
+    /**
+     * Reads the value of the put record at offset. Can be called from any number of threads.
+     * @param offset the offset of the record, as returned by the put
+     * @return a copy of the record value
+     */
     public byte[] read(final @ByteOffset long offset)
     {
-        return readLogRecordStorage.readValue(offset);
+        final long enteredEpoch = readGuard.enter();
+        try
+        {
+            return logRecordStorage.readValue(offset);
+        }
+        finally
+        {
+            readGuard.exit(enteredEpoch);
+        }
+    }
+
+    /**
+     * Hands the value of the put record at offset to the consumer without copying it.
+     * The memory is only valid during the call and is reused by the next read of the calling thread,
+     * so the consumer must not read from this log file.
+     * @param offset the offset of the record, as returned by the put
+     * @param valueConsumer receives the memory pointing to the value and the value length
+     */
+    public void read(final @ByteOffset long offset, final ObjIntConsumer<ReadMemory> valueConsumer)
+    {
+        final long enteredEpoch = readGuard.enter();
+        try
+        {
+            logRecordStorage.visitValue(offset, valueConsumer);
+        }
+        finally
+        {
+            readGuard.exit(enteredEpoch);
+        }
+    }
+
+    /**
+     * Reads the value of 8 bytes of the put record at offset, without allocating. Can be called from any number of threads.
+     * @param offset the offset of the record, as returned by the put
+     * @return the value, decoded as {@link org.logdb.bit.BinaryHelper#bytesToLong(byte[])} would
+     */
+    public long readLong(final @ByteOffset long offset)
+    {
+        final long enteredEpoch = readGuard.enter();
+        try
+        {
+            return logRecordStorage.readLongValue(offset);
+        }
+        finally
+        {
+            readGuard.exit(enteredEpoch);
+        }
+    }
+
+    /**
+     * Maps the value of the put record at offset without copying it.
+     * The storage is kept mapped until the returned view is closed.
+     * @param offset the offset of the record, as returned by the put
+     * @return a view over the record value, that must be closed once done with it
+     */
+    public ValueView readView(final @ByteOffset long offset)
+    {
+        final long enteredEpoch = readGuard.enter();
+        try
+        {
+            final DirectMemory valueMemory = logRecordStorage.mapValue(offset);
+            return new ValueView(valueMemory, valueMemory.getCapacity(), readGuard, enteredEpoch);
+        }
+        catch (final RuntimeException e)
+        {
+            readGuard.exit(enteredEpoch);
+            throw e;
+        }
+    }
+
+    /**
+     * Prevents the segments from being deleted until released, so the offsets reachable at this point stay readable.
+     * @return the pin, that must be provided to release it
+     */
+    public long pinSegments()
+    {
+        return readGuard.enter();
+    }
+
+    public void releaseSegments(final long pin)
+    {
+        readGuard.exit(pin);
+    }
+
+    /**
+     * Gets the segments that can be compacted.
+     * @return the indexes of the segments that don't receive appends anymore, in offset order
+     */
+    public int[] getSealedSegments()
+    {
+        return storage.getSealedSegments();
+    }
+
+    /**
+     * Hands every record of a sealed segment to the visitor, in the order they were appended.
+     * @param segmentIndex the index of the segment
+     * @param visitor receives the records
+     * @return the number of bytes taken by the records of the segment
+     */
+    public @ByteSize long visitSegmentRecords(final int segmentIndex, final LogRecordVisitor visitor)
+    {
+        final long enteredEpoch = readGuard.enter();
+        try
+        {
+            return logRecordStorage.visitRecords(
+                    storage.getSegmentStartOffset(segmentIndex),
+                    storage.getSegmentEndOffset(segmentIndex),
+                    visitor);
+        }
+        finally
+        {
+            readGuard.exit(enteredEpoch);
+        }
+    }
+
+    /**
+     * Checks whether a record was in a segment deleted by the compaction before the segments were pinned.
+     * The latest index only points to live records, the index of an older version can still point to records
+     * that were relocated. A pin taken before the deletion keeps the segment readable until it's released.
+     * @param offset the offset of the record
+     * @param pin the pin of the segments held by the caller
+     * @return true if the record can't be read with that pin
+     */
+    public boolean isInDeletedSegment(final @ByteOffset long offset, final long pin)
+    {
+        final long[] segments = deletedSegments;
+        int low = 0;
+        int high = (segments.length / DELETED_SEGMENT_FIELDS) - 1;
+        while (low <= high)
+        {
+            final int middle = (low + high) >>> 1;
+            final int segmentStart = middle * DELETED_SEGMENT_FIELDS;
+            if (offset < segments[segmentStart])
+            {
+                high = middle - 1;
+            }
+            else if (offset >= segments[segmentStart + 1])
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                return pin > segments[segmentStart + 2];
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Deletes a sealed segment once the reads and pins that could still reach its records are done.
+     * The storage is flushed first, so the records copied out of the segment are on disk before it's gone.
+     * @param segmentIndex the index of the segment
+     */
+    public void deleteSegment(final int segmentIndex)
+    {
+        storage.flush(false);
+
+        //the segment is retired at this epoch or a later one, so the readers that entered up to this epoch
+        //can still read it, the ones that enter later see it as deleted before its records are gone
+        final long deletionEpoch = readGuard.enter();
+        try
+        {
+            addDeletedSegment(segmentIndex, deletionEpoch);
+            readGuard.retire(() ->
+            {
+                try
+                {
+                    storage.deleteSegment(segmentIndex);
+                }
+                catch (final IOException e)
+                {
+                    LOGGER.error("Unable to delete log file segment " + segmentIndex, e);
+                }
+            });
+        }
+        finally
+        {
+            readGuard.exit(deletionEpoch);
+        }
     }
 
     public @ByteOffset long delete(final byte[] key) throws IOException
     {
-        final @Milliseconds long timestamp = timeSource.getCurrentMillis();
-        final @ByteOffset long deleteRecordStartOffset = writeLogRecordStorage.writeDelete(
-                key,
-                nextWriteVersion,
-                timestamp);
+        if (groupCommitWriter != null)
+        {
+            return awaitCommitted(deleteAsync(key));
+        }
 
-        storage.commitMetadata(deleteRecordStartOffset, nextWriteVersion);
-        flushStorage();
-        nextWriteVersion++;
+        final @ByteOffset long deleteRecordStartOffset = appendDelete(key);
+        commitAppended();
 
         return deleteRecordStartOffset;
     }
 
+    /**
+     * Submits a delete to the group commit writer.
+     * @param key the key to delete
+     * @return a future that completes with the offset of the record once it is committed
+     */
+    public CompletableFuture<Long> deleteAsync(final byte[] key)
+    {
+        return getGroupCommitWriter().submit(PendingLogRecord.delete(key));
+    }
+
+    /**
+     * Appends the records of all the operations of the batch with a single write, all of them with the same version.
+     * @param batch the puts and deletes to append
+     * @return the offset of the record of every operation, in the order the operations were added to the batch
+     */
+    public @ByteOffset long[] write(final WriteBatch batch) throws IOException
+    {
+        if (batch.isEmpty())
+        {
+            return new long[0];
+        }
+
+        final @Milliseconds long timestamp = timeSource.getCurrentMillis();
+        final @Version long version = appendCommitTracker.startAppend();
+        @ByteOffset long lastRecordStartOffset = StorageUnits.INVALID_OFFSET;
+        final @ByteOffset long[] recordOffsets;
+        try
+        {
+            recordOffsets = logRecordStorage.writeBatch(batch, version, timestamp);
+            lastRecordStartOffset = recordOffsets[recordOffsets.length - 1];
+        }
+        finally
+        {
+            completeAppend(version, lastRecordStartOffset);
+        }
+        commitAppended();
+
+        return recordOffsets;
+    }
+
+    /**
+     * Appends a put record with the next version, without committing it.
+     * @return the offset of the record
+     */
+    @ByteOffset long appendPut(final byte[] key, final byte[] value) throws IOException
+    {
+        final @Milliseconds long timestamp = timeSource.getCurrentMillis();
+        final @Version long version = appendCommitTracker.startAppend();
+        @ByteOffset long recordStartOffset = StorageUnits.INVALID_OFFSET;
+        try
+        {
+            recordStartOffset = logRecordStorage.writePut(key, value, version, timestamp);
+            return recordStartOffset;
+        }
+        finally
+        {
+            completeAppend(version, recordStartOffset);
+        }
+    }
+
+    /**
+     * Appends a delete record with the next version, without committing it.
+     * @return the offset of the record
+     */
+    @ByteOffset long appendDelete(final byte[] key) throws IOException
+    {
+        final @Milliseconds long timestamp = timeSource.getCurrentMillis();
+        final @Version long version = appendCommitTracker.startAppend();
+        @ByteOffset long recordStartOffset = StorageUnits.INVALID_OFFSET;
+        try
+        {
+            recordStartOffset = logRecordStorage.writeDelete(key, version, timestamp);
+            return recordStartOffset;
+        }
+        finally
+        {
+            completeAppend(version, recordStartOffset);
+        }
+    }
+
+    /**
+     * Records in the storage metadata the appended records that have no region still being written before them,
+     * and flushes them if required. Records waiting on an earlier region are committed by a later call.
+     * @throws IOException if the appended records couldn't be flushed
+     */
+    void commitAppended() throws IOException
+    {
+        synchronized (metadataLock)
+        {
+            if (appendCommitTracker.advance())
+            {
+                storage.commitMetadata(appendCommitTracker.getCommittedOffset(), appendCommitTracker.getCommittedVersion());
+            }
+        }
+
+        flushStorage();
+    }
+
     @Override
     public void close() throws Exception
     {
-        storage.close();
+        if (groupCommitWriter != null)
+        {
+            groupCommitWriter.stop();
+            groupCommitThread.join();
+        }
+
+        //the storage is unmapped once the value views still open are closed
+        readGuard.retire(this::closeStorage);
+    }
+
+    private synchronized void addDeletedSegment(final int segmentIndex, final long deletionEpoch)
+    {
+        final @ByteOffset long startOffset = storage.getSegmentStartOffset(segmentIndex);
+        final long[] segments = deletedSegments;
+
+        int insertIndex = 0;
+        while (insertIndex < segments.length && segments[insertIndex] < startOffset)
+        {
+            insertIndex += DELETED_SEGMENT_FIELDS;
+        }
+
+        final long[] newSegments = new long[segments.length + DELETED_SEGMENT_FIELDS];
+        System.arraycopy(segments, 0, newSegments, 0, insertIndex);
+        newSegments[insertIndex] = startOffset;
+        newSegments[insertIndex + 1] = storage.getSegmentEndOffset(segmentIndex);
+        newSegments[insertIndex + 2] = deletionEpoch;
+        System.arraycopy(
+                segments,
+                insertIndex,
+                newSegments,
+                insertIndex + DELETED_SEGMENT_FIELDS,
+                segments.length - insertIndex);
+        deletedSegments = newSegments;
+    }
+
+    private void closeStorage()
+    {
+        try
+        {
+            storage.close();
+        }
+        catch (final Exception e)
+        {
+            LOGGER.error("Unable to close log file storage", e);
+        }
+    }
+
+    private GroupCommitWriter getGroupCommitWriter()
+    {
+        if (groupCommitWriter == null)
+        {
+            throw new IllegalStateException("Group commit has not been started for this log file");
+        }
+
+        return groupCommitWriter;
+    }
+
+    private static @ByteOffset long awaitCommitted(final CompletableFuture<Long> future) throws IOException
+    {
+        try
+        {
+            return StorageUnits.offset(future.get());
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the log record to be committed", e);
+        }
+        catch (final ExecutionException e)
+        {
+            throw new IOException("Unable to commit log record", e.getCause());
+        }
+    }
+
+    private void completeAppend(final @Version long version, final @ByteOffset long recordStartOffset)
+    {
+        synchronized (metadataLock)
+        {
+            appendCommitTracker.completeAppend(version, recordStartOffset);
+        }
     }
 
-    private void flushStorage()
+    private void flushStorage() throws IOException
     {
         if (shouldSyncWrite)
         {
-            storage.flush(false);
+            try
+            {
+                storage.flush(false);
+            }
+            catch (final UncheckedIOException e)
+            {
+                throw e.getCause();
+            }
         }
     }
 }
@@ -1,5 +1,6 @@
 package org.logdb.logfile;
 
+import org.logdb.bit.ReadMemory;
 import org.logdb.storage.ByteSize;
 import org.logdb.storage.StorageUnits;
 import org.logdb.storage.Version;
@@ -113,6 +114,38 @@ public class LogRecordHeader
         buffer.rewind();
     }
 
+    /**
+     * Reads the record type straight from memory pointing to the start of a record.
+     */
+    static LogRecordType readRecordType(final ReadMemory memory, final @ByteSize int checksumSize)
+    {
+        return LogRecordType.fromChar((char) memory.getShort(StorageUnits.offset(checksumSize)));
+    }
+
+    /**
+     * Checks if memory points to the start of a record, the space after the last record of a segment is zeroed.
+     */
+    static boolean isRecordStart(final ReadMemory memory, final @ByteSize int checksumSize)
+    {
+        return LogRecordType.isRecordType((char) memory.getShort(StorageUnits.offset(checksumSize)));
+    }
+
+    /**
+     * Reads the key length straight from memory pointing to the start of a record.
+     */
+    static @ByteSize int readKeyLength(final ReadMemory memory, final @ByteSize int checksumSize)
+    {
+        return StorageUnits.size(memory.getInt(StorageUnits.offset(checksumSize + TYPE_SIZE)));
+    }
+
+    /**
+     * Reads the value length straight from memory pointing to the start of a record.
+     */
+    static @ByteSize int readValueLength(final ReadMemory memory, final @ByteSize int checksumSize)
+    {
+        return StorageUnits.size(memory.getInt(StorageUnits.offset(checksumSize + TYPE_SIZE + KEY_SIZE)));
+    }
+
     void write(final ByteBuffer destinationBuffer)
     {
         destinationBuffer.rewind();
@@ -1,7 +1,15 @@
 package org.logdb.logfile;
 
+import org.logdb.WriteBatch;
+import org.logdb.bit.DirectMemory;
+import org.logdb.bit.MemoryFactory;
+import org.logdb.bit.ReadMemory;
+import org.logdb.checksum.Checksum;
+import org.logdb.checksum.ChecksumFactory;
 import org.logdb.checksum.ChecksumHelper;
+import org.logdb.checksum.ChecksumType;
 import org.logdb.storage.ByteOffset;
+import org.logdb.storage.ByteSize;
 import org.logdb.storage.Storage;
 import org.logdb.storage.StorageUnits;
 import org.logdb.storage.Version;
@@ -9,7 +17,10 @@ import org.logdb.time.Milliseconds;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.ObjIntConsumer;
 
 import static org.logdb.storage.StorageUnits.ZERO_OFFSET;
 
@@ -25,24 +36,38 @@ import static org.logdb.storage.StorageUnits.ZERO_OFFSET;
  * |                 ....                   |
  * ------------------------------------------ N + 1
  *
- * This class is intended for single thread usage, as the headerBuffer is reused by the different operations
+ * Writes can be issued from any number of threads. Every thread serialises the whole record into its own direct buffer
+ * and appends it with a single call, the storage hands each append its own region of the segment.
+ * The buffer is kept between writes up to a bounded size, bigger records get a buffer that is dropped after the write.
+ * The records of a batch are serialised one after the other and appended with a single call as well.
+ * Reads can be issued from any number of threads as well. Every thread maps its own view of the storage
+ * and decodes the header straight from it, so the only allocation of a read is the returned value.
+ * Values can also be mapped or visited in place, without copying them out of the storage.
  */
 class LogRecordStorage
 {
-    private final ChecksumHelper checksumHelper;
-    private final ByteBuffer headerBuffer;
+    private static final byte[] NO_VALUE = new byte[0];
+
     private final Storage storage;
-    private final LogRecordHeader logRecordHeader;
+    private final @ByteSize int checksumSize;
+    private final @ByteSize int headerSize;
+    private final ThreadLocal<DirectMemory> recordReaders;
+    private final ThreadLocal<RecordWriter> recordWriters;
 
     LogRecordStorage(final Storage storage, final ChecksumHelper checksumHelper)
     {
         this.storage = Objects.requireNonNull(storage, "Storage cannot be null");
-        this.checksumHelper = Objects.requireNonNull(checksumHelper, "checkHelper cannot be null");
+        Objects.requireNonNull(checksumHelper, "checkHelper cannot be null");
 
-        this.logRecordHeader = new LogRecordHeader(checksumHelper.getValueSize());
+        this.checksumSize = checksumHelper.getValueSize();
+        this.headerSize = new LogRecordHeader(checksumSize).getSize();
 
-        this.headerBuffer = ByteBuffer.allocate(logRecordHeader.getSize());
-        headerBuffer.order(storage.getOrder());
+        final ChecksumType checksumType = checksumHelper.getType();
+        final ByteOrder order = storage.getOrder();
+        //a record is never split, so the view spans as much as the biggest record can take
+        this.recordReaders = ThreadLocal.withInitial(
+                () -> MemoryFactory.getUninitiatedDirectMemory(StorageUnits.size(Integer.MAX_VALUE), order));
+        this.recordWriters = ThreadLocal.withInitial(() -> new RecordWriter(checksumType, order));
     }
 
     @ByteOffset long writePut(
@@ -51,104 +76,358 @@ class LogRecordStorage
             final @Version long version,
             final @Milliseconds long timestamp) throws IOException
     {
-        final byte[] checksum = calculatePutChecksum(key, value, version, timestamp);
-        logRecordHeader.initPut(
-                checksum,
-                StorageUnits.size(key.length),
-                StorageUnits.size(value.length),
-                version,
-                timestamp);
-        logRecordHeader.write(headerBuffer);
-
-        final @ByteOffset long positionOffset = storage.append(headerBuffer);
-        storage.append(key);
-        storage.append(value);
-
-        return positionOffset;
+        final RecordWriter recordWriter = recordWriters.get();
+        try
+        {
+            return storage.append(recordWriter.serialisePut(key, value, version, timestamp));
+        }
+        finally
+        {
+            recordWriter.releaseOversizedBuffer();
+        }
     }
 
     byte[] readValue(final @ByteOffset long offset)
     {
-        readHeader(offset);
+        final DirectMemory recordMemory = mapPutRecord(offset);
+        final @ByteSize int keyLength = LogRecordHeader.readKeyLength(recordMemory, checksumSize);
+        final @ByteSize int valueLength = LogRecordHeader.readValueLength(recordMemory, checksumSize);
 
-        if (LogRecordType.UPDATE == logRecordHeader.getRecordType())
-        {
-            final @ByteOffset long valueOffset = StorageUnits.offset(offset + logRecordHeader.getSize() + logRecordHeader.getKeyLength());
-            return readRecordValue(valueOffset);
-        }
-        else if (LogRecordType.DELETE == logRecordHeader.getRecordType())
-        {
-            throw new IllegalArgumentException("offset " + offset + " refers to a delete record");
-        }
-        else
+        final byte[] value = new byte[valueLength];
+        recordMemory.getBytes(StorageUnits.offset(headerSize + keyLength), valueLength, value);
+        return value;
+    }
+
+    /**
+     * Reads a value of 8 bytes as {@link org.logdb.bit.BinaryHelper#bytesToLong(byte[])} would, without copying it out.
+     */
+    long readLongValue(final @ByteOffset long offset)
+    {
+        final DirectMemory recordMemory = mapPutRecord(offset);
+        final @ByteSize int keyLength = LogRecordHeader.readKeyLength(recordMemory, checksumSize);
+        final @ByteSize int valueLength = LogRecordHeader.readValueLength(recordMemory, checksumSize);
+        if (valueLength != Long.BYTES)
         {
-            throw new IllegalArgumentException("offset " + offset + " refers to a invalid record ");
+            throw new IllegalArgumentException("offset " + offset + " refers to a value of " + valueLength + " bytes");
         }
+
+        //values are written in little endian, see BinaryHelper.longToBytes
+        final long value = recordMemory.getLong(StorageUnits.offset(headerSize + keyLength));
+        return ByteOrder.LITTLE_ENDIAN.equals(recordMemory.getByteOrder()) ? value : Long.reverseBytes(value);
     }
 
-    @ByteOffset long writeDelete(
-            final byte[] key,
+    /**
+     * Maps a memory of the size of the value to the value of the put record at offset, no bytes are copied.
+     */
+    DirectMemory mapValue(final @ByteOffset long offset)
+    {
+        final DirectMemory recordMemory = mapPutRecord(offset);
+        final @ByteSize int keyLength = LogRecordHeader.readKeyLength(recordMemory, checksumSize);
+        final @ByteSize int valueLength = LogRecordHeader.readValueLength(recordMemory, checksumSize);
+
+        final DirectMemory valueMemory = MemoryFactory.getUninitiatedDirectMemory(valueLength, storage.getOrder());
+        storage.mapOffset(getValueOffset(offset, keyLength), valueMemory);
+        return valueMemory;
+    }
+
+    /**
+     * Hands the value of the put record at offset to the consumer, without copying it.
+     * The memory is reused by the next read of the calling thread, so it's only valid during the call.
+     */
+    void visitValue(final @ByteOffset long offset, final ObjIntConsumer<ReadMemory> valueConsumer)
+    {
+        final DirectMemory recordMemory = mapPutRecord(offset);
+        final @ByteSize int keyLength = LogRecordHeader.readKeyLength(recordMemory, checksumSize);
+        final @ByteSize int valueLength = LogRecordHeader.readValueLength(recordMemory, checksumSize);
+
+        storage.mapOffset(getValueOffset(offset, keyLength), recordMemory);
+        recordMemory.resetPosition();
+        valueConsumer.accept(recordMemory, valueLength);
+    }
+
+    /**
+     * Appends the records of all the operations with a single write, so they are stored contiguously.
+     * @return the offset of the record of every operation, in the order of the operations
+     */
+    @ByteOffset long[] writeBatch(
+            final WriteBatch batch,
             final @Version long version,
             final @Milliseconds long timestamp) throws IOException
     {
-        final byte[] checksum = calculateDeleteChecksum(key, version, timestamp);
-        logRecordHeader.initDelete(
-                checksum,
-                StorageUnits.size(key.length),
-                version,
-                timestamp);
-        logRecordHeader.write(headerBuffer);
-
-        final @ByteOffset long offset = storage.append(headerBuffer);
-        storage.append(key);
-
-        return offset;
+        final @ByteOffset long[] recordOffsets = new long[batch.size()];
+        final RecordWriter recordWriter = recordWriters.get();
+        final @ByteOffset long batchStartOffset;
+        try
+        {
+            batchStartOffset = storage.append(recordWriter.serialiseBatch(batch.getOperations(), version, timestamp, recordOffsets));
+        }
+        finally
+        {
+            recordWriter.releaseOversizedBuffer();
+        }
+
+        for (int i = 0; i < recordOffsets.length; i++)
+        {
+            recordOffsets[i] = StorageUnits.offset(batchStartOffset + recordOffsets[i]);
+        }
+
+        return recordOffsets;
     }
 
-    private byte[] calculateDeleteChecksum(
-            final byte[] key,
-            final @Version long version,
-            final @Milliseconds long timestamp)
+    /**
+     * Hands every record stored between the offsets to the visitor, stopping at the first position without a record.
+     * @return the number of bytes taken by the visited records
+     */
+    @ByteSize long visitRecords(
+            final @ByteOffset long startOffset,
+            final @ByteOffset long endOffset,
+            final LogRecordVisitor visitor)
     {
-        checksumHelper.updateChecksum(key, ZERO_OFFSET, StorageUnits.size(key.length));
-        checksumHelper.updateChecksum(version);
-        checksumHelper.updateChecksum(timestamp);
-        return checksumHelper.getAndResetChecksum();
+        final DirectMemory recordMemory = recordReaders.get();
+        @ByteOffset long offset = startOffset;
+        while (offset + headerSize <= endOffset)
+        {
+            storage.mapOffset(offset, recordMemory);
+            if (!LogRecordHeader.isRecordStart(recordMemory, checksumSize))
+            {
+                break;
+            }
+
+            final LogRecordType recordType = LogRecordHeader.readRecordType(recordMemory, checksumSize);
+            final @ByteSize int keyLength = LogRecordHeader.readKeyLength(recordMemory, checksumSize);
+            final @ByteSize int valueLength = LogRecordHeader.readValueLength(recordMemory, checksumSize);
+            final byte[] key = new byte[keyLength];
+            recordMemory.getBytes(StorageUnits.offset(headerSize), keyLength, key);
+
+            final @ByteSize int recordSize = StorageUnits.size(headerSize + keyLength + valueLength);
+            visitor.visit(offset, recordType, key, recordSize);
+
+            offset += StorageUnits.offset(recordSize);
+        }
+
+        return StorageUnits.size(offset - startOffset);
     }
 
-    private byte[] calculatePutChecksum(
+    @ByteOffset long writeDelete(
             final byte[] key,
-            final byte[] value,
             final @Version long version,
-            final @Milliseconds long timestamp)
+            final @Milliseconds long timestamp) throws IOException
     {
-        checksumHelper.updateChecksum(key, ZERO_OFFSET, StorageUnits.size(key.length));
-        checksumHelper.updateChecksum(value, ZERO_OFFSET, StorageUnits.size(value.length));
-        checksumHelper.updateChecksum(version);
-        checksumHelper.updateChecksum(timestamp);
-        return checksumHelper.getAndResetChecksum();
+        final RecordWriter recordWriter = recordWriters.get();
+        try
+        {
+            return storage.append(recordWriter.serialiseDelete(key, version, timestamp));
+        }
+        finally
+        {
+            recordWriter.releaseOversizedBuffer();
+        }
     }
 
-    private void readHeader(final @ByteOffset long offset)
+    private DirectMemory mapPutRecord(final @ByteOffset long offset)
     {
+        final DirectMemory recordMemory = recordReaders.get();
+        final LogRecordType recordType;
         try
         {
-            storage.readBytes(offset, headerBuffer);
-            logRecordHeader.read(headerBuffer);
+            storage.mapOffset(offset, recordMemory);
+            recordType = LogRecordHeader.readRecordType(recordMemory, checksumSize);
         }
         catch (final RuntimeException e)
         {
             throw new IllegalStateException("Unable to read record header at offset " + offset, e);
         }
+
+        if (LogRecordType.UPDATE == recordType)
+        {
+            return recordMemory;
+        }
+        else if (LogRecordType.DELETE == recordType)
+        {
+            throw new IllegalArgumentException("offset " + offset + " refers to a delete record");
+        }
+        else
+        {
+            throw new IllegalArgumentException("offset " + offset + " refers to a invalid record ");
+        }
     }
 
-    private byte[] readRecordValue(final @ByteOffset long offset)
+    private @ByteOffset long getValueOffset(final @ByteOffset long offset, final @ByteSize int keyLength)
     {
-        final ByteBuffer valueBuffer = ByteBuffer.allocate(logRecordHeader.getValueLength());
-        valueBuffer.order(storage.getOrder());
+        return StorageUnits.offset(offset + headerSize + keyLength);
+    }
 
-        storage.readBytes(offset, valueBuffer);
+    /**
+     * Per thread state used to serialise a record before appending it.
+     */
+    private static final class RecordWriter
+    {
+        private static final int MAX_RETAINED_BUFFER_CAPACITY = 1024 * 1024;
+
+        private final ChecksumHelper checksumHelper;
+        private final LogRecordHeader logRecordHeader;
+        private final ByteOrder order;
+        private final ByteBuffer headerBuffer;
+        private ByteBuffer recordBuffer;
+
+        RecordWriter(final ChecksumType checksumType, final ByteOrder order)
+        {
+            final Checksum checksum = ChecksumFactory.checksumFromType(checksumType);
+            this.checksumHelper = new ChecksumHelper(checksum, checksumType);
+            this.logRecordHeader = new LogRecordHeader(checksumHelper.getValueSize());
+            this.order = order;
+            this.headerBuffer = allocateRecordBuffer(logRecordHeader.getSize());
+            this.recordBuffer = allocateRecordBuffer(logRecordHeader.getSize());
+        }
+
+        ByteBuffer serialisePut(
+                final byte[] key,
+                final byte[] value,
+                final @Version long version,
+                final @Milliseconds long timestamp)
+        {
+            recordBuffer.clear();
+            putRecord(key, value, version, timestamp);
+            recordBuffer.flip();
+
+            return recordBuffer;
+        }
+
+        ByteBuffer serialiseDelete(
+                final byte[] key,
+                final @Version long version,
+                final @Milliseconds long timestamp)
+        {
+            recordBuffer.clear();
+            deleteRecord(key, version, timestamp);
+            recordBuffer.flip();
+
+            return recordBuffer;
+        }
+
+        /**
+         * Serialises the records of all the operations one after the other.
+         * @param recordOffsets populated with the offset of every record relative to the start of the buffer
+         */
+        ByteBuffer serialiseBatch(
+                final List<WriteBatch.Operation> operations,
+                final @Version long version,
+                final @Milliseconds long timestamp,
+                final @ByteOffset long[] recordOffsets)
+        {
+            recordBuffer.clear();
+            for (int i = 0; i < operations.size(); i++)
+            {
+                final WriteBatch.Operation operation = operations.get(i);
+                recordOffsets[i] = StorageUnits.offset(recordBuffer.position());
+                if (operation.isDelete())
+                {
+                    deleteRecord(operation.getKey(), version, timestamp);
+                }
+                else
+                {
+                    putRecord(operation.getKey(), operation.getValue(), version, timestamp);
+                }
+            }
+            recordBuffer.flip();
+
+            return recordBuffer;
+        }
 
-        return valueBuffer.array();
+        private void putRecord(
+                final byte[] key,
+                final byte[] value,
+                final @Version long version,
+                final @Milliseconds long timestamp)
+        {
+            final byte[] checksum = calculatePutChecksum(key, value, version, timestamp);
+            logRecordHeader.initPut(
+                    checksum,
+                    StorageUnits.size(key.length),
+                    StorageUnits.size(value.length),
+                    version,
+                    timestamp);
+
+            writeRecord(key, value);
+        }
+
+        private void deleteRecord(
+                final byte[] key,
+                final @Version long version,
+                final @Milliseconds long timestamp)
+        {
+            final byte[] checksum = calculateDeleteChecksum(key, version, timestamp);
+            logRecordHeader.initDelete(
+                    checksum,
+                    StorageUnits.size(key.length),
+                    version,
+                    timestamp);
+
+            writeRecord(key, NO_VALUE);
+        }
+
+        private void writeRecord(final byte[] key, final byte[] value)
+        {
+            ensureRemaining(logRecordHeader.getSize() + key.length + value.length);
+
+            logRecordHeader.write(headerBuffer);
+            recordBuffer.put(headerBuffer);
+            recordBuffer.put(key);
+            recordBuffer.put(value);
+        }
+
+        /**
+         * Drops the buffer if it grew past the retained capacity, so a big record doesn't pin its memory to the thread.
+         */
+        void releaseOversizedBuffer()
+        {
+            if (recordBuffer.capacity() > MAX_RETAINED_BUFFER_CAPACITY)
+            {
+                recordBuffer = allocateRecordBuffer(logRecordHeader.getSize());
+            }
+        }
+
+        private void ensureRemaining(final int recordSize)
+        {
+            if (recordBuffer.remaining() < recordSize)
+            {
+                final int requiredCapacity = recordBuffer.position() + recordSize;
+                final ByteBuffer grownBuffer = allocateRecordBuffer(Math.max(requiredCapacity, recordBuffer.capacity() * 2));
+                recordBuffer.flip();
+                grownBuffer.put(recordBuffer);
+                recordBuffer = grownBuffer;
+            }
+        }
+
+        private ByteBuffer allocateRecordBuffer(final int capacity)
+        {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(capacity);
+            buffer.order(order);
+            return buffer;
+        }
+
+        private byte[] calculateDeleteChecksum(
+                final byte[] key,
+                final @Version long version,
+                final @Milliseconds long timestamp)
+        {
+            checksumHelper.updateChecksum(key, ZERO_OFFSET, StorageUnits.size(key.length));
+            checksumHelper.updateChecksum(version);
+            checksumHelper.updateChecksum(timestamp);
+            return checksumHelper.getAndResetChecksum();
+        }
+
+        private byte[] calculatePutChecksum(
+                final byte[] key,
+                final byte[] value,
+                final @Version long version,
+                final @Milliseconds long timestamp)
+        {
+            checksumHelper.updateChecksum(key, ZERO_OFFSET, StorageUnits.size(key.length));
+            checksumHelper.updateChecksum(value, ZERO_OFFSET, StorageUnits.size(value.length));
+            checksumHelper.updateChecksum(version);
+            checksumHelper.updateChecksum(timestamp);
+            return checksumHelper.getAndResetChecksum();
+        }
     }
 }
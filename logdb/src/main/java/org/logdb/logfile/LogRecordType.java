@@ -17,6 +17,11 @@ public enum LogRecordType
         return c;
     }
 
+    public static boolean isRecordType(final char c)
+    {
+        return c == UPDATE.c || c == DELETE.c;
+    }
+
     public static LogRecordType fromChar(final char c)
     {
         switch (c)
@@ -0,0 +1,20 @@
+package org.logdb.logfile;
+
+import org.logdb.storage.ByteOffset;
+import org.logdb.storage.ByteSize;
+
+/**
+ * Receives the records of a segment of the log file, in the order they were appended.
+ */
+@FunctionalInterface
+public interface LogRecordVisitor
+{
+    /**
+     * Visits a record of a segment, in the order they were appended.
+     * @param offset the offset of the record, as returned when it was appended
+     * @param recordType the type of the record
+     * @param key a copy of the key of the record
+     * @param recordSize the size of the whole record, header included
+     */
+    void visit(@ByteOffset long offset, LogRecordType recordType, byte[] key, @ByteSize int recordSize);
+}
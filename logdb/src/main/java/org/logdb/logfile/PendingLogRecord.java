@@ -0,0 +1,38 @@
+package org.logdb.logfile;
+
+import org.logdb.storage.ByteOffset;
+import org.logdb.storage.StorageUnits;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+final class PendingLogRecord
+{
+    final byte[] key;
+    final byte[] value;
+    final CompletableFuture<Long> future;
+    @ByteOffset long offset;
+
+    private PendingLogRecord(final byte[] key, final byte[] value)
+    {
+        this.key = Objects.requireNonNull(key, "key cannot be null");
+        this.value = value;
+        this.future = new CompletableFuture<>();
+        this.offset = StorageUnits.INVALID_OFFSET;
+    }
+
+    static PendingLogRecord put(final byte[] key, final byte[] value)
+    {
+        return new PendingLogRecord(key, Objects.requireNonNull(value, "value cannot be null"));
+    }
+
+    static PendingLogRecord delete(final byte[] key)
+    {
+        return new PendingLogRecord(key, null);
+    }
+
+    boolean isDelete()
+    {
+        return value == null;
+    }
+}
@@ -0,0 +1,68 @@
+package org.logdb.logfile;
+
+import org.logdb.bit.ReadMemory;
+import org.logdb.storage.ByteSize;
+import org.logdb.storage.EpochGuard;
+import org.logdb.storage.StorageUnits;
+
+/**
+ * Read only view over a value stored in the log file, the bytes are read straight from the mapped segment.
+ * The segment stays mapped until the view is closed, so views must be closed once done with them.
+ */
+public final class ValueView implements AutoCloseable
+{
+    private final ReadMemory memory;
+    private final @ByteSize int length;
+    private final EpochGuard readGuard;
+    private final long enteredEpoch;
+    private boolean isClosed;
+
+    ValueView(
+            final ReadMemory memory,
+            final @ByteSize long length,
+            final EpochGuard readGuard,
+            final long enteredEpoch)
+    {
+        this.memory = memory;
+        this.length = StorageUnits.size((int) length);
+        this.readGuard = readGuard;
+        this.enteredEpoch = enteredEpoch;
+        this.isClosed = false;
+    }
+
+    public ReadMemory getMemory()
+    {
+        if (isClosed)
+        {
+            throw new IllegalStateException("Value view is already closed");
+        }
+
+        return memory;
+    }
+
+    public @ByteSize int getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Copies the value out of the storage.
+     * @return a copy of the value bytes
+     */
+    public byte[] toArray()
+    {
+        final byte[] value = new byte[length];
+        getMemory().getBytes(StorageUnits.ZERO_OFFSET, length, value);
+        return value;
+    }
+
+    @Override
+    public void close()
+    {
+        if (!isClosed)
+        {
+            isClosed = true;
+            readGuard.exit(enteredEpoch);
+        }
+    }
+}
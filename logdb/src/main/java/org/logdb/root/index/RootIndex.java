@@ -16,6 +16,10 @@ public class RootIndex implements AutoCloseable
 {
     private final Storage storage;
     private final RootIndexRecord rootIndexRecord;
+    /**
+     * Buffer of every reader thread to read the records into, so reading the roots of old versions doesn't allocate.
+     */
+    private final ThreadLocal<ByteBuffer> readBuffers;
 
     private @Version long lastVersion;
     private @Milliseconds long lastTimestamp;
@@ -28,6 +32,12 @@ public class RootIndex implements AutoCloseable
     {
         this.storage = Objects.requireNonNull(storage, "storage cannot be null");
         this.rootIndexRecord = new RootIndexRecord(storage.getOrder(), version, timestamp, offset);
+        this.readBuffers = ThreadLocal.withInitial(() ->
+        {
+            final ByteBuffer buffer = ByteBuffer.allocate(RootIndexRecord.SIZE);
+            buffer.order(storage.getOrder());
+            return buffer;
+        });
 
         set(version, timestamp, offset);
     }
@@ -74,8 +84,7 @@ public class RootIndex implements AutoCloseable
         else
         {
             final @ByteOffset long offset = StorageUnits.offset(version * RootIndexRecord.SIZE);
-            final ByteBuffer buffer = ByteBuffer.allocate(RootIndexRecord.SIZE);
-            buffer.order(storage.getOrder());
+            final ByteBuffer buffer = readBuffers.get();
             storage.readBytes(offset, buffer);
 
             return RootIndexRecord.readOffsetValue(buffer);
@@ -89,8 +98,7 @@ public class RootIndex implements AutoCloseable
             return lastOffset;
         }
 
-        final ByteBuffer buffer = ByteBuffer.allocate(RootIndexRecord.SIZE);
-        buffer.order(storage.getOrder());
+        final ByteBuffer buffer = readBuffers.get();
 
         final @ByteOffset long lastPersistedOffset = storage.getLastPersistedOffset();
         final long numberOfRecords = (lastPersistedOffset / RootIndexRecord.SIZE) + 1;
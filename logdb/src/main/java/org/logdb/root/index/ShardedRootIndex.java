@@ -0,0 +1,115 @@
+package org.logdb.root.index;
+
+import org.logdb.storage.ByteOffset;
+import org.logdb.storage.ByteSize;
+import org.logdb.storage.Storage;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.Version;
+import org.logdb.time.Milliseconds;
+import org.logdb.time.TimeUnits;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import static org.logdb.storage.StorageUnits.INITIAL_VERSION;
+import static org.logdb.storage.StorageUnits.LONG_BYTES_SIZE;
+
+/**
+ * Persists the versions of every shard recorded by each commit of a sharded index.
+ * <br>
+ * The record of a sharded version has its timestamp followed by the version of every shard,
+ * the record of the version N is at the offset N * record size. The records are padded to a power of two,
+ * so they never straddle the end of a segment.
+ */
+public class ShardedRootIndex implements AutoCloseable
+{
+    private final Storage storage;
+    private final int shardCount;
+    private final @ByteSize int recordSize;
+    private final ByteBuffer recordBuffer;
+
+    public ShardedRootIndex(final Storage storage, final int shardCount)
+    {
+        this.storage = Objects.requireNonNull(storage, "storage cannot be null");
+        this.shardCount = shardCount;
+        this.recordSize = getRecordSize(shardCount);
+        this.recordBuffer = ByteBuffer.allocate(recordSize);
+        recordBuffer.order(storage.getOrder());
+    }
+
+    /**
+     * Appends the record of the next sharded version.
+     * @param version the sharded version, the one after the last persisted version
+     * @param timestamp the timestamp of the sharded commit
+     * @param shardVersions the version of every shard
+     */
+    public synchronized void append(
+            final @Version long version,
+            final @Milliseconds long timestamp,
+            final @Version long[] shardVersions) throws IOException
+    {
+        assert version == INITIAL_VERSION + getNumberOfRecords() : "sharded versions must be appended in order";
+        assert shardVersions.length == shardCount : "there must be a version for every shard";
+
+        recordBuffer.clear();
+        recordBuffer.putLong(timestamp);
+        for (final @Version long shardVersion : shardVersions)
+        {
+            recordBuffer.putLong(shardVersion);
+        }
+        recordBuffer.rewind();
+
+        final @ByteOffset long globalOffset = storage.append(recordBuffer);
+        storage.commitMetadata(globalOffset, version);
+    }
+
+    /**
+     * Reads the record of a persisted sharded version.
+     * @param version the sharded version, less than the initial version plus the number of records
+     * @param shardVersions filled with the version of every shard
+     * @return the timestamp of the sharded commit
+     */
+    public synchronized @Milliseconds long read(final @Version long version, final @Version long[] shardVersions)
+    {
+        final @ByteOffset long offset = StorageUnits.offset((version - INITIAL_VERSION) * recordSize);
+        storage.readBytes(offset, recordBuffer);
+
+        recordBuffer.rewind();
+        final @Milliseconds long timestamp = TimeUnits.millis(recordBuffer.getLong());
+        for (int i = 0; i < shardCount; i++)
+        {
+            shardVersions[i] = StorageUnits.version(recordBuffer.getLong());
+        }
+
+        return timestamp;
+    }
+
+    public long getNumberOfRecords()
+    {
+        final @ByteOffset long lastPersistedOffset = storage.getLastPersistedOffset();
+        return lastPersistedOffset == StorageUnits.INVALID_OFFSET ? 0 : (lastPersistedOffset / recordSize) + 1;
+    }
+
+    public int getShardCount()
+    {
+        return shardCount;
+    }
+
+    public void flush(final boolean flushMeta)
+    {
+        storage.flush(flushMeta);
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        storage.close();
+    }
+
+    private static @ByteSize int getRecordSize(final int shardCount)
+    {
+        final int size = LONG_BYTES_SIZE + (shardCount * LONG_BYTES_SIZE);
+        return StorageUnits.size(Integer.bitCount(size) == 1 ? size : Integer.highestOneBit(size) << 1);
+    }
+}
@@ -0,0 +1,165 @@
+package org.logdb.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Protects memory handed out to readers, like views over mapped segments, from being released while in use.
+ * <br>
+ * Readers enter the guard before touching the memory and exit it once done with it.
+ * Writers retire the release of the memory, instead of releasing it straight away,
+ * and the release action runs once every reader that could still see that memory has exited.
+ * <br>
+ * Readers are accounted in the epoch they entered, only the current and the previous epoch can have readers,
+ * so two counters are enough. The epoch only advances once the previous one has no readers left.
+ * Exiting readers only take the lock of the retired actions when some are pending, which they learn from a volatile flag.
+ */
+public final class EpochGuard
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(EpochGuard.class);
+
+    private final AtomicLong epoch;
+    private final AtomicInteger[] activeReaders;
+    private final Queue<RetiredAction> retiredActions;
+    private volatile boolean hasPendingRetiredActions;
+
+    public EpochGuard()
+    {
+        this.epoch = new AtomicLong(0);
+        this.activeReaders = new AtomicInteger[] {new AtomicInteger(0), new AtomicInteger(0)};
+        this.retiredActions = new ArrayDeque<>();
+    }
+
+    /**
+     * Registers a reader.
+     * @return the epoch the reader entered, that must be provided on exit
+     */
+    public long enter()
+    {
+        while (true)
+        {
+            final long currentEpoch = epoch.get();
+            final AtomicInteger readers = readersOf(currentEpoch);
+            readers.incrementAndGet();
+            if (epoch.get() == currentEpoch)
+            {
+                return currentEpoch;
+            }
+
+            //the epoch advanced while registering, the counter might be the one being drained
+            readers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Deregisters a reader and runs the retired actions that are not visible to any reader anymore.
+     * @param enteredEpoch the epoch returned when entering
+     */
+    public void exit(final long enteredEpoch)
+    {
+        //the flag is set before a retiring writer checks the readers, so either one or the other reclaims the action
+        if (readersOf(enteredEpoch).decrementAndGet() == 0 && hasPendingRetiredActions)
+        {
+            reclaim();
+        }
+    }
+
+    /**
+     * Runs the action once all the readers that entered before this call have exited.
+     * If there are no readers, the action runs straight away in the calling thread.
+     * @param action the action releasing memory that is no longer reachable by new readers
+     */
+    public void retire(final Runnable action)
+    {
+        Objects.requireNonNull(action, "retired action cannot be null");
+
+        synchronized (retiredActions)
+        {
+            retiredActions.add(new RetiredAction(epoch.get(), action));
+            hasPendingRetiredActions = true;
+        }
+
+        reclaim();
+    }
+
+    public boolean hasRetiredActions()
+    {
+        return hasPendingRetiredActions;
+    }
+
+    private void reclaim()
+    {
+        synchronized (retiredActions)
+        {
+            try
+            {
+                reclaimRetiredActions();
+            }
+            finally
+            {
+                hasPendingRetiredActions = !retiredActions.isEmpty();
+            }
+        }
+    }
+
+    private void reclaimRetiredActions()
+    {
+        boolean advanced = true;
+        while (advanced && !retiredActions.isEmpty())
+        {
+            advanced = false;
+            final long currentEpoch = epoch.get();
+            if (readersOf(currentEpoch - 1).get() != 0)
+            {
+                return;
+            }
+
+            while (!retiredActions.isEmpty() && retiredActions.peek().epoch < currentEpoch)
+            {
+                run(retiredActions.poll());
+            }
+
+            if (!retiredActions.isEmpty())
+            {
+                //the counter of the previous epoch is drained, so it can be reused by the next one
+                epoch.set(currentEpoch + 1);
+                advanced = true;
+            }
+        }
+    }
+
+    private AtomicInteger readersOf(final long epoch)
+    {
+        return activeReaders[(int) (epoch & 1)];
+    }
+
+    private static void run(final RetiredAction retiredAction)
+    {
+        try
+        {
+            retiredAction.action.run();
+        }
+        catch (final RuntimeException e)
+        {
+            LOGGER.error("Unable to run retired action retired at epoch " + retiredAction.epoch, e);
+        }
+    }
+
+    private static final class RetiredAction
+    {
+        private final long epoch;
+        private final Runnable action;
+
+        RetiredAction(final long epoch, final Runnable action)
+        {
+            this.epoch = epoch;
+            this.action = action;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.logdb.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Batch that writes every buffer as soon as it's appended, for storages where an append is a memory copy.
+ */
+public final class ImmediatePageAppendBatch implements PageAppendBatch
+{
+    private final Storage storage;
+
+    public ImmediatePageAppendBatch(final Storage storage)
+    {
+        this.storage = Objects.requireNonNull(storage, "storage cannot be null");
+    }
+
+    @Override
+    public @PageNumber long append(final ByteBuffer buffer) throws IOException
+    {
+        return storage.appendPageAligned(buffer);
+    }
+
+    @Override
+    public void write()
+    {
+        //NO-OP
+    }
+
+    @Override
+    public void abort()
+    {
+        //NO-OP
+    }
+}
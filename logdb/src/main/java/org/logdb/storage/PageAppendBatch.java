@@ -0,0 +1,33 @@
+package org.logdb.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Appends page aligned buffers that are written together, in as few writes as possible.
+ * <br>
+ * The page number of a buffer is assigned as soon as it's appended, before it's written, so the pages referencing it
+ * can be built straight away. The buffers must not be modified nor reused until the batch is written.
+ * The batch is only used by one thread, appends of other threads to the same storage can interleave with it.
+ */
+public interface PageAppendBatch
+{
+    /**
+     * Assigns the pages where the buffer is going to be stored. The buffer might be written straight away,
+     * if the batch has to write what it holds first (i.e. when the storage rolls to a new segment).
+     * @param buffer the buffer to store, must be of size of a page multiple
+     * @return the page number where the buffer is located once written
+     */
+    @PageNumber long append(ByteBuffer buffer) throws IOException;
+
+    /**
+     * Writes all the appended buffers that are not written yet, after it they can be reused.
+     */
+    void write() throws IOException;
+
+    /**
+     * Drops the appended buffers that are not written yet and frees the space reserved for them,
+     * so a failed batch doesn't hold back the storage. The pages assigned to them are left unwritten.
+     */
+    void abort();
+}
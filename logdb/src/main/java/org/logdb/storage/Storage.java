@@ -43,8 +43,9 @@ public interface Storage extends AutoCloseable
     @ByteOffset long getOffset(@PageNumber long pageNumber);
 
     /**
-     * Write any arbitrary buffer.
-     * @param buffer the buffer to store. Can be any size
+     * Write any arbitrary buffer. Appends can be issued concurrently from different threads,
+     * each buffer is stored contiguously.
+     * @param buffer the buffer to store, the bytes from its start up to its limit are written. Can be any size
      * @return the byte offset where the buffer start is located.
      */
     @ByteOffset long append(ByteBuffer buffer) throws IOException;
@@ -63,6 +64,14 @@ public interface Storage extends AutoCloseable
      */
     @PageNumber long appendPageAligned(ByteBuffer buffer) throws IOException;
 
+    /**
+     * Starts a batch of page aligned appends, that are written together instead of one by one.
+     * The batch can be reused after it's written.
+     * @param maxBufferedPages the number of buffers the batch holds before it has to be written
+     * @return the batch, only to be used by the calling thread
+     */
+    PageAppendBatch startPageAppendBatch(int maxBufferedPages);
+
     /**
      * Maps the page specified by pageNumber into memory object.
      * @param pageNumber the page number to map
@@ -70,6 +79,15 @@ public interface Storage extends AutoCloseable
      */
     void mapPage(@PageNumber long pageNumber, DirectMemory memory);
 
+    /**
+     * Maps the byte at offset into memory object. Every append is stored contiguously,
+     * so a memory pointing to the start of an appended buffer can read the whole of it.
+     * Safe to be called concurrently with appends for offsets that were already returned by them.
+     * @param offset the logical offset in the storage, normally the start of an appended buffer
+     * @param memory the memory that is going to point to the offset
+     */
+    void mapOffset(@ByteOffset long offset, DirectMemory memory);
+
     /**
      * Reads from offset the byte buffer amount of bytes.
      * @param offset the logical offset in the storage to start reading
@@ -81,5 +99,44 @@ public interface Storage extends AutoCloseable
 
     void commitMetadata(@ByteOffset long lastPersistedOffset, @Version long version);
 
+    /**
+     * Lists the segments that don't receive appends anymore and that have not been deleted.
+     * The segment holding an offset is the offset divided by the segment size.
+     * @return the indexes of the sealed segments, in offset order
+     */
+    int[] getSealedSegments();
+
+    /**
+     * Lists the segments that have been deleted, they keep their place in the offsets space.
+     * @return the indexes of the deleted segments, in offset order
+     */
+    int[] getDeletedSegments();
+
+    /**
+     * Gets the offset where the records of a segment start.
+     * @param segmentIndex the index of the segment
+     * @return the offset of the first appended byte in the segment, right after the segment header
+     */
+    @ByteOffset long getSegmentStartOffset(int segmentIndex);
+
+    /**
+     * Gets the offset where a segment ends.
+     * @param segmentIndex the index of the segment
+     * @return the offset right after the last byte of the segment
+     */
+    @ByteOffset long getSegmentEndOffset(int segmentIndex);
+
+    /**
+     * Unmaps and deletes a sealed segment. None of its offsets can be mapped or read afterwards,
+     * so it must only be called once no reader can reach them.
+     * @param segmentIndex the index of the segment to delete
+     */
+    void deleteSegment(int segmentIndex) throws IOException;
+
+    /**
+     * Forces the appended data to the underlying device.
+     * @param flushMeta whether the file metadata has to be forced as well
+     * @throws java.io.UncheckedIOException if the data couldn't be forced, so it may not be durable
+     */
     void flush(boolean flushMeta);
 }
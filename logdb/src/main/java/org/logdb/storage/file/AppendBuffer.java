@@ -0,0 +1,137 @@
+package org.logdb.storage.file;
+
+import org.logdb.storage.ByteOffset;
+import org.logdb.storage.ByteSize;
+import org.logdb.storage.StorageUnits;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write behind buffer of the appends to a segment. The appends keep reserving their region of the segment,
+ * so their offset is known straight away, but instead of being written one by one they are copied to an off heap
+ * buffer while their regions are contiguous, and written together with a single write.
+ * <br>
+ * The regions stay reserved until the buffer is written, so the segment can't be sealed before that.
+ * Every method but {@link #getFirstBufferedOffset()} must be called holding the lock of the buffer,
+ * readers check the first buffered offset and only take the lock when the bytes they read are still buffered.
+ */
+final class AppendBuffer
+{
+    static final @ByteOffset long NO_BUFFERED_OFFSET = StorageUnits.offset(Long.MAX_VALUE);
+
+    private final ReentrantLock lock;
+    private final ByteBuffer buffer;
+    private AppendSegment segment;
+    private @ByteOffset long startPosition;
+    private int numberOfAppends;
+    //read without the lock, by readers checking if the offset they map is written
+    private volatile @ByteOffset long firstBufferedOffset;
+
+    AppendBuffer(final @ByteSize int bufferSize)
+    {
+        if (bufferSize <= 0)
+        {
+            throw new IllegalArgumentException("Append buffer size must be positive, provided " + bufferSize);
+        }
+
+        this.lock = new ReentrantLock();
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.firstBufferedOffset = NO_BUFFERED_OFFSET;
+    }
+
+    void lock()
+    {
+        lock.lock();
+    }
+
+    void unlock()
+    {
+        lock.unlock();
+    }
+
+    @ByteSize int getCapacity()
+    {
+        return StorageUnits.size(buffer.capacity());
+    }
+
+    /**
+     * Gets where the buffered bytes start in the storage.
+     * @return the global offset of the first byte that is buffered and not written yet,
+     *          or {@link #NO_BUFFERED_OFFSET} if the buffer is empty
+     */
+    @ByteOffset long getFirstBufferedOffset()
+    {
+        return firstBufferedOffset;
+    }
+
+    /**
+     * Checks that a reserved region follows the buffered ones in the same segment, and fits in the buffer.
+     * @return true if the region reserved in the segment can be buffered after the buffered ones
+     */
+    boolean canAppend(final AppendSegment reservedSegment, final @ByteOffset long positionInSegment, final @ByteSize int size)
+    {
+        if (numberOfAppends == 0)
+        {
+            return true;
+        }
+
+        return segment.equals(reservedSegment) &&
+                startPosition + buffer.position() == positionInSegment &&
+                buffer.remaining() >= size;
+    }
+
+    /**
+     * Copies the bytes of the source from its start up to its limit, they are written to the reserved region
+     * once the buffer is written.
+     */
+    void append(
+            final AppendSegment reservedSegment,
+            final @ByteOffset long positionInSegment,
+            final ByteBuffer source)
+    {
+        assert canAppend(reservedSegment, positionInSegment, StorageUnits.size(source.limit()))
+                : "the region at " + positionInSegment + " is not contiguous to the buffered ones";
+
+        if (numberOfAppends == 0)
+        {
+            segment = reservedSegment;
+            startPosition = positionInSegment;
+            firstBufferedOffset = reservedSegment.toGlobalOffset(positionInSegment);
+        }
+
+        final ByteBuffer sourceBytes = source.duplicate();
+        sourceBytes.position(0);
+        buffer.put(sourceBytes);
+        numberOfAppends++;
+    }
+
+    /**
+     * Writes the buffered appends and releases their reservations.
+     */
+    void write() throws IOException
+    {
+        if (numberOfAppends == 0)
+        {
+            return;
+        }
+
+        try
+        {
+            buffer.flip();
+            FileUtils.writeFully(segment.getChannel(), buffer, startPosition);
+        }
+        finally
+        {
+            for (int i = 0; i < numberOfAppends; i++)
+            {
+                segment.releaseReservation();
+            }
+            buffer.clear();
+            numberOfAppends = 0;
+            segment = null;
+            firstBufferedOffset = NO_BUFFERED_OFFSET;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.logdb.storage.file;
+
+import org.logdb.storage.ByteOffset;
+import org.logdb.storage.ByteSize;
+import org.logdb.storage.StorageUnits;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The segment file that is currently receiving appends.
+ * Writers reserve space by atomically bumping the append position, which gives every writer its own
+ * region of the file to write to without any lock. A reservation that goes past the end of the segment fails,
+ * after that the segment is sealed and has to be replaced by a new one.
+ */
+final class AppendSegment
+{
+    private static final long SEAL_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final @ByteOffset long globalBaseOffset;
+    private final @ByteSize long segmentSize;
+    private final AtomicLong position;
+    private final AtomicInteger inFlightWrites;
+
+    AppendSegment(
+            final RandomAccessFile file,
+            final FileChannel channel,
+            final @ByteOffset long globalBaseOffset,
+            final @ByteOffset long startPosition,
+            final @ByteSize long segmentSize)
+    {
+        this.file = Objects.requireNonNull(file, "segment file cannot be null");
+        this.channel = Objects.requireNonNull(channel, "segment channel cannot be null");
+        this.globalBaseOffset = globalBaseOffset;
+        this.segmentSize = segmentSize;
+        this.position = new AtomicLong(startPosition);
+        this.inFlightWrites = new AtomicInteger(0);
+    }
+
+    FileChannel getChannel()
+    {
+        return channel;
+    }
+
+    /**
+     * Reserves a region of the segment. Every call must be followed by a call to {@link #releaseReservation()}
+     * once the region is written, or straight away if the reservation didn't fit in the segment.
+     * @param size the number of bytes to reserve
+     * @return the position inside the segment file where the region starts or {@link StorageUnits#INVALID_OFFSET}
+     *          if the segment doesn't have enough space left
+     */
+    @ByteOffset long reserve(final @ByteSize long size)
+    {
+        inFlightWrites.incrementAndGet();
+        final @ByteOffset long reservedPosition = StorageUnits.offset(position.getAndAdd(size));
+
+        return reservedPosition + size <= segmentSize ? reservedPosition : StorageUnits.INVALID_OFFSET;
+    }
+
+    void releaseReservation()
+    {
+        inFlightWrites.decrementAndGet();
+    }
+
+    @ByteOffset long toGlobalOffset(final @ByteOffset long positionInSegment)
+    {
+        return StorageUnits.offset(globalBaseOffset + positionInSegment);
+    }
+
+    /**
+     * The current append position inside the segment file. Once the segment is sealed it is the segment size.
+     */
+    @ByteOffset long getAppendPosition()
+    {
+        return StorageUnits.offset(Math.min(position.get(), segmentSize));
+    }
+
+    @ByteOffset long getGlobalAppendPosition()
+    {
+        return toGlobalOffset(getAppendPosition());
+    }
+
+    /**
+     * Waits for the writers that got a region in this segment to finish, then syncs and closes the file.
+     * A writer that never releases its reservation can't block the roll forever, the segment is closed anyway
+     * once the wait times out, which fails any late write to it.
+     */
+    void sealAndClose() throws IOException
+    {
+        final long deadlineNanos = System.nanoTime() + SEAL_TIMEOUT_NANOS;
+        while (inFlightWrites.get() != 0)
+        {
+            if (System.nanoTime() - deadlineNanos > 0)
+            {
+                close();
+                throw new IOException("Timed out sealing the segment at " + globalBaseOffset + " with " +
+                        inFlightWrites.get() + " writes in flight");
+            }
+
+            Thread.yield();
+        }
+
+        channel.force(false);
+        channel.close();
+        file.close();
+    }
+
+    void close() throws IOException
+    {
+        channel.close();
+        file.close();
+    }
+}
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -13,6 +14,8 @@ import java.util.stream.Collectors;
 final class FileAllocator
 {
     private static final long INITIAL_SEQUENCE = 0L;
+    //not matched by the file type, so a prepared file that was never used is not taken for a segment
+    private static final String PREALLOCATED_FILE_SUFFIX = ".preallocated";
 
     private final Path rootDirectory;
     private long nextFileSequence;
@@ -60,6 +63,16 @@ final class FileAllocator
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Deletes the file with the given sequence, used to release segments that don't hold any live data.
+     * @param fileSequence the sequence of the file, that matches the index of its segment
+     */
+    void deleteFile(final long fileSequence) throws IOException
+    {
+        final Path file = rootDirectory.resolve(fileType.generateFilename(fileSequence));
+        Files.delete(file);
+    }
+
     File generateNextFile() throws IOException
     {
         final String filename = fileType.generateFilename(nextFileSequence);
@@ -73,6 +86,47 @@ final class FileAllocator
         }
 
 
+        return newFile;
+    }
+
+    /**
+     * Creates the file for the next sequence under a name that is not listed as a segment.
+     * The sequence is not advanced, the file becomes the next segment once claimed.
+     * @return the new file, replacing any file left prepared by a previous run
+     */
+    File generatePreallocatedFile() throws IOException
+    {
+        final File preallocatedFile = new File(
+                rootDirectory.toFile(),
+                fileType.generateFilename(nextFileSequence) + PREALLOCATED_FILE_SUFFIX);
+
+        Files.deleteIfExists(preallocatedFile.toPath());
+        if (!preallocatedFile.createNewFile())
+        {
+            throw new FileAlreadyExistsException("File " + preallocatedFile.getAbsolutePath() + " already exists");
+        }
+
+        return preallocatedFile;
+    }
+
+    /**
+     * Renames a file created by {@link #generatePreallocatedFile()} to the name of the next sequence.
+     * @param preallocatedFile the prepared file, that must have been created for the current sequence
+     * @return the renamed file
+     */
+    File claimPreallocatedFile(final File preallocatedFile) throws IOException
+    {
+        final String filename = fileType.generateFilename(nextFileSequence);
+        if (!preallocatedFile.getName().equals(filename + PREALLOCATED_FILE_SUFFIX))
+        {
+            throw new IllegalStateException("File " + preallocatedFile.getAbsolutePath() +
+                    " was not prepared for the sequence " + nextFileSequence);
+        }
+
+        final File newFile = new File(rootDirectory.toFile(), filename);
+        Files.move(preallocatedFile.toPath(), newFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        nextFileSequence++;
+
         return newFile;
     }
 }
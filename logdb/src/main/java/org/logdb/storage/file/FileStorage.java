@@ -9,6 +9,7 @@ import org.logdb.bit.NonNativeMemoryAccess;
 import org.logdb.bit.UnsafeArrayList;
 import org.logdb.storage.ByteOffset;
 import org.logdb.storage.ByteSize;
+import org.logdb.storage.PageAppendBatch;
 import org.logdb.storage.PageNumber;
 import org.logdb.storage.Storage;
 import org.logdb.storage.StorageUnits;
@@ -21,15 +22,20 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
 
 import static org.logdb.storage.StorageUnits.INVALID_OFFSET;
 import static org.logdb.storage.StorageUnits.ZERO_OFFSET;
+import static org.logdb.storage.file.header.FileStorageDynamicHeader.getDynamicHeaderSizeAlignedToNearestPage;
+import static org.logdb.storage.file.header.FileStorageStaticHeader.getStaticHeaderSizeAlignedToNearestPage;
 
 public final class FileStorage implements Storage
 {
@@ -45,63 +51,205 @@ public final class FileStorage implements Storage
     private final @ByteSize long fileSegmentSize;
     private final @ByteSize int pageSize;
 
-    private RandomAccessFile currentAppendingFile;
-    private FileChannel currentAppendingChannel;
-    private @ByteOffset long globalFilePosition;
+    private final Object rollLock;
+    //the writes relying on the position of the segment channel
+    private final Object channelPositionLock;
+    private final SegmentRollMetrics rollMetrics;
+    private volatile AppendSegment currentSegment;
+    private volatile int mappedSegmentsCount;
+    private AppendBuffer appendBuffer;
+    private boolean isAppendingThroughMapping;
+    private volatile SegmentPreallocator segmentPreallocator;
 
     FileStorage(
             final Path rootDirectory,
             final FileAllocator fileAllocator,
             final FileHeader fileStorageHeader,
-            final FileHeader newFileStorageHeader, 
-            final RandomAccessFile currentAppendingFile,
-            final FileChannel currentAppendingChannel,
-            final UnsafeArrayList<MappedBuffer> mappedBuffers,
-            final @ByteOffset long globalFilePosition)
+            final FileHeader newFileStorageHeader,
+            final AppendSegment currentSegment,
+            final UnsafeArrayList<MappedBuffer> mappedBuffers)
     {
         Objects.requireNonNull(rootDirectory, "Database root directory cannot be null");
         this.fileAllocator = Objects.requireNonNull(fileAllocator, "filename strategy cannot be null");
         this.fileStorageHeader = Objects.requireNonNull(fileStorageHeader, "db header cannot be null");
-        this.currentAppendingFile = Objects.requireNonNull(currentAppendingFile, "db file cannot be null");
-        this.currentAppendingChannel = Objects.requireNonNull(currentAppendingChannel, "db file currentAppendingChannel cannot be null");
+        this.currentSegment = Objects.requireNonNull(currentSegment, "current append segment cannot be null");
         this.mappedBuffers = mappedBuffers;
-        this.globalFilePosition = globalFilePosition;
         this.newFileStorageHeader = newFileStorageHeader;
+        this.rollLock = new Object();
+        this.channelPositionLock = new Object();
+        this.rollMetrics = new SegmentRollMetrics();
+        this.mappedSegmentsCount = mappedBuffers.size();
 
         this.order = fileStorageHeader.getOrder();
         this.fileSegmentSize = fileStorageHeader.getSegmentFileSize();
         this.pageSize = fileStorageHeader.getPageSize();
     }
 
-    private @ByteOffset long tryRollCurrentFile(final @ByteSize int nextWriteSize) throws IOException
+    /**
+     * Buffers the appends that fit in the buffer, writing them together instead of one by one, see {@link AppendBuffer}.
+     * The buffer is written before the storage metadata is committed, before the storage is flushed or rolled
+     * and before any of its offsets is read. Must be called before the storage receives any append.
+     * @param bufferSize the size of the off heap buffer
+     */
+    public void bufferAppends(final @ByteSize int bufferSize)
     {
-        try
+        if (appendBuffer != null || isAppendingThroughMapping)
+        {
+            throw new IllegalStateException("Appends are already buffered or appended through the mapping");
+        }
+
+        appendBuffer = new AppendBuffer(bufferSize);
+    }
+
+    /**
+     * Maps the segment receiving appends READ_WRITE, so appends are copied straight into the mapping
+     * instead of written through the file channel. The mapping is forced on flush.
+     * The sealed segments keep their mapping. Must be called before the storage receives any append.
+     */
+    public void appendThroughMapping() throws IOException
+    {
+        if (appendBuffer != null)
+        {
+            throw new IllegalStateException("Buffered appends can't be appended through the mapping");
+        }
+
+        synchronized (rollLock)
+        {
+            final AppendSegment segment = currentSegment;
+            final int segmentIndex = getSegmentIndex(segment.toGlobalOffset(ZERO_OFFSET));
+            mappedBuffers.set(segmentIndex, mapFile(segment.getChannel(), order, FileChannel.MapMode.READ_WRITE));
+            publishMappedSegments();
+            isAppendingThroughMapping = true;
+        }
+    }
+
+    /**
+     * Prepares the next segment on a background thread created by the factory, see {@link SegmentPreallocator}.
+     * Rolling the segment then swaps in the prepared one, while the sealed segment is synced and closed
+     * in the background, a flush waits for it. The latency of the rolls is kept in {@link #getRollMetrics()}.
+     * @param threadFactory factory used to create the preallocation thread
+     */
+    public void preallocateSegments(final ThreadFactory threadFactory)
+    {
+        synchronized (rollLock)
         {
-            final @ByteOffset long originalChannelPosition = StorageUnits.offset(currentAppendingChannel.position());
-            final @ByteSize long expectedFileSize = StorageUnits.size(originalChannelPosition + nextWriteSize);
-            final boolean shouldRollFile = expectedFileSize > fileSegmentSize;
-            if (shouldRollFile)
+            if (segmentPreallocator != null)
             {
-                final @ByteOffset long spaceLeftInCurrentSegmentFile =
-                        StorageUnits.offset(fileSegmentSize - originalChannelPosition);
-                globalFilePosition += spaceLeftInCurrentSegmentFile;
+                return;
+            }
 
-                currentAppendingFile.close();
+            segmentPreallocator = new SegmentPreallocator(
+                    fileAllocator,
+                    newFileStorageHeader,
+                    order,
+                    fileSegmentSize,
+                    threadFactory);
+            segmentPreallocator.prepareNextSegment(getAppendMapMode());
+        }
+    }
+
+    public SegmentRollMetrics getRollMetrics()
+    {
+        return rollMetrics;
+    }
+
+    /**
+     * Replaces the sealed segment with a new one, unless another writer already did it.
+     */
+    private void rollSegment(final AppendSegment sealedSegment) throws IOException
+    {
+        //the buffered appends hold their reservation in the sealed segment until written
+        writeAppendBuffer();
 
-                createAndMapNewFile();
+        synchronized (rollLock)
+        {
+            if (!sealedSegment.equals(currentSegment))
+            {
+                return;
+            }
+
+            final long rollStartNanos = System.nanoTime();
+            try
+            {
+                final @ByteOffset long nextSegmentBaseOffset =
+                        StorageUnits.offset(sealedSegment.toGlobalOffset(ZERO_OFFSET) + fileSegmentSize);
+
+                final boolean isPreallocated;
+                if (segmentPreallocator != null)
+                {
+                    final MappedBuffer sealedMapping = isAppendingThroughMapping ? getSegmentMapping(sealedSegment) : null;
+                    segmentPreallocator.sealInBackground(sealedSegment, sealedMapping);
+
+                    final AppendSegment preparedSegment = swapInPreparedSegment(nextSegmentBaseOffset);
+                    isPreallocated = preparedSegment != null;
+                    currentSegment = isPreallocated ? preparedSegment : createAndMapNewFile(nextSegmentBaseOffset);
+                    segmentPreallocator.prepareNextSegment(getAppendMapMode());
+                }
+                else
+                {
+                    sealedSegment.sealAndClose();
+                    if (isAppendingThroughMapping)
+                    {
+                        getSegmentMapping(sealedSegment).buffer.force();
+                    }
+
+                    isPreallocated = false;
+                    currentSegment = createAndMapNewFile(nextSegmentBaseOffset);
+                }
+
+                rollMetrics.recordRoll(System.nanoTime() - rollStartNanos, isPreallocated);
+            }
+            catch (final IOException e)
+            {
+                final String msg = "Couldn't extend the mapped db file";
+                LOGGER.error(msg, e);
+                throw new IOException(msg, e);
             }
         }
-        catch (final IOException e)
+    }
+
+    /**
+     * Swaps the current segment for the one the preallocator prepared.
+     * @return the segment prepared in the background or null if it couldn't be prepared as needed
+     */
+    private AppendSegment swapInPreparedSegment(final @ByteOffset long globalBaseOffset) throws IOException
+    {
+        final SegmentPreallocator.PreparedSegment preparedSegment = segmentPreallocator.takePreparedSegment();
+        if (preparedSegment == null)
         {
-            final String msg = "Couldn't extend the mapped db file";
-            LOGGER.error(msg, e);
-            throw new IOException(msg, e);
+            return null;
+        }
+
+        //the append mode changed while the segment was being prepared
+        if (!getAppendMapMode().equals(preparedSegment.mapMode))
+        {
+            preparedSegment.discard();
+            return null;
         }
 
-        return globalFilePosition;
+        fileAllocator.claimPreallocatedFile(preparedSegment.file);
+        if (newFileStorageHeader instanceof FixedFileStorageHeader)
+        {
+            newFileStorageHeader.writeAlign(preparedSegment.channel);
+        }
+
+        mappedBuffers.add(preparedSegment.mappedBuffer);
+        publishMappedSegments();
+
+        return new AppendSegment(
+                preparedSegment.accessFile,
+                preparedSegment.channel,
+                globalBaseOffset,
+                preparedSegment.startPosition,
+                fileSegmentSize);
+    }
+
+    private FileChannel.MapMode getAppendMapMode()
+    {
+        return isAppendingThroughMapping ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
     }
 
-    private void createAndMapNewFile() throws IOException
+    private AppendSegment createAndMapNewFile(final @ByteOffset long globalBaseOffset) throws IOException
     {
         final File file = fileAllocator.generateNextFile();
         final RandomAccessFile accessFile = new RandomAccessFile(file, "rw");
@@ -109,19 +257,22 @@ public final class FileStorage implements Storage
         accessFile.setLength(fileSegmentSize);
 
         newFileStorageHeader.writeAlign(channel);
-        globalFilePosition += StorageUnits.offset(channel.position());
-
-        currentAppendingFile = accessFile;
-        currentAppendingChannel = channel;
+        final @ByteOffset long startPosition = StorageUnits.offset(channel.position());
 
-        final MappedBuffer mappedBuffer = mapFile(channel, order);
+        final MappedBuffer mappedBuffer = mapFile(channel, order, getAppendMapMode());
         mappedBuffers.add(mappedBuffer);
+        publishMappedSegments();
+
+        return new AppendSegment(accessFile, channel, globalBaseOffset, startPosition, fileSegmentSize);
     }
 
-    static MappedBuffer mapFile(final FileChannel channel, final ByteOrder byteOrder) throws IOException
+    static MappedBuffer mapFile(
+            final FileChannel channel,
+            final ByteOrder byteOrder,
+            final FileChannel.MapMode mapMode) throws IOException
     {
         final @ByteSize long size = StorageUnits.size(channel.size());
-        final MappedByteBuffer mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, ZERO_OFFSET, size);
+        final MappedByteBuffer mappedBuffer = channel.map(mapMode, ZERO_OFFSET, size);
         mappedBuffer.order(byteOrder);
 
         final @ByteOffset long mappedBufferBaseAddress = MemoryFactory.getPageOffset(mappedBuffer, ZERO_OFFSET);
@@ -150,13 +301,68 @@ public final class FileStorage implements Storage
             buffer.order(order);
         }
 
+        return reserveAndWrite(buffer);
+    }
+
+    @Override
+    public @ByteOffset long append(final byte[] buffer) throws IOException
+    {
+        assert buffer != null : "buffer to persist must be non null";
+
+        return reserveAndWrite(ByteBuffer.wrap(buffer));
+    }
+
+    /**
+     * Appends the bytes of the buffer from its start up to its limit. Several threads can append at the same time,
+     * each one writes to the region it reserved in the current segment.
+     * When the region doesn't fit in the current segment, the segment is rolled and the reservation is retried.
+     */
+    private @ByteOffset long reserveAndWrite(final ByteBuffer buffer) throws IOException
+    {
+        final @ByteSize int writeSize = StorageUnits.size(buffer.limit());
+        final AppendBuffer writeBehindBuffer = appendBuffer;
+        if (writeBehindBuffer != null && writeSize <= writeBehindBuffer.getCapacity())
+        {
+            return reserveAndBuffer(writeBehindBuffer, buffer, writeSize);
+        }
+
         @ByteOffset long appendGlobalOffset = INVALID_OFFSET;
         try
         {
-            final @ByteSize int writeSize = StorageUnits.size(buffer.capacity());
-            appendGlobalOffset = tryRollCurrentFile(writeSize);
-            FileUtils.writeFully(currentAppendingChannel, buffer);
-            globalFilePosition += StorageUnits.offset(writeSize);
+            while (true)
+            {
+                final AppendSegment segment = currentSegment;
+                final @ByteOffset long positionInSegment = segment.reserve(writeSize);
+                if (positionInSegment == INVALID_OFFSET)
+                {
+                    segment.releaseReservation();
+                    validateFitsInEmptySegment(writeSize);
+                    rollSegment(segment);
+                    continue;
+                }
+
+                final int originalBufferPosition = buffer.position();
+                try
+                {
+                    appendGlobalOffset = segment.toGlobalOffset(positionInSegment);
+                    buffer.position(0);
+                    if (isAppendingThroughMapping)
+                    {
+                        copyToMapping(segment, positionInSegment, buffer);
+                    }
+                    else
+                    {
+                        FileUtils.writeFully(segment.getChannel(), buffer, positionInSegment);
+                    }
+                }
+                finally
+                {
+                    buffer.position(originalBufferPosition);
+                    segment.releaseReservation();
+                }
+
+                return appendGlobalOffset;
+            }
         }
         catch (final IOException e)
         {
@@ -164,31 +370,159 @@ public final class FileStorage implements Storage
             LOGGER.error(msg, e);
             throw new IOException(msg, e);
         }
+    }
 
-        return appendGlobalOffset;
+    /**
+     * Reserves the region like any other append, but copies the buffer to the append buffer instead of writing it.
+     * The lock of the append buffer keeps the buffered regions in the order they were reserved.
+     */
+    private @ByteOffset long reserveAndBuffer(
+            final AppendBuffer writeBehindBuffer,
+            final ByteBuffer buffer,
+            final @ByteSize int writeSize) throws IOException
+    {
+        writeBehindBuffer.lock();
+        try
+        {
+            while (true)
+            {
+                final AppendSegment segment = currentSegment;
+                final @ByteOffset long positionInSegment = segment.reserve(writeSize);
+                if (positionInSegment == INVALID_OFFSET)
+                {
+                    segment.releaseReservation();
+                    validateFitsInEmptySegment(writeSize);
+                    rollSegment(segment);
+                    continue;
+                }
+
+                if (!writeBehindBuffer.canAppend(segment, positionInSegment, writeSize))
+                {
+                    writeAppendBuffer();
+                }
+                writeBehindBuffer.append(segment, positionInSegment, buffer);
+
+                return segment.toGlobalOffset(positionInSegment);
+            }
+        }
+        finally
+        {
+            writeBehindBuffer.unlock();
+        }
     }
 
-    @Override
-    public @ByteOffset long append(final byte[] buffer) throws IOException
+    private void writeAppendBuffer() throws IOException
     {
-        assert buffer != null : "buffer to persist must be non null";
+        final AppendBuffer writeBehindBuffer = appendBuffer;
+        if (writeBehindBuffer == null)
+        {
+            return;
+        }
 
-        @ByteOffset long appendGlobalOffset = INVALID_OFFSET;
+        writeBehindBuffer.lock();
         try
         {
-            final @ByteSize int writeSize = StorageUnits.size(buffer.length);
-            appendGlobalOffset = tryRollCurrentFile(writeSize);
-            currentAppendingFile.write(buffer);
-            globalFilePosition += StorageUnits.offset(writeSize);
+            writeLockedAppendBuffer(writeBehindBuffer);
+        }
+        finally
+        {
+            writeBehindBuffer.unlock();
+        }
+    }
+
+    private static void writeLockedAppendBuffer(final AppendBuffer writeBehindBuffer) throws IOException
+    {
+        try
+        {
+            writeBehindBuffer.write();
         }
         catch (final IOException e)
         {
-            final String msg = "Unable to persist node to database file. Position offset " + appendGlobalOffset;
+            final String msg = "Unable to write the buffered appends to database file";
             LOGGER.error(msg, e);
             throw new IOException(msg, e);
         }
+    }
+
+    /**
+     * Writes the append buffer if any of the bytes to read are still buffered.
+     * Every append is buffered whole, so the start of an appended buffer is enough to know if all of it is written.
+     * Reads of written bytes only check the first buffered offset, reads of buffered bytes wait for the lock
+     * of the buffer and check again, as whoever held the lock may have written the buffer already.
+     */
+    private void writeAppendBufferFrom(final @ByteOffset long offset, final @ByteSize long length)
+    {
+        final AppendBuffer writeBehindBuffer = appendBuffer;
+        if (writeBehindBuffer == null || offset + length <= writeBehindBuffer.getFirstBufferedOffset())
+        {
+            return;
+        }
+
+        writeBehindBuffer.lock();
+        try
+        {
+            if (offset + length > writeBehindBuffer.getFirstBufferedOffset())
+            {
+                writeLockedAppendBuffer(writeBehindBuffer);
+            }
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        finally
+        {
+            writeBehindBuffer.unlock();
+        }
+    }
+
+    /**
+     * Copies the buffer from its position up to its limit to the READ_WRITE mapping of the segment,
+     * the segment is mapped before it's published, so its mapping is always there.
+     */
+    private void copyToMapping(
+            final AppendSegment segment,
+            final @ByteOffset long positionInSegment,
+            final ByteBuffer buffer)
+    {
+        final MappedBuffer mapping = getSegmentMapping(segment);
+        if (buffer.hasArray())
+        {
+            NativeMemoryAccess.putBytes(
+                    mapping.address + positionInSegment,
+                    buffer.array(),
+                    StorageUnits.offset(buffer.arrayOffset() + buffer.position()),
+                    StorageUnits.size(buffer.remaining()));
+        }
+        else
+        {
+            final ByteBuffer destination = mapping.buffer.duplicate();
+            destination.position((int) positionInSegment);
+            destination.put(buffer.duplicate());
+        }
+    }
 
-        return appendGlobalOffset;
+    private MappedBuffer getSegmentMapping(final AppendSegment segment)
+    {
+        final @ByteOffset long segmentBaseOffset = segment.toGlobalOffset(ZERO_OFFSET);
+        return getMappedSegment(getSegmentIndex(segmentBaseOffset), segmentBaseOffset);
+    }
+
+    private void validateFitsInEmptySegment(final @ByteSize int writeSize) throws IOException
+    {
+        if (writeSize > fileSegmentSize - getSegmentHeaderSize())
+        {
+            throw new IOException("Unable to append " + writeSize + " bytes, it doesn't fit in a segment of " +
+                    fileSegmentSize + " bytes");
+        }
+    }
+
+    private @ByteSize long getSegmentHeaderSize()
+    {
+        return newFileStorageHeader instanceof FixedFileStorageHeader
+                ? StorageUnits.ZERO_SIZE
+                : StorageUnits.size(getStaticHeaderSizeAlignedToNearestPage(pageSize) +
+                        (getDynamicHeaderSizeAlignedToNearestPage(pageSize) * 2));
     }
 
     @Override
@@ -202,22 +536,139 @@ public final class FileStorage implements Storage
         return StorageUnits.pageNumber(appendGlobalOffset / pageSize);
     }
 
+    @Override
+    public PageAppendBatch startPageAppendBatch(final int maxBufferedPages)
+    {
+        return new GatheringPageAppendBatch(maxBufferedPages);
+    }
+
     @Override
     public void commitMetadata(final @ByteOffset long lastPersistedOffset, final @Version long version)
     {
+        //the metadata can't point to appends that are not written yet
         try
         {
-            final @ByteOffset long currentFileAppendOffset = StorageUnits.offset(currentAppendingChannel.position());
-            fileStorageHeader.updateMeta(lastPersistedOffset, currentFileAppendOffset, version);
-
-            final @ByteOffset long originalChannelPosition = StorageUnits.offset(currentAppendingChannel.position());
-            fileStorageHeader.writeDynamicHeaderTo(currentAppendingChannel);
-            currentAppendingChannel.position(originalChannelPosition);
+            writeAppendBuffer();
         }
         catch (final IOException e)
         {
             LOGGER.error("Unable to persist metadata", e);
+            return;
+        }
+
+        synchronized (rollLock)
+        {
+            try
+            {
+                final AppendSegment segment = currentSegment;
+                final FileChannel channel = segment.getChannel();
+                final @ByteOffset long currentFileAppendOffset = segment.getAppendPosition();
+                fileStorageHeader.updateMeta(lastPersistedOffset, currentFileAppendOffset, version);
+
+                synchronized (channelPositionLock)
+                {
+                    final @ByteOffset long originalChannelPosition = StorageUnits.offset(channel.position());
+                    fileStorageHeader.writeDynamicHeaderTo(channel);
+                    channel.position(originalChannelPosition);
+                }
+            }
+            catch (final IOException e)
+            {
+                LOGGER.error("Unable to persist metadata", e);
+            }
+        }
+    }
+
+    @Override
+    public int[] getSealedSegments()
+    {
+        synchronized (rollLock)
+        {
+            final int currentSegmentIndex = getSegmentIndex(currentSegment.toGlobalOffset(ZERO_OFFSET));
+            final int[] sealedSegments = new int[currentSegmentIndex];
+            int sealedSegmentsCount = 0;
+            for (int i = 0; i < currentSegmentIndex; i++)
+            {
+                if (mappedBuffers.get(i) != null)
+                {
+                    sealedSegments[sealedSegmentsCount] = i;
+                    sealedSegmentsCount++;
+                }
+            }
+
+            return Arrays.copyOf(sealedSegments, sealedSegmentsCount);
+        }
+    }
+
+    @Override
+    public int[] getDeletedSegments()
+    {
+        synchronized (rollLock)
+        {
+            final int currentSegmentIndex = getSegmentIndex(currentSegment.toGlobalOffset(ZERO_OFFSET));
+            final int[] deletedSegments = new int[currentSegmentIndex];
+            int deletedSegmentsCount = 0;
+            for (int i = 0; i < currentSegmentIndex; i++)
+            {
+                if (mappedBuffers.get(i) == null)
+                {
+                    deletedSegments[deletedSegmentsCount] = i;
+                    deletedSegmentsCount++;
+                }
+            }
+
+            return Arrays.copyOf(deletedSegments, deletedSegmentsCount);
+        }
+    }
+
+    @Override
+    public @ByteOffset long getSegmentStartOffset(final int segmentIndex)
+    {
+        return StorageUnits.offset((segmentIndex * fileSegmentSize) + getSegmentHeaderSize());
+    }
+
+    @Override
+    public @ByteOffset long getSegmentEndOffset(final int segmentIndex)
+    {
+        return StorageUnits.offset((segmentIndex + 1) * fileSegmentSize);
+    }
+
+    /**
+     * Unmaps and deletes the file of a sealed segment. The segment keeps its place in the offsets space,
+     * so the offsets of the other segments don't change.
+     * @param segmentIndex the index of the segment, that is also the sequence of its file
+     */
+    @Override
+    public void deleteSegment(final int segmentIndex) throws IOException
+    {
+        synchronized (rollLock)
+        {
+            final int currentSegmentIndex = getSegmentIndex(currentSegment.toGlobalOffset(ZERO_OFFSET));
+            if (segmentIndex < 0 || segmentIndex >= currentSegmentIndex || mappedBuffers.get(segmentIndex) == null)
+            {
+                throw new IllegalArgumentException("Segment " + segmentIndex + " is not a sealed segment");
+            }
+
+            //the buffer is unmapped once it's garbage collected
+            mappedBuffers.set(segmentIndex, null);
+            publishMappedSegments();
+            fileAllocator.deleteFile(segmentIndex);
         }
+
+        LOGGER.info("Deleted segment " + segmentIndex);
+    }
+
+    /**
+     * Must be called holding the roll lock after every change to the mapped segments, see {@link #getMappedSegment}.
+     */
+    private void publishMappedSegments()
+    {
+        mappedSegmentsCount = mappedBuffers.size();
+    }
+
+    private int getSegmentIndex(final @ByteOffset long offset)
+    {
+        return (int)(offset / fileSegmentSize);
     }
 
     @Override
@@ -244,13 +695,26 @@ public final class FileStorage implements Storage
     @Override
     public void mapPage(final @PageNumber long pageNumber, final DirectMemory memory)
     {
+        writeAppendBufferFrom(getOffset(pageNumber), pageSize);
         final @ByteOffset long baseOffset = getBaseOffset(pageNumber);
         memory.setBaseAddress(baseOffset);
     }
 
+    @Override
+    public void mapOffset(final @ByteOffset long offset, final DirectMemory memory)
+    {
+        writeAppendBufferFrom(offset, StorageUnits.BYTE_SIZE);
+
+        final int segmentIndex = getSegmentIndex(offset);
+        final @ByteOffset long offsetInsideSegment = StorageUnits.offset(offset - (segmentIndex * fileSegmentSize));
+        memory.setBaseAddress(StorageUnits.offset(getMappedSegment(segmentIndex, offset).address + offsetInsideSegment));
+    }
+
     @Override
     public void readBytes(final @ByteOffset long offset, final ByteBuffer destinationBuffer)
     {
+        writeAppendBufferFrom(offset, StorageUnits.size(destinationBuffer.capacity()));
+
         final @ByteSize long lengthBytes = StorageUnits.size(destinationBuffer.capacity());
         @ByteOffset long readPosition = ZERO_OFFSET;
 
@@ -311,16 +775,32 @@ public final class FileStorage implements Storage
     private @ByteOffset long getBaseOffset(final @PageNumber long pageNumber)
     {
         assert pageNumber >= 0 : "Page Number can only be positive. Provided " + pageNumber;
-        assert pageNumber <= getPageNumber(StorageUnits.offset(mappedBuffers.size() * fileSegmentSize))
-                : "The page number " + pageNumber + " is outside the mapped range of " +
-                getPageNumber(StorageUnits.offset(mappedBuffers.size() * fileSegmentSize));
 
         final @ByteOffset long pageOffset = getOffset(pageNumber);
-        final int containingBufferIndex = (int)(pageOffset / fileSegmentSize);
+        final int containingBufferIndex = getSegmentIndex(pageOffset);
         final @ByteOffset long bufferOffset = StorageUnits.offset(containingBufferIndex * fileSegmentSize);
         final @ByteOffset long offsetInsideSegment = StorageUnits.offset(pageOffset - bufferOffset);
 
-        return StorageUnits.offset(mappedBuffers.get(containingBufferIndex).address + offsetInsideSegment);
+        return StorageUnits.offset(getMappedSegment(containingBufferIndex, pageOffset).address + offsetInsideSegment);
+    }
+
+    /**
+     * Every lookup of the mapped segments goes through here, reading the volatile count publishes the changes made
+     * to the segments by other threads rolling the storage or deleting segments.
+     */
+    private MappedBuffer getMappedSegment(final int segmentIndex, final @ByteOffset long offset)
+    {
+        final int mappedSegments = mappedSegmentsCount;
+        assert segmentIndex < mappedSegments
+                : "The offset " + offset + " is outside the mapped range of " + (mappedSegments * fileSegmentSize);
+
+        final MappedBuffer mappedBuffer = mappedBuffers.get(segmentIndex);
+        if (mappedBuffer == null)
+        {
+            throw new IllegalArgumentException("The offset " + offset + " belongs to the deleted segment " + segmentIndex);
+        }
+
+        return mappedBuffer;
     }
 
     @Override
@@ -335,6 +815,15 @@ public final class FileStorage implements Storage
         return order;
     }
 
+    /**
+     * Gets the flags of the format of the pages stored, see {@link FileHeader#getFormatFlags()}.
+     * @return the format flags
+     */
+    public int getFormatFlags()
+    {
+        return fileStorageHeader.getFormatFlags();
+    }
+
     @Override
     public @PageNumber long getPageNumber(final @ByteOffset long offset)
     {
@@ -352,13 +841,25 @@ public final class FileStorage implements Storage
     {
         try
         {
-            currentAppendingChannel.force(flushMeta);
+            writeAppendBuffer();
+            final AppendSegment segment = currentSegment;
+            if (isAppendingThroughMapping)
+            {
+                getSegmentMapping(segment).buffer.force();
+            }
+            segment.getChannel().force(flushMeta);
+
+            final SegmentPreallocator preallocator = segmentPreallocator;
+            if (preallocator != null)
+            {
+                preallocator.awaitSealedSegments();
+            }
             fileStorageHeader.flush(flushMeta);
             newFileStorageHeader.flush(flushMeta);
         }
         catch (final IOException e)
         {
-            LOGGER.error("Unable to flush persistence layer", e);
+            throw new UncheckedIOException("Unable to flush persistence layer", e);
         }
     }
 
@@ -367,9 +868,16 @@ public final class FileStorage implements Storage
     {
         flush(true);
 
+        if (segmentPreallocator != null)
+        {
+            synchronized (rollLock)
+            {
+                segmentPreallocator.close();
+            }
+        }
+
         mappedBuffers.clean();
-        currentAppendingChannel.close();
-        currentAppendingFile.close();
+        currentSegment.close();
 
         if (fileStorageHeader instanceof FixedFileStorageHeader)
         {
@@ -384,4 +892,131 @@ public final class FileStorage implements Storage
         //force unmapping of the file, TODO: find another method to trigger the unmapping
         System.gc();
     }
+
+    /**
+     * Reserves the region of every buffer in the current segment as it's appended, and writes the buffers with
+     * a gathering write per contiguous run of regions. The regions of a segment stay reserved until they are written,
+     * so before rolling the segment the batch writes what it holds.
+     */
+    private final class GatheringPageAppendBatch implements PageAppendBatch
+    {
+        private final ByteBuffer[] buffers;
+        private final long[] positionsInSegment;
+        private AppendSegment segment;
+        private int size;
+
+        private GatheringPageAppendBatch(final int maxBufferedPages)
+        {
+            if (maxBufferedPages <= 0)
+            {
+                throw new IllegalArgumentException("Max buffered pages must be positive, provided " + maxBufferedPages);
+            }
+
+            this.buffers = new ByteBuffer[maxBufferedPages];
+            this.positionsInSegment = new long[maxBufferedPages];
+        }
+
+        @Override
+        public @PageNumber long append(final ByteBuffer buffer) throws IOException
+        {
+            assert (buffer.capacity() % pageSize) == 0
+                    : "buffer must be of multiple of page size " + pageSize +
+                            " capacity. Current buffer capacity " + buffer.capacity();
+
+            //the duplicate is written from its start, without moving the position of the appended buffer
+            final ByteBuffer writeBuffer = buffer.duplicate();
+            writeBuffer.position(0);
+            final @ByteSize int writeSize = StorageUnits.size(writeBuffer.limit());
+
+            if (size == buffers.length)
+            {
+                write();
+            }
+
+            while (true)
+            {
+                final AppendSegment appendSegment = currentSegment;
+                if (segment != null && !segment.equals(appendSegment))
+                {
+                    write();
+                }
+
+                final @ByteOffset long positionInSegment = appendSegment.reserve(writeSize);
+                if (positionInSegment == INVALID_OFFSET)
+                {
+                    appendSegment.releaseReservation();
+                    //the segment is only sealed once the regions reserved in it are written
+                    write();
+                    validateFitsInEmptySegment(writeSize);
+                    rollSegment(appendSegment);
+                    continue;
+                }
+
+                segment = appendSegment;
+                buffers[size] = writeBuffer;
+                positionsInSegment[size] = positionInSegment;
+                size++;
+
+                return StorageUnits.pageNumber(appendSegment.toGlobalOffset(positionInSegment) / pageSize);
+            }
+        }
+
+        @Override
+        public void write() throws IOException
+        {
+            if (size == 0)
+            {
+                return;
+            }
+
+            int runStart = 0;
+            try
+            {
+                for (int i = 1; i <= size; i++)
+                {
+                    if (i == size || positionsInSegment[i] != positionsInSegment[i - 1] + buffers[i - 1].limit())
+                    {
+                        synchronized (channelPositionLock)
+                        {
+                            FileUtils.writeFully(
+                                    segment.getChannel(),
+                                    buffers,
+                                    runStart,
+                                    i - runStart,
+                                    positionsInSegment[runStart]);
+                        }
+                        runStart = i;
+                    }
+                }
+            }
+            catch (final IOException e)
+            {
+                final String msg = "Unable to persist nodes to database file. Position offset " +
+                        segment.toGlobalOffset(StorageUnits.offset(positionsInSegment[runStart]));
+                LOGGER.error(msg, e);
+                throw new IOException(msg, e);
+            }
+            finally
+            {
+                clear();
+            }
+        }
+
+        @Override
+        public void abort()
+        {
+            clear();
+        }
+
+        private void clear()
+        {
+            for (int i = 0; i < size; i++)
+            {
+                segment.releaseReservation();
+                buffers[i] = null;
+            }
+            size = 0;
+            segment = null;
+        }
+    }
 }
@@ -10,6 +10,7 @@ import org.logdb.storage.ByteSize;
 import org.logdb.storage.StorageUnits;
 import org.logdb.storage.file.header.FileHeader;
 import org.logdb.storage.file.header.FileStorageHeader;
+import org.logdb.storage.file.header.FileStorageStaticHeader;
 import org.logdb.storage.file.header.FixedFileStorageHeader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +32,13 @@ public class FileStorageFactory
     private static final Logger LOGGER = LoggerFactory.getLogger(FileStorageFactory.class);
     private static final String ROOT_INDEX_HEADER_FILENAME = "root_index_header.logdb";
 
+    public static final @ByteSize int MIN_PAGE_SIZE = StorageUnits.size(128);
+    /**
+     * Pages above 32KB store their cells as ints, the number of pairs of a page is still a short,
+     * which bounds the pages to 256KB even with the smallest pairs.
+     */
+    public static final @ByteSize int MAX_PAGE_SIZE = StorageUnits.size(256 * 1024);
+
     public static FileStorage createNew(
             final Path rootDirectory,
             final FileType fileType,
@@ -39,12 +47,34 @@ public class FileStorageFactory
             final @ByteSize int pageSizeBytes,
             final @ByteSize int pageLogSize,
             final ChecksumType checksumType) throws IOException
+    {
+        return createNew(
+                rootDirectory,
+                fileType,
+                segmentFileSize,
+                byteOrder,
+                pageSizeBytes,
+                pageLogSize,
+                checksumType,
+                FileStorageStaticHeader.NO_FORMAT_FLAGS);
+    }
+
+    public static FileStorage createNew(
+            final Path rootDirectory,
+            final FileType fileType,
+            final @ByteSize long segmentFileSize,
+            final ByteOrder byteOrder,
+            final @ByteSize int pageSizeBytes,
+            final @ByteSize int pageLogSize,
+            final ChecksumType checksumType,
+            final int formatFlags) throws IOException
     {
         Objects.requireNonNull(rootDirectory, "Database root directory cannot be null");
 
-        if (pageSizeBytes < 128 || pageSizeBytes % 2 != 0)
+        if (pageSizeBytes < MIN_PAGE_SIZE || pageSizeBytes > MAX_PAGE_SIZE || Integer.bitCount(pageSizeBytes) != 1)
         {
-            throw new IllegalArgumentException("Page Size must be bigger than 128 bytes and a power of 2. Provided was " + pageSizeBytes);
+            throw new IllegalArgumentException("Page Size must be a power of 2 between " + MIN_PAGE_SIZE + " and " +
+                    MAX_PAGE_SIZE + " bytes. Provided was " + pageSizeBytes);
         }
 
         if (segmentFileSize % pageSizeBytes != 0)
@@ -69,13 +99,20 @@ public class FileStorageFactory
             final Checksum checksum = ChecksumFactory.checksumFromType(checksumType);
             final ChecksumHelper checksumHelper = new ChecksumHelper(checksum, checksumType);
 
-            FileHeader fileHeader = FileStorageHeader.newHeader(byteOrder, pageSizeBytes, pageLogSize, segmentFileSize, checksumHelper);
+            FileHeader fileHeader = FileStorageHeader.newHeader(
+                    byteOrder,
+                    pageSizeBytes,
+                    pageLogSize,
+                    segmentFileSize,
+                    checksumHelper,
+                    formatFlags);
             FileHeader newFileHeader = FileStorageHeader.newHeader(
                     fileHeader.getOrder(),
                     fileHeader.getPageSize(),
                     fileHeader.getPageLogSize(),
                     fileHeader.getSegmentFileSize(),
-                    checksumHelper
+                    checksumHelper,
+                    fileHeader.getFormatFlags()
             );
 
             if (FileType.ROOT_INDEX == fileType)
@@ -144,7 +181,8 @@ public class FileStorageFactory
                                 rootIndexHeader.getPageSize(),
                                 rootIndexHeader.getPageLogSize(),
                                 rootIndexHeader.getSegmentFileSize(),
-                                checksumHelper),
+                                checksumHelper,
+                                rootIndexHeader.getFormatFlags()),
                         headerAccessFile,
                         headerChannel);
             }
@@ -156,7 +194,8 @@ public class FileStorageFactory
                         fileHeader.getPageSize(),
                         fileHeader.getPageLogSize(),
                         fileHeader.getSegmentFileSize(),
-                        checksumHelper);
+                        checksumHelper,
+                        fileHeader.getFormatFlags());
             }
 
             fileStorage = createFileStorage(
@@ -195,17 +234,24 @@ public class FileStorageFactory
             final FileChannel currentAppendChannel) throws IOException
     {
         final List<Path> existingFiles = fileAllocator.getAllFilesInOrder();
-        final MappedBuffer[] mappedByteBuffers = new MappedBuffer[existingFiles.size()];
-        for (int i = 0; i < existingFiles.size(); i++)
+        //the segment of a file is its sequence, deleted segments are left unmapped so the offsets don't move
+        final int segmentsCount = existingFiles.isEmpty()
+                ? 0
+                : (int) FileType.getFileSequence(existingFiles.get(existingFiles.size() - 1)) + 1;
+        final MappedBuffer[] mappedByteBuffers = new MappedBuffer[segmentsCount];
+        for (final Path filePath : existingFiles)
         {
-            final Path filePath = existingFiles.get(i);
+            final int segmentIndex = (int) FileType.getFileSequence(filePath);
             LOGGER.info("Mapping file " + filePath);
             final File file = filePath.toFile();
             try (RandomAccessFile accessFile = new RandomAccessFile(file, "r"))
             {
                 try (FileChannel channel = accessFile.getChannel())
                 {
-                    mappedByteBuffers[i] = FileStorage.mapFile(channel, fileHeader.getOrder());
+                    mappedByteBuffers[segmentIndex] = FileStorage.mapFile(
+                            channel,
+                            fileHeader.getOrder(),
+                            FileChannel.MapMode.READ_ONLY);
                 }
             }
         }
@@ -216,17 +262,23 @@ public class FileStorageFactory
             currentAppendChannel.position(appendOffset);
         }
 
-        final @ByteOffset long globalFilePosition;
+        final @ByteOffset long segmentBaseOffset;
         if (appendOffset != INVALID_OFFSET && !existingFiles.isEmpty())
         {
-            final long offset = ((existingFiles.size() - 1) * fileHeader.getSegmentFileSize()) + appendOffset;
-            globalFilePosition = StorageUnits.offset(offset);
+            segmentBaseOffset = StorageUnits.offset((segmentsCount - 1) * fileHeader.getSegmentFileSize());
         }
         else
         {
-            globalFilePosition = StorageUnits.offset(currentAppendChannel.position());
+            segmentBaseOffset = StorageUnits.ZERO_OFFSET;
         }
 
+        final AppendSegment currentSegment = new AppendSegment(
+                currentAppendFile,
+                currentAppendChannel,
+                segmentBaseOffset,
+                StorageUnits.offset(currentAppendChannel.position()),
+                fileHeader.getSegmentFileSize());
+
         final UnsafeArrayList<MappedBuffer> mappedBuffers = new UnsafeArrayList<>(mappedByteBuffers);
 
         return new FileStorage(
@@ -234,10 +286,8 @@ public class FileStorageFactory
                 fileAllocator,
                 fileHeader,
                 newFileHeader,
-                currentAppendFile,
-                currentAppendChannel,
-                mappedBuffers,
-                globalFilePosition);
+                currentSegment,
+                mappedBuffers);
     }
 
 }
@@ -39,4 +39,60 @@ public class FileUtils
         }
         sourceBuffer.reset();
     }
+
+    /**
+     * Writes the whole remaining content of the buffer at an absolute position of the file,
+     * without using or modifying the position of the channel. Safe to be called concurrently for disjoint regions.
+     *
+     * @param channel File channel to write to
+     * @param sourceBuffer The buffer from which bytes are to be transferred
+     * @param position The file position at which the transfer is to begin
+     *
+     * @throws IOException If an I/O error occurs, see {@link FileChannel#write(ByteBuffer, long)} for details on the
+     *                  possible exceptions
+     */
+    public static void writeFully(final FileChannel channel, final ByteBuffer sourceBuffer, final long position) throws IOException
+    {
+        sourceBuffer.mark();
+        long writePosition = position;
+        while (sourceBuffer.hasRemaining())
+        {
+            writePosition += channel.write(sourceBuffer, writePosition);
+        }
+        sourceBuffer.reset();
+    }
+
+    /**
+     * Writes the whole remaining content of several buffers, one after the other, at an absolute position of the file.
+     * It's a gathering write, the buffers are written with as few system calls as possible.
+     * It moves the position of the channel, so it must not run concurrently with other writes relying on it.
+     *
+     * @param channel File channel to write to
+     * @param sourceBuffers The buffers from which bytes are to be transferred, their position is moved to their limit
+     * @param offset The index of the first buffer to write
+     * @param length The number of buffers to write
+     * @param position The file position at which the transfer is to begin
+     *
+     * @throws IOException If an I/O error occurs, see {@link FileChannel#write(ByteBuffer[], int, int)} for details on
+     *                  the possible exceptions
+     */
+    public static void writeFully(
+            final FileChannel channel,
+            final ByteBuffer[] sourceBuffers,
+            final int offset,
+            final int length,
+            final long position) throws IOException
+    {
+        long bytesToWrite = 0;
+        for (int i = offset; i < offset + length; i++)
+        {
+            bytesToWrite += sourceBuffers[i].remaining();
+        }
+
+        channel.position(position);
+        while (bytesToWrite > 0)
+        {
+            bytesToWrite -= channel.write(sourceBuffers, offset, length);
+        }
+    }
 }
@@ -0,0 +1,265 @@
+package org.logdb.storage.file;
+
+import org.logdb.storage.ByteOffset;
+import org.logdb.storage.ByteSize;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.file.header.FileHeader;
+import org.logdb.storage.file.header.FixedFileStorageHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Does the slow parts of rolling a segment on a background thread. The next segment file is created, sized,
+ * its header written and mapped ahead of time under a name that is not listed as a segment, so the roll only
+ * renames it and swaps it in. The sealed segment is synced and closed on the same thread.
+ * <br>
+ * Apart from {@link #awaitSealedSegments()}, it has to be used holding the roll lock of the storage.
+ */
+final class SegmentPreallocator implements AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentPreallocator.class);
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final FileAllocator fileAllocator;
+    private final FileHeader newFileStorageHeader;
+    private final ByteOrder order;
+    private final @ByteSize long fileSegmentSize;
+    private final ExecutorService executor;
+
+    private Future<PreparedSegment> nextSegment;
+    private volatile Future<?> lastSealing;
+    private volatile IOException sealingFailure;
+
+    SegmentPreallocator(
+            final FileAllocator fileAllocator,
+            final FileHeader newFileStorageHeader,
+            final ByteOrder order,
+            final @ByteSize long fileSegmentSize,
+            final ThreadFactory threadFactory)
+    {
+        this.fileAllocator = Objects.requireNonNull(fileAllocator, "file allocator cannot be null");
+        this.newFileStorageHeader = Objects.requireNonNull(newFileStorageHeader, "new file header cannot be null");
+        this.order = Objects.requireNonNull(order, "byte order cannot be null");
+        this.fileSegmentSize = fileSegmentSize;
+        this.executor = Executors.newSingleThreadExecutor(Objects.requireNonNull(threadFactory, "thread factory cannot be null"));
+    }
+
+    /**
+     * Starts preparing the file of the next sequence, the sequence must not change until it's taken.
+     * @param mapMode the mode to map the file with
+     */
+    void prepareNextSegment(final FileChannel.MapMode mapMode)
+    {
+        assert nextSegment == null : "the next segment is already being prepared";
+
+        nextSegment = executor.submit(() -> prepare(mapMode));
+    }
+
+    /**
+     * Waits for the segment being prepared.
+     * @return the prepared segment or null if it couldn't be prepared
+     */
+    PreparedSegment takePreparedSegment()
+    {
+        final Future<PreparedSegment> preparedSegment = nextSegment;
+        nextSegment = null;
+        if (preparedSegment == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            return preparedSegment.get();
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            discardWhenPrepared(preparedSegment);
+            return null;
+        }
+        catch (final ExecutionException e)
+        {
+            LOGGER.error("Unable to prepare the next segment file", e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Waits for the writes still in flight in the sealed segment, then syncs and closes it in the background.
+     * @param sealedSegment the segment that was replaced
+     * @param sealedMapping the writable mapping of the segment to force, null if it's only written through the channel
+     */
+    void sealInBackground(final AppendSegment sealedSegment, final MappedBuffer sealedMapping)
+    {
+        lastSealing = executor.submit(() ->
+        {
+            try
+            {
+                sealedSegment.sealAndClose();
+                if (sealedMapping != null)
+                {
+                    sealedMapping.buffer.force();
+                }
+            }
+            catch (final IOException e)
+            {
+                LOGGER.error("Unable to seal the segment file", e);
+                sealingFailure = e;
+            }
+        });
+    }
+
+    /**
+     * Waits for the sealed segments to be synced, so a flush covers the records written before the last roll.
+     */
+    void awaitSealedSegments() throws IOException
+    {
+        final Future<?> sealing = lastSealing;
+        if (sealing != null)
+        {
+            //segments are sealed in order, waiting for the last one waits for all of them
+            try
+            {
+                sealing.get();
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for the sealed segments to be synced", e);
+            }
+            catch (final ExecutionException e)
+            {
+                throw new IOException("Unable to seal the segment file", e.getCause());
+            }
+        }
+
+        final IOException failure = sealingFailure;
+        if (failure != null)
+        {
+            throw new IOException("Unable to seal the segment file", failure);
+        }
+    }
+
+    private PreparedSegment prepare(final FileChannel.MapMode mapMode) throws IOException
+    {
+        final File file = fileAllocator.generatePreallocatedFile();
+        final RandomAccessFile accessFile = new RandomAccessFile(file, "rw");
+        try
+        {
+            final FileChannel channel = accessFile.getChannel();
+            accessFile.setLength(fileSegmentSize);
+
+            //the fixed header lives in its own file, it's written when the segment is swapped in
+            if (!(newFileStorageHeader instanceof FixedFileStorageHeader))
+            {
+                newFileStorageHeader.writeAlign(channel);
+            }
+            final @ByteOffset long startPosition = StorageUnits.offset(channel.position());
+
+            final MappedBuffer mappedBuffer = FileStorage.mapFile(channel, order, mapMode);
+            return new PreparedSegment(file, accessFile, channel, startPosition, mappedBuffer, mapMode);
+        }
+        catch (final IOException | RuntimeException e)
+        {
+            accessFile.close();
+            Files.deleteIfExists(file.toPath());
+            throw e;
+        }
+    }
+
+    private static void discardWhenPrepared(final Future<PreparedSegment> preparedSegment)
+    {
+        try
+        {
+            preparedSegment.get().discard();
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (final ExecutionException | IOException e)
+        {
+            LOGGER.error("Unable to discard the prepared segment file", e);
+        }
+    }
+
+    /**
+     * Waits for the pending work, deleting the segment file that was prepared and not used.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (nextSegment != null)
+        {
+            final PreparedSegment unusedSegment = takePreparedSegment();
+            if (unusedSegment != null)
+            {
+                unusedSegment.discard();
+            }
+        }
+
+        executor.shutdown();
+        try
+        {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+            {
+                LOGGER.error("Segment preallocation didn't stop in " + SHUTDOWN_TIMEOUT_SECONDS + " seconds");
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A segment file that is created, sized and mapped, but not yet part of the storage.
+     */
+    static final class PreparedSegment
+    {
+        final File file;
+        final RandomAccessFile accessFile;
+        final FileChannel channel;
+        final @ByteOffset long startPosition;
+        final MappedBuffer mappedBuffer;
+        final FileChannel.MapMode mapMode;
+
+        private PreparedSegment(
+                final File file,
+                final RandomAccessFile accessFile,
+                final FileChannel channel,
+                final @ByteOffset long startPosition,
+                final MappedBuffer mappedBuffer,
+                final FileChannel.MapMode mapMode)
+        {
+            this.file = file;
+            this.accessFile = accessFile;
+            this.channel = channel;
+            this.startPosition = startPosition;
+            this.mappedBuffer = mappedBuffer;
+            this.mapMode = mapMode;
+        }
+
+        void discard() throws IOException
+        {
+            channel.close();
+            accessFile.close();
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+}
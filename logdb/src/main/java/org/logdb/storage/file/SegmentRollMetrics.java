@@ -0,0 +1,93 @@
+package org.logdb.storage.file;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency of replacing a full segment with a new one, measured on the writer that rolls the segment.
+ * Can be read from any thread.
+ */
+public final class SegmentRollMetrics
+{
+    private final AtomicLong rolls;
+    private final AtomicLong preallocatedRolls;
+    private final AtomicLong totalRollNanos;
+    private final AtomicLong maxRollNanos;
+    private final AtomicLong lastRollNanos;
+
+    SegmentRollMetrics()
+    {
+        this.rolls = new AtomicLong(0);
+        this.preallocatedRolls = new AtomicLong(0);
+        this.totalRollNanos = new AtomicLong(0);
+        this.maxRollNanos = new AtomicLong(0);
+        this.lastRollNanos = new AtomicLong(0);
+    }
+
+    void recordRoll(final long rollNanos, final boolean isPreallocated)
+    {
+        rolls.incrementAndGet();
+        if (isPreallocated)
+        {
+            preallocatedRolls.incrementAndGet();
+        }
+        totalRollNanos.addAndGet(rollNanos);
+        maxRollNanos.accumulateAndGet(rollNanos, Math::max);
+        lastRollNanos.set(rollNanos);
+    }
+
+    public long getRolls()
+    {
+        return rolls.get();
+    }
+
+    /**
+     * Gets the number of preallocated rolls.
+     * @return the rolls that swapped in a segment prepared in the background
+     */
+    public long getPreallocatedRolls()
+    {
+        return preallocatedRolls.get();
+    }
+
+    public long getTotalRollNanos()
+    {
+        return totalRollNanos.get();
+    }
+
+    public long getMaxRollNanos()
+    {
+        return maxRollNanos.get();
+    }
+
+    public long getLastRollNanos()
+    {
+        return lastRollNanos.get();
+    }
+
+    /**
+     * Gets the mean roll latency in nanoseconds.
+     * @return the mean latency of a roll, 0 if the segment was never rolled
+     */
+    public double getMeanRollNanos()
+    {
+        final long rollsCount = rolls.get();
+        if (rollsCount == 0)
+        {
+            return 0.0;
+        }
+
+        return (double) totalRollNanos.get() / rollsCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SegmentRollMetrics{" +
+                "rolls=" + rolls +
+                ", preallocatedRolls=" + preallocatedRolls +
+                ", meanRollNanos=" + getMeanRollNanos() +
+                ", maxRollNanos=" + maxRollNanos +
+                ", lastRollNanos=" + lastRollNanos +
+                '}';
+    }
+}
@@ -28,6 +28,12 @@ public interface FileHeader
 
     @Version int getDbVersion();
 
+    /**
+     * Gets the flags of the format of the pages, as {@link FileStorageStaticHeader#FORMAT_LEAF_PREFIX_COMPRESSION}.
+     * @return the format flags
+     */
+    int getFormatFlags();
+
     @ByteOffset long getGlobalAppendOffset();
 
     @ByteOffset long getCurrentFileAppendOffset();
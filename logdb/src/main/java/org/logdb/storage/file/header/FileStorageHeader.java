@@ -26,13 +26,31 @@ public class FileStorageHeader implements FileHeader
             final @ByteSize int pageLogSize,
             final @ByteSize long segmentFileSize,
             final ChecksumHelper checksumHelper)
+    {
+        return newHeader(
+                byteOrder,
+                pageSizeBytes,
+                pageLogSize,
+                segmentFileSize,
+                checksumHelper,
+                FileStorageStaticHeader.NO_FORMAT_FLAGS);
+    }
+
+    public static FileHeader newHeader(
+            final ByteOrder byteOrder,
+            final @ByteSize int pageSizeBytes,
+            final @ByteSize int pageLogSize,
+            final @ByteSize long segmentFileSize,
+            final ChecksumHelper checksumHelper,
+            final int formatFlags)
     {
         final FileStorageStaticHeader staticHeader = FileStorageStaticHeader.newHeader(
                 byteOrder,
                 pageSizeBytes,
                 pageLogSize,
                 segmentFileSize,
-                checksumHelper.getType());
+                checksumHelper.getType(),
+                formatFlags);
         final FileStorageDynamicHeader dynamicHeader = FileStorageDynamicHeader.newHeader(pageSizeBytes, checksumHelper);
 
         return new FileStorageHeader(staticHeader, dynamicHeader);
@@ -98,6 +116,12 @@ public class FileStorageHeader implements FileHeader
         return fileStorageStaticHeader.getDbVersion();
     }
 
+    @Override
+    public int getFormatFlags()
+    {
+        return fileStorageStaticHeader.getFormatFlags();
+    }
+
     @Override
     public @ByteSize int getChecksumSize()
     {
@@ -46,13 +46,28 @@ public final class FileStorageStaticHeader
     private static final @ByteOffset int STATIC_CHECKSUM_TYPE_OFFSET = StorageUnits.offset(SEGMENT_FILE_SIZE_OFFSET + SEGMENT_FILE_SIZE_BYTES);
     private static final @ByteSize int STATIC_CHECKSUM_TYPE_OFFSET_SIZE = INT_BYTES_SIZE;
 
+    private static final @ByteOffset int FORMAT_FLAGS_OFFSET =
+            StorageUnits.offset(STATIC_CHECKSUM_TYPE_OFFSET + STATIC_CHECKSUM_TYPE_OFFSET_SIZE);
+    private static final @ByteSize int FORMAT_FLAGS_SIZE = INT_BYTES_SIZE;
+
     private static final @ByteSize int STATIC_HEADER_SIZE = StorageUnits.size(LOG_DB_MAGIC_STRING.length) +
             BYTE_ORDER_SIZE +
             LOG_DB_VERSION_SIZE +
             PAGE_SIZE_BYTES +
             PAGE_LOG_SIZE_BYTES +
             SEGMENT_FILE_SIZE_BYTES +
-            STATIC_CHECKSUM_TYPE_OFFSET_SIZE;
+            STATIC_CHECKSUM_TYPE_OFFSET_SIZE +
+            FORMAT_FLAGS_SIZE;
+
+    /**
+     * No format flags, files written before the flags existed read as this.
+     */
+    public static final int NO_FORMAT_FLAGS = 0;
+
+    /**
+     * The keys of the leaf pages are stored delta encoded against a key of the page.
+     */
+    public static final int FORMAT_LEAF_PREFIX_COMPRESSION = 1;
 
     private final ByteBuffer staticWriteBuffer;
 
@@ -62,6 +77,7 @@ public final class FileStorageStaticHeader
     private final @ByteSize int pageLogSize; // Must be a power of two
     private final @Version int logDbVersion; //TODO: when loading a new file compare that we have compatible versions
     private final ChecksumType checksumType;
+    private final int formatFlags;
 
     private FileStorageStaticHeader(
             final ByteOrder byteOrder,
@@ -69,7 +85,8 @@ public final class FileStorageStaticHeader
             final @ByteSize int pageLogSize,
             final @ByteSize long segmentFileSize,
             final @Version int logDbVersion,
-            final ChecksumType checksumType)
+            final ChecksumType checksumType,
+            final int formatFlags)
     {
         this.logDbVersion = logDbVersion;
         assert pageSize > 0 && ((pageSize & (pageSize - 1)) == 0) : "page size must be power of 2. Provided " + pageSize;
@@ -81,6 +98,7 @@ public final class FileStorageStaticHeader
         this.pageLogSize = pageLogSize;
         this.segmentFileSize = segmentFileSize;
         this.checksumType = Objects.requireNonNull(checksumType, "checksumType cannot be null");
+        this.formatFlags = formatFlags;
         this.staticWriteBuffer = ByteBuffer.allocate(STATIC_HEADER_SIZE); // appendVersion, globalAppendOffset and currentFileAppendOffset
         this.staticWriteBuffer.order(DEFAULT_HEADER_BYTE_ORDER);
     }
@@ -91,6 +109,17 @@ public final class FileStorageStaticHeader
             final @ByteSize int pageLogSize,
             final @ByteSize long segmentFileSize,
             final ChecksumType type)
+    {
+        return newHeader(byteOrder, pageSizeBytes, pageLogSize, segmentFileSize, type, NO_FORMAT_FLAGS);
+    }
+
+    public static FileStorageStaticHeader newHeader(
+            final ByteOrder byteOrder,
+            final @ByteSize int pageSizeBytes,
+            final @ByteSize int pageLogSize,
+            final @ByteSize long segmentFileSize,
+            final ChecksumType type,
+            final int formatFlags)
     {
         return new FileStorageStaticHeader(
                 byteOrder,
@@ -98,7 +127,8 @@ public final class FileStorageStaticHeader
                 pageLogSize,
                 segmentFileSize,
                 LOG_DB_VERSION,
-                type);
+                type,
+                formatFlags);
     }
 
     public static FileStorageStaticHeader readFrom(final SeekableByteChannel channel) throws IOException
@@ -129,6 +159,7 @@ public final class FileStorageStaticHeader
                 StorageUnits.size(getLongInCorrectByteOrder(staticHeaderBuffer.getLong(SEGMENT_FILE_SIZE_OFFSET)));
 
         final ChecksumType checksumType = ChecksumType.fromValue(staticHeaderBuffer.get(STATIC_CHECKSUM_TYPE_OFFSET));
+        final int formatFlags = getIntegerInCorrectByteOrder(staticHeaderBuffer.getInt(FORMAT_FLAGS_OFFSET));
 
         final @ByteSize long staticHeaderSize = getStaticHeaderSizeAlignedToNearestPage(pageSize);
         channel.position(staticHeaderSize);
@@ -139,7 +170,8 @@ public final class FileStorageStaticHeader
                 pageLogSize,
                 segmentFileSize,
                 logDbVersion,
-                checksumType);
+                checksumType,
+                formatFlags);
     }
 
     public void writeAlign(final SeekableByteChannel destinationChannel) throws IOException
@@ -158,6 +190,7 @@ public final class FileStorageStaticHeader
         staticWriteBuffer.putInt(PAGE_LOG_SIZE_OFFSET, getIntegerInCorrectByteOrder(pageLogSize));
         staticWriteBuffer.putLong(SEGMENT_FILE_SIZE_OFFSET, getLongInCorrectByteOrder(segmentFileSize));
         staticWriteBuffer.putInt(STATIC_CHECKSUM_TYPE_OFFSET, getIntegerInCorrectByteOrder(checksumType.getTypeValue()));
+        staticWriteBuffer.putInt(FORMAT_FLAGS_OFFSET, getIntegerInCorrectByteOrder(formatFlags));
 
         staticWriteBuffer.rewind();
 
@@ -196,6 +229,11 @@ public final class FileStorageStaticHeader
         return checksumType;
     }
 
+    public int getFormatFlags()
+    {
+        return formatFlags;
+    }
+
     public static @ByteSize long getStaticHeaderSizeAlignedToNearestPage(final @ByteSize int pageSize)
     {
         final @PageNumber long pageNumbers = StorageUnits.pageNumber((STATIC_HEADER_SIZE / pageSize) + 1);
@@ -233,6 +271,7 @@ public final class FileStorageStaticHeader
                 ", pageLogSize=" + pageLogSize +
                 ", logDbVersion=" + logDbVersion +
                 ", checksumType=" + checksumType +
+                ", formatFlags=" + formatFlags +
                 '}';
     }
 }
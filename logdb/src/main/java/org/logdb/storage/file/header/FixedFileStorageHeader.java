@@ -74,6 +74,12 @@ public class FixedFileStorageHeader implements FileHeader, AutoCloseable
         return delegate.getDbVersion();
     }
 
+    @Override
+    public int getFormatFlags()
+    {
+        return delegate.getFormatFlags();
+    }
+
     @Override
     public @ByteOffset long getGlobalAppendOffset()
     {
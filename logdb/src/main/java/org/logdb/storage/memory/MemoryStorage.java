@@ -9,6 +9,8 @@ import org.logdb.bit.NonNativeMemoryAccess;
 import org.logdb.bit.UnsafeArrayList;
 import org.logdb.storage.ByteOffset;
 import org.logdb.storage.ByteSize;
+import org.logdb.storage.ImmediatePageAppendBatch;
+import org.logdb.storage.PageAppendBatch;
 import org.logdb.storage.PageNumber;
 import org.logdb.storage.Storage;
 import org.logdb.storage.StorageUnits;
@@ -16,6 +18,9 @@ import org.logdb.storage.Version;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.logdb.storage.StorageUnits.INITIAL_VERSION;
 import static org.logdb.storage.StorageUnits.ZERO_OFFSET;
@@ -25,6 +30,8 @@ public class MemoryStorage implements Storage
     private final ByteOrder order;
     private final @ByteSize int pageSize;
     private final UnsafeArrayList<DirectMemory> bufferPool;
+    //the direct memory of a chunk is released once its buffer is collected
+    private final List<ByteBuffer> memoryChunks;
     private final @ByteSize int memoryChunkSize;
 
     private @ByteOffset long allocatedMemoryOffset;
@@ -43,9 +50,9 @@ public class MemoryStorage implements Storage
         this.pageSize = pageSize;
         this.memoryChunkSize = memoryChunkSize;
         this.bufferPool = new UnsafeArrayList<>(new DirectMemory[0]);
+        this.memoryChunks = new ArrayList<>();
 
-        final DirectMemory directMemory = MemoryFactory.allocateDirect(memoryChunkSize, order);
-        bufferPool.add(directMemory);
+        allocateMemoryChunk();
 
         this.allocatedMemoryOffset = ZERO_OFFSET;
         this.currentMemoryChunkOffset = ZERO_OFFSET;
@@ -93,11 +100,26 @@ public class MemoryStorage implements Storage
     @Override
     public @ByteOffset long append(final ByteBuffer buffer)
     {
-        return append(buffer.array());
+        if (!buffer.hasArray())
+        {
+            final byte[] bytes = new byte[buffer.limit()];
+            final ByteBuffer source = buffer.duplicate();
+            source.position(0);
+            source.get(bytes);
+            return append(bytes);
+        }
+
+        final byte[] array = buffer.array();
+        if (buffer.arrayOffset() == 0 && buffer.limit() == array.length)
+        {
+            return append(array);
+        }
+
+        return append(Arrays.copyOfRange(array, buffer.arrayOffset(), buffer.arrayOffset() + buffer.limit()));
     }
 
     @Override
-    public @ByteOffset long append(final byte[] buffer)
+    public synchronized @ByteOffset long append(final byte[] buffer)
     {
         final @ByteOffset int bufferSize = StorageUnits.offset(buffer.length);
         final @ByteOffset long expectedOffset = currentMemoryChunkOffset + bufferSize;
@@ -108,8 +130,7 @@ public class MemoryStorage implements Storage
             final @ByteOffset long remaining = StorageUnits.offset(memoryChunkSize - currentMemoryChunkOffset);
             allocatedMemoryOffset += remaining;
 
-            final DirectMemory directMemory = MemoryFactory.allocateDirect(memoryChunkSize, order);
-            bufferPool.add(directMemory);
+            allocateMemoryChunk();
 
             currentMemoryChunkOffset = ZERO_OFFSET;
         }
@@ -131,12 +152,27 @@ public class MemoryStorage implements Storage
         return currentOffset;
     }
 
+    private void allocateMemoryChunk()
+    {
+        final ByteBuffer memoryChunk = ByteBuffer.allocateDirect(memoryChunkSize);
+        memoryChunk.order(order);
+
+        memoryChunks.add(memoryChunk);
+        bufferPool.add(MemoryFactory.wrapDirect(memoryChunk));
+    }
+
     @Override
     public @PageNumber long appendPageAligned(final ByteBuffer buffer)
     {
         return getPageNumber(append(buffer));
     }
 
+    @Override
+    public PageAppendBatch startPageAppendBatch(final int maxBufferedPages)
+    {
+        return new ImmediatePageAppendBatch(this);
+    }
+
     @Override
     public void flush(final boolean flushMeta)
     {
@@ -168,12 +204,43 @@ public class MemoryStorage implements Storage
     }
 
     @Override
-    public void commitMetadata(final @ByteOffset long lastPersistedOffset, final @Version long version)
+    public synchronized void commitMetadata(final @ByteOffset long lastPersistedOffset, final @Version long version)
     {
         this.lastPersistedOffset = lastPersistedOffset;
         this.version = version;
     }
 
+    @Override
+    public int[] getSealedSegments()
+    {
+        //memory chunks are never released
+        return new int[0];
+    }
+
+    @Override
+    public int[] getDeletedSegments()
+    {
+        return new int[0];
+    }
+
+    @Override
+    public @ByteOffset long getSegmentStartOffset(final int segmentIndex)
+    {
+        throw new UnsupportedOperationException("Memory storage doesn't have sealed segments");
+    }
+
+    @Override
+    public @ByteOffset long getSegmentEndOffset(final int segmentIndex)
+    {
+        throw new UnsupportedOperationException("Memory storage doesn't have sealed segments");
+    }
+
+    @Override
+    public void deleteSegment(final int segmentIndex)
+    {
+        throw new UnsupportedOperationException("Memory storage doesn't have sealed segments");
+    }
+
     @Override
     public void mapPage(final @PageNumber long pageNumber, final DirectMemory memory)
     {
@@ -182,6 +249,12 @@ public class MemoryStorage implements Storage
         memory.setBaseAddress(baseOffset);
     }
 
+    @Override
+    public void mapOffset(final @ByteOffset long offset, final DirectMemory memory)
+    {
+        memory.setBaseAddress(getBaseOffset(offset));
+    }
+
     private @ByteOffset long getBaseOffset(final @ByteOffset long pageOffset)
     {
         assert pageOffset >= 0 : "Offset can only be positive. Provided " + pageOffset;
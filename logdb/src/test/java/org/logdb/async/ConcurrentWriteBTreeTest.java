@@ -0,0 +1,133 @@
+package org.logdb.async;
+
+import org.junit.jupiter.api.Test;
+import org.logdb.Cursor;
+import org.logdb.bbtree.BTreeImpl;
+import org.logdb.bbtree.NodeOptions;
+import org.logdb.bbtree.NodesManager;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.storage.Storage;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.memory.MemoryStorage;
+import org.logdb.support.StubTimeSource;
+import org.logdb.support.TestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.logdb.support.TestUtils.INITIAL_VERSION;
+import static org.logdb.support.TestUtils.MEMORY_CHUNK_SIZE;
+import static org.logdb.support.TestUtils.createInitialRootReference;
+import static org.logdb.support.TestUtils.createRootIndex;
+
+class ConcurrentWriteBTreeTest
+{
+    private static final int PAGE_SIZE = 256;
+    private static final int NUMBER_OF_WRITERS = 8;
+    private static final int KEYS_PER_WRITER = 500;
+    private static final int MAX_BATCH_SIZE = 64;
+
+    @Test
+    void shouldApplyTheWritesOfConcurrentWriters() throws Exception
+    {
+        final ConcurrentWriteBTree bTree = createBTree();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_WRITERS);
+        try
+        {
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final List<Future<?>> writers = new ArrayList<>();
+            for (int writer = 0; writer < NUMBER_OF_WRITERS; writer++)
+            {
+                final long firstKey = writer * KEYS_PER_WRITER;
+                writers.add(executor.submit(() ->
+                {
+                    startLatch.await();
+                    for (long key = firstKey; key < firstKey + KEYS_PER_WRITER; key++)
+                    {
+                        bTree.put(BinaryHelper.longToSortableBytes(key), BinaryHelper.longToBytes(key));
+                        //the write is visible once the put returns
+                        assertArrayEquals(BinaryHelper.longToBytes(key), bTree.get(BinaryHelper.longToSortableBytes(key)));
+                        if (key % 2 == 1)
+                        {
+                            bTree.remove(BinaryHelper.longToSortableBytes(key));
+                        }
+                        if (key % 200 == 199)
+                        {
+                            bTree.commit();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            startLatch.countDown();
+            for (final Future<?> writer : writers)
+            {
+                writer.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        bTree.commit();
+
+        final int numberOfKeys = NUMBER_OF_WRITERS * KEYS_PER_WRITER;
+        for (long key = 0; key < numberOfKeys; key++)
+        {
+            final byte[] value = bTree.get(BinaryHelper.longToSortableBytes(key));
+            if (key % 2 == 1)
+            {
+                assertNull(value);
+            }
+            else
+            {
+                assertArrayEquals(BinaryHelper.longToBytes(key), value);
+            }
+        }
+
+        try (Cursor cursor = bTree.openCursor())
+        {
+            long expectedKey = 0;
+            for (boolean isValid = cursor.seekToFirst(); isValid; isValid = cursor.next())
+            {
+                assertArrayEquals(BinaryHelper.longToSortableBytes(expectedKey), cursor.getKey());
+                expectedKey += 2;
+            }
+            assertEquals(numberOfKeys, expectedKey);
+        }
+    }
+
+    @Test
+    void shouldNotAcceptNonPositiveMaxBatchSize()
+    {
+        final BTreeImpl delegate = createDelegate();
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentWriteBTree(delegate, 0));
+    }
+
+    private static ConcurrentWriteBTree createBTree()
+    {
+        return new ConcurrentWriteBTree(createDelegate(), MAX_BATCH_SIZE);
+    }
+
+    private static BTreeImpl createDelegate()
+    {
+        final Storage storage = new MemoryStorage(TestUtils.BYTE_ORDER, PAGE_SIZE, MEMORY_CHUNK_SIZE);
+        final NodesManager nodesManager = new NodesManager(storage, createRootIndex(PAGE_SIZE), true, 0, NodeOptions.DEFAULT);
+        return new BTreeImpl(
+                nodesManager,
+                new StubTimeSource(),
+                INITIAL_VERSION,
+                StorageUnits.INVALID_PAGE_NUMBER,
+                createInitialRootReference(nodesManager));
+    }
+}
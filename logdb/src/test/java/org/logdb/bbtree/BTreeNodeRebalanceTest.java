@@ -0,0 +1,271 @@
+package org.logdb.bbtree;
+
+import org.junit.jupiter.api.Test;
+import org.logdb.Cursor;
+import org.logdb.WriteBatch;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.storage.Storage;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.memory.MemoryStorage;
+import org.logdb.support.StubTimeSource;
+import org.logdb.support.TestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.logdb.support.TestUtils.INITIAL_VERSION;
+import static org.logdb.support.TestUtils.MEMORY_CHUNK_SIZE;
+import static org.logdb.support.TestUtils.createInitialRootReference;
+import static org.logdb.support.TestUtils.createRootIndex;
+
+class BTreeNodeRebalanceTest
+{
+    private static final int PAGE_SIZE = 256;
+    private static final int MAX_LOG_SIZE = 76;
+    private static final double MIN_FILL_RATIO = 0.4;
+    private static final int NUMBER_OF_KEYS = 3000;
+    private static final int NUMBER_OF_KEYS_WITH_LOG = 600;
+    private static final int OPERATIONS_PER_COMMIT = 100;
+
+    @Test
+    void shouldMergeNodesWhenRemovingMostKeys() throws Exception
+    {
+        final BTreeImpl rebalancedTree = createBTree(MIN_FILL_RATIO);
+        final BTreeImpl plainTree = createBTree(NodeRebalancer.NO_REBALANCE);
+
+        final TreeSet<Long> remainingKeys = putAndRemoveMostKeys(rebalancedTree, NUMBER_OF_KEYS);
+        putAndRemoveMostKeys(plainTree, NUMBER_OF_KEYS);
+
+        assertRemainingKeys(rebalancedTree, remainingKeys, NUMBER_OF_KEYS);
+        assertEquals(countNodes(rebalancedTree), rebalancedTree.getNodesCount());
+        assertTrue(countNodes(rebalancedTree) * 3 < countNodes(plainTree),
+                "rebalanced nodes " + countNodes(rebalancedTree) + ", plain nodes " + countNodes(plainTree));
+    }
+
+    @Test
+    void shouldKeepLeavesFilledOverTheRatioWhileRemoving() throws Exception
+    {
+        final BTreeImpl bTree = createBTree(MIN_FILL_RATIO);
+        final TreeSet<Long> remainingKeys = putAndRemoveMostKeys(bTree, NUMBER_OF_KEYS);
+
+        //every remove merges or borrows, so the tree shrinks back to what inserting the remaining keys builds
+        final BTreeImpl insertedTree = createBTree(MIN_FILL_RATIO);
+        int operations = 0;
+        for (final long key : remainingKeys)
+        {
+            insertedTree.put(BinaryHelper.longToBytes(key), BinaryHelper.longToBytes(key));
+            if (++operations % OPERATIONS_PER_COMMIT == 0)
+            {
+                insertedTree.commit();
+            }
+        }
+        insertedTree.commit();
+
+        assertTrue(countNodes(bTree) <= countNodes(insertedTree) * 2,
+                "rebalanced nodes " + countNodes(bTree) + ", inserted nodes " + countNodes(insertedTree));
+    }
+
+    @Test
+    void shouldRebalanceNodesWhenRemovingWithBatches() throws Exception
+    {
+        final BTreeImpl bTree = createBTree(MIN_FILL_RATIO);
+        for (long i = 0; i < NUMBER_OF_KEYS; i++)
+        {
+            bTree.put(BinaryHelper.longToBytes(i), BinaryHelper.longToBytes(i));
+            if (i % OPERATIONS_PER_COMMIT == OPERATIONS_PER_COMMIT - 1)
+            {
+                bTree.commit();
+            }
+        }
+        final long nodesBeforeRemoving = countNodes(bTree);
+
+        final TreeSet<Long> remainingKeys = new TreeSet<>();
+        for (long i = 0; i < NUMBER_OF_KEYS; i += OPERATIONS_PER_COMMIT)
+        {
+            final WriteBatch batch = new WriteBatch();
+            for (long key = i; key < i + OPERATIONS_PER_COMMIT; key++)
+            {
+                if (key % 10 == 0)
+                {
+                    remainingKeys.add(key);
+                }
+                else
+                {
+                    batch.delete(BinaryHelper.longToBytes(key));
+                }
+            }
+            bTree.apply(batch);
+            bTree.commit();
+        }
+
+        assertRemainingKeys(bTree, remainingKeys, NUMBER_OF_KEYS);
+        assertEquals(countNodes(bTree), bTree.getNodesCount());
+        assertTrue(countNodes(bTree) * 4 < nodesBeforeRemoving,
+                "nodes after removing " + countNodes(bTree) + ", before removing " + nodesBeforeRemoving);
+    }
+
+    @Test
+    void shouldRebalanceLeavesOfTreeWithLog() throws Exception
+    {
+        final BTreeWithLog rebalancedTree = createBTreeWithLog(MIN_FILL_RATIO);
+        final BTreeWithLog plainTree = createBTreeWithLog(NodeRebalancer.NO_REBALANCE);
+
+        final TreeSet<Long> remainingKeys = putAndRemoveMostKeys(rebalancedTree, NUMBER_OF_KEYS_WITH_LOG);
+        putAndRemoveMostKeys(plainTree, NUMBER_OF_KEYS_WITH_LOG);
+
+        assertRemainingKeys(rebalancedTree, remainingKeys, NUMBER_OF_KEYS_WITH_LOG);
+        assertEquals(countNodes(rebalancedTree), rebalancedTree.getNodesCount());
+        assertTrue(countNodes(rebalancedTree) < countNodes(plainTree),
+                "rebalanced nodes " + countNodes(rebalancedTree) + ", plain nodes " + countNodes(plainTree));
+    }
+
+    @Test
+    void shouldNotAcceptRatiosThatCanNotBeMerged()
+    {
+        final Storage storage = new MemoryStorage(TestUtils.BYTE_ORDER, PAGE_SIZE, MEMORY_CHUNK_SIZE);
+
+        assertThrows(IllegalArgumentException.class, () -> new NodesManager(
+                storage, createRootIndex(PAGE_SIZE), true, 0, NodeOptions.DEFAULT.minFillRatio(0.5)));
+        assertThrows(IllegalArgumentException.class, () -> new NodesManager(
+                storage, createRootIndex(PAGE_SIZE), true, 0, NodeOptions.DEFAULT.minFillRatio(-0.1)));
+    }
+
+    private static TreeSet<Long> putAndRemoveMostKeys(final BTree bTree, final int numberOfKeys) throws Exception
+    {
+        final List<Long> keys = new ArrayList<>();
+        int operations = 0;
+        for (long key = 0; key < numberOfKeys; key++)
+        {
+            keys.add(key);
+            bTree.put(BinaryHelper.longToBytes(key), BinaryHelper.longToBytes(key));
+            //every uncommitted version keeps its own copy of the path
+            if (++operations % OPERATIONS_PER_COMMIT == 0)
+            {
+                bTree.commit();
+            }
+        }
+
+        Collections.shuffle(keys, new Random(42));
+
+        final TreeSet<Long> remainingKeys = new TreeSet<>();
+        for (int i = 0; i < keys.size(); i++)
+        {
+            final long key = keys.get(i);
+            if (i % 10 == 0)
+            {
+                remainingKeys.add(key);
+            }
+            else
+            {
+                bTree.remove(BinaryHelper.longToBytes(key));
+            }
+
+            if (++operations % OPERATIONS_PER_COMMIT == 0)
+            {
+                bTree.commit();
+            }
+        }
+        bTree.commit();
+
+        return remainingKeys;
+    }
+
+    private static void assertRemainingKeys(
+            final BTree bTree,
+            final TreeSet<Long> remainingKeys,
+            final int numberOfKeys) throws Exception
+    {
+        for (long key = 0; key < numberOfKeys; key++)
+        {
+            final byte[] value = bTree.get(BinaryHelper.longToBytes(key));
+            if (remainingKeys.contains(key))
+            {
+                assertArrayEquals(BinaryHelper.longToBytes(key), value);
+            }
+            else
+            {
+                assertNull(value);
+            }
+        }
+
+        final List<Long> iteratedKeys = new ArrayList<>();
+        try (Cursor cursor = bTree.openCursor())
+        {
+            for (boolean isValid = cursor.seekToFirst(); isValid; isValid = cursor.next())
+            {
+                iteratedKeys.add(BinaryHelper.bytesToLong(cursor.getKey()));
+            }
+        }
+        assertEquals(remainingKeys.size(), iteratedKeys.size());
+        assertEquals(remainingKeys, new TreeSet<>(iteratedKeys));
+    }
+
+    private static long countNodes(final BTreeAbstract bTree)
+    {
+        try (BTreeMappedNode root = bTree.nodesManager.getOrCreateMappedNode())
+        {
+            root.initNode(StorageUnits.pageNumber(bTree.committedRoot.get()));
+            return countNodes(bTree.nodesManager, root);
+        }
+    }
+
+    private static long countNodes(final NodesManager nodesManager, final BTreeNode node)
+    {
+        if (node.getNodeType() == BtreeNodeType.Leaf)
+        {
+            return 1;
+        }
+
+        long count = 1;
+        for (int i = 0; i < node.getPairCount(); i++)
+        {
+            try (BTreeMappedNode child = nodesManager.getOrCreateMappedNode())
+            {
+                child.initNode(StorageUnits.pageNumber(node.getLongValue(i)));
+                count += countNodes(nodesManager, child);
+            }
+        }
+        return count;
+    }
+
+    private static BTreeImpl createBTree(final double minFillRatio)
+    {
+        final NodesManager nodesManager = createNodesManager(StorageUnits.ZERO_SIZE, minFillRatio);
+        return new BTreeImpl(
+                nodesManager,
+                new StubTimeSource(),
+                INITIAL_VERSION,
+                StorageUnits.INVALID_PAGE_NUMBER,
+                createInitialRootReference(nodesManager));
+    }
+
+    private static BTreeWithLog createBTreeWithLog(final double minFillRatio)
+    {
+        final NodesManager nodesManager = createNodesManager(StorageUnits.size(MAX_LOG_SIZE), minFillRatio);
+        return new BTreeWithLog(
+                nodesManager,
+                new StubTimeSource(),
+                INITIAL_VERSION,
+                StorageUnits.INVALID_PAGE_NUMBER,
+                createInitialRootReference(nodesManager));
+    }
+
+    private static NodesManager createNodesManager(final int maxLogSize, final double minFillRatio)
+    {
+        final Storage storage = new MemoryStorage(TestUtils.BYTE_ORDER, PAGE_SIZE, MEMORY_CHUNK_SIZE);
+        return new NodesManager(
+                storage,
+                createRootIndex(PAGE_SIZE),
+                true,
+                StorageUnits.size(maxLogSize),
+                NodeOptions.DEFAULT.minFillRatio(minFillRatio));
+    }
+}
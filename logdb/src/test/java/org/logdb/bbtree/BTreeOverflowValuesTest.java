@@ -0,0 +1,162 @@
+package org.logdb.bbtree;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.logdb.Cursor;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.root.index.RootIndex;
+import org.logdb.storage.Storage;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.memory.MemoryStorage;
+import org.logdb.support.StubTimeSource;
+import org.logdb.support.TestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.logdb.support.TestUtils.INITIAL_VERSION;
+import static org.logdb.support.TestUtils.MEMORY_CHUNK_SIZE;
+import static org.logdb.support.TestUtils.createInitialRootReference;
+import static org.logdb.support.TestUtils.createRootIndex;
+
+class BTreeOverflowValuesTest
+{
+    private static final int PAGE_SIZE = 256;
+    private static final int MAX_LOG_SIZE = 0;
+    private static final int OVERFLOW_THRESHOLD = 64;
+
+    private Storage storage;
+    private NodesManager nodesManager;
+    private BTreeImpl bTree;
+
+    @BeforeEach
+    void setUp()
+    {
+        storage = new MemoryStorage(TestUtils.BYTE_ORDER, PAGE_SIZE, MEMORY_CHUNK_SIZE);
+        final RootIndex rootIndex = createRootIndex(PAGE_SIZE);
+
+        nodesManager = new NodesManager(storage, rootIndex, true, MAX_LOG_SIZE, NodeOptions.DEFAULT.overflowThreshold(OVERFLOW_THRESHOLD));
+
+        bTree = new BTreeImpl(
+                nodesManager,
+                new StubTimeSource(),
+                INITIAL_VERSION,
+                StorageUnits.INVALID_PAGE_NUMBER,
+                createInitialRootReference(nodesManager));
+    }
+
+    @Test
+    void shouldStoreValuesBiggerThanPagesInOverflowPages() throws Exception
+    {
+        final List<byte[]> values = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+        {
+            values.add(buildValue(i, i * 97));
+            bTree.put(BinaryHelper.longToBytes(i), values.get(i));
+        }
+
+        assertAllValues(values);
+
+        bTree.commit();
+
+        assertAllValues(values);
+    }
+
+    @Test
+    void shouldStoreSmallValuesInline()
+    {
+        final byte[] value = buildValue(1, OVERFLOW_THRESHOLD);
+
+        assertEquals(OVERFLOW_THRESHOLD + 1, nodesManager.writeValue(value).length);
+        assertArrayEquals(value, putAndGet(1L, value));
+        assertArrayEquals(new byte[0], putAndGet(2L, new byte[0]));
+    }
+
+    @Test
+    void shouldReadPreviousVersionsOfOverflowedValues()
+    {
+        final byte[] key = BinaryHelper.longToBytes(5L);
+        final byte[] firstValue = buildValue(1, PAGE_SIZE * 3);
+        final byte[] secondValue = buildValue(2, PAGE_SIZE);
+
+        bTree.put(key, firstValue);
+        bTree.put(key, secondValue);
+
+        assertArrayEquals(firstValue, bTree.get(key, 0));
+        assertArrayEquals(secondValue, bTree.get(key, 1));
+        assertNull(bTree.get(BinaryHelper.longToBytes(6L)));
+    }
+
+    @Test
+    void shouldIterateOverflowedValuesWithCursorAndConsumer() throws Exception
+    {
+        final List<byte[]> values = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            values.add(buildValue(i, PAGE_SIZE + i));
+            bTree.put(BinaryHelper.longToBytes(i), values.get(i));
+        }
+        bTree.commit();
+
+        try (Cursor cursor = bTree.openCursor())
+        {
+            assertTrue(cursor.seekToFirst());
+            for (final byte[] value : values)
+            {
+                assertArrayEquals(value, cursor.getValue());
+                cursor.next();
+            }
+            assertFalse(cursor.isValid());
+        }
+
+        final List<byte[]> consumedValues = new ArrayList<>();
+        bTree.consumeAll((key, value) -> consumedValues.add(value));
+        for (int i = 0; i < values.size(); i++)
+        {
+            assertArrayEquals(values.get(i), consumedValues.get(i));
+        }
+    }
+
+    @Test
+    void shouldNotAcceptThresholdThatDoesNotFitInPage()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new OverflowValues(storage, PAGE_SIZE));
+        assertThrows(IllegalArgumentException.class, () -> new OverflowValues(storage, 4));
+    }
+
+    @Test
+    void shouldNotAcceptLongIndexOverTreeWithOverflowPages()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new LongBTree(bTree));
+    }
+
+    private byte[] putAndGet(final long key, final byte[] value)
+    {
+        bTree.put(BinaryHelper.longToBytes(key), value);
+        return bTree.get(BinaryHelper.longToBytes(key));
+    }
+
+    private void assertAllValues(final List<byte[]> values)
+    {
+        for (int i = 0; i < values.size(); i++)
+        {
+            assertArrayEquals(values.get(i), bTree.get(BinaryHelper.longToBytes(i)));
+        }
+    }
+
+    private static byte[] buildValue(final int seed, final int length)
+    {
+        final byte[] value = new byte[length];
+        for (int i = 0; i < length; i++)
+        {
+            value[i] = (byte) (seed + i);
+        }
+        return value;
+    }
+}
@@ -91,7 +91,7 @@ class BTreePrinterTest
                 INITIAL_VERSION,
                 TimeUnits.millis(0),
                 StorageUnits.INVALID_OFFSET);
-        final NodesManager nodesManager = new NodesManager(storage, rootIndex, false, 1228);
+        final NodesManager nodesManager = new NodesManager(storage, rootIndex, false, 1228, NodeOptions.DEFAULT);
         assertEquals(expectedDotString, BTreePrinter.print(bTreeNonLeaf, nodesManager));
     }
 }
\ No newline at end of file
@@ -2,7 +2,10 @@ package org.logdb.bbtree;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.logdb.Cursor;
+import org.logdb.WriteBatch;
 import org.logdb.bit.BinaryHelper;
+import org.logdb.bit.ByteArrayComparator;
 import org.logdb.root.index.RootIndex;
 import org.logdb.storage.Storage;
 import org.logdb.storage.StorageUnits;
@@ -10,9 +13,14 @@ import org.logdb.storage.memory.MemoryStorage;
 import org.logdb.support.StubTimeSource;
 import org.logdb.support.TestUtils;
 
+import java.util.Map;
+import java.util.TreeMap;
+
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.logdb.support.TestUtils.INITIAL_VERSION;
 import static org.logdb.support.TestUtils.MEMORY_CHUNK_SIZE;
@@ -32,7 +40,7 @@ class BTreeWithLogTest
         final Storage treeStorage = new MemoryStorage(TestUtils.BYTE_ORDER, PAGE_SIZE, MEMORY_CHUNK_SIZE);
         final RootIndex rootIndex = createRootIndex(PAGE_SIZE);
 
-        NodesManager nodesManager = new NodesManager(treeStorage, rootIndex, true, MAX_LOG_SIZE);
+        NodesManager nodesManager = new NodesManager(treeStorage, rootIndex, true, MAX_LOG_SIZE, NodeOptions.DEFAULT);
         bTree = new BTreeWithLog(
                 nodesManager,
                 new StubTimeSource(),
@@ -42,6 +50,58 @@ class BTreeWithLogTest
         );
     }
 
+    @Test
+    void shouldIterateWithCursorMergingTheLogsOfNonLeafNodes()
+    {
+        final TreeMap<byte[], byte[]> expectedPairs = new TreeMap<>(ByteArrayComparator.INSTANCE);
+        for (long i = 0; i < 500; i++)
+        {
+            final byte[] bytes = BinaryHelper.longToBytes(i);
+            expectedPairs.put(bytes, bytes);
+            bTree.put(bytes, bytes);
+        }
+
+        for (long i = 0; i < 500; i += 7)
+        {
+            final byte[] key = BinaryHelper.longToBytes(i);
+            expectedPairs.remove(key);
+            bTree.remove(key);
+        }
+
+        for (long i = 3; i < 500; i += 11)
+        {
+            final byte[] key = BinaryHelper.longToBytes(i);
+            final byte[] value = BinaryHelper.longToBytes(-i);
+            expectedPairs.put(key, value);
+            bTree.put(key, value);
+        }
+
+        try (Cursor cursor = bTree.openCursor())
+        {
+            assertTrue(cursor.seekToFirst());
+            for (final Map.Entry<byte[], byte[]> expectedPair : expectedPairs.entrySet())
+            {
+                assertArrayEquals(expectedPair.getKey(), cursor.getKey());
+                assertArrayEquals(expectedPair.getValue(), cursor.getValue());
+                cursor.next();
+            }
+            assertFalse(cursor.isValid());
+
+            assertTrue(cursor.seekToLast());
+            for (final Map.Entry<byte[], byte[]> expectedPair : expectedPairs.descendingMap().entrySet())
+            {
+                assertArrayEquals(expectedPair.getKey(), cursor.getKey());
+                assertArrayEquals(expectedPair.getValue(), cursor.getValue());
+                cursor.prev();
+            }
+            assertFalse(cursor.isValid());
+
+            final byte[] removedKey = BinaryHelper.longToBytes(14L);
+            assertTrue(cursor.seek(removedKey));
+            assertArrayEquals(expectedPairs.ceilingKey(removedKey), cursor.getKey());
+        }
+    }
+
     @Test
     void shouldBeAbleToRetrieveNonExistingElementsWithLog()
     {
@@ -364,6 +424,57 @@ class BTreeWithLogTest
         assertArrayEquals(expectedValue3, actualLatest);
     }
 
+    @Test
+    void shouldApplyBatchWithSingleVersion()
+    {
+        final int size = 600;
+        final WriteBatch firstBatch = new WriteBatch();
+        for (int i = size - 1; i >= 0; i--)
+        {
+            final byte[] bytes = BinaryHelper.longToBytes(i);
+            firstBatch.put(bytes, bytes);
+        }
+        bTree.apply(firstBatch);
+
+        final WriteBatch secondBatch = new WriteBatch();
+        for (int i = 0; i < size; i += 2)
+        {
+            secondBatch.delete(BinaryHelper.longToBytes(i));
+        }
+        secondBatch.put(BinaryHelper.longToBytes(1), BinaryHelper.longToBytes(-1));
+        secondBatch.put(BinaryHelper.longToBytes(1), BinaryHelper.longToBytes(-2));
+        secondBatch.delete(BinaryHelper.longToBytes(size + 1));
+        bTree.apply(secondBatch);
+
+        for (int i = 0; i < size; i++)
+        {
+            final byte[] bytes = BinaryHelper.longToBytes(i);
+            assertArrayEquals(bytes, bTree.get(bytes, 0));
+            if (i == 1)
+            {
+                assertArrayEquals(BinaryHelper.longToBytes(-2), bTree.get(bytes));
+            }
+            else if (i % 2 == 0)
+            {
+                assertNull(bTree.get(bytes));
+            }
+            else
+            {
+                assertArrayEquals(bytes, bTree.get(bytes));
+            }
+        }
+
+        try
+        {
+            bTree.get(BinaryHelper.longToBytes(1), 2);
+            fail();
+        }
+        catch (final VersionNotFoundException e)
+        {
+            assertEquals("The version 2 was not found.", e.getMessage());
+        }
+    }
+
     @Test
     void shouldNotFailToDeleteNonExistingKeyWithLogWithoutFalsePositives()
     {
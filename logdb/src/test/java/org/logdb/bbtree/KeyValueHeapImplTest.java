@@ -356,5 +356,39 @@ class KeyValueHeapImplTest
         }
     }
 
+    @Test
+    void shouldUseIntCellsForHeapsBiggerThanShortOffsets()
+    {
+        final int capacity = 64 * 1024;
+        final KeyValueHeapImpl wideHeap = KeyValueHeapImpl.create(MemoryFactory.allocateHeap(capacity, TestUtils.BYTE_ORDER));
+        assertEquals(KeyValueHeapImpl.WIDE_HEADER_SIZE, wideHeap.getUsedSize());
+        assertEquals(KeyValueHeapImpl.WIDE_CELL_SIZE, wideHeap.getCellSize());
+
+        final byte[] value = new byte[1000];
+        value[999] = 42;
+        int usedBytes = KeyValueHeapImpl.WIDE_HEADER_SIZE;
+        int numberOfPairs = 0;
+        while (usedBytes + KeyValueHeapImpl.WIDE_CELL_SIZE + Long.BYTES + value.length <= capacity)
+        {
+            final Pair pair = generateKeyValuePair(numberOfPairs);
+            wideHeap.insert(pair.key, value);
+            usedBytes += KeyValueHeapImpl.WIDE_CELL_SIZE + pair.key.length + value.length;
+            numberOfPairs++;
+        }
+
+        assertEquals(usedBytes, wideHeap.getUsedSize());
+        assertTrue(usedBytes > Short.MAX_VALUE);
+        for (int i = 0; i < numberOfPairs; i++)
+        {
+            final Pair pair = generateKeyValuePair(i);
+            assertArrayEquals(value, wideHeap.getValue(pair.key));
+        }
+
+        final Pair firstPair = generateKeyValuePair(0);
+        assertTrue(wideHeap.removeKeyValue(firstPair.key));
+        assertNull(wideHeap.getValue(firstPair.key));
+        assertArrayEquals(value, wideHeap.getValue(generateKeyValuePair(numberOfPairs - 1).key));
+    }
+
     //TODO: add a test when a keyValue is full/almost full and do operation on it, addition, removal, ge
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+package org.logdb.bbtree;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.logdb.LongIndex;
+import org.logdb.root.index.RootIndex;
+import org.logdb.storage.Storage;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.memory.MemoryStorage;
+import org.logdb.support.StubTimeSource;
+import org.logdb.support.TestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.logdb.support.TestUtils.INITIAL_VERSION;
+import static org.logdb.support.TestUtils.MEMORY_CHUNK_SIZE;
+import static org.logdb.support.TestUtils.createInitialRootReference;
+import static org.logdb.support.TestUtils.createRootIndex;
+
+class LongBTreeTest
+{
+    private static final int PAGE_SIZE = 256;
+    private static final int MAX_LOG_SIZE = 0;
+    private static final int NUMBER_OF_KEYS = 500;
+
+    private LongBTree longBTree;
+
+    @BeforeEach
+    void setUp()
+    {
+        final Storage storage = new MemoryStorage(TestUtils.BYTE_ORDER, PAGE_SIZE, MEMORY_CHUNK_SIZE);
+        final RootIndex rootIndex = createRootIndex(PAGE_SIZE);
+
+        final NodesManager nodesManager = new NodesManager(storage, rootIndex, true, MAX_LOG_SIZE, NodeOptions.DEFAULT);
+
+        longBTree = new LongBTree(new BTreeImpl(
+                nodesManager,
+                new StubTimeSource(),
+                INITIAL_VERSION,
+                StorageUnits.INVALID_PAGE_NUMBER,
+                createInitialRootReference(nodesManager)));
+    }
+
+    @Test
+    void shouldGetNegativeAndPositiveKeysBeforeAndAfterCommitting() throws Exception
+    {
+        final List<Long> keys = new ArrayList<>();
+        for (long i = 0; i < NUMBER_OF_KEYS; i++)
+        {
+            keys.add(i - (NUMBER_OF_KEYS / 2));
+        }
+        Collections.shuffle(keys, new Random(42));
+
+        for (final long key : keys)
+        {
+            longBTree.put(key, key * 3);
+        }
+        assertAllKeysFound(keys);
+
+        longBTree.commit();
+        assertAllKeysFound(keys);
+    }
+
+    @Test
+    void shouldNotFindMissingKeys() throws Exception
+    {
+        assertEquals(LongIndex.NO_VALUE, longBTree.get(1L));
+
+        for (long i = 0; i < NUMBER_OF_KEYS; i += 2)
+        {
+            longBTree.put(i, i);
+        }
+        longBTree.commit();
+
+        for (long i = 1; i < NUMBER_OF_KEYS; i += 2)
+        {
+            assertEquals(LongIndex.NO_VALUE, longBTree.get(i));
+        }
+        assertEquals(LongIndex.NO_VALUE, longBTree.get(-1L));
+        assertEquals(LongIndex.NO_VALUE, longBTree.get(Long.MAX_VALUE));
+    }
+
+    @Test
+    void shouldGetValuesFromPastVersions() throws Exception
+    {
+        longBTree.put(5L, 1L);
+        longBTree.put(5L, 2L);
+        longBTree.commit();
+        longBTree.put(5L, 3L);
+        longBTree.remove(5L);
+
+        assertEquals(1L, longBTree.get(5L, 0));
+        assertEquals(2L, longBTree.get(5L, 1));
+        assertEquals(3L, longBTree.get(5L, 2));
+        assertEquals(LongIndex.NO_VALUE, longBTree.get(5L, 3));
+        assertEquals(LongIndex.NO_VALUE, longBTree.get(5L));
+    }
+
+    @Test
+    void shouldNotAcceptReservedValue()
+    {
+        assertThrows(IllegalArgumentException.class, () -> longBTree.put(1L, LongIndex.NO_VALUE));
+    }
+
+    private void assertAllKeysFound(final List<Long> keys)
+    {
+        for (final long key : keys)
+        {
+            assertEquals(key * 3, longBTree.get(key));
+        }
+    }
+}
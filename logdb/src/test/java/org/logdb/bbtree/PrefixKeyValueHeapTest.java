@@ -0,0 +1,212 @@
+package org.logdb.bbtree;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.bit.MemoryFactory;
+import org.logdb.support.TestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixKeyValueHeapTest
+{
+    private static final int HEAP_SIZE = 4096;
+    private static final int NUMBER_OF_KEYS = 60;
+
+    private PrefixKeyValueHeap prefixHeap;
+    private KeyValueHeapImpl plainHeap;
+
+    @BeforeEach
+    void setUp()
+    {
+        prefixHeap = new PrefixKeyValueHeap(KeyValueHeapImpl.create(MemoryFactory.allocateHeap(HEAP_SIZE, TestUtils.BYTE_ORDER)));
+        plainHeap = KeyValueHeapImpl.create(MemoryFactory.allocateHeap(HEAP_SIZE, TestUtils.BYTE_ORDER));
+    }
+
+    @Test
+    void shouldStartWithEmpty()
+    {
+        assertEquals(0, prefixHeap.getNumberOfPairs());
+        assertEquals(-1, prefixHeap.binarySearch(key(1)));
+    }
+
+    @Test
+    void shouldInsertAndGetKeysInOrder()
+    {
+        final List<byte[]> keys = shuffledKeys();
+        for (final byte[] key : keys)
+        {
+            prefixHeap.insert(key, value(key));
+        }
+
+        assertEquals(NUMBER_OF_KEYS, prefixHeap.getNumberOfPairs());
+        for (int i = 0; i < NUMBER_OF_KEYS; i++)
+        {
+            assertArrayEquals(key(i), prefixHeap.getKeyAtIndex(i));
+            assertArrayEquals(value(key(i)), prefixHeap.getValueAtIndex(i));
+            assertEquals(i, prefixHeap.binarySearch(key(i)));
+        }
+    }
+
+    @Test
+    void shouldSearchAsUncompressedHeap()
+    {
+        final Random random = new Random(42);
+        final TreeSet<String> keys = new TreeSet<>();
+        while (keys.size() < NUMBER_OF_KEYS)
+        {
+            keys.add(randomKey(random));
+        }
+
+        final List<String> shuffledKeys = new ArrayList<>(keys);
+        Collections.shuffle(shuffledKeys, random);
+        for (final String key : shuffledKeys)
+        {
+            final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            prefixHeap.insert(keyBytes, keyBytes);
+            plainHeap.insert(keyBytes, keyBytes);
+        }
+
+        for (int i = 0; i < 1000; i++)
+        {
+            final byte[] searchKey = randomKey(random).getBytes(StandardCharsets.UTF_8);
+            assertEquals(plainHeap.binarySearch(searchKey), prefixHeap.binarySearch(searchKey));
+        }
+    }
+
+    @Test
+    void shouldUseLessSpaceThanUncompressedHeapForKeysWithCommonPrefix()
+    {
+        for (int i = 0; i < NUMBER_OF_KEYS; i++)
+        {
+            prefixHeap.insertAtIndex(i, key(i), value(key(i)));
+            plainHeap.insertAtIndex(i, key(i), value(key(i)));
+        }
+
+        assertTrue(prefixHeap.getUsedSize() < plainHeap.getUsedSize(),
+                "prefix heap used " + prefixHeap.getUsedSize() + ", plain heap used " + plainHeap.getUsedSize());
+    }
+
+    @Test
+    void shouldRemoveKeysAndAnchorOnNextKeyWhenEmpty()
+    {
+        for (int i = 0; i < NUMBER_OF_KEYS; i++)
+        {
+            prefixHeap.insertAtIndex(i, key(i), value(key(i)));
+        }
+
+        assertTrue(prefixHeap.removeKeyValue(key(0)));
+        assertEquals(-1, prefixHeap.binarySearch(key(0)));
+        assertEquals(0, prefixHeap.binarySearch(key(1)));
+
+        while (prefixHeap.getNumberOfPairs() > 0)
+        {
+            prefixHeap.removeKeyValueAtIndex(0);
+        }
+
+        final byte[] otherKey = "other/key".getBytes(StandardCharsets.UTF_8);
+        prefixHeap.insert(otherKey, otherKey);
+
+        assertEquals(1, prefixHeap.getNumberOfPairs());
+        assertArrayEquals(otherKey, prefixHeap.getKeyAtIndex(0));
+        assertArrayEquals(otherKey, prefixHeap.getValueAtIndex(0));
+    }
+
+    @Test
+    void shouldUpdateValues()
+    {
+        for (int i = 0; i < NUMBER_OF_KEYS; i++)
+        {
+            prefixHeap.insertAtIndex(i, key(i), value(key(i)));
+        }
+
+        final byte[] newValue = "a longer value than before".getBytes(StandardCharsets.UTF_8);
+        prefixHeap.insert(key(5), newValue);
+
+        assertEquals(NUMBER_OF_KEYS, prefixHeap.getNumberOfPairs());
+        assertArrayEquals(newValue, prefixHeap.getValueAtIndex(5));
+        assertArrayEquals(key(6), prefixHeap.getKeyAtIndex(6));
+    }
+
+    @Test
+    void shouldSplitIntoAnotherPrefixHeap()
+    {
+        for (int i = 0; i < NUMBER_OF_KEYS; i++)
+        {
+            prefixHeap.insertAtIndex(i, key(i), value(key(i)));
+        }
+
+        final PrefixKeyValueHeap splitHeap =
+                new PrefixKeyValueHeap(KeyValueHeapImpl.create(MemoryFactory.allocateHeap(HEAP_SIZE, TestUtils.BYTE_ORDER)));
+        final int half = NUMBER_OF_KEYS / 2;
+        prefixHeap.split(half, NUMBER_OF_KEYS - half, splitHeap);
+
+        assertEquals(half, prefixHeap.getNumberOfPairs());
+        assertEquals(NUMBER_OF_KEYS - half, splitHeap.getNumberOfPairs());
+        for (int i = 0; i < half; i++)
+        {
+            assertEquals(i, prefixHeap.binarySearch(key(i)));
+            assertEquals(i, splitHeap.binarySearch(key(half + i)));
+            assertArrayEquals(key(half + i), splitHeap.getKeyAtIndex(i));
+        }
+    }
+
+    @Test
+    void shouldSearchLongKeys()
+    {
+        for (long i = 0; i < NUMBER_OF_KEYS; i++)
+        {
+            prefixHeap.insertAtIndex((int) i, BinaryHelper.longToSortableBytes(i - 10), BinaryHelper.longToBytes(i));
+        }
+
+        for (long i = 0; i < NUMBER_OF_KEYS; i++)
+        {
+            final int index = prefixHeap.binarySearch(i - 10, prefixHeap.getNumberOfPairs());
+            assertEquals(i, index);
+            assertEquals(i, prefixHeap.getLongValueAtIndex(index));
+        }
+        assertEquals(-(NUMBER_OF_KEYS + 1), prefixHeap.binarySearch(NUMBER_OF_KEYS, prefixHeap.getNumberOfPairs()));
+    }
+
+    private static List<byte[]> shuffledKeys()
+    {
+        final List<byte[]> keys = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_KEYS; i++)
+        {
+            keys.add(key(i));
+        }
+        Collections.shuffle(keys, new Random(42));
+        return keys;
+    }
+
+    private static byte[] key(final int index)
+    {
+        return String.format("tenant-42/orders/2020-01-%02d/id-%06d", index / 10, index).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] value(final byte[] key)
+    {
+        return BinaryHelper.longToBytes(key.length);
+    }
+
+    private static String randomKey(final Random random)
+    {
+        //small alphabet and lengths so keys often are prefixes of one another
+        final StringBuilder key = new StringBuilder();
+        final int length = random.nextInt(6);
+        for (int i = 0; i < length; i++)
+        {
+            key.append((char) ('a' + random.nextInt(3)));
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,240 @@
+package org.logdb.bbtree;
+
+import org.junit.jupiter.api.Test;
+import org.logdb.Cursor;
+import org.logdb.Snapshot;
+import org.logdb.WriteBatch;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.root.index.ShardedRootIndex;
+import org.logdb.storage.Storage;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.memory.MemoryStorage;
+import org.logdb.support.StubTimeSource;
+import org.logdb.support.TestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.logdb.support.TestUtils.INITIAL_VERSION;
+import static org.logdb.support.TestUtils.MEMORY_CHUNK_SIZE;
+import static org.logdb.support.TestUtils.createInitialRootReference;
+import static org.logdb.support.TestUtils.createRootIndex;
+
+class ShardedIndexTest
+{
+    private static final int PAGE_SIZE = 256;
+    private static final int NUMBER_OF_SHARDS = 4;
+    //enough keys per shard for the first committed root to not be the first page of the memory storage
+    private static final int NUMBER_OF_KEYS = 800;
+
+    @Test
+    void shouldPutAndGetKeysFromEveryShard() throws Exception
+    {
+        final ShardedIndex index = createShardedIndex(new HashKeyPartitioner(NUMBER_OF_SHARDS));
+        putKeys(index, 0, NUMBER_OF_KEYS);
+        index.commit();
+
+        for (final BTree shard : index.getShards())
+        {
+            assertTrue(shard.getNodesCount() > 1, "every shard holds part of the keys");
+        }
+
+        index.remove(BinaryHelper.longToSortableBytes(7));
+        assertNull(index.get(BinaryHelper.longToSortableBytes(7)));
+        for (long i = 0; i < NUMBER_OF_KEYS; i++)
+        {
+            if (i != 7)
+            {
+                assertArrayEquals(BinaryHelper.longToBytes(i), index.get(BinaryHelper.longToSortableBytes(i)));
+            }
+        }
+    }
+
+    @Test
+    void shouldIterateTheKeysOfAllTheShardsInOrder() throws Exception
+    {
+        final ShardedIndex index = createShardedIndex(new HashKeyPartitioner(NUMBER_OF_SHARDS));
+        putKeys(index, 0, NUMBER_OF_KEYS);
+        index.commit();
+
+        try (Cursor cursor = index.openCursor())
+        {
+            long expectedKey = 0;
+            for (boolean isValid = cursor.seekToFirst(); isValid; isValid = cursor.next())
+            {
+                assertArrayEquals(BinaryHelper.longToSortableBytes(expectedKey), cursor.getKey());
+                assertArrayEquals(BinaryHelper.longToBytes(expectedKey), cursor.getValue());
+                expectedKey++;
+            }
+            assertEquals(NUMBER_OF_KEYS, expectedKey);
+
+            for (boolean isValid = cursor.seekToLast(); isValid; isValid = cursor.prev())
+            {
+                expectedKey--;
+                assertArrayEquals(BinaryHelper.longToSortableBytes(expectedKey), cursor.getKey());
+            }
+            assertEquals(0, expectedKey);
+        }
+    }
+
+    @Test
+    void shouldChangeDirectionAcrossShards() throws Exception
+    {
+        final ShardedIndex index = createShardedIndex(new HashKeyPartitioner(NUMBER_OF_SHARDS));
+        putKeys(index, 0, NUMBER_OF_KEYS);
+        index.commit();
+
+        try (Cursor cursor = index.openCursor())
+        {
+            assertTrue(cursor.seek(BinaryHelper.longToSortableBytes(100)));
+            assertTrue(cursor.next());
+            assertTrue(cursor.next());
+            assertArrayEquals(BinaryHelper.longToSortableBytes(102), cursor.getKey());
+
+            assertTrue(cursor.prev());
+            assertArrayEquals(BinaryHelper.longToSortableBytes(101), cursor.getKey());
+            assertTrue(cursor.prev());
+            assertTrue(cursor.prev());
+            assertArrayEquals(BinaryHelper.longToSortableBytes(99), cursor.getKey());
+
+            assertTrue(cursor.next());
+            assertArrayEquals(BinaryHelper.longToSortableBytes(100), cursor.getKey());
+
+            assertTrue(cursor.seekToFirst());
+            assertFalse(cursor.prev());
+            assertFalse(cursor.isValid());
+        }
+    }
+
+    @Test
+    void shouldReadTheShardsAtACommittedShardedVersion() throws Exception
+    {
+        final ShardedIndex index = createShardedIndex(new HashKeyPartitioner(NUMBER_OF_SHARDS));
+        putKeys(index, 0, NUMBER_OF_KEYS);
+        index.commit();
+        final long firstVersion = index.getLastCommittedVersion();
+
+        final WriteBatch batch = new WriteBatch();
+        for (long i = 0; i < NUMBER_OF_KEYS; i += 2)
+        {
+            batch.put(BinaryHelper.longToSortableBytes(i), BinaryHelper.longToBytes(i * 10));
+        }
+        batch.delete(BinaryHelper.longToSortableBytes(1));
+        index.apply(batch);
+        index.commit();
+
+        assertEquals(firstVersion + 1, index.getLastCommittedVersion());
+        assertArrayEquals(BinaryHelper.longToBytes(0), index.get(BinaryHelper.longToSortableBytes(0), firstVersion));
+        assertArrayEquals(BinaryHelper.longToBytes(20), index.get(BinaryHelper.longToSortableBytes(2)));
+        assertNull(index.get(BinaryHelper.longToSortableBytes(1)));
+
+        try (Snapshot snapshot = index.snapshot(firstVersion))
+        {
+            assertEquals(firstVersion, snapshot.getVersion());
+            assertArrayEquals(BinaryHelper.longToBytes(1), snapshot.get(BinaryHelper.longToSortableBytes(1)));
+            try (Cursor cursor = snapshot.openCursor())
+            {
+                long count = 0;
+                for (boolean isValid = cursor.seekToFirst(); isValid; isValid = cursor.next())
+                {
+                    assertArrayEquals(BinaryHelper.longToBytes(count), cursor.getValue());
+                    count++;
+                }
+                assertEquals(NUMBER_OF_KEYS, count);
+            }
+        }
+
+        assertThrows(VersionNotFoundException.class, () -> index.snapshot(firstVersion + 2));
+    }
+
+    @Test
+    void shouldWriteShardsFromConcurrentWriters() throws Exception
+    {
+        final ShardedIndex index = createShardedIndex(new HashKeyPartitioner(NUMBER_OF_SHARDS));
+        final int numberOfWriters = 4;
+        final int keysPerWriter = NUMBER_OF_KEYS / numberOfWriters;
+
+        final ExecutorService executor = Executors.newFixedThreadPool(numberOfWriters);
+        try
+        {
+            final List<Future<?>> writers = new ArrayList<>();
+            for (int writer = 0; writer < numberOfWriters; writer++)
+            {
+                final long firstKey = writer * keysPerWriter;
+                writers.add(executor.submit(() -> putKeys(index, firstKey, firstKey + keysPerWriter)));
+            }
+
+            for (final Future<?> writer : writers)
+            {
+                writer.get();
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        index.commit();
+
+        for (long i = 0; i < NUMBER_OF_KEYS; i++)
+        {
+            assertArrayEquals(BinaryHelper.longToBytes(i), index.get(BinaryHelper.longToSortableBytes(i)));
+        }
+    }
+
+    @Test
+    void shouldPartitionKeysByRange()
+    {
+        final RangeKeyPartitioner partitioner = new RangeKeyPartitioner(
+                BinaryHelper.longToSortableBytes(100),
+                BinaryHelper.longToSortableBytes(200));
+
+        assertEquals(3, partitioner.getShardCount());
+        assertEquals(0, partitioner.getShard(BinaryHelper.longToSortableBytes(99)));
+        assertEquals(1, partitioner.getShard(BinaryHelper.longToSortableBytes(100)));
+        assertEquals(1, partitioner.getShard(BinaryHelper.longToSortableBytes(199)));
+        assertEquals(2, partitioner.getShard(BinaryHelper.longToSortableBytes(200)));
+
+        assertThrows(IllegalArgumentException.class, () -> new RangeKeyPartitioner(
+                BinaryHelper.longToSortableBytes(200),
+                BinaryHelper.longToSortableBytes(100)));
+    }
+
+    private static void putKeys(final ShardedIndex index, final long fromKey, final long toKey)
+    {
+        for (long i = fromKey; i < toKey; i++)
+        {
+            index.put(BinaryHelper.longToSortableBytes(i), BinaryHelper.longToBytes(i));
+        }
+    }
+
+    private static ShardedIndex createShardedIndex(final KeyPartitioner partitioner)
+    {
+        final List<BTree> shards = new ArrayList<>();
+        for (int i = 0; i < partitioner.getShardCount(); i++)
+        {
+            final Storage storage = new MemoryStorage(TestUtils.BYTE_ORDER, PAGE_SIZE, MEMORY_CHUNK_SIZE);
+            final NodesManager nodesManager = new NodesManager(storage, createRootIndex(PAGE_SIZE), true, 0, NodeOptions.DEFAULT);
+            shards.add(new BTreeImpl(
+                    nodesManager,
+                    new StubTimeSource(),
+                    INITIAL_VERSION,
+                    StorageUnits.INVALID_PAGE_NUMBER,
+                    createInitialRootReference(nodesManager)));
+        }
+
+        final ShardedRootIndex rootIndex = new ShardedRootIndex(
+                new MemoryStorage(TestUtils.BYTE_ORDER, PAGE_SIZE, MEMORY_CHUNK_SIZE),
+                partitioner.getShardCount());
+
+        return new ShardedIndex(shards, partitioner, rootIndex, new StubTimeSource());
+    }
+}
@@ -1,6 +1,9 @@
 package org.logdb.bit;
 
 import org.junit.jupiter.api.Test;
+import org.logdb.storage.StorageUnits;
+
+import java.nio.ByteOrder;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -31,6 +34,56 @@ class ByteArrayComparatorTest
         assertBothEqual(bytesA, bytesA);
     }
 
+    @Test
+    void shouldCompareLongByteArraysAsUnsignedBytes()
+    {
+        final byte[] bytesA = new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11};
+        final byte[] bytesB = new byte[] {1, 2, 3, 4, 5, 6, 7, (byte) 0x80, 9, 10, 11};
+        final byte[] bytesC = new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, (byte) 0xFF};
+        final byte[] bytesD = new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 0};
+
+        assertAIsSmaller(bytesA, bytesB);
+        assertAIsSmaller(bytesA, bytesC);
+        assertAIsSmaller(bytesA, bytesD);
+        assertAIsSmaller(bytesC, bytesB);
+        assertAIsBigger(bytesB, bytesD);
+        assertBothEqual(bytesC, bytesC.clone());
+    }
+
+    @Test
+    void shouldCompareKeysStoredInMemoryInPlace()
+    {
+        final byte[][] keys = new byte[][] {
+                new byte[0],
+                "test".getBytes(),
+                BinaryHelper.longToBytes(150),
+                BinaryHelper.longToBytes(-1),
+                new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11},
+                new byte[] {1, 2, 3, 4, 5, 6, 7, (byte) 0x80, 9, 10, 11},
+                new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, (byte) 0xFF, 12, 13, 14, 15, 16, 17},
+        };
+
+        for (final ByteOrder byteOrder : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN})
+        {
+            final Memory heapMemory = MemoryFactory.allocateHeap(StorageUnits.size(64), byteOrder);
+            final Memory directMemory = MemoryFactory.allocateDirect(StorageUnits.size(64), byteOrder);
+            for (final byte[] storedKey : keys)
+            {
+                heapMemory.putBytes(StorageUnits.offset(3), storedKey);
+                directMemory.putBytes(StorageUnits.offset(3), storedKey);
+                for (final byte[] key : keys)
+                {
+                    final int expected = Integer.signum(ByteArrayComparator.INSTANCE.compare(key, storedKey));
+                    final int storedKeyLength = StorageUnits.size(storedKey.length);
+                    assertEquals(expected, Integer.signum(
+                            ByteArrayComparator.compare(key, heapMemory, StorageUnits.offset(3), storedKeyLength)));
+                    assertEquals(expected, Integer.signum(
+                            ByteArrayComparator.compare(key, directMemory, StorageUnits.offset(3), storedKeyLength)));
+                }
+            }
+        }
+    }
+
     private void assertAIsBigger(final byte[] a, final byte[] b)
     {
         assertTrue(ByteArrayComparator.INSTANCE.compare(a, b) > 0);
@@ -2,9 +2,14 @@ package org.logdb.checksum;
 
 import org.junit.jupiter.api.Test;
 import org.logdb.bit.BinaryHelper;
+import org.logdb.bit.ByteArrayComparator;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class BinaryHelperTest
 {
@@ -43,4 +48,24 @@ class BinaryHelperTest
         final long value = BinaryHelper.bytesToInt(INT_BYTES);
         assertEquals(INT_VALUE, value);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldEncodeLongsToBytesSortedAsTheLongs()
+    {
+        final long[] values = new long[]{Long.MIN_VALUE, -LONG_VALUE, -1L, 0L, 1L, LONG_VALUE, Long.MAX_VALUE};
+        for (int i = 1; i < values.length; i++)
+        {
+            final byte[] previous = BinaryHelper.longToSortableBytes(values[i - 1]);
+            final byte[] current = BinaryHelper.longToSortableBytes(values[i]);
+            assertTrue(ByteArrayComparator.INSTANCE.compare(previous, current) < 0);
+        }
+    }
+
+    @Test
+    void shouldDecodeSortableBytesReadAsBigEndianLong()
+    {
+        final byte[] bytes = BinaryHelper.longToSortableBytes(-LONG_VALUE);
+        final long bigEndianWord = ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN).getLong();
+        assertEquals(-LONG_VALUE, BinaryHelper.sortableWordToLong(bigEndianWord));
+    }
+}
@@ -0,0 +1,186 @@
+package org.logdb.integration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.logdb.bbtree.BTree;
+import org.logdb.bbtree.BTreeBulkLoader;
+import org.logdb.bbtree.BTreeImpl;
+import org.logdb.bbtree.NodesManager;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.bit.ByteArrayComparator;
+import org.logdb.storage.PageNumber;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.Version;
+import org.logdb.support.StubTimeSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.logdb.integration.TestIntegrationUtils.createNewPersistedNodesManager;
+import static org.logdb.integration.TestIntegrationUtils.loadPersistedBtree;
+
+class BTreeBulkLoaderIntegrationTest
+{
+    private static final @Version long LOADED_VERSION = StorageUnits.INITIAL_VERSION;
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void shouldLoadSortedPairsIntoPersistedTree() throws Exception
+    {
+        final List<Map.Entry<byte[], byte[]>> pairs = generateSortedPairs(5000);
+
+        final NodesManager nodesManager = createNewPersistedNodesManager(tempDirectory);
+        final BTreeBulkLoader bulkLoader = new BTreeBulkLoader(nodesManager, new StubTimeSource(), 0.7);
+        final @PageNumber long rootPageNumber = bulkLoader.load(pairs.iterator(), LOADED_VERSION);
+        nodesManager.close();
+
+        try (final BTreeImpl readBTree = loadPersistedBtree(tempDirectory))
+        {
+            assertEquals(rootPageNumber, readBTree.getCommittedRoot());
+            for (final Map.Entry<byte[], byte[]> pair : pairs)
+            {
+                assertArrayEquals(pair.getValue(), readBTree.get(pair.getKey()));
+            }
+            assertNull(readBTree.get(BinaryHelper.longToBytes(-1L)));
+
+            final List<byte[]> actualKeys = new ArrayList<>();
+            readBTree.consumeAll((key, value) -> actualKeys.add(key));
+            assertEquals(pairs.size(), actualKeys.size());
+            for (int i = 0; i < pairs.size(); i++)
+            {
+                assertArrayEquals(pairs.get(i).getKey(), actualKeys.get(i));
+            }
+        }
+    }
+
+    @Test
+    void shouldKeepAllSubtreesWhenTheLastChildFillsTheTopNode() throws Exception
+    {
+        //with this fill factor the non leaf nodes hold a few children, so some of these sizes fill the top node
+        //with the last leaf, and the top node has to be split when committing the levels
+        for (int numberOfPairs = 2; numberOfPairs <= 120; numberOfPairs++)
+        {
+            final List<Map.Entry<byte[], byte[]>> pairs = generateSortedPairs(numberOfPairs);
+
+            final Path directory = Files.createDirectory(tempDirectory.resolve(String.valueOf(numberOfPairs)));
+            final NodesManager nodesManager = createNewPersistedNodesManager(directory);
+            final BTreeBulkLoader bulkLoader = new BTreeBulkLoader(nodesManager, new StubTimeSource(), 0.3);
+            final @PageNumber long rootPageNumber = bulkLoader.load(pairs.iterator(), LOADED_VERSION);
+
+            //the lookups also check that no non leaf node was written with a single child
+            try (final BTree bTree = loadTree(nodesManager, rootPageNumber))
+            {
+                for (final Map.Entry<byte[], byte[]> pair : pairs)
+                {
+                    assertArrayEquals(pair.getValue(), bTree.get(pair.getKey()));
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldAllowUpdatesAfterLoading() throws Exception
+    {
+        final List<Map.Entry<byte[], byte[]>> pairs = generateSortedPairs(1000);
+
+        final NodesManager nodesManager = createNewPersistedNodesManager(tempDirectory);
+        final BTreeBulkLoader bulkLoader = new BTreeBulkLoader(nodesManager, new StubTimeSource(), 1.0);
+        final @PageNumber long rootPageNumber = bulkLoader.load(pairs.iterator(), LOADED_VERSION);
+
+        final byte[] updatedKey = pairs.get(500).getKey();
+        final byte[] removedKey = pairs.get(0).getKey();
+        final byte[] newKey = BinaryHelper.longToBytes(5000L);
+        final byte[] newValue = BinaryHelper.longToBytes(-5000L);
+        try (final BTree bTree = loadTree(nodesManager, rootPageNumber))
+        {
+            bTree.put(updatedKey, newValue);
+            bTree.put(newKey, newValue);
+            bTree.remove(removedKey);
+            bTree.commit();
+
+            assertArrayEquals(newValue, bTree.get(updatedKey));
+            assertArrayEquals(newValue, bTree.get(newKey));
+            assertNull(bTree.get(removedKey));
+            assertArrayEquals(pairs.get(500).getValue(), bTree.get(updatedKey, LOADED_VERSION));
+            assertArrayEquals(pairs.get(999).getValue(), bTree.get(pairs.get(999).getKey()));
+        }
+    }
+
+    @Test
+    void shouldLoadEmptyTree() throws Exception
+    {
+        final NodesManager nodesManager = createNewPersistedNodesManager(tempDirectory);
+        final BTreeBulkLoader bulkLoader = new BTreeBulkLoader(nodesManager, new StubTimeSource(), 0.5);
+        final @PageNumber long rootPageNumber = bulkLoader.load(Collections.emptyIterator(), LOADED_VERSION);
+
+        try (final BTree bTree = loadTree(nodesManager, rootPageNumber))
+        {
+            assertNull(bTree.get(BinaryHelper.longToBytes(1L)));
+
+            bTree.put(BinaryHelper.longToBytes(1L), BinaryHelper.longToBytes(2L));
+            assertArrayEquals(BinaryHelper.longToBytes(2L), bTree.get(BinaryHelper.longToBytes(1L)));
+        }
+    }
+
+    @Test
+    void shouldNotLoadPairsThatAreNotSorted() throws Exception
+    {
+        final List<Map.Entry<byte[], byte[]>> pairs = generateSortedPairs(100);
+        Collections.swap(pairs, 10, 20);
+
+        final NodesManager nodesManager = createNewPersistedNodesManager(tempDirectory);
+        final BTreeBulkLoader bulkLoader = new BTreeBulkLoader(nodesManager, new StubTimeSource(), 0.5);
+        final @PageNumber long lastRootPageNumber = nodesManager.loadLastRootPageNumber();
+
+        final IllegalArgumentException exception =
+                assertThrows(IllegalArgumentException.class, () -> bulkLoader.load(pairs.iterator(), LOADED_VERSION));
+        assertEquals("Keys must be strictly increasing for bulk loading", exception.getMessage());
+        assertEquals(lastRootPageNumber, nodesManager.loadLastRootPageNumber());
+
+        nodesManager.close();
+    }
+
+    @Test
+    void shouldNotAcceptInvalidFillFactor() throws Exception
+    {
+        final NodesManager nodesManager = createNewPersistedNodesManager(tempDirectory);
+
+        assertThrows(IllegalArgumentException.class, () -> new BTreeBulkLoader(nodesManager, new StubTimeSource(), 0));
+        assertThrows(IllegalArgumentException.class, () -> new BTreeBulkLoader(nodesManager, new StubTimeSource(), 1.1));
+
+        nodesManager.close();
+    }
+
+    private static BTreeImpl loadTree(final NodesManager nodesManager, final @PageNumber long rootPageNumber)
+    {
+        return new BTreeImpl(
+                nodesManager,
+                new StubTimeSource(),
+                StorageUnits.version(LOADED_VERSION + 1),
+                rootPageNumber,
+                null);
+    }
+
+    private static List<Map.Entry<byte[], byte[]>> generateSortedPairs(final int numberOfPairs)
+    {
+        final List<Map.Entry<byte[], byte[]>> pairs = new ArrayList<>(numberOfPairs);
+        for (long i = 0; i < numberOfPairs; i++)
+        {
+            pairs.add(new AbstractMap.SimpleImmutableEntry<>(BinaryHelper.longToBytes(i), BinaryHelper.longToBytes(i * 2)));
+        }
+
+        pairs.sort((first, second) -> ByteArrayComparator.INSTANCE.compare(first.getKey(), second.getKey()));
+        return pairs;
+    }
+}
@@ -0,0 +1,125 @@
+package org.logdb.integration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.logdb.bbtree.BTreeImpl;
+import org.logdb.bbtree.IndexVacuum;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.Version;
+import org.logdb.storage.file.FileType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.logdb.integration.TestIntegrationUtils.createNewPersistedBtree;
+import static org.logdb.integration.TestIntegrationUtils.loadPersistedBtree;
+
+class IndexVacuumIntegrationTest
+{
+    private static final int NUMBER_OF_KEYS = 100;
+    private static final int NUMBER_OF_ROUNDS = 6;
+    private static final @Version long LATEST_VERSION = StorageUnits.version(Long.MAX_VALUE);
+
+    @TempDir
+    Path tempDirectory;
+
+    @Test
+    void shouldDeleteSegmentsOnlyReachableFromVersionsOlderThanTheHorizon() throws Exception
+    {
+        try (final BTreeImpl bTree = createNewPersistedBtree(tempDirectory))
+        {
+            final @Version long retainedVersion = putAllRounds(bTree, NUMBER_OF_ROUNDS);
+            final long indexFilesBeforeVacuum = countIndexFiles();
+
+            final IndexVacuum indexVacuum = new IndexVacuum(bTree, 0.5);
+            final int deletedSegments = indexVacuum.vacuum(retainedVersion);
+
+            assertTrue(deletedSegments > 0);
+            assertEquals(indexFilesBeforeVacuum - deletedSegments, countIndexFiles());
+            assertAllKeysHaveValuesOfRound(bTree, NUMBER_OF_ROUNDS - 1);
+
+            final byte[] key = BinaryHelper.longToBytes(0);
+            assertArrayEquals(buildValue(NUMBER_OF_ROUNDS - 1, 0), bTree.get(key, retainedVersion));
+        }
+    }
+
+    @Test
+    void shouldRelocateLivePagesOutOfMostlyDeadSegments() throws Exception
+    {
+        try (final BTreeImpl bTree = createNewPersistedBtree(tempDirectory))
+        {
+            putAllRounds(bTree, NUMBER_OF_ROUNDS);
+
+            final IndexVacuum indexVacuum = new IndexVacuum(bTree, 0.1);
+            indexVacuum.vacuum(LATEST_VERSION);
+            final long indexFilesAfterRelocating = countIndexFiles();
+
+            //the root committed by the previous vacuum is the only one retained now
+            assertTrue(indexVacuum.vacuum(LATEST_VERSION) > 0);
+            assertTrue(countIndexFiles() < indexFilesAfterRelocating);
+            assertAllKeysHaveValuesOfRound(bTree, NUMBER_OF_ROUNDS - 1);
+        }
+
+        try (final BTreeImpl readBTree = loadPersistedBtree(tempDirectory))
+        {
+            assertAllKeysHaveValuesOfRound(readBTree, NUMBER_OF_ROUNDS - 1);
+        }
+    }
+
+    @Test
+    void shouldNotAcceptInvalidDeadRatio() throws Exception
+    {
+        try (final BTreeImpl bTree = createNewPersistedBtree(tempDirectory))
+        {
+            assertThrows(IllegalArgumentException.class, () -> new IndexVacuum(bTree, -0.1));
+            assertThrows(IllegalArgumentException.class, () -> new IndexVacuum(bTree, 1.1));
+        }
+    }
+
+    /**
+     * @return the version of the first write of the last round
+     */
+    private static @Version long putAllRounds(final BTreeImpl bTree, final int numberOfRounds) throws IOException
+    {
+        @Version long lastRoundVersion = StorageUnits.INITIAL_VERSION;
+        for (int round = 0; round < numberOfRounds; round++)
+        {
+            lastRoundVersion = StorageUnits.version((long) round * NUMBER_OF_KEYS);
+            for (int i = 0; i < NUMBER_OF_KEYS; i++)
+            {
+                bTree.put(BinaryHelper.longToBytes(i), buildValue(round, i));
+                bTree.commit();
+            }
+        }
+
+        return lastRoundVersion;
+    }
+
+    private static void assertAllKeysHaveValuesOfRound(final BTreeImpl bTree, final int round)
+    {
+        for (int i = 0; i < NUMBER_OF_KEYS; i++)
+        {
+            assertArrayEquals(buildValue(round, i), bTree.get(BinaryHelper.longToBytes(i)));
+        }
+    }
+
+    private static byte[] buildValue(final int round, final int i)
+    {
+        return BinaryHelper.longToBytes(((long) round * NUMBER_OF_KEYS) + i);
+    }
+
+    private long countIndexFiles() throws IOException
+    {
+        try (Stream<Path> files = Files.list(tempDirectory))
+        {
+            return files.filter(FileType.INDEX).count();
+        }
+    }
+}
@@ -4,21 +4,43 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.logdb.CompactionMetrics;
+import org.logdb.Cursor;
 import org.logdb.LogDb;
+import org.logdb.LogDbCompactor;
+import org.logdb.Snapshot;
+import org.logdb.WriteBatch;
+import org.logdb.async.NonDaemonThreadFactory;
+import org.logdb.bbtree.VersionNotFoundException;
 import org.logdb.bit.BinaryHelper;
+import org.logdb.bit.ByteArrayComparator;
 import org.logdb.builder.LogDbBuilder;
+import org.logdb.logfile.ValueView;
+import org.logdb.storage.StorageUnits;
 import org.logdb.storage.Version;
 import org.logdb.storage.file.FileStorageUtil;
 import org.logdb.storage.file.FileType;
 import org.logdb.support.StubTimeSource;
 import org.logdb.support.TestUtils;
+import org.logdb.time.TimeUnits;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 abstract class LogDbBaseIntegrationTest
 {
@@ -26,17 +48,28 @@ abstract class LogDbBaseIntegrationTest
     private LogDb logDB;
 
     private final boolean shouldUseIndexWithLog;
+    private final boolean shouldUseLeafPrefixCompression;
 
     protected LogDbBaseIntegrationTest(boolean shouldUseIndexWithLog)
+    {
+        this(shouldUseIndexWithLog, false);
+    }
+
+    protected LogDbBaseIntegrationTest(boolean shouldUseIndexWithLog, boolean shouldUseLeafPrefixCompression)
     {
         this.shouldUseIndexWithLog = shouldUseIndexWithLog;
+        this.shouldUseLeafPrefixCompression = shouldUseLeafPrefixCompression;
     }
 
     @BeforeEach
     void setUp() throws IOException
     {
-        final LogDbBuilder logDbBuilder = new LogDbBuilder();
-        logDB = logDbBuilder
+        logDB = buildLogDb();
+    }
+
+    private LogDb buildLogDb() throws IOException
+    {
+        return new LogDbBuilder()
                 .setRootDirectory(tempDirectory)
                 .setTimeSource(new StubTimeSource())
                 .setByteOrder(TestUtils.BYTE_ORDER)
@@ -44,6 +77,7 @@ abstract class LogDbBaseIntegrationTest
                 .setPageSizeBytes(TestUtils.PAGE_SIZE_BYTES)
                 .pageLogSize(TestUtils.NODE_LOG_SIZE)
                 .useIndexWithLog(shouldUseIndexWithLog)
+                .leafPrefixCompression(shouldUseLeafPrefixCompression)
                 .pageLogSize(TestUtils.NODE_LOG_SIZE)
                 .build();
     }
@@ -76,6 +110,374 @@ abstract class LogDbBaseIntegrationTest
         }
     }
 
+    @Test
+    void shouldGetValueViewsWithoutCopying() throws IOException
+    {
+        final int numOfPairs = 10;
+        for (int i = 0; i < numOfPairs; i++)
+        {
+            logDB.put(BinaryHelper.longToBytes(i), buildExpectedValue(i).getBytes());
+        }
+        logDB.commitIndex();
+
+        for (int i = 0; i < numOfPairs; i++)
+        {
+            final byte[] expectedValue = buildExpectedValue(i).getBytes();
+            try (ValueView valueView = logDB.getView(BinaryHelper.longToBytes(i)))
+            {
+                assertEquals(expectedValue.length, valueView.getLength());
+                assertArrayEquals(expectedValue, valueView.toArray());
+            }
+        }
+
+        assertNull(logDB.getView(BinaryHelper.longToBytes(numOfPairs)));
+    }
+
+    @Test
+    void shouldVisitValuesWithoutCopying() throws IOException
+    {
+        final int numOfPairs = 10;
+        for (int i = 0; i < numOfPairs; i++)
+        {
+            logDB.put(BinaryHelper.longToBytes(i), buildExpectedValue(i).getBytes());
+        }
+        logDB.commitIndex();
+
+        for (int i = 0; i < numOfPairs; i++)
+        {
+            final byte[] expectedValue = buildExpectedValue(i).getBytes();
+            final byte[] visitedValue = new byte[expectedValue.length];
+            final boolean found = logDB.get(BinaryHelper.longToBytes(i), (memory, length) ->
+            {
+                assertEquals(expectedValue.length, length);
+                memory.getBytes(visitedValue);
+            });
+
+            assertTrue(found);
+            assertArrayEquals(expectedValue, visitedValue);
+        }
+
+        assertFalse(logDB.get(BinaryHelper.longToBytes(numOfPairs), (memory, length) -> fail("key is not present")));
+    }
+
+    @Test
+    void shouldWriteBatchWithSingleVersionInLogAndIndex() throws IOException
+    {
+        final int numOfPairs = 100;
+        final WriteBatch putBatch = new WriteBatch();
+        for (int i = 0; i < numOfPairs; i++)
+        {
+            putBatch.put(BinaryHelper.longToBytes(i), buildExpectedValue(i).getBytes());
+        }
+        logDB.write(putBatch);
+        logDB.commitIndex();
+
+        final WriteBatch mixedBatch = new WriteBatch();
+        for (int i = 0; i < numOfPairs; i += 2)
+        {
+            mixedBatch.delete(BinaryHelper.longToBytes(i));
+        }
+        mixedBatch.put(BinaryHelper.longToBytes(1), buildExpectedValue(-1).getBytes());
+        logDB.write(mixedBatch);
+        logDB.commitIndex();
+
+        for (int i = 0; i < numOfPairs; i++)
+        {
+            final byte[] key = BinaryHelper.longToBytes(i);
+            assertArrayEquals(buildExpectedValue(i).getBytes(), logDB.get(key, 0));
+            if (i == 1)
+            {
+                assertArrayEquals(buildExpectedValue(-1).getBytes(), logDB.get(key));
+            }
+            else if (i % 2 == 0)
+            {
+                assertNull(logDB.get(key));
+            }
+            else
+            {
+                assertArrayEquals(buildExpectedValue(i).getBytes(), logDB.get(key));
+            }
+        }
+
+        final @Version long indexVersion = FileStorageUtil.getLastAppendVersion(tempDirectory, FileType.INDEX);
+        final @Version long heapVersion = FileStorageUtil.getLastAppendVersion(tempDirectory, FileType.HEAP);
+
+        assertEquals(1, indexVersion);
+        assertEquals(1, heapVersion);
+    }
+
+    @Test
+    void shouldScanRangeWithCursor() throws IOException
+    {
+        final int numOfPairs = 200;
+        for (int i = 0; i < numOfPairs; i++)
+        {
+            logDB.put(BinaryHelper.longToBytes(i), buildExpectedValue(i).getBytes());
+            if (i == numOfPairs / 2)
+            {
+                logDB.commitIndex();
+            }
+        }
+        logDB.delete(BinaryHelper.longToBytes(51));
+
+        final List<Integer> expectedKeys = new ArrayList<>();
+        for (int i = 0; i < numOfPairs; i++)
+        {
+            if (i != 51)
+            {
+                expectedKeys.add(i);
+            }
+        }
+        expectedKeys.sort((first, second) ->
+                ByteArrayComparator.INSTANCE.compare(BinaryHelper.longToBytes(first), BinaryHelper.longToBytes(second)));
+
+        try (Cursor cursor = logDB.openCursor())
+        {
+            assertTrue(cursor.seekToFirst());
+            for (final int expectedKey : expectedKeys)
+            {
+                assertArrayEquals(BinaryHelper.longToBytes(expectedKey), cursor.getKey());
+                assertArrayEquals(buildExpectedValue(expectedKey).getBytes(), cursor.getValue());
+                cursor.next();
+            }
+            assertFalse(cursor.isValid());
+
+            assertTrue(cursor.seekToLast());
+            assertArrayEquals(BinaryHelper.longToBytes(expectedKeys.get(expectedKeys.size() - 1)), cursor.getKey());
+            assertTrue(cursor.prev());
+            assertArrayEquals(BinaryHelper.longToBytes(expectedKeys.get(expectedKeys.size() - 2)), cursor.getKey());
+        }
+    }
+
+    @Test
+    void shouldKeepReadingSnapshotWhileWritingAndCommitting() throws IOException
+    {
+        final int numOfPairs = 100;
+        for (int i = 0; i < numOfPairs; i++)
+        {
+            logDB.put(BinaryHelper.longToBytes(i), buildExpectedValue(i).getBytes());
+            if (i == numOfPairs / 2)
+            {
+                logDB.commitIndex();
+            }
+        }
+
+        try (Snapshot uncommittedSnapshot = logDB.snapshot())
+        {
+            logDB.commitIndex();
+
+            try (Snapshot committedSnapshot = logDB.snapshot())
+            {
+                assertEquals(uncommittedSnapshot.getVersion(), committedSnapshot.getVersion());
+
+                for (int i = 0; i < numOfPairs; i++)
+                {
+                    logDB.put(BinaryHelper.longToBytes(i), buildExpectedValue(i + numOfPairs).getBytes());
+                }
+                logDB.delete(BinaryHelper.longToBytes(0));
+                logDB.commitIndex();
+
+                for (final Snapshot snapshot : Arrays.asList(uncommittedSnapshot, committedSnapshot))
+                {
+                    for (int i = 0; i < numOfPairs; i++)
+                    {
+                        assertArrayEquals(buildExpectedValue(i).getBytes(), snapshot.get(BinaryHelper.longToBytes(i)));
+                    }
+
+                    try (Cursor cursor = snapshot.openCursor())
+                    {
+                        assertTrue(cursor.seek(BinaryHelper.longToBytes(0)));
+                        assertArrayEquals(BinaryHelper.longToBytes(0), cursor.getKey());
+                        assertArrayEquals(buildExpectedValue(0).getBytes(), cursor.getValue());
+                    }
+                }
+
+                assertNull(logDB.get(BinaryHelper.longToBytes(0)));
+                assertArrayEquals(buildExpectedValue(numOfPairs + 1).getBytes(), logDB.get(BinaryHelper.longToBytes(1)));
+            }
+        }
+
+        try (Snapshot historicSnapshot = logDB.snapshot(StorageUnits.version(numOfPairs / 2)))
+        {
+            assertArrayEquals(buildExpectedValue(numOfPairs / 2).getBytes(),
+                    historicSnapshot.get(BinaryHelper.longToBytes(numOfPairs / 2)));
+            assertNull(historicSnapshot.get(BinaryHelper.longToBytes(numOfPairs / 2 + 1)));
+        }
+    }
+
+    @Test
+    void shouldCompactSegmentsWithDeadRecords() throws Exception
+    {
+        final int numOfKeys = 10;
+        final int numOfRounds = 30;
+        for (int round = 0; round < numOfRounds; round++)
+        {
+            for (int i = 0; i < numOfKeys; i++)
+            {
+                logDB.put(BinaryHelper.longToBytes(i), buildLargeValue(round, i));
+            }
+        }
+        logDB.delete(BinaryHelper.longToBytes(0));
+        logDB.commitIndex();
+
+        final long heapFilesBeforeCompaction = countHeapFiles();
+        assertTrue(heapFilesBeforeCompaction > 2);
+
+        try (LogDbCompactor compactor = new LogDbCompactor(logDB, 0.5, StorageUnits.size(Long.MAX_VALUE), 4);
+             Snapshot snapshot = logDB.snapshot(StorageUnits.version(numOfKeys)))
+        {
+            assertTrue(compactor.compact() > 0);
+
+            final CompactionMetrics metrics = compactor.getMetrics();
+            assertTrue(metrics.getReclaimedBytes() > 0);
+            assertTrue(metrics.getWriteAmplification() >= 1.0);
+
+            //the snapshot keeps the compacted segments until it's closed
+            assertEquals(heapFilesBeforeCompaction, countHeapFiles());
+            assertArrayEquals(buildLargeValue(1, 0), snapshot.get(BinaryHelper.longToBytes(0)));
+        }
+
+        assertTrue(countHeapFiles() < heapFilesBeforeCompaction);
+        assertNull(logDB.get(BinaryHelper.longToBytes(0)));
+        for (int i = 1; i < numOfKeys; i++)
+        {
+            assertArrayEquals(buildLargeValue(numOfRounds - 1, i), logDB.get(BinaryHelper.longToBytes(i)));
+        }
+    }
+
+    @Test
+    void shouldNotFindTheVersionsOfRelocatedRecordsAfterCompaction() throws Exception
+    {
+        final int numOfKeys = 10;
+        final int numOfRounds = 30;
+        for (int round = 0; round < numOfRounds; round++)
+        {
+            for (int i = 0; i < numOfKeys; i++)
+            {
+                logDB.put(BinaryHelper.longToBytes(i), buildLargeValue(round, i));
+            }
+        }
+        logDB.commitIndex();
+
+        //the first round of puts is in the first segment, that is dead enough to be compacted
+        final byte[] key = BinaryHelper.longToBytes(1);
+        final @Version long firstRoundVersion = StorageUnits.version(1);
+        assertArrayEquals(buildLargeValue(0, 1), logDB.get(key, firstRoundVersion));
+
+        try (LogDbCompactor compactor = new LogDbCompactor(logDB, 0.5, StorageUnits.size(Long.MAX_VALUE), 4))
+        {
+            assertTrue(compactor.compact() > 0);
+        }
+
+        assertThrows(VersionNotFoundException.class, () -> logDB.get(key, firstRoundVersion));
+        try (Snapshot snapshot = logDB.snapshot(firstRoundVersion))
+        {
+            assertThrows(VersionNotFoundException.class, () -> snapshot.get(key));
+        }
+        assertArrayEquals(buildLargeValue(numOfRounds - 1, 1), logDB.get(key));
+
+        logDB.close();
+        logDB = buildLogDb();
+
+        assertThrows(VersionNotFoundException.class, () -> logDB.get(key, firstRoundVersion));
+        assertArrayEquals(buildLargeValue(numOfRounds - 1, 1), logDB.get(key));
+    }
+
+    @Test
+    void shouldNotCompactInTheBackgroundOfASingleWriter() throws Exception
+    {
+        try (LogDbCompactor compactor = new LogDbCompactor(logDB, 0.5, StorageUnits.size(Long.MAX_VALUE), 4))
+        {
+            assertThrows(
+                    IllegalStateException.class,
+                    () -> compactor.start(new NonDaemonThreadFactory(), TimeUnits.millis(1000)));
+        }
+    }
+
+    @Test
+    void shouldReadWhileCompacting() throws Exception
+    {
+        final int numOfKeys = 10;
+        final int numOfRounds = 30;
+        try (LogDbCompactor compactor = new LogDbCompactor(logDB, 0.5, StorageUnits.size(Long.MAX_VALUE), 4))
+        {
+            for (int compaction = 0; compaction < 10; compaction++)
+            {
+                //the values read stay live and get relocated, the overwritten ones make their segments worth compacting
+                for (int i = 0; i < numOfKeys; i++)
+                {
+                    logDB.put(BinaryHelper.longToBytes(i), buildLargeValue(compaction, i));
+                }
+                for (int round = 0; round < numOfRounds; round++)
+                {
+                    for (int i = numOfKeys; i < numOfKeys * 2; i++)
+                    {
+                        logDB.put(BinaryHelper.longToBytes(i), buildLargeValue(round, i));
+                    }
+                }
+                logDB.commitIndex();
+
+                final int expectedRound = compaction;
+                final AtomicBoolean isReading = new AtomicBoolean(true);
+                final AtomicReference<Throwable> readFailure = new AtomicReference<>();
+                final List<Thread> readers = new ArrayList<>();
+                for (int reader = 0; reader < 4; reader++)
+                {
+                    final Thread readerThread = new Thread(() -> readUntilStopped(numOfKeys, expectedRound, isReading, readFailure));
+                    readerThread.start();
+                    readers.add(readerThread);
+                }
+
+                try
+                {
+                    assertTrue(compactor.compact() > 0);
+                }
+                finally
+                {
+                    isReading.set(false);
+                    for (final Thread readerThread : readers)
+                    {
+                        readerThread.join();
+                    }
+                }
+
+                if (readFailure.get() != null)
+                {
+                    throw new AssertionError("Unable to read while compacting", readFailure.get());
+                }
+            }
+        }
+    }
+
+    private void readUntilStopped(
+            final int numOfKeys,
+            final int round,
+            final AtomicBoolean isReading,
+            final AtomicReference<Throwable> readFailure)
+    {
+        try
+        {
+            while (isReading.get())
+            {
+                for (int i = 0; i < numOfKeys; i++)
+                {
+                    final byte[] key = BinaryHelper.longToBytes(i);
+                    final byte[] expectedValue = buildLargeValue(round, i);
+                    assertArrayEquals(expectedValue, logDB.get(key));
+                    try (ValueView valueView = logDB.getView(key))
+                    {
+                        assertArrayEquals(expectedValue, valueView.toArray());
+                    }
+                    assertTrue(logDB.get(key, (memory, length) -> assertEquals(expectedValue.length, length)));
+                }
+            }
+        }
+        catch (final Throwable e)
+        {
+            readFailure.compareAndSet(null, e);
+        }
+    }
+
     @Test
     void shouldPersistsAndGetHistoricValuesFromDB() throws IOException
     {
@@ -155,6 +557,21 @@ abstract class LogDbBaseIntegrationTest
         assertEquals(expectedVersion, heapVersion);
     }
 
+    private long countHeapFiles() throws IOException
+    {
+        try (Stream<Path> files = Files.list(tempDirectory))
+        {
+            return files.filter(FileType.HEAP).count();
+        }
+    }
+
+    private static byte[] buildLargeValue(final int round, final int i)
+    {
+        final byte[] value = new byte[1024];
+        Arrays.fill(value, (byte) (round * 31 + i));
+        return value;
+    }
+
     private String buildExpectedValue(int i)
     {
         return "expectedValue" + i;
@@ -0,0 +1,187 @@
+package org.logdb.integration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.logdb.LogDb;
+import org.logdb.async.ConcurrentWriteBTree;
+import org.logdb.async.NonDaemonThreadFactory;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.builder.LogDbBuilder;
+import org.logdb.checksum.ChecksumHelper;
+import org.logdb.checksum.ChecksumType;
+import org.logdb.checksum.Crc32;
+import org.logdb.logfile.LogFile;
+import org.logdb.storage.ByteOffset;
+import org.logdb.storage.file.FileStorage;
+import org.logdb.storage.file.FileStorageFactory;
+import org.logdb.storage.file.FileType;
+import org.logdb.support.StubTimeSource;
+import org.logdb.support.TestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.logdb.integration.TestIntegrationUtils.createNewPersistedBtree;
+import static org.logdb.support.TestUtils.NODE_LOG_SIZE;
+import static org.logdb.support.TestUtils.PAGE_SIZE_BYTES;
+
+class LogDbConcurrentWriteIntegrationTest
+{
+    @TempDir Path tempDirectory;
+
+    @Test
+    void shouldGetTheNewestValueAfterConcurrentPutsOfTheSameKey() throws Exception
+    {
+        final int numberOfThreads = 8;
+        final int numberOfRounds = 50;
+        final byte[] key = "key".getBytes();
+        final Map<String, Long> valueOffsets = new ConcurrentHashMap<>();
+
+        final FileStorage heapStorage = FileStorageFactory.createNew(
+                tempDirectory,
+                FileType.HEAP,
+                TestUtils.SEGMENT_FILE_SIZE,
+                TestUtils.BYTE_ORDER,
+                PAGE_SIZE_BYTES,
+                NODE_LOG_SIZE,
+                ChecksumType.CRC32);
+        final LogFile logFile = new LogFile(
+                heapStorage,
+                new StubTimeSource(),
+                heapStorage.getAppendVersion(),
+                true,
+                new ChecksumHelper(new Crc32(), ChecksumType.CRC32))
+        {
+            @Override
+            public @ByteOffset long put(final byte[] key, final byte[] value) throws IOException
+            {
+                final @ByteOffset long offset = super.put(key, value);
+                valueOffsets.put(new String(value), offset);
+                return offset;
+            }
+        };
+        logFile.startGroupCommit(new NonDaemonThreadFactory(), 16);
+
+        try (LogDb logDb = new LogDb(logFile, new ConcurrentWriteBTree(createNewPersistedBtree(tempDirectory), 16), true))
+        {
+            for (int round = 0; round < numberOfRounds; round++)
+            {
+                valueOffsets.clear();
+
+                final CountDownLatch startLatch = new CountDownLatch(1);
+                final AtomicReference<Throwable> writeFailure = new AtomicReference<>();
+                final Thread[] writers = new Thread[numberOfThreads];
+                for (int t = 0; t < numberOfThreads; t++)
+                {
+                    final String value = "value" + round + "-" + t;
+                    writers[t] = new Thread(() ->
+                    {
+                        try
+                        {
+                            startLatch.await();
+                            logDb.put(key, value.getBytes());
+                        }
+                        catch (final Throwable e)
+                        {
+                            writeFailure.compareAndSet(null, e);
+                        }
+                    });
+                    writers[t].start();
+                }
+
+                startLatch.countDown();
+                for (final Thread writer : writers)
+                {
+                    writer.join();
+                }
+
+                if (writeFailure.get() != null)
+                {
+                    throw new AssertionError("Unable to put concurrently", writeFailure.get());
+                }
+
+                //the record appended last is the newest one, whatever order the writers returned in
+                final String newestValue = valueOffsets.entrySet().stream()
+                        .max(Map.Entry.comparingByValue())
+                        .map(Map.Entry::getKey)
+                        .orElseThrow(IllegalStateException::new);
+                assertArrayEquals(newestValue.getBytes(), logDb.get(key), "round " + round);
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectConcurrentWritersWithTheDefaultIndex()
+    {
+        assertThrows(RuntimeException.class, () -> createBuilder().concurrentWriters(true).build());
+        assertThrows(RuntimeException.class, () -> createBuilder().concurrentWriters(true).groupCommit(true).build());
+    }
+
+    @Test
+    void shouldPutConcurrentlyWithGroupCommitAndAConcurrentIndex() throws Exception
+    {
+        final int numberOfThreads = 4;
+        final int keysPerThread = 250;
+
+        try (LogDb logDb = createBuilder()
+                .concurrentWriters(true)
+                .concurrentIndexWrite(true)
+                .groupCommit(true)
+                .build())
+        {
+            final ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+            try
+            {
+                final List<Future<?>> writers = new ArrayList<>();
+                for (int t = 0; t < numberOfThreads; t++)
+                {
+                    final long firstKey = t * keysPerThread;
+                    writers.add(executor.submit(() ->
+                    {
+                        for (long i = firstKey; i < firstKey + keysPerThread; i++)
+                        {
+                            logDb.put(BinaryHelper.longToBytes(i), BinaryHelper.longToBytes(i));
+                        }
+                        return null;
+                    }));
+                }
+
+                for (final Future<?> writer : writers)
+                {
+                    writer.get();
+                }
+            }
+            finally
+            {
+                executor.shutdown();
+            }
+
+            for (long i = 0; i < numberOfThreads * keysPerThread; i++)
+            {
+                assertArrayEquals(BinaryHelper.longToBytes(i), logDb.get(BinaryHelper.longToBytes(i)));
+            }
+        }
+    }
+
+    private LogDbBuilder createBuilder()
+    {
+        return new LogDbBuilder()
+                .setRootDirectory(tempDirectory)
+                .setTimeSource(new StubTimeSource())
+                .setByteOrder(TestUtils.BYTE_ORDER)
+                .setSegmentFileSize(TestUtils.SEGMENT_FILE_SIZE)
+                .setPageSizeBytes(PAGE_SIZE_BYTES)
+                .pageLogSize(NODE_LOG_SIZE);
+    }
+}
@@ -0,0 +1,67 @@
+package org.logdb.integration;
+
+import org.junit.jupiter.api.Test;
+import org.logdb.LogDb;
+import org.logdb.builder.LogDbBuilder;
+import org.logdb.support.StubTimeSource;
+import org.logdb.support.TestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LogDbWithLeafPrefixCompressionIntegrationTest extends LogDbBaseIntegrationTest
+{
+    private static final int NUMBER_OF_KEYS = 500;
+
+    LogDbWithLeafPrefixCompressionIntegrationTest()
+    {
+        super(false, true);
+    }
+
+    @Test
+    void shouldKeepLeafPrefixCompressionOfExistingIndex() throws Exception
+    {
+        final Path rootDirectory = tempDirectory.resolve("structured-keys");
+        try (LogDb logDb = createBuilder(rootDirectory, true).build())
+        {
+            for (int i = 0; i < NUMBER_OF_KEYS; i++)
+            {
+                logDb.put(buildKey(i), buildKey(i));
+            }
+            logDb.delete(buildKey(0));
+            logDb.commitIndex();
+        }
+
+        //the flag of the builder only applies to new index files
+        try (LogDb logDb = createBuilder(rootDirectory, false).build())
+        {
+            assertNull(logDb.get(buildKey(0)));
+            for (int i = 1; i < NUMBER_OF_KEYS; i++)
+            {
+                assertArrayEquals(buildKey(i), logDb.get(buildKey(i)));
+            }
+        }
+    }
+
+    private static byte[] buildKey(final int index)
+    {
+        return String.format("tenant-%d/orders/2020-01-%02d/id-%06d", index % 3, index % 28, index)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static LogDbBuilder createBuilder(final Path rootDirectory, final boolean leafPrefixCompression) throws IOException
+    {
+        return new LogDbBuilder()
+                .setRootDirectory(rootDirectory)
+                .setTimeSource(new StubTimeSource())
+                .setByteOrder(TestUtils.BYTE_ORDER)
+                .setSegmentFileSize(TestUtils.SEGMENT_FILE_SIZE)
+                .setPageSizeBytes(TestUtils.PAGE_SIZE_BYTES)
+                .pageLogSize(TestUtils.NODE_LOG_SIZE)
+                .leafPrefixCompression(leafPrefixCompression);
+    }
+}
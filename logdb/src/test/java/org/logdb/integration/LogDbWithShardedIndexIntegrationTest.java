@@ -0,0 +1,170 @@
+package org.logdb.integration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.logdb.Cursor;
+import org.logdb.LogDb;
+import org.logdb.Snapshot;
+import org.logdb.bit.BinaryHelper;
+import org.logdb.builder.LogDbBuilder;
+import org.logdb.support.StubTimeSource;
+import org.logdb.support.TestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LogDbWithShardedIndexIntegrationTest
+{
+    private static final int NUMBER_OF_SHARDS = 4;
+    private static final int NUMBER_OF_WRITERS = 4;
+    private static final int KEYS_PER_WRITER = 250;
+
+    @TempDir Path tempDirectory;
+
+    @Test
+    void shouldWriteFromConcurrentWritersAndReopen() throws Exception
+    {
+        try (LogDb logDb = createBuilder().indexShards(NUMBER_OF_SHARDS).concurrentWriters(true).build())
+        {
+            final ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_WRITERS);
+            try
+            {
+                final List<Future<?>> writers = new ArrayList<>();
+                for (int writer = 0; writer < NUMBER_OF_WRITERS; writer++)
+                {
+                    final long firstKey = writer * KEYS_PER_WRITER;
+                    writers.add(executor.submit(() -> putKeys(logDb, firstKey, firstKey + KEYS_PER_WRITER)));
+                }
+
+                for (final Future<?> writer : writers)
+                {
+                    writer.get();
+                }
+            }
+            finally
+            {
+                executor.shutdown();
+            }
+
+            logDb.commitIndex();
+        }
+
+        try (LogDb logDb = createBuilder().indexShards(NUMBER_OF_SHARDS).build())
+        {
+            try (Cursor cursor = logDb.openCursor())
+            {
+                long expectedKey = 0;
+                for (boolean isValid = cursor.seekToFirst(); isValid; isValid = cursor.next())
+                {
+                    assertArrayEquals(BinaryHelper.longToSortableBytes(expectedKey), cursor.getKey());
+                    assertArrayEquals(BinaryHelper.longToBytes(expectedKey), cursor.getValue());
+                    expectedKey++;
+                }
+                assertEquals(NUMBER_OF_WRITERS * KEYS_PER_WRITER, expectedKey);
+            }
+        }
+    }
+
+    @Test
+    void shouldGetTheValuesOfOldShardedVersionsAfterReopen() throws Exception
+    {
+        final int numberOfCommits = 3;
+        final byte[] key = BinaryHelper.longToSortableBytes(0);
+        try (LogDb logDb = createBuilder().indexShards(NUMBER_OF_SHARDS).build())
+        {
+            for (int i = 0; i < numberOfCommits; i++)
+            {
+                putKeys(logDb, i * KEYS_PER_WRITER, (i + 1) * KEYS_PER_WRITER);
+                logDb.put(key, BinaryHelper.longToBytes(i));
+                logDb.commitIndex();
+            }
+        }
+
+        try (LogDb logDb = createBuilder().indexShards(NUMBER_OF_SHARDS).build())
+        {
+            for (int version = 0; version < numberOfCommits; version++)
+            {
+                assertArrayEquals(BinaryHelper.longToBytes(version), logDb.get(key, version));
+                try (Snapshot snapshot = logDb.snapshot(version))
+                {
+                    final long lastKey = (version + 1) * KEYS_PER_WRITER - 1;
+                    assertArrayEquals(
+                            BinaryHelper.longToBytes(lastKey),
+                            snapshot.get(BinaryHelper.longToSortableBytes(lastKey)));
+                    assertNull(snapshot.get(BinaryHelper.longToSortableBytes(lastKey + 1)));
+                }
+            }
+
+            logDb.put(key, BinaryHelper.longToBytes(numberOfCommits));
+            logDb.commitIndex();
+
+            assertArrayEquals(BinaryHelper.longToBytes(numberOfCommits), logDb.get(key, numberOfCommits));
+        }
+    }
+
+    @Test
+    void shouldPartitionTheIndexByRange() throws Exception
+    {
+        final int numberOfKeys = NUMBER_OF_WRITERS * KEYS_PER_WRITER;
+        try (LogDb logDb = createBuilder()
+                .indexShardSplitKeys(BinaryHelper.longToSortableBytes(numberOfKeys / 2))
+                .build())
+        {
+            putKeys(logDb, 0, numberOfKeys);
+            logDb.commitIndex();
+
+            for (long i = 0; i < numberOfKeys; i++)
+            {
+                assertArrayEquals(BinaryHelper.longToBytes(i), logDb.get(BinaryHelper.longToSortableBytes(i)));
+            }
+        }
+    }
+
+    @Test
+    void shouldNotOpenAnIndexWithADifferentNumberOfShards() throws Exception
+    {
+        try (LogDb logDb = createBuilder().indexShards(NUMBER_OF_SHARDS).build())
+        {
+            putKeys(logDb, 0, KEYS_PER_WRITER);
+            logDb.commitIndex();
+        }
+
+        assertThrows(RuntimeException.class, () -> createBuilder().indexShards(NUMBER_OF_SHARDS + 1).build());
+    }
+
+    private static void putKeys(final LogDb logDb, final long fromKey, final long toKey)
+    {
+        try
+        {
+            for (long i = fromKey; i < toKey; i++)
+            {
+                logDb.put(BinaryHelper.longToSortableBytes(i), BinaryHelper.longToBytes(i));
+            }
+        }
+        catch (final IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private LogDbBuilder createBuilder()
+    {
+        return new LogDbBuilder()
+                .setRootDirectory(tempDirectory)
+                .setTimeSource(new StubTimeSource())
+                .setByteOrder(TestUtils.BYTE_ORDER)
+                .setSegmentFileSize(TestUtils.SEGMENT_FILE_SIZE)
+                .setPageSizeBytes(TestUtils.PAGE_SIZE_BYTES)
+                .pageLogSize(TestUtils.NODE_LOG_SIZE);
+    }
+}
@@ -2,16 +2,31 @@ package org.logdb.integration;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.logdb.WriteBatch;
+import org.logdb.async.NonDaemonThreadFactory;
 import org.logdb.logfile.LogFile;
 import org.logdb.logfile.LogRecordHeader;
+import org.logdb.logfile.ValueView;
 import org.logdb.storage.ByteOffset;
+import org.logdb.storage.file.FileStorageUtil;
+import org.logdb.storage.file.FileType;
+import org.logdb.storage.memory.MemoryStorage;
 import org.logdb.support.TestUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteOrder;
 import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.logdb.integration.TestIntegrationUtils.createNewLogFile;
 import static org.logdb.integration.TestIntegrationUtils.readLogFile;
 import static org.logdb.support.Assertions.assertExceptionWithMessage;
@@ -215,6 +230,327 @@ class LogFileIntegrationTest
         }
     }
 
+    @Test
+    void shouldCommitRecordsFromConcurrentWritersInGroups() throws Exception
+    {
+        final int numberOfThreads = 4;
+        final int pairsPerThread = 100;
+        final long[][] offsets = new long[numberOfThreads][pairsPerThread];
+
+        try (final LogFile logFile = createNewLogFile(tempDirectory))
+        {
+            logFile.startGroupCommit(new NonDaemonThreadFactory(), 16);
+
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final Thread[] writers = new Thread[numberOfThreads];
+            for (int t = 0; t < numberOfThreads; t++)
+            {
+                final int threadIndex = t;
+                writers[t] = new Thread(() ->
+                {
+                    try
+                    {
+                        startLatch.await();
+                        for (int i = 0; i < pairsPerThread; i++)
+                        {
+                            final String key = "key" + threadIndex + "-" + i;
+                            final String value = "value" + threadIndex + "-" + i;
+                            offsets[threadIndex][i] = logFile.put(key.getBytes(), value.getBytes());
+                        }
+                    }
+                    catch (final Exception e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                });
+                writers[t].start();
+            }
+
+            startLatch.countDown();
+            for (final Thread writer : writers)
+            {
+                writer.join();
+            }
+
+            assertRecordsPresent(logFile, offsets);
+        }
+
+        assertEquals(numberOfThreads * pairsPerThread - 1, FileStorageUtil.getLastAppendVersion(tempDirectory, FileType.HEAP));
+
+        try (final LogFile logFile = readLogFile(tempDirectory))
+        {
+            assertRecordsPresent(logFile, offsets);
+        }
+    }
+
+    @Test
+    void shouldAppendFromConcurrentWritersWithoutGroupCommit() throws Exception
+    {
+        final int numberOfThreads = 8;
+        final int pairsPerThread = 300;
+        final long[][] offsets = new long[numberOfThreads][pairsPerThread];
+
+        try (final LogFile logFile = createNewLogFile(tempDirectory))
+        {
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final Thread[] writers = new Thread[numberOfThreads];
+            for (int t = 0; t < numberOfThreads; t++)
+            {
+                final int threadIndex = t;
+                writers[t] = new Thread(() ->
+                {
+                    try
+                    {
+                        startLatch.await();
+                        for (int i = 0; i < pairsPerThread; i++)
+                        {
+                            final String key = "key" + threadIndex + "-" + i;
+                            final String value = "value" + threadIndex + "-" + i;
+                            offsets[threadIndex][i] = logFile.put(key.getBytes(), value.getBytes());
+                        }
+                    }
+                    catch (final Exception e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                });
+                writers[t].start();
+            }
+
+            startLatch.countDown();
+            for (final Thread writer : writers)
+            {
+                writer.join();
+            }
+
+            assertRecordsPresent(logFile, offsets);
+        }
+
+        assertEquals(numberOfThreads * pairsPerThread - 1, FileStorageUtil.getLastAppendVersion(tempDirectory, FileType.HEAP));
+
+        try (final LogFile logFile = readLogFile(tempDirectory))
+        {
+            assertRecordsPresent(logFile, offsets);
+        }
+    }
+
+    @Test
+    void shouldReadFromConcurrentReadersWhileWriting() throws Exception
+    {
+        final int numberOfReaders = 8;
+        final int numberOfWriters = 2;
+        final int numberOfPairs = 500;
+        final int readsPerReader = 20_000;
+        final long[] offsets = new long[numberOfPairs];
+
+        try (final LogFile logFile = createNewLogFile(tempDirectory))
+        {
+            for (int i = 0; i < numberOfPairs; i++)
+            {
+                offsets[i] = logFile.put(("key" + i).getBytes(), ("value" + i).getBytes());
+            }
+
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final Thread[] threads = new Thread[numberOfReaders + numberOfWriters];
+            for (int t = 0; t < numberOfReaders; t++)
+            {
+                final long seed = t;
+                threads[t] = new Thread(() ->
+                {
+                    final Random random = new Random(seed);
+                    try
+                    {
+                        startLatch.await();
+                        for (int i = 0; i < readsPerReader; i++)
+                        {
+                            final int index = random.nextInt(numberOfPairs);
+                            assertArrayEquals(("value" + index).getBytes(), logFile.read(offsets[index]));
+                        }
+                    }
+                    catch (final Throwable e)
+                    {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+            }
+
+            for (int t = numberOfReaders; t < threads.length; t++)
+            {
+                final int writerIndex = t;
+                threads[t] = new Thread(() ->
+                {
+                    try
+                    {
+                        startLatch.await();
+                        for (int i = 0; i < numberOfPairs; i++)
+                        {
+                            final byte[] value = ("writer" + writerIndex + "-" + i).getBytes();
+                            final long offset = logFile.put(("key" + i).getBytes(), value);
+                            assertArrayEquals(value, logFile.read(offset));
+                        }
+                    }
+                    catch (final Throwable e)
+                    {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+            }
+
+            for (final Thread thread : threads)
+            {
+                thread.start();
+            }
+            startLatch.countDown();
+            for (final Thread thread : threads)
+            {
+                thread.join();
+            }
+
+            if (failure.get() != null)
+            {
+                throw new AssertionError("Concurrent read failed", failure.get());
+            }
+        }
+    }
+
+    @Test
+    void shouldKeepValueViewsReadableUntilClosed() throws Exception
+    {
+        final byte[] valueBytes = generateByteArray(PAGE_SIZE_BYTES * 3);
+
+        final LogFile logFile = createNewLogFile(tempDirectory);
+        final long offset = logFile.put("key".getBytes(), valueBytes);
+
+        final ValueView valueView = logFile.readView(offset);
+        logFile.close();
+
+        assertEquals(valueBytes.length, valueView.getLength());
+        assertArrayEquals(valueBytes, valueView.toArray());
+
+        valueView.close();
+        assertThrows(IllegalStateException.class, valueView::getMemory);
+    }
+
+    @Test
+    void shouldNotMapViewsOfDeleteRecords() throws Exception
+    {
+        try (final LogFile logFile = createNewLogFile(tempDirectory))
+        {
+            final long deleteOffset = logFile.delete("key".getBytes());
+
+            assertThrows(IllegalArgumentException.class, () -> logFile.readView(deleteOffset));
+            assertThrows(IllegalArgumentException.class, () -> logFile.read(deleteOffset, (memory, length) -> { }));
+        }
+    }
+
+    @Test
+    void shouldAppendBatchContiguouslyWithSingleVersion() throws Exception
+    {
+        final WriteBatch batch = new WriteBatch()
+                .put("key1".getBytes(), "value1".getBytes())
+                .delete("key2".getBytes())
+                .put("key3".getBytes(), "value3".getBytes());
+
+        try (final LogFile logFile = createNewLogFile(tempDirectory))
+        {
+            final long[] offsets = logFile.write(batch);
+
+            assertEquals(3, offsets.length);
+            final long headerSize = LogRecordHeader.RECORD_HEADER_STATIC_SIZE + HEADER_CHECKSUM_SIZE;
+            assertEquals(offsets[0] + headerSize + "key1".length() + "value1".length(), offsets[1]);
+            assertEquals(offsets[1] + headerSize + "key2".length(), offsets[2]);
+
+            assertArrayEquals("value1".getBytes(), logFile.read(offsets[0]));
+            assertThrows(IllegalArgumentException.class, () -> logFile.read(offsets[1]));
+            assertArrayEquals("value3".getBytes(), logFile.read(offsets[2]));
+        }
+
+        assertEquals(0, FileStorageUtil.getLastAppendVersion(tempDirectory, FileType.HEAP));
+    }
+
+    @Test
+    void shouldCompleteFuturesWithRecordOffsetsOnceCommitted() throws Exception
+    {
+        final byte[] keyBytes = "key".getBytes();
+        final byte[] valueBytes = "value".getBytes();
+
+        try (final LogFile logFile = createNewLogFile(tempDirectory))
+        {
+            logFile.startGroupCommit(new NonDaemonThreadFactory(), 8);
+
+            final CompletableFuture<Long> putFuture = logFile.putAsync(keyBytes, valueBytes);
+            final CompletableFuture<Long> deleteFuture = logFile.deleteAsync(keyBytes);
+
+            final long putOffset = putFuture.get();
+            final long deleteOffset = deleteFuture.get();
+
+            assertTrue(putOffset < deleteOffset);
+            assertArrayEquals(valueBytes, logFile.read(putOffset));
+            assertExceptionWithMessage(
+                    "offset " + deleteOffset + " refers to a delete record",
+                    () -> logFile.read(deleteOffset));
+        }
+    }
+
+    @Test
+    void shouldNotAcceptAsyncWritesWithoutGroupCommit() throws Exception
+    {
+        try (final LogFile logFile = createNewLogFile(tempDirectory))
+        {
+            assertThrows(IllegalStateException.class, () -> logFile.putAsync("key".getBytes(), "value".getBytes()));
+        }
+    }
+
+    @Test
+    void shouldRejectAsyncWritesOnceClosed() throws Exception
+    {
+        final LogFile logFile = createNewLogFile(tempDirectory);
+        logFile.startGroupCommit(new NonDaemonThreadFactory(), 8);
+        final CompletableFuture<Long> putFuture = logFile.putAsync("key".getBytes(), "value".getBytes());
+
+        logFile.close();
+
+        assertTrue(putFuture.get() >= 0);
+        assertThrows(IllegalStateException.class, () -> logFile.putAsync("key".getBytes(), "value".getBytes()));
+    }
+
+    @Test
+    void shouldFailFuturesWhenTheStorageCannotBeFlushed() throws Exception
+    {
+        final MemoryStorage storage = new MemoryStorage(TestUtils.BYTE_ORDER, PAGE_SIZE_BYTES, TestUtils.MEMORY_CHUNK_SIZE)
+        {
+            @Override
+            public void flush(final boolean flushMeta)
+            {
+                throw new UncheckedIOException(new IOException("fsync failed"));
+            }
+        };
+
+        try (final LogFile logFile = createNewLogFile(storage))
+        {
+            logFile.startGroupCommit(new NonDaemonThreadFactory(), 8);
+
+            final CompletableFuture<Long> putFuture = logFile.putAsync("key".getBytes(), "value".getBytes());
+
+            final ExecutionException exception = assertThrows(ExecutionException.class, putFuture::get);
+            assertEquals("fsync failed", exception.getCause().getMessage());
+            assertThrows(IOException.class, () -> logFile.put("key2".getBytes(), "value2".getBytes()));
+        }
+    }
+
+    private static void assertRecordsPresent(final LogFile logFile, final long[][] offsets)
+    {
+        for (int t = 0; t < offsets.length; t++)
+        {
+            for (int i = 0; i < offsets[t].length; i++)
+            {
+                final String expectedValue = "value" + t + "-" + i;
+                assertArrayEquals(expectedValue.getBytes(), logFile.read(offsets[t][i]));
+            }
+        }
+    }
+
     private byte[] generateByteArray(final int length)
     {
         final byte[] buffer = new byte[length];
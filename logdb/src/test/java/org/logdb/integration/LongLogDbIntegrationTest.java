@@ -0,0 +1,70 @@
+package org.logdb.integration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.logdb.LongIndex;
+import org.logdb.LongLogDb;
+import org.logdb.builder.LogDbBuilder;
+import org.logdb.support.StubTimeSource;
+import org.logdb.support.TestUtils;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LongLogDbIntegrationTest
+{
+    private static final int NUMBER_OF_KEYS = 300;
+
+    @TempDir Path tempDirectory;
+
+    @Test
+    void shouldPersistAndGetLongPairs() throws Exception
+    {
+        try (final LongLogDb logDb = createBuilder().buildLongLogDb())
+        {
+            for (long i = 0; i < NUMBER_OF_KEYS; i++)
+            {
+                logDb.put(-i, i * 10);
+            }
+            logDb.delete(0L);
+            logDb.commitIndex();
+
+            assertEquals(LongIndex.NO_VALUE, logDb.get(0L));
+            assertEquals(0L, logDb.get(0L, 0));
+            assertAllKeysFound(logDb);
+        }
+
+        try (final LongLogDb logDb = createBuilder().buildLongLogDb())
+        {
+            assertEquals(LongIndex.NO_VALUE, logDb.get(0L));
+            assertAllKeysFound(logDb);
+        }
+    }
+
+    @Test
+    void shouldNotBuildWithIndexLog()
+    {
+        assertThrows(RuntimeException.class, () -> createBuilder().useIndexWithLog(true).buildLongLogDb());
+    }
+
+    private static void assertAllKeysFound(final LongLogDb logDb)
+    {
+        for (long i = 1; i < NUMBER_OF_KEYS; i++)
+        {
+            assertEquals(i * 10, logDb.get(-i));
+        }
+    }
+
+    private LogDbBuilder createBuilder()
+    {
+        return new LogDbBuilder()
+                .setRootDirectory(tempDirectory)
+                .setTimeSource(new StubTimeSource())
+                .setByteOrder(TestUtils.BYTE_ORDER)
+                .setSegmentFileSize(TestUtils.SEGMENT_FILE_SIZE)
+                .setPageSizeBytes(TestUtils.PAGE_SIZE_BYTES)
+                .pageLogSize(TestUtils.NODE_LOG_SIZE);
+    }
+}
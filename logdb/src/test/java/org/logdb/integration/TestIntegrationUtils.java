@@ -2,6 +2,7 @@ package org.logdb.integration;
 
 import org.logdb.bbtree.BTreeImpl;
 import org.logdb.bbtree.BTreeWithLog;
+import org.logdb.bbtree.NodeOptions;
 import org.logdb.bbtree.NodesManager;
 import org.logdb.bit.DirectMemory;
 import org.logdb.checksum.ChecksumHelper;
@@ -12,6 +13,7 @@ import org.logdb.root.index.RootIndex;
 import org.logdb.root.index.RootIndexRecord;
 import org.logdb.storage.ByteOffset;
 import org.logdb.storage.PageNumber;
+import org.logdb.storage.Storage;
 import org.logdb.storage.StorageUnits;
 import org.logdb.storage.file.FileStorage;
 import org.logdb.storage.file.FileStorageFactory;
@@ -58,6 +60,11 @@ class TestIntegrationUtils
         return new LogFile(storageLogFile, new StubTimeSource(), storageLogFile.getAppendVersion(), true, CHECKSUM_HELPER);
     }
 
+    static LogFile createNewLogFile(final Storage storage)
+    {
+        return new LogFile(storage, new StubTimeSource(), storage.getAppendVersion(), true, CHECKSUM_HELPER);
+    }
+
     static LogFile readLogFile(final Path rootDirectory)
     {
         FileStorage storageLogFile = FileStorageFactory.openExisting(rootDirectory, FileType.HEAP, CHECKSUM_TYPE);
@@ -91,7 +98,7 @@ class TestIntegrationUtils
                 CHECKSUM_TYPE);
 
         final RootIndex rootIndex = createRootIndex(path, byteOrder);
-        final NodesManager nodesManage = new NodesManager(storage, rootIndex, true, NODE_LOG_SIZE);
+        final NodesManager nodesManage = new NodesManager(storage, rootIndex, true, NODE_LOG_SIZE, NodeOptions.DEFAULT);
 
         return new BTreeWithLog(
                 nodesManage,
@@ -109,7 +116,7 @@ class TestIntegrationUtils
         final FileStorage storage = FileStorageFactory.openExisting(path, FileType.INDEX, CHECKSUM_TYPE);
 
         final RootIndex rootIndex = openRootIndex(path);
-        final NodesManager nodesManager = new NodesManager(storage, rootIndex, true, NODE_LOG_SIZE);
+        final NodesManager nodesManager = new NodesManager(storage, rootIndex, true, NODE_LOG_SIZE, NodeOptions.DEFAULT);
 
         return new BTreeWithLog(
                 nodesManager,
@@ -150,7 +157,7 @@ class TestIntegrationUtils
                 CHECKSUM_TYPE);
 
         final RootIndex rootIndex = createRootIndex(path, byteOrder);
-        final NodesManager nodesManage = new NodesManager(storage, rootIndex, true, NODE_LOG_SIZE);
+        final NodesManager nodesManage = new NodesManager(storage, rootIndex, true, NODE_LOG_SIZE, NodeOptions.DEFAULT);
 
         return new BTreeImpl(
                 nodesManage,
@@ -160,6 +167,21 @@ class TestIntegrationUtils
                 createInitialRootReference(nodesManage));
     }
 
+    static NodesManager createNewPersistedNodesManager(final Path path) throws IOException
+    {
+        final FileStorage storage = FileStorageFactory.createNew(
+                path,
+                FileType.INDEX,
+                TestUtils.SEGMENT_FILE_SIZE,
+                TestUtils.BYTE_ORDER,
+                PAGE_SIZE_BYTES,
+                NODE_LOG_SIZE,
+                CHECKSUM_TYPE);
+
+        final RootIndex rootIndex = createRootIndex(path, TestUtils.BYTE_ORDER);
+        return new NodesManager(storage, rootIndex, true, NODE_LOG_SIZE, NodeOptions.DEFAULT);
+    }
+
     static BTreeImpl loadPersistedBtree(final Path path)
     {
         return loadPersistedBtree(path, new StubTimeSource());
@@ -170,7 +192,7 @@ class TestIntegrationUtils
         final FileStorage storage = FileStorageFactory.openExisting(path, FileType.INDEX, CHECKSUM_TYPE);
 
         final RootIndex rootIndex = openRootIndex(path);
-        final NodesManager nodesManager = new NodesManager(storage, rootIndex, true, NODE_LOG_SIZE);
+        final NodesManager nodesManager = new NodesManager(storage, rootIndex, true, NODE_LOG_SIZE, NodeOptions.DEFAULT);
 
         return new BTreeImpl(
                 nodesManager,
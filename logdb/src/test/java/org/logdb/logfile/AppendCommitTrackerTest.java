@@ -0,0 +1,77 @@
+package org.logdb.logfile;
+
+import org.junit.jupiter.api.Test;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.Version;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AppendCommitTrackerTest
+{
+    @Test
+    void shouldNotCommitPastAnAppendStillInFlight()
+    {
+        final AppendCommitTracker tracker = new AppendCommitTracker(StorageUnits.version(0));
+
+        final @Version long firstTicket = tracker.startAppend();
+        final @Version long secondTicket = tracker.startAppend();
+        tracker.completeAppend(secondTicket, StorageUnits.offset(100));
+
+        assertFalse(tracker.advance());
+        assertEquals(StorageUnits.INVALID_OFFSET, tracker.getCommittedOffset());
+        assertEquals(-1, tracker.getCommittedVersion());
+
+        tracker.completeAppend(firstTicket, StorageUnits.offset(0));
+
+        assertTrue(tracker.advance());
+        assertEquals(100, tracker.getCommittedOffset());
+        assertEquals(1, tracker.getCommittedVersion());
+    }
+
+    @Test
+    void shouldCommitAppendsCompletedBeforeLaterAppendsStart()
+    {
+        final AppendCommitTracker tracker = new AppendCommitTracker(StorageUnits.version(0));
+
+        final @Version long firstTicket = tracker.startAppend();
+        tracker.completeAppend(firstTicket, StorageUnits.offset(0));
+        final @Version long secondTicket = tracker.startAppend();
+
+        assertTrue(tracker.advance());
+        assertEquals(0, tracker.getCommittedOffset());
+        assertEquals(0, tracker.getCommittedVersion());
+
+        tracker.completeAppend(secondTicket, StorageUnits.offset(50));
+
+        assertTrue(tracker.advance());
+        assertEquals(50, tracker.getCommittedOffset());
+        assertEquals(1, tracker.getCommittedVersion());
+    }
+
+    @Test
+    void shouldCommitPastFailedAppends()
+    {
+        final AppendCommitTracker tracker = new AppendCommitTracker(StorageUnits.version(0));
+
+        final @Version long failedTicket = tracker.startAppend();
+        final @Version long ticket = tracker.startAppend();
+        tracker.completeAppend(ticket, StorageUnits.offset(100));
+        tracker.completeAppend(failedTicket, StorageUnits.INVALID_OFFSET);
+
+        assertTrue(tracker.advance());
+        assertEquals(100, tracker.getCommittedOffset());
+        assertEquals(1, tracker.getCommittedVersion());
+    }
+
+    @Test
+    void shouldHandOutVersionsInTicketOrderFromTheNextVersion()
+    {
+        final AppendCommitTracker tracker = new AppendCommitTracker(StorageUnits.version(7));
+
+        assertEquals(6, tracker.getCommittedVersion());
+        assertEquals(7, tracker.startAppend());
+        assertEquals(8, tracker.startAppend());
+    }
+}
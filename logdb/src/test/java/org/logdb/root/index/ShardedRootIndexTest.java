@@ -0,0 +1,41 @@
+package org.logdb.root.index;
+
+import org.junit.jupiter.api.Test;
+import org.logdb.storage.StorageUnits;
+import org.logdb.storage.Version;
+import org.logdb.storage.memory.MemoryStorage;
+import org.logdb.support.TestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.logdb.support.TestUtils.MEMORY_CHUNK_SIZE;
+
+class ShardedRootIndexTest
+{
+    private static final int NUMBER_OF_SHARDS = 3;
+
+    @Test
+    void shouldBeAbleToPersistRecords() throws Exception
+    {
+        final MemoryStorage storage = new MemoryStorage(TestUtils.BYTE_ORDER, TestUtils.PAGE_SIZE_BYTES, MEMORY_CHUNK_SIZE);
+        try (ShardedRootIndex rootIndex = new ShardedRootIndex(storage, NUMBER_OF_SHARDS))
+        {
+            assertEquals(0, rootIndex.getNumberOfRecords());
+
+            final int maxVersions = 100;
+            for (int i = 0; i < maxVersions; i++)
+            {
+                rootIndex.append(StorageUnits.INITIAL_VERSION + i, i * 10, new long[]{i, i - 1, i * 2});
+            }
+
+            assertEquals(maxVersions, rootIndex.getNumberOfRecords());
+
+            final @Version long[] shardVersions = new long[NUMBER_OF_SHARDS];
+            for (int i = 0; i < maxVersions; i++)
+            {
+                assertEquals(i * 10, rootIndex.read(StorageUnits.INITIAL_VERSION + i, shardVersions));
+                assertArrayEquals(new long[]{i, i - 1, i * 2}, shardVersions);
+            }
+        }
+    }
+}
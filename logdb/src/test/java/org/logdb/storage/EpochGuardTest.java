@@ -0,0 +1,79 @@
+package org.logdb.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EpochGuardTest
+{
+    @Test
+    void shouldRunRetiredActionStraightAwayWithoutReaders()
+    {
+        final EpochGuard epochGuard = new EpochGuard();
+        final AtomicInteger runs = new AtomicInteger(0);
+
+        epochGuard.retire(runs::incrementAndGet);
+
+        assertEquals(1, runs.get());
+        assertFalse(epochGuard.hasRetiredActions());
+    }
+
+    @Test
+    void shouldDelayRetiredActionUntilReadersExit()
+    {
+        final EpochGuard epochGuard = new EpochGuard();
+        final AtomicInteger runs = new AtomicInteger(0);
+
+        final long firstReader = epochGuard.enter();
+        final long secondReader = epochGuard.enter();
+        epochGuard.retire(runs::incrementAndGet);
+
+        assertEquals(0, runs.get());
+        epochGuard.exit(firstReader);
+        assertEquals(0, runs.get());
+        epochGuard.exit(secondReader);
+        assertEquals(1, runs.get());
+        assertFalse(epochGuard.hasRetiredActions());
+    }
+
+    @Test
+    void shouldNotDelayRetiredActionForReadersEnteringAfterIt()
+    {
+        final EpochGuard epochGuard = new EpochGuard();
+        final AtomicInteger runs = new AtomicInteger(0);
+
+        final long oldReader = epochGuard.enter();
+        epochGuard.retire(runs::incrementAndGet);
+        final long newReader = epochGuard.enter();
+
+        epochGuard.exit(oldReader);
+        assertEquals(1, runs.get());
+
+        epochGuard.exit(newReader);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void shouldRunActionsRetiredInDifferentEpochsInOrder()
+    {
+        final EpochGuard epochGuard = new EpochGuard();
+        final StringBuilder runs = new StringBuilder();
+
+        final long firstReader = epochGuard.enter();
+        epochGuard.retire(() -> runs.append('a'));
+        final long secondReader = epochGuard.enter();
+        epochGuard.retire(() -> runs.append('b'));
+
+        epochGuard.exit(firstReader);
+        assertEquals("a", runs.toString());
+        assertTrue(epochGuard.hasRetiredActions());
+
+        epochGuard.exit(secondReader);
+        assertEquals("ab", runs.toString());
+        assertFalse(epochGuard.hasRetiredActions());
+    }
+}
@@ -2,10 +2,12 @@ package org.logdb.storage.file;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.logdb.async.NonDaemonThreadFactory;
 import org.logdb.bbtree.BTreeNodeHeap;
 import org.logdb.bbtree.BTreeNodeLeaf;
 import org.logdb.bbtree.BTreeNodeNonLeaf;
 import org.logdb.bbtree.IdSupplier;
+import org.logdb.bbtree.NodeOptions;
 import org.logdb.bbtree.NodesManager;
 import org.logdb.bit.BinaryHelper;
 import org.logdb.bit.DirectMemory;
@@ -16,21 +18,34 @@ import org.logdb.checksum.ChecksumType;
 import org.logdb.root.index.RootIndex;
 import org.logdb.storage.ByteOffset;
 import org.logdb.storage.ByteSize;
+import org.logdb.storage.PageAppendBatch;
 import org.logdb.storage.PageNumber;
 import org.logdb.storage.StorageUnits;
 import org.logdb.support.TestUtils;
 import org.logdb.time.TimeUnits;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.logdb.storage.file.FileStorageFactory.createNew;
@@ -55,7 +70,7 @@ class FileStorageTest
         }
         catch (final IllegalArgumentException e)
         {
-            assertEquals(e.getMessage(), "Page Size must be bigger than 128 bytes and a power of 2. Provided was " + 100);
+            assertEquals(e.getMessage(), "Page Size must be a power of 2 between 128 and 262144 bytes. Provided was " + 100);
         }
 
         try(FileStorage ignored = createNew(tempDirectory, FileType.INDEX, TestUtils.SEGMENT_FILE_SIZE, BYTE_ORDER, 4097, NODE_LOG_SIZE, CHECKSUM_TYPE))
@@ -64,7 +79,25 @@ class FileStorageTest
         }
         catch (final IllegalArgumentException e)
         {
-            assertEquals(e.getMessage(), "Page Size must be bigger than 128 bytes and a power of 2. Provided was " + 4097);
+            assertEquals(e.getMessage(), "Page Size must be a power of 2 between 128 and 262144 bytes. Provided was " + 4097);
+        }
+
+        try(FileStorage ignored = createNew(tempDirectory, FileType.INDEX, TestUtils.SEGMENT_FILE_SIZE, BYTE_ORDER, 6144, NODE_LOG_SIZE, CHECKSUM_TYPE))
+        {
+            fail("should have failed creating file storage with invalid page size");
+        }
+        catch (final IllegalArgumentException e)
+        {
+            assertEquals(e.getMessage(), "Page Size must be a power of 2 between 128 and 262144 bytes. Provided was " + 6144);
+        }
+
+        try(FileStorage ignored = createNew(tempDirectory, FileType.INDEX, TestUtils.SEGMENT_FILE_SIZE, BYTE_ORDER, 512 * 1024, NODE_LOG_SIZE, CHECKSUM_TYPE))
+        {
+            fail("should have failed creating file storage with invalid page size");
+        }
+        catch (final IllegalArgumentException e)
+        {
+            assertEquals(e.getMessage(), "Page Size must be a power of 2 between 128 and 262144 bytes. Provided was " + 512 * 1024);
         }
     }
 
@@ -130,7 +163,7 @@ class FileStorageTest
                     TimeUnits.millis(0),
                     StorageUnits.INVALID_OFFSET);
 
-            final NodesManager nodesManager = new NodesManager(storage, rootIndex, true, ZERO_NODE_LOG_SIZE);
+            final NodesManager nodesManager = new NodesManager(storage, rootIndex, true, ZERO_NODE_LOG_SIZE, NodeOptions.DEFAULT);
 
             final long pageNumber = leaf.commit(nodesManager, true, previousRootPageNumber, timestamp, version);
             storage.flush(true);
@@ -180,7 +213,7 @@ class FileStorageTest
                     TimeUnits.millis(0),
                     StorageUnits.INVALID_OFFSET);
 
-            final NodesManager nodesManager = new NodesManager(storage, rootIndex, true, ZERO_NODE_LOG_SIZE);
+            final NodesManager nodesManager = new NodesManager(storage, rootIndex, true, ZERO_NODE_LOG_SIZE, NodeOptions.DEFAULT);
 
             final long pageNumber = nonLeaf.commit(nodesManager, true, previousRootPageNumber, timestamp, version);
             storage.flush(true);
@@ -277,6 +310,482 @@ class FileStorageTest
         }
     }
 
+    @Test
+    void shouldWriteTheBatchedPagesAcrossSegmentRolls() throws Exception
+    {
+        final int segmentFileSize = 1024;
+        final int pageSizeBytes = 128;
+        final int pageLogSize = 38;
+        final int numberOfPages = 20;
+
+        try (FileStorage fileStorage = createNew(tempDirectory, FileType.INDEX, segmentFileSize, BYTE_ORDER, pageSizeBytes, pageLogSize, CHECKSUM_TYPE))
+        {
+            final PageAppendBatch batch = fileStorage.startPageAppendBatch(4);
+            final @PageNumber long[] pageNumbers = new long[numberOfPages];
+            for (int i = 0; i < numberOfPages; i++)
+            {
+                final byte[] page = new byte[pageSizeBytes];
+                Arrays.fill(page, (byte) i);
+                pageNumbers[i] = batch.append(ByteBuffer.wrap(page));
+            }
+            batch.write();
+
+            assertTrue(fileStorage.getSealedSegments().length > 1);
+            for (int i = 0; i < numberOfPages; i++)
+            {
+                final ByteBuffer readBuffer = ByteBuffer.allocate(pageSizeBytes);
+                fileStorage.readBytes(fileStorage.getOffset(pageNumbers[i]), readBuffer);
+
+                final byte[] expectedPage = new byte[pageSizeBytes];
+                Arrays.fill(expectedPage, (byte) i);
+                assertArrayEquals(expectedPage, readBuffer.array());
+            }
+        }
+    }
+
+    @Test
+    void shouldRollSegmentsAfterAbortingABatch() throws Exception
+    {
+        final int segmentFileSize = 1024;
+        final int pageSizeBytes = 128;
+        final int pageLogSize = 38;
+        final int numberOfPages = 20;
+
+        try (FileStorage fileStorage = createNew(tempDirectory, FileType.INDEX, segmentFileSize, BYTE_ORDER, pageSizeBytes, pageLogSize, CHECKSUM_TYPE))
+        {
+            final PageAppendBatch batch = fileStorage.startPageAppendBatch(4);
+            batch.append(ByteBuffer.wrap(new byte[pageSizeBytes]));
+            batch.append(ByteBuffer.wrap(new byte[pageSizeBytes]));
+            batch.abort();
+
+            //the aborted reservations would otherwise keep the first segment from being sealed
+            for (int i = 0; i < numberOfPages; i++)
+            {
+                fileStorage.appendPageAligned(ByteBuffer.wrap(new byte[pageSizeBytes]));
+            }
+
+            assertTrue(fileStorage.getSealedSegments().length > 1);
+        }
+    }
+
+    @Test
+    void shouldReuseTheBatchOnceWritten() throws Exception
+    {
+        final int segmentFileSize = 256 * 1024;
+        final int pageSizeBytes = 128;
+        final int pageLogSize = 38;
+        final int numberOfPages = 1000;
+
+        try (FileStorage fileStorage = createNew(tempDirectory, FileType.INDEX, segmentFileSize, BYTE_ORDER, pageSizeBytes, pageLogSize, CHECKSUM_TYPE))
+        {
+            final PageAppendBatch batch = fileStorage.startPageAppendBatch(numberOfPages);
+            for (int round = 0; round < 2; round++)
+            {
+                final @PageNumber long[] pageNumbers = new long[numberOfPages];
+                for (int i = 0; i < numberOfPages; i++)
+                {
+                    final byte[] page = new byte[pageSizeBytes];
+                    Arrays.fill(page, (byte) (i + round));
+                    pageNumbers[i] = batch.append(ByteBuffer.wrap(page));
+                }
+                batch.write();
+
+                for (int i = 0; i < numberOfPages; i++)
+                {
+                    final ByteBuffer readBuffer = ByteBuffer.allocate(pageSizeBytes);
+                    fileStorage.readBytes(fileStorage.getOffset(pageNumbers[i]), readBuffer);
+
+                    final byte[] expectedPage = new byte[pageSizeBytes];
+                    Arrays.fill(expectedPage, (byte) (i + round));
+                    assertArrayEquals(expectedPage, readBuffer.array());
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldDeleteSealedSegmentKeepingTheOffsetsOfTheOthers() throws Exception
+    {
+        final int segmentFileSize = 512;
+        final int pageSizeBytes = 128;
+        final int pageLogSize = 38;
+
+        final @ByteOffset long[] recordOffsets = new long[3];
+        try (FileStorage fileStorage = createNew(tempDirectory, FileType.HEAP, segmentFileSize, BYTE_ORDER, pageSizeBytes, pageLogSize, CHECKSUM_TYPE))
+        {
+            for (int i = 0; i < recordOffsets.length; i++)
+            {
+                final byte[] record = new byte[pageSizeBytes];
+                Arrays.fill(record, (byte) i);
+                recordOffsets[i] = fileStorage.append(record);
+            }
+            assertArrayEquals(new int[] {0, 1}, fileStorage.getSealedSegments());
+            assertEquals(recordOffsets[1], fileStorage.getSegmentStartOffset(1));
+            assertEquals(2 * segmentFileSize, fileStorage.getSegmentEndOffset(1));
+
+            fileStorage.deleteSegment(0);
+
+            assertArrayEquals(new int[] {1}, fileStorage.getSealedSegments());
+            assertFalse(Files.exists(tempDirectory.resolve("0-heap.logdb")));
+            assertThrows(IllegalArgumentException.class,
+                    () -> fileStorage.mapOffset(recordOffsets[0], fileStorage.getUninitiatedDirectMemoryPage()));
+            assertThrows(IllegalArgumentException.class, () -> fileStorage.deleteSegment(2));
+
+            fileStorage.commitMetadata(recordOffsets[2], INITIAL_VERSION);
+        }
+
+        try (FileStorage fileStorage = FileStorageFactory.openExisting(tempDirectory, FileType.HEAP, CHECKSUM_TYPE))
+        {
+            assertArrayEquals(new int[] {1}, fileStorage.getSealedSegments());
+            for (int i = 1; i < recordOffsets.length; i++)
+            {
+                final ByteBuffer readBuffer = ByteBuffer.allocate(pageSizeBytes);
+                fileStorage.readBytes(recordOffsets[i], readBuffer);
+
+                final byte[] expectedRecord = new byte[pageSizeBytes];
+                Arrays.fill(expectedRecord, (byte) i);
+                assertArrayEquals(expectedRecord, readBuffer.array());
+            }
+        }
+    }
+
+    @Test
+    void shouldAppendFromConcurrentWritersAcrossSegmentRolls() throws Exception
+    {
+        final int segmentFileSize = 8192;
+        final int pageSizeBytes = 128;
+        final int pageLogSize = 38;
+        final int numberOfThreads = 8;
+        final int recordsPerThread = 200;
+        final int recordSize = 60;
+        final long[][] offsets = new long[numberOfThreads][recordsPerThread];
+
+        try (FileStorage fileStorage = createNew(tempDirectory, FileType.HEAP, segmentFileSize, BYTE_ORDER, pageSizeBytes, pageLogSize, CHECKSUM_TYPE))
+        {
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final Thread[] writers = new Thread[numberOfThreads];
+            for (int t = 0; t < numberOfThreads; t++)
+            {
+                final int threadIndex = t;
+                writers[t] = new Thread(() ->
+                {
+                    try
+                    {
+                        startLatch.await();
+                        for (int i = 0; i < recordsPerThread; i++)
+                        {
+                            offsets[threadIndex][i] = fileStorage.append(generateRecord(threadIndex, i, recordSize));
+                        }
+                    }
+                    catch (final Exception e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                });
+                writers[t].start();
+            }
+
+            startLatch.countDown();
+            for (final Thread writer : writers)
+            {
+                writer.join();
+            }
+
+            final Set<Long> uniqueOffsets = new HashSet<>();
+            for (int t = 0; t < numberOfThreads; t++)
+            {
+                for (int i = 0; i < recordsPerThread; i++)
+                {
+                    final long offset = offsets[t][i];
+                    assertTrue(uniqueOffsets.add(offset));
+                    assertEquals(offset / segmentFileSize, (offset + recordSize - 1) / segmentFileSize);
+
+                    final ByteBuffer readBuffer = ByteBuffer.allocate(recordSize);
+                    fileStorage.readBytes(StorageUnits.offset(offset), readBuffer);
+                    assertArrayEquals(generateRecord(t, i, recordSize), readBuffer.array());
+                }
+            }
+
+            assertTrue(Files.list(tempDirectory).count() > 1);
+        }
+    }
+
+    @Test
+    void shouldReadAndReopenBufferedAppendsAcrossSegmentRolls() throws Exception
+    {
+        final int segmentFileSize = 8192;
+        final int pageSizeBytes = 128;
+        final int pageLogSize = 38;
+        final int numberOfThreads = 4;
+        final int recordsPerThread = 200;
+        final int recordSize = 60;
+        final int bigRecordSize = 2000;
+        final long[][] offsets = new long[numberOfThreads][recordsPerThread];
+
+        try (FileStorage fileStorage = createNew(tempDirectory, FileType.HEAP, segmentFileSize, BYTE_ORDER, pageSizeBytes, pageLogSize, CHECKSUM_TYPE))
+        {
+            fileStorage.bufferAppends(1024);
+
+            final Thread[] writers = new Thread[numberOfThreads];
+            for (int t = 0; t < numberOfThreads; t++)
+            {
+                final int threadIndex = t;
+                writers[t] = new Thread(() ->
+                {
+                    for (int i = 0; i < recordsPerThread; i++)
+                    {
+                        //every few records, one doesn't fit in the buffer and is written straight away
+                        final int size = i % 50 == 49 ? bigRecordSize : recordSize;
+                        final byte[] record = generateRecord(threadIndex, i, size);
+                        try
+                        {
+                            offsets[threadIndex][i] = fileStorage.append(record);
+                        }
+                        catch (final IOException e)
+                        {
+                            throw new UncheckedIOException(e);
+                        }
+
+                        //the record is readable before the buffer is full
+                        final ByteBuffer readBuffer = ByteBuffer.allocate(size);
+                        fileStorage.readBytes(StorageUnits.offset(offsets[threadIndex][i]), readBuffer);
+                        assertArrayEquals(record, readBuffer.array());
+                    }
+                });
+                writers[t].start();
+            }
+
+            long lastOffset = 0;
+            for (final Thread writer : writers)
+            {
+                writer.join();
+            }
+            for (int t = 0; t < numberOfThreads; t++)
+            {
+                for (int i = 0; i < recordsPerThread; i++)
+                {
+                    lastOffset = Math.max(lastOffset, offsets[t][i]);
+                }
+            }
+
+            assertTrue(fileStorage.getSealedSegments().length > 1);
+            fileStorage.commitMetadata(StorageUnits.offset(lastOffset), INITIAL_VERSION);
+        }
+
+        try (FileStorage fileStorage = FileStorageFactory.openExisting(tempDirectory, FileType.HEAP, CHECKSUM_TYPE))
+        {
+            for (int t = 0; t < numberOfThreads; t++)
+            {
+                for (int i = 0; i < recordsPerThread; i++)
+                {
+                    final int size = i % 50 == 49 ? bigRecordSize : recordSize;
+                    final ByteBuffer readBuffer = ByteBuffer.allocate(size);
+                    fileStorage.readBytes(StorageUnits.offset(offsets[t][i]), readBuffer);
+                    assertArrayEquals(generateRecord(t, i, size), readBuffer.array());
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldReadBufferedAppendsOfOtherThreadsWhileTheyAppend() throws Exception
+    {
+        final int segmentFileSize = 8192;
+        final int pageSizeBytes = 128;
+        final int pageLogSize = 38;
+        final int numberOfWriters = 4;
+        final int numberOfReaders = 4;
+        final int recordsPerWriter = 500;
+        final int recordSize = 60;
+        final AtomicLongArray offsets = new AtomicLongArray(numberOfWriters * recordsPerWriter);
+        final AtomicInteger readRecords = new AtomicInteger();
+
+        try (FileStorage fileStorage = createNew(tempDirectory, FileType.HEAP, segmentFileSize, BYTE_ORDER, pageSizeBytes, pageLogSize, CHECKSUM_TYPE))
+        {
+            fileStorage.bufferAppends(4096);
+
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            final CountDownLatch writersLatch = new CountDownLatch(numberOfWriters);
+            final List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < numberOfWriters; t++)
+            {
+                final int writerIndex = t;
+                threads.add(new Thread(() ->
+                {
+                    try
+                    {
+                        startLatch.await();
+                        for (int i = 0; i < recordsPerWriter; i++)
+                        {
+                            //offsets are stored plus one, so zero means not appended yet
+                            final long offset = fileStorage.append(generateRecord(writerIndex, i, recordSize));
+                            offsets.set(writerIndex * recordsPerWriter + i, offset + 1);
+                        }
+                    }
+                    catch (final Exception e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                    finally
+                    {
+                        writersLatch.countDown();
+                    }
+                }));
+            }
+
+            //the readers keep reading the last records appended by any writer, most of them are still buffered
+            for (int t = 0; t < numberOfReaders; t++)
+            {
+                threads.add(new Thread(() ->
+                {
+                    final ByteBuffer readBuffer = ByteBuffer.allocate(recordSize);
+                    while (writersLatch.getCount() > 0)
+                    {
+                        for (int w = 0; w < numberOfWriters; w++)
+                        {
+                            for (int i = recordsPerWriter - 1; i >= 0; i--)
+                            {
+                                final long offset = offsets.get(w * recordsPerWriter + i) - 1;
+                                if (offset >= 0)
+                                {
+                                    readBuffer.clear();
+                                    fileStorage.readBytes(StorageUnits.offset(offset), readBuffer);
+                                    assertArrayEquals(generateRecord(w, i, recordSize), readBuffer.array());
+                                    readRecords.incrementAndGet();
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                }));
+            }
+
+            final List<Throwable> failures = new CopyOnWriteArrayList<>();
+            for (final Thread thread : threads)
+            {
+                thread.setUncaughtExceptionHandler((failedThread, e) -> failures.add(e));
+                thread.start();
+            }
+            startLatch.countDown();
+            for (final Thread thread : threads)
+            {
+                thread.join();
+            }
+
+            assertEquals(Collections.emptyList(), failures);
+            assertTrue(readRecords.get() > 0);
+            assertTrue(fileStorage.getSealedSegments().length > 1);
+        }
+    }
+
+    @Test
+    void shouldAppendThroughTheMappingAcrossSegmentRollsAndReopen() throws Exception
+    {
+        final int segmentFileSize = 4096;
+        final int pageSizeBytes = 128;
+        final int pageLogSize = 38;
+        final int recordsPerOpen = 200;
+        final int recordSize = 60;
+        final long[] offsets = new long[recordsPerOpen * 2];
+
+        try (FileStorage fileStorage = createNew(tempDirectory, FileType.HEAP, segmentFileSize, BYTE_ORDER, pageSizeBytes, pageLogSize, CHECKSUM_TYPE))
+        {
+            fileStorage.appendThroughMapping();
+            appendRecords(fileStorage, offsets, 0, recordsPerOpen, recordSize);
+
+            assertTrue(fileStorage.getSealedSegments().length > 1);
+            fileStorage.commitMetadata(StorageUnits.offset(offsets[recordsPerOpen - 1]), INITIAL_VERSION);
+        }
+
+        try (FileStorage fileStorage = FileStorageFactory.openExisting(tempDirectory, FileType.HEAP, CHECKSUM_TYPE))
+        {
+            fileStorage.appendThroughMapping();
+            appendRecords(fileStorage, offsets, recordsPerOpen, recordsPerOpen * 2, recordSize);
+
+            for (int i = 0; i < offsets.length; i++)
+            {
+                final ByteBuffer readBuffer = ByteBuffer.allocate(recordSize);
+                fileStorage.readBytes(StorageUnits.offset(offsets[i]), readBuffer);
+                assertArrayEquals(generateRecord(0, i, recordSize), readBuffer.array());
+            }
+        }
+    }
+
+    @Test
+    void shouldRollToPreallocatedSegmentsAndReopen() throws Exception
+    {
+        final int segmentFileSize = 4096;
+        final int pageSizeBytes = 128;
+        final int pageLogSize = 38;
+        final int recordsPerOpen = 200;
+        final int recordSize = 60;
+        final long[] offsets = new long[recordsPerOpen * 2];
+
+        try (FileStorage fileStorage = createNew(tempDirectory, FileType.HEAP, segmentFileSize, BYTE_ORDER, pageSizeBytes, pageLogSize, CHECKSUM_TYPE))
+        {
+            fileStorage.preallocateSegments(new NonDaemonThreadFactory());
+            appendRecords(fileStorage, offsets, 0, recordsPerOpen, recordSize);
+
+            final SegmentRollMetrics rollMetrics = fileStorage.getRollMetrics();
+            assertEquals(fileStorage.getSealedSegments().length, rollMetrics.getRolls());
+            assertEquals(rollMetrics.getRolls(), rollMetrics.getPreallocatedRolls());
+            assertTrue(rollMetrics.getMaxRollNanos() >= rollMetrics.getLastRollNanos());
+            fileStorage.commitMetadata(StorageUnits.offset(offsets[recordsPerOpen - 1]), INITIAL_VERSION);
+        }
+
+        //the segment prepared for the next roll is deleted on close
+        try (Stream<Path> files = Files.list(tempDirectory))
+        {
+            assertTrue(files.allMatch(FileType.HEAP));
+        }
+
+        try (FileStorage fileStorage = FileStorageFactory.openExisting(tempDirectory, FileType.HEAP, CHECKSUM_TYPE))
+        {
+            fileStorage.preallocateSegments(new NonDaemonThreadFactory());
+            appendRecords(fileStorage, offsets, recordsPerOpen, recordsPerOpen * 2, recordSize);
+
+            for (int i = 0; i < offsets.length; i++)
+            {
+                final ByteBuffer readBuffer = ByteBuffer.allocate(recordSize);
+                fileStorage.readBytes(StorageUnits.offset(offsets[i]), readBuffer);
+                assertArrayEquals(generateRecord(0, i, recordSize), readBuffer.array());
+            }
+        }
+    }
+
+    private static void appendRecords(
+            final FileStorage fileStorage,
+            final long[] offsets,
+            final int fromIndex,
+            final int toIndex,
+            final int recordSize) throws IOException
+    {
+        for (int i = fromIndex; i < toIndex; i++)
+        {
+            final byte[] record = generateRecord(0, i, recordSize);
+            if (i % 2 == 0)
+            {
+                offsets[i] = fileStorage.append(record);
+            }
+            else
+            {
+                final ByteBuffer directRecord = ByteBuffer.allocateDirect(recordSize);
+                directRecord.put(record);
+                offsets[i] = fileStorage.append(directRecord);
+            }
+        }
+    }
+
+    private static byte[] generateRecord(final int threadIndex, final int recordIndex, final int recordSize)
+    {
+        final byte[] record = new byte[recordSize];
+        for (int i = 0; i < recordSize; i++)
+        {
+            record[i] = (byte) (threadIndex * 31 + recordIndex + i);
+        }
+        return record;
+    }
+
     private static BTreeNodeLeaf loadLeaf(final @PageNumber long pageNumber, final HeapMemory memory)
     {
         return new BTreeNodeLeaf(pageNumber, memory, memory.getInt(32));
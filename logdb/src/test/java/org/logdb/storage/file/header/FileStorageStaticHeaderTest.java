@@ -29,7 +29,8 @@ class FileStorageStaticHeaderTest
                 pageSizeBytes,
                 pageLogSize,
                 pageSizeBytes << 5,
-                CHECKSUM_HELPER.getType());
+                CHECKSUM_HELPER.getType(),
+                FileStorageStaticHeader.FORMAT_LEAF_PREFIX_COMPRESSION);
 
         final SeekableByteChannel channel = new ByteBufferSeekableByteChannel(ByteBuffer.allocate(pageSizeBytes));
         expectedHeader.writeAlign(channel);
@@ -40,6 +41,7 @@ class FileStorageStaticHeaderTest
         assertEquals(expectedHeader.getSegmentFileSize(), actualHeader.getSegmentFileSize());
         assertEquals(expectedHeader.getOrder(), actualHeader.getOrder());
         assertEquals(expectedHeader.getDbVersion(), actualHeader.getDbVersion());
+        assertEquals(FileStorageStaticHeader.FORMAT_LEAF_PREFIX_COMPRESSION, actualHeader.getFormatFlags());
     }
 
 }
\ No newline at end of file
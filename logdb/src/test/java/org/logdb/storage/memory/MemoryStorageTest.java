@@ -3,6 +3,7 @@ package org.logdb.storage.memory;
 import org.junit.jupiter.api.Test;
 import org.logdb.bbtree.BTreeImpl;
 import org.logdb.bbtree.BTreePrinter;
+import org.logdb.bbtree.NodeOptions;
 import org.logdb.bbtree.NodesManager;
 import org.logdb.bit.BinaryHelper;
 import org.logdb.root.index.RootIndex;
@@ -31,7 +32,7 @@ class MemoryStorageTest
         final Storage memoryStorage = new MemoryStorage(TestUtils.BYTE_ORDER, PAGE_SIZE_BYTES, MEMORY_CHUNK_SIZE);
         final RootIndex rootIndex = createRootIndex(PAGE_SIZE_BYTES);
 
-        final NodesManager nodesManager = new NodesManager(memoryStorage, rootIndex, false, TestUtils.NODE_LOG_SIZE);
+        final NodesManager nodesManager = new NodesManager(memoryStorage, rootIndex, false, TestUtils.NODE_LOG_SIZE, NodeOptions.DEFAULT);
         final BTreeImpl originalBTree = new BTreeImpl(
                 nodesManager,
                 new StubTimeSource(),
@@ -50,7 +51,7 @@ class MemoryStorageTest
         final String originalBtreePrint = BTreePrinter.print(originalBTree, nodesManager);
 
         //load btree from existing memory
-        final NodesManager readNodesManager = new NodesManager(memoryStorage, rootIndex, false, TestUtils.NODE_LOG_SIZE);
+        final NodesManager readNodesManager = new NodesManager(memoryStorage, rootIndex, false, TestUtils.NODE_LOG_SIZE, NodeOptions.DEFAULT);
         final @PageNumber long pageNumber = readNodesManager.loadLastRootPageNumber();
         assertFalse(isNewTree(pageNumber));
 
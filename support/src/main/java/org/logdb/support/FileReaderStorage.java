@@ -5,6 +5,7 @@ import org.logdb.bit.HeapMemory;
 import org.logdb.bit.MemoryFactory;
 import org.logdb.storage.ByteOffset;
 import org.logdb.storage.ByteSize;
+import org.logdb.storage.PageAppendBatch;
 import org.logdb.storage.PageNumber;
 import org.logdb.storage.Storage;
 import org.logdb.storage.StorageUnits;
@@ -95,6 +96,12 @@ final class FileReaderStorage implements Storage
         throw new UnsupportedOperationException("Method not Implemented");
     }
 
+    @Override
+    public PageAppendBatch startPageAppendBatch(int maxBufferedPages)
+    {
+        throw new UnsupportedOperationException("Method not Implemented");
+    }
+
     @Override
     public void flush(final boolean flushMeta)
     {
@@ -107,6 +114,36 @@ final class FileReaderStorage implements Storage
         throw new UnsupportedOperationException("Method not Implemented");
     }
 
+    @Override
+    public int[] getSealedSegments()
+    {
+        throw new UnsupportedOperationException("Method not Implemented");
+    }
+
+    @Override
+    public int[] getDeletedSegments()
+    {
+        throw new UnsupportedOperationException("Method not Implemented");
+    }
+
+    @Override
+    public @ByteOffset long getSegmentStartOffset(final int segmentIndex)
+    {
+        throw new UnsupportedOperationException("Method not Implemented");
+    }
+
+    @Override
+    public @ByteOffset long getSegmentEndOffset(final int segmentIndex)
+    {
+        throw new UnsupportedOperationException("Method not Implemented");
+    }
+
+    @Override
+    public void deleteSegment(final int segmentIndex)
+    {
+        throw new UnsupportedOperationException("Method not Implemented");
+    }
+
     @Override
     public @ByteOffset long getLastPersistedOffset()
     {
@@ -134,6 +171,12 @@ final class FileReaderStorage implements Storage
         memory.setBaseAddress(pageOffset);
     }
 
+    @Override
+    public void mapOffset(final @ByteOffset long offset, final DirectMemory memory)
+    {
+        memory.setBaseAddress(MemoryFactory.getPageOffset(mappedByteBuffer, offset));
+    }
+
     @Override
     public void readBytes(@ByteOffset long offset, ByteBuffer destinationBuffer)
     {